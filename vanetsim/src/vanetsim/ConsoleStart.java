@@ -4,26 +4,20 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.util.Date;
 import java.util.Properties;
-import javax.swing.JDialog;
-import javax.swing.JFrame;
-import javax.swing.UIManager;
 
-import org.jvnet.substance.SubstanceLookAndFeel;
-
-
-import vanetsim.gui.Renderer;
 import vanetsim.localization.Messages;
-import vanetsim.map.Map;
-import vanetsim.scenario.Scenario;
+import vanetsim.simulation.SimulationEngine;
 import vanetsim.simulation.SimulationMaster;
+import vanetsim.simulation.StepProfiler;
 
 /**
- * This is the main class for the VANet-Simulator which starts the GUI and all other components.
+ * This is the main class for the VANet-Simulator in console mode. No GUI classes are used, the simulation
+ * is calculated through the {@link SimulationEngine}.
  */
 public final class ConsoleStart implements Runnable {
 
-	/** The master thread for simulation delegation. Stored here if any other class needs control over it. */
-	private static SimulationMaster simulationMaster_;
+	/** After how much simulation time (in milliseconds) the progress is printed. */
+	private static final int PROGRESS_INTERVAL = 10000;
 	
 	/** Map file to load */
 	private static File mapFile_ = null;
@@ -34,6 +28,9 @@ public final class ConsoleStart implements Runnable {
 	
 	/** Simulation time */
 	private static int simulationTime_ = 0;
+
+	/** Path (without file extension) for the profiling results or <code>null</code> if profiling is disabled */
+	private static String profilerFile_ = null;
 	
 
 	/**
@@ -52,52 +49,55 @@ public final class ConsoleStart implements Runnable {
 	}
 
 	/**
-	 * Thread which creates the GUI.
+	 * Loads map and scenario and simulates until the simulation time is reached.
 	 * 
 	 * @see java.lang.Runnable#run()
 	 */
 	public void run() {
-		Renderer.getInstance().setConsoleStart(true);
+		SimulationEngine engine = SimulationEngine.getInstance();
+		engine.setHeadless(true);
 
 		System.out.println("Time:" + new Date());
-
-		System.out.println(Messages.getString("ConsoleStart.SimMasterInit"));
-		simulationMaster_ = new SimulationMaster();
-		simulationMaster_.start();
-		System.out.println(Messages.getString("ConsoleStart.SimMasterInited"));
-		
-		Map.getInstance().initNewMap(100000, 100000, 10000, 10000);
-		Map.getInstance().signalMapLoaded();
 		
 		System.out.println(Messages.getString("ConsoleStart.MapLoad"));
-		Map.getInstance().load(mapFile_, false);
+		if(!engine.loadMap(mapFile_)){
+			System.out.println(Messages.getString("ConsoleStart.MapLoadFailed") + mapFile_);
+			System.exit(1);
+		}
 		System.out.println(Messages.getString("ConsoleStart.MapLoaded"));
 		
 		System.out.println(Messages.getString("ConsoleStart.ScenarioLoad"));
-		Scenario.getInstance().load(scenarioFile_, false);
+		if(!engine.loadScenario(scenarioFile_)){
+			System.out.println(Messages.getString("ConsoleStart.ScenarioLoadFailed") + scenarioFile_);
+			System.exit(1);
+		}
 		System.out.println(Messages.getString("ConsoleStart.ScenarioLoaded"));
 		
-		System.out.println(Messages.getString("ConsoleStart.SetSimTime"));
-		ConsoleStart.getSimulationMaster().jumpToTime(simulationTime_);
-		System.out.println(Messages.getString("ConsoleStart.SimTimeSet"));
-		
 		System.out.println(Messages.getString("ConsoleStart.SimulationStart"));
-		ConsoleStart.getSimulationMaster().startThread();
-		System.out.println(Messages.getString("ConsoleStart.SimulationStarted")); 
-		
+		if(profilerFile_ != null) StepProfiler.getInstance().setEnabled(true);
 		if(SimulationMaster.isLogPerformance_()){
 			SimulationMaster.setStartTime(System.currentTimeMillis());
 			//SimulationMaster.writeAnyTextToFile(Scenario.getInstance().getScenarioName() + "\ntime:" + SimulationMaster.getStartTime() + "\n", System.getProperty("user.dir") + "/performance.log", true);
 		}
-	}
+		long timeOld = System.currentTimeMillis();
+		long timeNew;
+		int target = PROGRESS_INTERVAL;
+		while(target < simulationTime_){
+			if(!engine.runUntil(target)) break;
+			timeNew = System.currentTimeMillis();
+			System.out.println("Time:" + (timeNew - timeOld));
+			System.out.println(target);
+			timeOld = timeNew;
+			target += PROGRESS_INTERVAL;
+		}
+		engine.runUntil(simulationTime_);
+		engine.stopWorkers();
 
-	/**
-	 * Returns the simulation master (for example in order to stop or start simulation).
-	 * 
-	 * @return the simulation master
-	 */
-	public static SimulationMaster getSimulationMaster(){
-		return simulationMaster_;
+		System.out.println("Time:" + new Date());
+		System.out.println(Messages.getString("ConsoleStart.SimulationEnded"));
+		System.out.println(Messages.getString("ConsoleStart.Results") + engine.collectResults());
+		if(profilerFile_ != null) StepProfiler.getInstance().export(profilerFile_);
+		System.exit(0);
 	}
 
 	/**
@@ -114,24 +114,17 @@ public final class ConsoleStart implements Runnable {
 		try {
 			configFile.load(new FileInputStream(configFilePath));
 
-			String guiTheme = configFile.getProperty("gui_theme", ""); //$NON-NLS-1$ //$NON-NLS-2$
-			// set substance theme
-			if (!guiTheme.equals("")) { //$NON-NLS-1$
-				try {
-					JFrame.setDefaultLookAndFeelDecorated(true);
-					JDialog.setDefaultLookAndFeelDecorated(true);
-					UIManager.setLookAndFeel("org.jvnet.substance.skin." + guiTheme); //$NON-NLS-1$
-					SubstanceLookAndFeel.setToUseConstantThemesOnDialogs(true);
-				} catch (Exception e) {
-					ErrorLog.log(Messages.getString("StartGUI.substanceThemeError"), 3, VanetSimStart.class.getName(), "readconfig", e); //$NON-NLS-1$ //$NON-NLS-2$
-				}
-			}
+			// the gui theme is ignored as no GUI is used in console mode
 			// read parameters for logfile
 			loggerTrashtime = Long.parseLong(configFile.getProperty("logger_trashtime", "365000")); //$NON-NLS-1$ //$NON-NLS-2$
 			loggerDir = configFile.getProperty("logger_dir", "./"); //$NON-NLS-1$ //$NON-NLS-2$
 			loggerFormat = configFile.getProperty("logger_format", "txt"); //$NON-NLS-1$ //$NON-NLS-2$
 			loggerLevel = Integer.parseInt(configFile.getProperty("logger_level", "1")); //$NON-NLS-1$ //$NON-NLS-2$
 
+			// read parameters for profiling
+			profilerFile_ = configFile.getProperty("profiler_file", "").trim(); //$NON-NLS-1$ //$NON-NLS-2$
+			if(profilerFile_.length() == 0) profilerFile_ = null;
+
 			if (!loggerFormat.equals("txt") && !loggerFormat.equals("xml")) { //$NON-NLS-1$ //$NON-NLS-2$
 				loggerFormatError = true;
 				loggerFormat = "txt"; //$NON-NLS-1$
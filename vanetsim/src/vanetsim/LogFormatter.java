@@ -1,4 +1,4 @@
-package vanetsim.gui.helpers;
+package vanetsim;
 
 import java.io.PrintWriter; 
 import java.io.StringWriter; 
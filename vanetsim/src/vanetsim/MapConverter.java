@@ -0,0 +1,59 @@
+package vanetsim;
+
+import java.io.File;
+
+import vanetsim.map.Map;
+import vanetsim.map.OSM.OSMImporter;
+import vanetsim.simulation.SimulationEngine;
+
+/**
+ * Converts a map file into the binary map format (see {@link Map#saveBinary(File)}). Binary map files are loaded a lot faster
+ * than XML files and are recognized automatically wherever a map is loaded. The map is loaded headless like in the
+ * {@link ConsoleStart}. OpenStreetMap files (ending with <code>.osm</code> or <code>.osm.pbf</code>) are imported with the
+ * {@link OSMImporter}.
+ * <p>
+ * Usage: <code>java vanetsim.MapConverter map.xml|map.osm|map.osm.pbf map.bin</code>
+ */
+public final class MapConverter{
+
+	/**
+	 * Empty, private constructor in order to disable instancing.
+	 */
+	private MapConverter(){
+	}
+
+	/**
+	 * The main method.
+	 *
+	 * @param args	the input and the output file
+	 */
+	public static void main(String[] args){
+		if(args.length != 2){
+			System.out.println("Usage: java vanetsim.MapConverter map.xml|map.osm|map.osm.pbf map.bin"); //$NON-NLS-1$
+			System.exit(1);
+		}
+		File inputFile = new File(args[0]);
+		File outputFile = new File(args[1]);
+
+		SimulationEngine engine = SimulationEngine.getInstance();
+		engine.setHeadless(true);
+		long start = System.nanoTime();
+		boolean loaded;
+		if(!inputFile.isFile()) loaded = false;
+		else if(inputFile.getName().toLowerCase().endsWith(".osm") || inputFile.getName().toLowerCase().endsWith(".pbf")) loaded = new OSMImporter().importOSM(inputFile); //$NON-NLS-1$ //$NON-NLS-2$
+		else loaded = engine.loadMap(inputFile);
+		if(!loaded){
+			System.out.println("Could not load map " + inputFile); //$NON-NLS-1$
+			System.exit(1);
+		}
+		System.out.println("Loaded " + inputFile + " in " + (System.nanoTime() - start) / 1000000 + "ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		outputFile.delete();
+		Map.getInstance().saveBinary(outputFile);
+		if(!outputFile.isFile()){
+			System.out.println("Could not write " + outputFile); //$NON-NLS-1$
+			System.exit(1);
+		}
+		System.out.println("Wrote " + outputFile + " (" + outputFile.length() / 1024 + "KB)"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		System.exit(0);
+	}
+}
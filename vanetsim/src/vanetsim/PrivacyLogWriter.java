@@ -1,4 +1,4 @@
-package vanetsim.gui.helpers;
+package vanetsim;
 
 import java.text.SimpleDateFormat;
 import java.util.logging.FileHandler;
@@ -8,7 +8,6 @@ import java.util.logging.Logger;
 
 //import java16.util.logging.Logger;
 
-import vanetsim.ErrorLog;
 import vanetsim.localization.Messages;
 import vanetsim.scenario.Scenario;
 
@@ -17,6 +17,7 @@ import javax.swing.UIManager;
 import org.jvnet.substance.SubstanceLookAndFeel;
 
 import vanetsim.gui.DrawingArea;
+import vanetsim.gui.GUISimulationListener;
 import vanetsim.gui.Renderer;
 import vanetsim.gui.controlpanels.MainControlPanel;
 import vanetsim.gui.helpers.MouseClickManager;
@@ -24,6 +25,7 @@ import vanetsim.gui.helpers.ProgressOverlay;
 import vanetsim.gui.helpers.ReRenderManager;
 import vanetsim.localization.Messages;
 import vanetsim.map.Map;
+import vanetsim.simulation.SimulationEngine;
 import vanetsim.simulation.SimulationMaster;
 
 /**
@@ -60,6 +62,7 @@ public final class VanetSimStart implements Runnable {
 	 * @see java.lang.Runnable#run()
 	 */
 	public void run() {
+		SimulationEngine.getInstance().setListener(new GUISimulationListener());
 		mainFrame_ = new JFrame();
 		mainFrame_.setTitle(Messages.getString("StartGUI.applicationtitle")); //$NON-NLS-1$
 		mainFrame_.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
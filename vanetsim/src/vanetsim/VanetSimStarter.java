@@ -14,7 +14,7 @@ public class VanetSimStarter {
 	public static void main(String[] args) {
 		
 		if(args.length < 3) SwingUtilities.invokeLater(new VanetSimStart());
-		else SwingUtilities.invokeLater(new ConsoleStart(args[0], args[1], args[2]));
+		else new ConsoleStart(args[0], args[1], args[2]).run();	// console mode runs without any AWT/Swing thread
 	}
 
 }
@@ -0,0 +1,561 @@
+package vanetsim.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import vanetsim.map.Map;
+import vanetsim.map.MapHelper;
+import vanetsim.map.NeighborTable;
+import vanetsim.map.Region;
+import vanetsim.map.SpatialHash;
+import vanetsim.map.Street;
+import vanetsim.routing.RoutingAlgorithm;
+import vanetsim.routing.WayPoint;
+import vanetsim.routing.A_Star.A_Star_Algorithm;
+import vanetsim.routing.ContractionHierarchies.CH_Algorithm;
+import vanetsim.scenario.KnownMessages;
+import vanetsim.scenario.KnownVehiclesList;
+import vanetsim.scenario.LaneContainer;
+import vanetsim.scenario.LaneObject;
+import vanetsim.scenario.RSU;
+import vanetsim.scenario.Vehicle;
+import vanetsim.scenario.messages.Message;
+import vanetsim.scenario.messages.PenaltyMessage;
+import vanetsim.simulation.SimulationEngine;
+import vanetsim.simulation.SimulationMaster;
+
+/**
+ * JMH micro benchmarks for the hot paths of the simulation. The fixtures are created on real maps with a
+ * {@link RandomScenario} which is simulated for some time before measuring so that vehicles are spread over the map and know
+ * their neighbours. As the map and the vehicles are singletons, each benchmark runs in its own forked JVM.
+ * <p>
+ * Usage: <code>java vanetsim.benchmark.HotPathBenchmarks [-vehicles n] [-seed n] [-time ms] map.xml [map2.xml ...]</code>
+ * <p>
+ * The benchmarks can also be run with all JMH options through <code>org.openjdk.jmh.Main</code>, for example
+ * <code>java org.openjdk.jmh.Main HotPathBenchmarks -p map=NewYork_noTS.xml</code>. The JMH jars need to be on the class
+ * path when compiling so that the annotation processor generates the benchmark code.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HotPathBenchmarks{
+
+	/** The time per step in milliseconds. */
+	private static final int TIME_PER_STEP = SimulationMaster.TIME_PER_STEP;
+
+	/** How long the scenario is simulated before measuring (in milliseconds simulation time). */
+	private static final int PRESIMULATION_TIME = 20000;
+
+	/** The amount of vehicles in the lists used for the <code>KnownVehiclesList</code> benchmarks. */
+	private static final int KNOWN_VEHICLES = 50;
+
+	/** The size of the fixture arrays for messages, lane objects, routings and positions (power of 2). */
+	private static final int FIXTURES = 64;
+
+	/**
+	 * The simulated map shared by all benchmarks.
+	 */
+	@State(Scope.Benchmark)
+	public static class Simulation{
+
+		/** The map file. */
+		@Param({"NewYork_noTS.xml"})
+		public String map;
+
+		/** The amount of vehicles. */
+		@Param({"1000"})
+		public int vehicles;
+
+		/** The seed for all random generators. */
+		@Param({"1"})
+		public long seed;
+
+		/** All vehicles of the map. */
+		private Vehicle[] vehicles_ = new Vehicle[0];
+
+		/** A counter which is incremented for each operation. Used to cycle through the fixtures. */
+		private int index_ = 0;
+
+		/**
+		 * Loads the map and simulates a random scenario on it.
+		 *
+		 * @throws Exception an exception if the map can't be loaded
+		 */
+		@Setup(Level.Trial)
+		public void setUp() throws Exception{
+			SimulationEngine engine = SimulationEngine.getInstance();
+			engine.setHeadless(true);
+			if(!engine.loadMap(new File(map))) throw new Exception("Could not load map " + map); //$NON-NLS-1$
+			RandomScenario.create(vehicles, seed, true, true);
+			engine.runUntil(PRESIMULATION_TIME);
+			engine.stopWorkers();
+			vehicles_ = collectVehicles();
+		}
+
+		/**
+		 * Gets the index of the next operation.
+		 *
+		 * @return the index (never negative)
+		 */
+		public int next(){
+			int index = index_++;
+			if(index_ < 0) index_ = 0;
+			return index;
+		}
+
+		/**
+		 * Gets the vehicle for an operation.
+		 *
+		 * @param index	the index of the operation
+		 *
+		 * @return the vehicle
+		 */
+		public Vehicle getVehicle(int index){
+			return vehicles_[index % vehicles_.length];
+		}
+	}
+
+	/**
+	 * Fixtures for the <code>KnownVehiclesList</code> benchmarks.
+	 */
+	@State(Scope.Thread)
+	public static class KnownVehicles{
+
+		/** An empty list (filled by the update benchmark). */
+		private KnownVehiclesList emptyList_;
+
+		/** A list with the first vehicles. */
+		private KnownVehiclesList filledList_;
+
+		/** The amount of vehicles in the lists. */
+		private int size_;
+
+		/**
+		 * Creates the lists.
+		 *
+		 * @param simulation	the simulated map
+		 */
+		@Setup(Level.Trial)
+		public void setUp(Simulation simulation){
+			size_ = Math.min(KNOWN_VEHICLES, simulation.vehicles_.length);
+			emptyList_ = new KnownVehiclesList();
+			filledList_ = new KnownVehiclesList();
+			Vehicle vehicle;
+			for(int i = 0; i < size_; ++i){
+				vehicle = simulation.vehicles_[i];
+				filledList_.updateVehicle(vehicle, vehicle.getID(), vehicle.getX(), vehicle.getY(), vehicle.getCurSpeed(), vehicle.getID(), false, false);
+			}
+		}
+	}
+
+	/**
+	 * Fixtures for the <code>KnownMessages</code> benchmark.
+	 */
+	@State(Scope.Thread)
+	public static class Messages{
+
+		/** The list of messages. */
+		private KnownMessages messages_;
+
+		/** The messages added. */
+		private Message[] fixtures_;
+
+		/**
+		 * Creates the messages.
+		 *
+		 * @param simulation	the simulated map
+		 */
+		@Setup(Level.Trial)
+		public void setUp(Simulation simulation){
+			messages_ = new KnownMessages(simulation.vehicles_[0]);
+			WayPoint[] wayPoints = createWayPoints(FIXTURES, new Random(simulation.seed));
+			fixtures_ = new Message[FIXTURES];
+			for(int i = 0; i < FIXTURES; ++i){
+				fixtures_[i] = new PenaltyMessage(wayPoints[i].getX(), wayPoints[i].getY(), 50000, 1000000, wayPoints[i].getStreet(), 0, 100000, 1000000);
+			}
+		}
+	}
+
+	/**
+	 * Fixtures for the <code>LaneContainer</code> benchmark.
+	 */
+	@State(Scope.Thread)
+	public static class Lane{
+
+		/** The lane. */
+		private LaneContainer lane_;
+
+		/** The objects on the lane. */
+		private LaneObject[] objects_;
+
+		/** The positions of the objects. */
+		private double[] positions_;
+
+		/** The distances the objects are moved. */
+		private int[] steps_;
+
+		/**
+		 * Creates the lane.
+		 *
+		 * @param simulation	the simulated map
+		 */
+		@Setup(Level.Trial)
+		public void setUp(Simulation simulation){
+			Random random = new Random(simulation.seed);
+			lane_ = new LaneContainer(true);
+			objects_ = new LaneObject[FIXTURES];
+			positions_ = new double[FIXTURES];
+			steps_ = new int[1024];
+			for(int i = 0; i < FIXTURES; ++i){
+				objects_[i] = new LaneObject();
+				lane_.addSorted(objects_[i]);
+				positions_[i] = random.nextInt(FIXTURES * 1000);
+				lane_.updatePosition(objects_[i], positions_[i]);
+			}
+			for(int i = 0; i < steps_.length; ++i) steps_[i] = random.nextInt(200);	// up to 50 m/s with 40 ms steps => overtaking happens
+		}
+	}
+
+	/**
+	 * Fixtures for the routing benchmarks.
+	 */
+	@State(Scope.Thread)
+	public static class Routing{
+
+		/** The A* algorithm. */
+		private final A_Star_Algorithm aStar_ = new A_Star_Algorithm();
+
+		/** The contraction hierarchies. */
+		private final CH_Algorithm ch_ = new CH_Algorithm();
+
+		/** The starts and targets of the routes. */
+		private WayPoint[] wayPoints_;
+
+		/** No penalties. */
+		private final Street[] penaltyStreets_ = new Street[0];
+
+		/** No penalties. */
+		private final int[] penaltyValues_ = new int[0];
+
+		/**
+		 * Creates the waypoints and the contraction hierarchy.
+		 *
+		 * @param simulation	the simulated map
+		 */
+		@Setup(Level.Trial)
+		public void setUp(Simulation simulation){
+			wayPoints_ = createWayPoints(FIXTURES, new Random(simulation.seed));
+			route(ch_, 0);	// preprocessing
+		}
+
+		/**
+		 * Calculates a route.
+		 *
+		 * @param algorithm	the algorithm
+		 * @param index		the index of the operation
+		 *
+		 * @return the amount of nodes of the route
+		 */
+		private int route(RoutingAlgorithm algorithm, int index){
+			WayPoint start = wayPoints_[index & (FIXTURES - 1)];
+			WayPoint target = wayPoints_[(index * 7 + 1) & (FIXTURES - 1)];
+			return algorithm.getRouting(0, 0, start.getX(), start.getY(), start.getStreet(), start.getPositionOnStreet(), target.getX(), target.getY(), target.getStreet(), target.getPositionOnStreet(), penaltyStreets_, penaltyValues_, penaltyValues_, 0, 0).size();
+		}
+	}
+
+	/**
+	 * Fixtures for the <code>MapHelper</code> benchmark.
+	 */
+	@State(Scope.Thread)
+	public static class Positions{
+
+		/** The x coordinates. */
+		private int[] x_;
+
+		/** The y coordinates. */
+		private int[] y_;
+
+		/** The distance to the nearest street. */
+		private final double[] distance_ = new double[1];
+
+		/** The nearest point on the street. */
+		private final int[] nearestPoint_ = new int[2];
+
+		/**
+		 * Creates random positions.
+		 *
+		 * @param simulation	the simulated map
+		 */
+		@Setup(Level.Trial)
+		public void setUp(Simulation simulation){
+			Random random = new Random(simulation.seed);
+			x_ = new int[1024];
+			y_ = new int[1024];
+			for(int i = 0; i < x_.length; ++i){
+				x_[i] = random.nextInt(Map.getInstance().getMapWidth());
+				y_[i] = random.nextInt(Map.getInstance().getMapHeight());
+			}
+		}
+	}
+
+	/**
+	 * The main method. Runs all benchmarks on the given maps.
+	 *
+	 * @param args	the options and the map files
+	 *
+	 * @throws RunnerException an exception if JMH fails
+	 */
+	public static void main(String[] args) throws RunnerException{
+		ArrayList<String> maps = new ArrayList<String>();
+		String vehicles = "1000"; //$NON-NLS-1$
+		String seed = "1"; //$NON-NLS-1$
+		int iterationTime = 1000;
+		for(int i = 0; i < args.length; ++i){
+			if(args[i].equals("-vehicles") && i + 1 < args.length) vehicles = args[++i]; //$NON-NLS-1$
+			else if(args[i].equals("-seed") && i + 1 < args.length) seed = args[++i]; //$NON-NLS-1$
+			else if(args[i].equals("-time") && i + 1 < args.length) iterationTime = Integer.parseInt(args[++i]); //$NON-NLS-1$
+			else maps.add(args[i]);
+		}
+		if(maps.size() == 0){
+			System.out.println("Usage: java vanetsim.benchmark.HotPathBenchmarks [-vehicles n] [-seed n] [-time ms] map.xml [map2.xml ...]"); //$NON-NLS-1$
+			System.exit(1);
+		}
+		Options options = new OptionsBuilder()
+			.include(HotPathBenchmarks.class.getName() + "\\.") //$NON-NLS-1$
+			.param("map", maps.toArray(new String[0])) //$NON-NLS-1$
+			.param("vehicles", vehicles) //$NON-NLS-1$
+			.param("seed", seed) //$NON-NLS-1$
+			.warmupTime(TimeValue.milliseconds(iterationTime))
+			.measurementTime(TimeValue.milliseconds(iterationTime))
+			.build();
+		new Runner(options).run();
+	}
+
+	/**
+	 * Collects the vehicles of all regions.
+	 *
+	 * @return the vehicles
+	 */
+	private static Vehicle[] collectVehicles(){
+		ArrayList<Vehicle> result = new ArrayList<Vehicle>();
+		Region[][] regions = Map.getInstance().getRegions();
+		Vehicle[] vehicles;
+		for(int i = 0; i < regions.length; ++i){
+			for(int j = 0; j < regions[i].length; ++j){
+				vehicles = regions[i][j].getVehicleArray();
+				for(int k = 0; k < vehicles.length; ++k) result.add(vehicles[k]);
+			}
+		}
+		return result.toArray(new Vehicle[0]);
+	}
+
+	/**
+	 * Creates random waypoints on the current map.
+	 *
+	 * @param amount	the amount of waypoints
+	 * @param random	the random generator
+	 *
+	 * @return the waypoints
+	 */
+	private static WayPoint[] createWayPoints(int amount, Random random){
+		WayPoint[] result = new WayPoint[amount];
+		int maxX = Map.getInstance().getMapWidth();
+		int maxY = Map.getInstance().getMapHeight();
+		for(int i = 0; i < amount;){
+			try{
+				result[i] = new WayPoint(random.nextInt(maxX), random.nextInt(maxY), 0);
+				++i;
+			} catch (Exception e){}
+		}
+		return result;
+	}
+
+	/**
+	 * Benchmark of {@link Vehicle#adjustSpeed(int)}.
+	 *
+	 * @param simulation	the simulated map
+	 *
+	 * @return the new speed
+	 */
+	@Benchmark
+	public double vehicleAdjustSpeed(Simulation simulation){
+		Vehicle vehicle = simulation.getVehicle(simulation.next());
+		vehicle.adjustSpeed(TIME_PER_STEP);
+		return vehicle.getCurSpeed();
+	}
+
+	/**
+	 * Benchmark of {@link Vehicle#move(int)}. Vehicles which have arrived are reset.
+	 *
+	 * @param simulation	the simulated map
+	 *
+	 * @return the new x coordinate
+	 */
+	@Benchmark
+	public int vehicleMove(Simulation simulation){
+		Vehicle vehicle = simulation.getVehicle(simulation.next());
+		if(vehicle.isActive()) vehicle.move(TIME_PER_STEP);
+		else if(vehicle.getMayBeRecycled()) vehicle.reset();
+		return vehicle.getX();
+	}
+
+	/**
+	 * Benchmark of rebuilding the {@link SpatialHash} and the {@link NeighborTable}.
+	 *
+	 * @param simulation	the simulated map
+	 *
+	 * @return the size of the neighbour table
+	 */
+	@Benchmark
+	public int neighborTableRebuild(Simulation simulation){
+		SpatialHash.getInstance().rebuild(simulation.vehicles_, new RSU[0], null);
+		NeighborTable.getInstance().rebuild(null);
+		return NeighborTable.getInstance().getVehicleStarts().length;
+	}
+
+	/**
+	 * Benchmark of {@link Vehicle#sendBeacons()}.
+	 *
+	 * @param simulation	the simulated map
+	 *
+	 * @return <code>1</code> if the vehicle has sent beacons, else <code>0</code>
+	 */
+	@Benchmark
+	public int vehicleSendBeacons(Simulation simulation){
+		Vehicle vehicle = simulation.getVehicle(simulation.next());
+		if(vehicle.isActive() && vehicle.isWiFiEnabled()){
+			vehicle.sendBeacons();
+			return 1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Benchmark of {@link KnownVehiclesList#updateVehicle(Vehicle, long, int, int, double, long, boolean, boolean)}.
+	 *
+	 * @param simulation	the simulated map
+	 * @param known			the lists
+	 *
+	 * @return the size of the list
+	 */
+	@Benchmark
+	public int knownVehiclesUpdateVehicle(Simulation simulation, KnownVehicles known){
+		Vehicle vehicle = simulation.vehicles_[simulation.next() % known.size_];
+		known.emptyList_.updateVehicle(vehicle, vehicle.getID(), vehicle.getX(), vehicle.getY(), vehicle.getCurSpeed(), vehicle.getID(), false, false);
+		return known.emptyList_.getSize();
+	}
+
+	/**
+	 * Benchmark of {@link KnownVehiclesList#findNearestVehicle(int, int, int, int, int)}.
+	 *
+	 * @param simulation	the simulated map
+	 * @param known			the lists
+	 *
+	 * @return the x coordinate of the vehicle found or <code>0</code>
+	 */
+	@Benchmark
+	public int knownVehiclesFindNearestVehicle(Simulation simulation, KnownVehicles known){
+		Vehicle target = simulation.getVehicle(simulation.next());
+		Vehicle result = known.filledList_.findNearestVehicle(simulation.vehicles_[0].getX(), simulation.vehicles_[0].getY(), target.getX(), target.getY(), 100000);
+		if(result == null) return 0;
+		return result.getX();
+	}
+
+	/**
+	 * Benchmark of {@link KnownMessages#addMessage(Message, boolean, boolean)}. The list is cleared after all fixtures have
+	 * been added.
+	 *
+	 * @param simulation	the simulated map
+	 * @param messages		the messages
+	 *
+	 * @return the size of the list
+	 */
+	@Benchmark
+	public int knownMessagesAddMessage(Simulation simulation, Messages messages){
+		int index = simulation.next();
+		if((index & (FIXTURES - 1)) == 0) messages.messages_.clear();
+		messages.messages_.addMessage(messages.fixtures_[index & (FIXTURES - 1)], false, true);
+		return messages.messages_.getSize();
+	}
+
+	/**
+	 * Benchmark of {@link LaneContainer#updatePosition(LaneObject, double)}.
+	 *
+	 * @param simulation	the simulated map
+	 * @param lane			the lane
+	 *
+	 * @return the size of the lane
+	 */
+	@Benchmark
+	public int laneContainerUpdatePosition(Simulation simulation, Lane lane){
+		int index = simulation.next();
+		int i = index & (FIXTURES - 1);
+		lane.positions_[i] += lane.steps_[index & 1023];
+		lane.lane_.updatePosition(lane.objects_[i], lane.positions_[i]);
+		return lane.lane_.size();
+	}
+
+	/**
+	 * Benchmark of {@link A_Star_Algorithm#getRouting(int, int, int, int, Street, double, int, int, Street, double, Street[], int[], int[], int, int)}.
+	 *
+	 * @param simulation	the simulated map
+	 * @param routing		the waypoints
+	 *
+	 * @return the amount of nodes of the route
+	 */
+	@Benchmark
+	public int aStarGetRouting(Simulation simulation, Routing routing){
+		return routing.route(routing.aStar_, simulation.next());
+	}
+
+	/**
+	 * Benchmark of {@link CH_Algorithm#getRouting(int, int, int, int, Street, double, int, int, Street, double, Street[], int[], int[], int, int)}.
+	 *
+	 * @param simulation	the simulated map
+	 * @param routing		the waypoints
+	 *
+	 * @return the amount of nodes of the route
+	 */
+	@Benchmark
+	public int chGetRouting(Simulation simulation, Routing routing){
+		return routing.route(routing.ch_, simulation.next());
+	}
+
+	/**
+	 * Benchmark of {@link MapHelper#findNearestStreet(int, int, int, double[], int[])}.
+	 *
+	 * @param simulation	the simulated map
+	 * @param positions		the positions
+	 *
+	 * @return the x coordinate of the nearest point or <code>0</code>
+	 */
+	@Benchmark
+	public int mapHelperFindNearestStreet(Simulation simulation, Positions positions){
+		int index = simulation.next() & 1023;
+		Street street = MapHelper.findNearestStreet(positions.x_[index], positions.y_[index], 10000, positions.distance_, positions.nearestPoint_);
+		if(street == null) return 0;
+		return positions.nearestPoint_[0];
+	}
+}
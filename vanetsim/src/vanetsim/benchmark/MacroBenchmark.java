@@ -0,0 +1,309 @@
+package vanetsim.benchmark;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+
+import vanetsim.map.TravelTimeEstimator;
+import vanetsim.routing.RouteCache;
+import vanetsim.scenario.Vehicle;
+import vanetsim.simulation.SimulationClock;
+import vanetsim.simulation.SimulationEngine;
+
+/**
+ * End-to-end throughput benchmark. A map is loaded once and for each vehicle amount a {@link RandomScenario} with a fixed seed
+ * is simulated with communication and beacons enabled and disabled. The simulation runs headless through the
+ * {@link SimulationEngine} like the {@link vanetsim.ConsoleStart}. For each run, the steps per second, simulated seconds per
+ * wall second, the peak heap usage and the time spent in garbage collection are reported. The heap usage is sampled while the
+ * run is measured. The route cache, the preprocessed routing data and the estimated travel times are dropped before each run
+ * so that no run profits from the ones before.
+ * <p>
+ * The report is a CSV file. If a baseline report is given, the steps per second of each run are compared with the run with
+ * the same map, vehicle amount and communication setting in the baseline. The exit code is 2 if a run is slower than
+ * the baseline by more than the tolerance.
+ * <p>
+ * Usage: <code>java vanetsim.benchmark.MacroBenchmark -map map.xml [-vehicles 1000,10000,50000,100000] [-seed n]
+ * [-time ms] [-warmup ms] [-output report.csv] [-baseline baseline.csv] [-tolerance percent]</code>
+ */
+public final class MacroBenchmark{
+
+	/** The header of the report. */
+	private static final String HEADER = "map,vehicles,communication,simTime,steps,wallMs,stepsPerSecond,simSecondsPerWallSecond,peakHeapMB,gcMs,gcCount"; //$NON-NLS-1$
+
+	/** The map file. */
+	private static File mapFile_ = null;
+
+	/** The vehicle amounts. */
+	private static int[] vehicleAmounts_ = {1000, 10000, 50000, 100000};
+
+	/** The seed for the random scenario. */
+	private static long seed_ = 1;
+
+	/** The measured simulation time in milliseconds. */
+	private static int simulationTime_ = 60000;
+
+	/** The simulation time in milliseconds which is simulated before measuring. */
+	private static int warmupTime_ = 10000;
+
+	/** The file for the report. */
+	private static File outputFile_ = new File("benchmark.csv"); //$NON-NLS-1$
+
+	/** The file of the baseline report or <code>null</code> if no comparison is wanted. */
+	private static File baselineFile_ = null;
+
+	/** How many percent slower than the baseline a run may be. */
+	private static double tolerance_ = 10;
+
+	/**
+	 * Empty, private constructor in order to disable instancing.
+	 */
+	private MacroBenchmark(){
+	}
+
+	/**
+	 * The main method.
+	 *
+	 * @param args	the options
+	 */
+	public static void main(String[] args){
+		try{
+			for(int i = 0; i + 1 < args.length; i += 2){
+				if(args[i].equals("-map")) mapFile_ = new File(args[i + 1]); //$NON-NLS-1$
+				else if(args[i].equals("-vehicles")) vehicleAmounts_ = parseAmounts(args[i + 1]); //$NON-NLS-1$
+				else if(args[i].equals("-seed")) seed_ = Long.parseLong(args[i + 1]); //$NON-NLS-1$
+				else if(args[i].equals("-time")) simulationTime_ = Integer.parseInt(args[i + 1]); //$NON-NLS-1$
+				else if(args[i].equals("-warmup")) warmupTime_ = Integer.parseInt(args[i + 1]); //$NON-NLS-1$
+				else if(args[i].equals("-output")) outputFile_ = new File(args[i + 1]); //$NON-NLS-1$
+				else if(args[i].equals("-baseline")) baselineFile_ = new File(args[i + 1]); //$NON-NLS-1$
+				else if(args[i].equals("-tolerance")) tolerance_ = Double.parseDouble(args[i + 1]); //$NON-NLS-1$
+				else throw new IllegalArgumentException(args[i]);
+			}
+		} catch (Exception e){
+			mapFile_ = null;
+		}
+		if(mapFile_ == null){
+			System.out.println("Usage: java vanetsim.benchmark.MacroBenchmark -map map.xml [-vehicles 1000,10000,50000,100000] [-seed n] [-time ms] [-warmup ms] [-output report.csv] [-baseline baseline.csv] [-tolerance percent]"); //$NON-NLS-1$
+			System.exit(1);
+		}
+
+		SimulationEngine engine = SimulationEngine.getInstance();
+		engine.setHeadless(true);
+		if(!engine.loadMap(mapFile_)){
+			System.out.println("Could not load map " + mapFile_); //$NON-NLS-1$
+			System.exit(1);
+		}
+		ArrayList<String> report = new ArrayList<String>();
+		report.add(HEADER);
+		System.out.println(HEADER);
+		String line;
+		for(int i = 0; i < vehicleAmounts_.length; ++i){
+			for(int communication = 1; communication >= 0; --communication){
+				line = run(engine, vehicleAmounts_[i], communication == 1);
+				report.add(line);
+				System.out.println(line);
+			}
+		}
+		writeReport(report);
+
+		int exitCode = 0;
+		if(baselineFile_ != null && !compare(report)) exitCode = 2;
+		System.exit(exitCode);
+	}
+
+	/**
+	 * Simulates one scenario and measures it.
+	 *
+	 * @param engine		the simulation engine
+	 * @param vehicles		the amount of vehicles
+	 * @param communication	<code>true</code> to enable communication and beacons
+	 *
+	 * @return the line for the report
+	 */
+	private static String run(SimulationEngine engine, int vehicles, boolean communication){
+		RouteCache.getInstance().clear();
+		Vehicle.resetRoutingAlgorithms();
+		TravelTimeEstimator.getInstance().reset();
+		int created = RandomScenario.create(vehicles, seed_, communication, communication);
+		engine.runUntil(warmupTime_);
+
+		System.gc();
+		HeapSampler sampler = new HeapSampler();
+		sampler.start();
+		long gcTime = 0, gcCount = 0;
+		for(GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()){
+			gcTime -= collector.getCollectionTime();
+			gcCount -= collector.getCollectionCount();
+		}
+		long steps = SimulationClock.getStepCount();
+		int simStart = SimulationClock.getTimePassed();
+		long start = System.nanoTime();
+
+		engine.runUntil(simStart + simulationTime_);
+
+		long wallTime = System.nanoTime() - start;
+		steps = SimulationClock.getStepCount() - steps;
+		int simTime = SimulationClock.getTimePassed() - simStart;
+		for(GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()){
+			gcTime += collector.getCollectionTime();
+			gcCount += collector.getCollectionCount();
+		}
+		long peakHeap = sampler.finish();
+		engine.stopWorkers();
+
+		double seconds = wallTime / 1000000000.0;
+		return String.format(Locale.ENGLISH, "%s,%d,%b,%d,%d,%d,%.2f,%.3f,%.1f,%d,%d", mapFile_.getName(), created, communication, simTime, steps, wallTime / 1000000, steps / seconds, simTime / 1000.0 / seconds, peakHeap / 1048576.0, gcTime, gcCount); //$NON-NLS-1$
+	}
+
+	/**
+	 * A thread which samples the used heap while a run is measured. The used heap is read from the {@link MemoryMXBean}
+	 * so that the peak is the highest usage of the whole heap at one point in time.
+	 */
+	private static final class HeapSampler extends Thread{
+
+		/** The time between two samples in milliseconds. */
+		private static final int INTERVAL = 10;
+
+		/** <code>false</code> if the sampling shall stop. */
+		private volatile boolean running_ = true;
+
+		/** The highest used heap in bytes (only read after the thread has ended). */
+		private long peak_ = 0;
+
+		/**
+		 * Creates a new sampler. It needs to be started.
+		 */
+		public HeapSampler(){
+			setName("HeapSampler"); //$NON-NLS-1$
+			setDaemon(true);
+		}
+
+		/**
+		 * Samples the used heap until {@link #finish()} is called.
+		 *
+		 * @see java.lang.Thread#run()
+		 */
+		public void run(){
+			MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+			long used;
+			while(running_){
+				used = memory.getHeapMemoryUsage().getUsed();
+				if(used > peak_) peak_ = used;
+				try{
+					sleep(INTERVAL);
+				} catch (InterruptedException e){}
+			}
+		}
+
+		/**
+		 * Stops the sampling.
+		 *
+		 * @return the highest used heap in bytes
+		 */
+		public long finish(){
+			running_ = false;
+			interrupt();
+			try{
+				join();
+			} catch (InterruptedException e){
+				Thread.currentThread().interrupt();
+			}
+			return Math.max(peak_, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+		}
+	}
+
+	/**
+	 * Compares the report with the baseline and prints the result.
+	 *
+	 * @param report	the lines of the report
+	 *
+	 * @return <code>true</code> if no run is slower than the baseline by more than the tolerance, else <code>false</code>
+	 */
+	private static boolean compare(ArrayList<String> report){
+		HashMap<String, Double> baseline = new HashMap<String, Double>();
+		try{
+			BufferedReader in = new BufferedReader(new FileReader(baselineFile_));
+			String line;
+			String[] values;
+			while((line = in.readLine()) != null){
+				values = line.split(","); //$NON-NLS-1$
+				if(values.length >= 7 && !line.equals(HEADER)) baseline.put(getKey(values), Double.valueOf(values[6]));
+			}
+			in.close();
+		} catch (Exception e){
+			System.out.println("Could not read baseline " + baselineFile_ + ": " + e); //$NON-NLS-1$ //$NON-NLS-2$
+			return false;
+		}
+		boolean result = true;
+		String[] values;
+		Double expected;
+		double change;
+		System.out.println();
+		System.out.println("comparison with " + baselineFile_.getName() + " (tolerance " + tolerance_ + "%):"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		for(int i = 1; i < report.size(); ++i){
+			values = report.get(i).split(","); //$NON-NLS-1$
+			expected = baseline.get(getKey(values));
+			if(expected == null){
+				System.out.println(getKey(values) + ": no baseline"); //$NON-NLS-1$
+				continue;
+			}
+			change = (Double.parseDouble(values[6]) / expected.doubleValue() - 1) * 100;
+			System.out.print(String.format(Locale.ENGLISH, "%s: %.2f -> %s steps/s (%+.1f%%)", getKey(values), expected.doubleValue(), values[6], change)); //$NON-NLS-1$
+			if(change < -tolerance_){
+				System.out.println(" REGRESSION"); //$NON-NLS-1$
+				result = false;
+			} else System.out.println();
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the key of a line in the report which is used to find the same run in the baseline.
+	 *
+	 * @param values	the values of the line
+	 *
+	 * @return the key
+	 */
+	private static String getKey(String[] values){
+		return values[0] + "/" + values[1] + "/" + values[2]; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Writes the report.
+	 *
+	 * @param report	the lines of the report
+	 */
+	private static void writeReport(ArrayList<String> report){
+		try{
+			BufferedWriter out = new BufferedWriter(new FileWriter(outputFile_, false));
+			for(int i = 0; i < report.size(); ++i){
+				out.write(report.get(i));
+				out.write('\n');
+			}
+			out.close();
+		} catch (Exception e){
+			System.out.println("Could not write report " + outputFile_ + ": " + e); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	/**
+	 * Parses a comma separated list of vehicle amounts.
+	 *
+	 * @param text	the list
+	 *
+	 * @return the amounts
+	 */
+	private static int[] parseAmounts(String text){
+		String[] values = text.split(","); //$NON-NLS-1$
+		int[] result = new int[values.length];
+		for(int i = 0; i < values.length; ++i) result[i] = Integer.parseInt(values[i].trim());
+		return result;
+	}
+}
@@ -0,0 +1,115 @@
+package vanetsim.benchmark;
+
+import java.awt.Color;
+import java.util.ArrayDeque;
+import java.util.Random;
+
+import vanetsim.ErrorLog;
+import vanetsim.localization.Messages;
+import vanetsim.map.Map;
+import vanetsim.routing.WayPoint;
+import vanetsim.scenario.RSU;
+import vanetsim.scenario.Scenario;
+import vanetsim.scenario.Vehicle;
+
+/**
+ * Creates a reproducible scenario with random vehicles on the currently loaded map. The vehicles are created
+ * in the same way as through the random vehicle function of the {@link vanetsim.gui.controlpanels.EditVehicleControlPanel}
+ * but with a fixed seed so that the same map, amount and seed always lead to the same vehicles.
+ */
+public final class RandomScenario{
+
+	/** The length of the vehicles in cm. */
+	private static final int VEHICLE_LENGTH = 2500;
+
+	/** The minimum speed of the vehicles in cm/s (30 km/h). */
+	private static final int MIN_SPEED = 833;
+
+	/** The maximum speed of the vehicles in cm/s (100 km/h). */
+	private static final int MAX_SPEED = 2778;
+
+	/** The minimum communication distance in cm. */
+	private static final int MIN_COMM_DIST = 10000;
+
+	/** The maximum communication distance in cm. */
+	private static final int MAX_COMM_DIST = 25000;
+
+	/** How many waypoints each vehicle gets. */
+	private static final int WAYPOINTS = 3;
+
+	/** How often snapping a waypoint to a street may fail before a vehicle is skipped. */
+	private static final int MAX_TRIES = 20;
+
+	/**
+	 * Empty, private constructor in order to disable instancing.
+	 */
+	private RandomScenario(){
+	}
+
+	/**
+	 * Removes the current scenario and creates new random vehicles. A map needs to be loaded before.
+	 *
+	 * @param amount			the amount of vehicles to create
+	 * @param seed				the seed for the random generator
+	 * @param communication		<code>true</code> to enable communication
+	 * @param beacons			<code>true</code> to enable beacons
+	 *
+	 * @return the amount of created vehicles. Might be less than <code>amount</code> if the map is almost empty.
+	 */
+	public static int create(int amount, long seed, boolean communication, boolean beacons){
+		Scenario scenario = Scenario.getInstance();
+		scenario.setReadyState(true);
+		scenario.initNewScenario();		// only cleans up if the scenario is ready
+		Map.getInstance().clearMixZones();
+		Map.getInstance().clearRSUs();
+		Vehicle.setCommunicationEnabled(communication);
+		RSU.setCommunicationEnabled(communication);
+		Vehicle.setBeaconsEnabled(beacons);
+		RSU.setBeaconsEnabled(beacons);
+		Vehicle.setRecyclingEnabled(true);
+
+		Random random = new Random(seed);
+		int maxX = Map.getInstance().getMapWidth();
+		int maxY = Map.getInstance().getMapHeight();
+		ArrayDeque<WayPoint> destinations;
+		int i, j, k, l = 0;
+		for(i = 0; i < amount;){
+			j = 0;
+			k = 0;
+			++l;
+			destinations = new ArrayDeque<WayPoint>(WAYPOINTS);
+			while(j < WAYPOINTS && k < MAX_TRIES){	// if snapping fails more than MAX_TRIES times break
+				try{
+					++k;
+					destinations.add(new WayPoint(random.nextInt(maxX), random.nextInt(maxY), 0));
+					++j;
+				} catch (Exception e) {}
+			}
+			if(k < MAX_TRIES){
+				try{
+					Map.getInstance().addVehicle(new Vehicle(destinations, VEHICLE_LENGTH, getRandomRange(MIN_SPEED, MAX_SPEED, random), getRandomRange(MIN_COMM_DIST, MAX_COMM_DIST, random), true, false, 100, 200, 100, 50, Color.black));
+					++i;
+				} catch (Exception e) {}
+			}
+			if(l > amount*4) break;
+		}
+		int errorLevel = 2;
+		if(i < amount) errorLevel = 6;
+		ErrorLog.log(Messages.getString("EditVehicleControlPanel.createdRandomVehicles") + i + " (" + amount + Messages.getString("EditVehicleControlPanel.requested"), errorLevel, RandomScenario.class.getName(), "create", null); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		scenario.setReadyState(true);
+		return i;
+	}
+
+	/**
+	 * Gets a random number between a minimum and a maximum (both inclusive).
+	 *
+	 * @param min		the minimum
+	 * @param max		the maximum
+	 * @param random	the random generator
+	 *
+	 * @return the random number
+	 */
+	private static int getRandomRange(int min, int max, Random random){
+		return random.nextInt(max - min + 1) + min;
+	}
+}
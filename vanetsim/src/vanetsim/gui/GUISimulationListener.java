@@ -0,0 +1,113 @@
+package vanetsim.gui;
+
+import java.util.concurrent.CyclicBarrier;
+
+import vanetsim.VanetSimStart;
+import vanetsim.gui.controlpanels.MapSizeDialog;
+import vanetsim.gui.helpers.MouseClickManager;
+import vanetsim.scenario.RSU;
+import vanetsim.scenario.Vehicle;
+import vanetsim.simulation.SimulationListener;
+
+/**
+ * Forwards the changes of map, scenario and simulation to the {@link Renderer} and the control panels.
+ */
+public final class GUISimulationListener implements SimulationListener{
+
+	/**
+	 * Removes the marked street and all markings of the mouse.
+	 * 
+	 * @see vanetsim.simulation.SimulationListener#mapCleared()
+	 */
+	public void mapCleared(){
+		Renderer.getInstance().setMarkedStreet(null);
+		MouseClickManager.getInstance().cleanMarkings();
+	}
+
+	/**
+	 * Centers the view on the new map.
+	 * 
+	 * @see vanetsim.simulation.SimulationListener#mapLoaded(int, int)
+	 */
+	public void mapLoaded(int width, int height){
+		Renderer.getInstance().setMiddle(width/2, height/2);
+		Renderer.getInstance().setMapZoom(Math.exp(5/100.0)/1000);
+		Renderer.getInstance().ReRender(true, false);
+	}
+
+	/**
+	 * Shows the {@link MapSizeDialog}.
+	 * 
+	 * @see vanetsim.simulation.SimulationListener#requestMapSize(int, int, int, int, java.util.concurrent.CyclicBarrier)
+	 */
+	public void requestMapSize(int width, int height, int regionWidth, int regionHeight, CyclicBarrier barrier){
+		new MapSizeDialog(width, height, regionWidth, regionHeight, barrier);
+	}
+
+	/**
+	 * Hides all objects of the scenario and removes the markings of the mouse.
+	 * 
+	 * @see vanetsim.simulation.SimulationListener#scenarioCleared()
+	 */
+	public void scenarioCleared(){
+		Renderer.getInstance().setShowVehicles(false);
+		Renderer.getInstance().setShowRSUs(false);
+		Renderer.getInstance().setShowMixZones(false);
+		Renderer.getInstance().setShowAttackers(false);
+		MouseClickManager.getInstance().cleanMarkings();
+	}
+
+	/**
+	 * Schedules a repaint of the drawing area.
+	 * 
+	 * @see vanetsim.simulation.SimulationListener#render(boolean, boolean)
+	 */
+	public void render(boolean fullRender, boolean forceRenderNow){
+		Renderer.getInstance().ReRender(fullRender, forceRenderNow);
+	}
+
+	/**
+	 * Notifies the {@link Renderer}.
+	 * 
+	 * @see vanetsim.simulation.SimulationListener#simulationRunning(boolean)
+	 */
+	public void simulationRunning(boolean running){
+		Renderer.getInstance().notifySimulationRunning(running);
+	}
+
+	/**
+	 * Passes the barrier to the {@link Renderer}.
+	 * 
+	 * @see vanetsim.simulation.SimulationListener#setRenderBarrier(java.util.concurrent.CyclicBarrier)
+	 */
+	public void setRenderBarrier(CyclicBarrier barrier){
+		Renderer.getInstance().setBarrierForSimulationMaster(barrier);
+	}
+
+	/**
+	 * Updates the reporting panel.
+	 * 
+	 * @see vanetsim.simulation.SimulationListener#updateStatistics(int)
+	 */
+	public void updateStatistics(int timePerStep){
+		VanetSimStart.getMainControlPanel().getReportingPanel().checkUpdates(timePerStep);
+	}
+
+	/**
+	 * Adds the beacon to the reporting panel.
+	 * 
+	 * @see vanetsim.simulation.SimulationListener#beaconSent(vanetsim.scenario.Vehicle, long, long, long, double, boolean)
+	 */
+	public void beaconSent(Vehicle vehicle, long ID, long x, long y, double speed, boolean isEncrypted){
+		VanetSimStart.getMainControlPanel().getReportingPanel().addBeacon(vehicle, ID, x, y, speed, isEncrypted);
+	}
+
+	/**
+	 * Adds the beacon to the reporting panel.
+	 * 
+	 * @see vanetsim.simulation.SimulationListener#beaconSent(vanetsim.scenario.RSU, long, long, long, boolean)
+	 */
+	public void beaconSent(RSU rsu, long ID, long x, long y, boolean isEncrypted){
+		VanetSimStart.getMainControlPanel().getReportingPanel().addBeacon(rsu, ID, x, y, isEncrypted);
+	}
+}
\ No newline at end of file
@@ -28,6 +28,7 @@ import vanetsim.localization.Messages;
 import vanetsim.map.Map;
 import vanetsim.map.Node;
 import vanetsim.map.Region;
+import vanetsim.map.OSM.OSMImporter;
 import vanetsim.map.OSM.OSMLoader;
 import vanetsim.scenario.Scenario;
 import vanetsim.scenario.Vehicle;
@@ -261,7 +262,9 @@ public final class EditControlPanel extends JPanel implements ActionListener {
 			if (returnVal == JFileChooser.APPROVE_OPTION){   
 				Runnable job = new Runnable() {
 					public void run() {
-						OSMLoader.getInstance().loadOSM(VanetSimStart.getMainControlPanel().getFileChooser().getSelectedFile());
+						File file = VanetSimStart.getMainControlPanel().getFileChooser().getSelectedFile();
+						if(file.getName().toLowerCase().endsWith(".pbf")) new OSMImporter().importOSM(file);		// PBF files can only be read by the importer //$NON-NLS-1$
+						else OSMLoader.getInstance().loadOSM(file);
 					}
 				};
 				new Thread(job).start();
@@ -286,7 +289,7 @@ public final class EditControlPanel extends JPanel implements ActionListener {
 			if(Renderer.getInstance().getTimePassed() > 0){
 				enableEdit_.setSelected(false);
 				disableEdit_.setSelected(true);
-				Renderer.getInstance().setAutoAddMixZones(editMixZonePanel_.getAutoAddMixZones().isSelected());
+				Map.getInstance().setAutoAddMixZones(editMixZonePanel_.getAutoAddMixZones().isSelected());
 				ErrorLog.log(Messages.getString("EditControlPanel.editingOnlyOnCleanMap"), 6, this.getName(), "enableEdit", null); //$NON-NLS-1$ //$NON-NLS-2$
 			} else {
 				editMode_ = true;
@@ -21,9 +21,9 @@ import javax.swing.SwingConstants;
 import javax.swing.JPanel;
 import javax.swing.filechooser.FileFilter;
 
+import vanetsim.AttackLogWriter;
+import vanetsim.PrivacyLogWriter;
 import vanetsim.gui.Renderer;
-import vanetsim.gui.helpers.AttackLogWriter;
-import vanetsim.gui.helpers.PrivacyLogWriter;
 import vanetsim.gui.helpers.TextAreaLabel;
 import vanetsim.localization.Messages;
 import vanetsim.scenario.Vehicle;
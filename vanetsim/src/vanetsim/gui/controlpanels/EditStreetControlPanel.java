@@ -595,6 +595,7 @@ public final class EditStreetControlPanel extends JPanel implements ActionListen
 					editStreet_.changeOneWay(editOnewayChoice_.getSelectedIndex());
 					if(editOnewayChoice_.getSelectedIndex() == 2) editOnewayChoice_.setSelectedIndex(1);
 				}catch (Exception e2) {}
+				Map.getInstance().signalStreetChanged();
 				if(editColor_ != null) editStreet_.setDisplayColor(editColor_);
 				Renderer.getInstance().ReRender(true, false);
 			}
@@ -35,6 +35,7 @@ import vanetsim.localization.Messages;
 import vanetsim.map.Map;
 import vanetsim.routing.WayPoint;
 import vanetsim.scenario.Vehicle;
+import vanetsim.scenario.VehicleBatch;
 
 /**
  * This class represents the control panel for adding random vehicles.
@@ -369,7 +370,7 @@ public class EditVehicleControlPanel extends JPanel implements ActionListener, M
 			Renderer.getInstance().setShowVehicles(true);
 			Runnable job = new Runnable() {
 				public void run() {
-					int i, j, k, l = 0;
+					int i, j, k, l = 0, m;
 					VanetSimStart.setProgressBar(true);
 					int maxX = Map.getInstance().getMapWidth();
 					int maxY = Map.getInstance().getMapHeight();
@@ -410,37 +411,47 @@ public class EditVehicleControlPanel extends JPanel implements ActionListener, M
 					boolean emergencyEnabled;
 					ArrayDeque<WayPoint> destinations = null;
 					Vehicle tmpVehicle;
+					VehicleBatch vehicleBatch = new VehicleBatch();
 					Random random = new Random();
 					
 					// create the random vehicles. It may fail lots of times if the map is almost empty. Then, possible less
 					// vehicles are created than specified because it's only tried 4 x amountValue!
 					for(i = 0; i < amountValue;){
-						j = 0;
-						k = 0;						
-						++l;
-						destinations = new ArrayDeque<WayPoint>(2);			
-						while(j < 2 && k < 20){	// if snapping fails more than 20 times break
-							try{
-								++k;
-								WayPoint tmpWayPoint = new WayPoint(random.nextInt(maxX),random.nextInt(maxY),getRandomRange(minWaitValue, maxWaitValue, random));
-								if(tmpWayPoint.getStreet().getSpeed() <= speedRestriction){
-									destinations.add(tmpWayPoint);
-									++j;
-								}
-							} catch (Exception e) {}
-						}
-						if(k < 20) {
-							try {
+						// collect the parameters for all missing vehicles
+						vehicleBatch.clear();
+						while(i + vehicleBatch.size() < amountValue && l <= amountValue*4){
+							j = 0;
+							k = 0;						
+							++l;
+							destinations = new ArrayDeque<WayPoint>(2);			
+							while(j < 2 && k < 20){	// if snapping fails more than 20 times break
+								try{
+									++k;
+									WayPoint tmpWayPoint = new WayPoint(random.nextInt(maxX),random.nextInt(maxY),getRandomRange(minWaitValue, maxWaitValue, random));
+									if(tmpWayPoint.getStreet().getSpeed() <= speedRestriction){
+										destinations.add(tmpWayPoint);
+										++j;
+									}
+								} catch (Exception e) {}
+							}
+							if(k < 20) {
 								if(getRandomRange(0, 99, random) < wiFiValue) wiFiEnabled = true;
 								else wiFiEnabled = false;
 								if(getRandomRange(0, 99, random) < emergencyValue) emergencyEnabled = true;
 								else emergencyEnabled = false;
-								tmpVehicle = new Vehicle(destinations, ((Number)vehicleLength_.getValue()).intValue(), getRandomRange(minSpeedValue, maxSpeedValue, random), getRandomRange(minCommDistValue, maxCommDistValue, random), wiFiEnabled, emergencyEnabled, getRandomRange(minBrakingValue, maxBrakingValue, random), getRandomRange(minAccelerationValue, maxAccelerationValue, random), getRandomRange(minTimeDistance, maxTimeDistance, random), getRandomRange(minPoliteness, maxPoliteness, random), colorPreview_.getBackground());
+								vehicleBatch.add(destinations, ((Number)vehicleLength_.getValue()).intValue(), getRandomRange(minSpeedValue, maxSpeedValue, random), getRandomRange(minCommDistValue, maxCommDistValue, random), wiFiEnabled, emergencyEnabled, getRandomRange(minBrakingValue, maxBrakingValue, random), getRandomRange(minAccelerationValue, maxAccelerationValue, random), getRandomRange(minTimeDistance, maxTimeDistance, random), getRandomRange(minPoliteness, maxPoliteness, random), colorPreview_.getBackground());
+							}
+						}
+						if(vehicleBatch.size() == 0) break;
+						// calculate the routes in parallel and add the vehicles. Vehicles without a route are replaced in the next round.
+						vehicleBatch.calculateRoutes();
+						for(m = 0; m < vehicleBatch.size(); ++m){
+							try {
+								tmpVehicle = vehicleBatch.createVehicle(m);
 								Map.getInstance().addVehicle(tmpVehicle);
 								++i;
 							} catch (Exception e) {}				
 						}
-						if(l > amountValue*4) break;
 					}
 					int errorLevel = 2;
 					if(i < amountValue) errorLevel = 6;
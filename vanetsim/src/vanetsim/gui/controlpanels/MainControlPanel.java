@@ -76,10 +76,10 @@ public final class MainControlPanel extends JPanel implements ChangeListener{
 		osmFileFilter_ = new FileFilter(){
 			public boolean accept(File f) {
 				if (f.isDirectory()) return true;
-				return f.getName().toLowerCase().endsWith(".osm"); //$NON-NLS-1$
+				return f.getName().toLowerCase().endsWith(".osm") || f.getName().toLowerCase().endsWith(".osm.pbf"); //$NON-NLS-1$ //$NON-NLS-2$
 			}
 			public String getDescription () { 
-				return Messages.getString("MainControlPanel.openStreetMapFiles") + " (*.osm)"; //$NON-NLS-1$ //$NON-NLS-2$
+				return Messages.getString("MainControlPanel.openStreetMapFiles") + " (*.osm, *.osm.pbf)"; //$NON-NLS-1$ //$NON-NLS-2$
 			}
 		};
 		
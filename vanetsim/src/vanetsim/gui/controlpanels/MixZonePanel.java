@@ -212,7 +212,7 @@ public class MixZonePanel extends JPanel implements ActionListener{
 		}
 		//set flag to add mix zones automatically to every street corner
 		else if("autoAddMixZones".equals(command)){
-			Renderer.getInstance().setAutoAddMixZones(autoAddMixZones_.isSelected());
+			Map.getInstance().setAutoAddMixZones(autoAddMixZones_.isSelected());
 		}
 		//set flag to enable encrypted communication in mix-zone
 		else if("encryptedBeacons".equals(command)){
@@ -41,6 +41,7 @@ import vanetsim.localization.Messages;
 import vanetsim.map.Map;
 import vanetsim.map.Region;
 import vanetsim.map.Street;
+import vanetsim.routing.RouteCache;
 import vanetsim.scenario.Vehicle;
 import vanetsim.scenario.RSU;
 
@@ -381,6 +382,12 @@ public final class ReportingControlPanel extends JPanel implements ActionListene
 		statisticsText_.append(Messages.getString("ReportingControlPanel.totalIDchanges")); //$NON-NLS-1$
 		statisticsText_.append(INTEGER_FORMAT.format(IDsChanged));
 		statisticsText_.append("\n"); //$NON-NLS-1$
+		statisticsText_.append(Messages.getString("ReportingControlPanel.routeCacheHitRate")); //$NON-NLS-1$
+		statisticsText_.append(INTEGER_FORMAT_FRACTION.format(RouteCache.getInstance().getHitRate()*100));
+		statisticsText_.append(" %\n"); //$NON-NLS-1$
+		statisticsText_.append(Messages.getString("ReportingControlPanel.routeCacheMemory")); //$NON-NLS-1$
+		statisticsText_.append(INTEGER_FORMAT_FRACTION.format(RouteCache.getInstance().getMemoryUsage()/1024.0));
+		statisticsText_.append(" KiB\n"); //$NON-NLS-1$
 		
 		statisticsTextArea_.setText(statisticsText_.toString());
 	}
@@ -1,8 +1,8 @@
 package vanetsim.map;
 
-import vanetsim.gui.Renderer;
 import vanetsim.scenario.LaneObject;
 import vanetsim.scenario.Vehicle;
+import vanetsim.simulation.SimulationClock;
 
 /**
  * A junction which always belongs to one specific node. If vehicles move from one priority street to another, they don't have to wait.
@@ -26,9 +26,6 @@ public final class Junction{
 	 * doesn't signal that it has passed the junction within this time, another vehicle gets the permission! */
 	private static final int MAXIMUM_TIME_ON_JUNCTION = 2500;
 	
-	/** A static reference to the renderer. */
-	private static final Renderer renderer_ = Renderer.getInstance();
-	
 	/** The node this junction belongs to. */
 	private final Node node_;
 	
@@ -150,7 +147,7 @@ public final class Junction{
 	 * @param priority	the priority of the vehicle to pass this junction
 	 */
 	public synchronized void addWaitingVehicle(Vehicle vehicle, int priority){
-		int curTime = renderer_.getTimePassed();
+		int curTime = SimulationClock.getTimePassed();
 		if(curTime > vehicleAllowedSetTime_){		// Sets the vehicle which will be allowed to pass in the current step.
 			vehicleAllowedSetTime_ = curTime;
 			if(vehicleOnJunction_ && vehicleOnJunctionSince_ > curTime - MAXIMUM_TIME_ON_JUNCTION) vehicleAllowedThisStep_ = null;
@@ -285,7 +282,7 @@ public final class Junction{
 			if(priority == 3) junctionQueuePriority3_.delFirstVehicle();
 			else junctionQueuePriority4_.delFirstVehicle();
 			vehicleOnJunction_ = true;
-			vehicleOnJunctionSince_ = renderer_.getTimePassed();
+			vehicleOnJunctionSince_ = SimulationClock.getTimePassed();
 			return true;
 		} else return false;
 	}
@@ -1,7 +1,7 @@
 package vanetsim.map;
 
-import vanetsim.gui.Renderer;
 import vanetsim.scenario.Vehicle;
+import vanetsim.simulation.SimulationClock;
 
 /**
  * A queue for the vehicles waiting on a junction.
@@ -12,9 +12,6 @@ public final class JunctionQueue{
 	 * calling the addVehicle-function. */
 	private static final int LAST_SEEN_TIMEOUT = 2500;
 	
-	/** A static reference to the renderer. */
-	private static final Renderer renderer_ = Renderer.getInstance();
-	
 	/** The vehicles in this queue. */
 	private Vehicle[] vehicles_;
 	
@@ -46,7 +43,7 @@ public final class JunctionQueue{
 		int i;
 		for(i = 0; i < size_; ++i){
 			if(vehicles_[i] == vehicle){
-				lastSeen_[i] = renderer_.getTimePassed();
+				lastSeen_[i] = SimulationClock.getTimePassed();
 				return false;
 			}
 		}
@@ -64,7 +61,7 @@ public final class JunctionQueue{
 			System.arraycopy (lastSeen_,0,newArray2,0,size_);
 			lastSeen_ = newArray2;
 		}
-		int curTime = renderer_.getTimePassed();
+		int curTime = SimulationClock.getTimePassed();
 		// find other vehicles which were inserted in the current step in order to get a thread-safe ordering!
 		for(i = size_ - 1; i > -1; --i){
 			if(waitingSince_[i] != curTime) break;
@@ -121,7 +118,7 @@ public final class JunctionQueue{
 	 * Cleans up. This removes vehicles which haven't been seen for a long time and thus prevents from stalls.
 	 */
 	public synchronized void cleanUp(){
-		int i, checkTime = renderer_.getTimePassed() - LAST_SEEN_TIMEOUT;
+		int i, checkTime = SimulationClock.getTimePassed() - LAST_SEEN_TIMEOUT;
 		for(i = size_ - 1; i > -1; --i){	// going backwards because it's easier for deletion!
 			if(lastSeen_[i] < checkTime){
 				--size_;
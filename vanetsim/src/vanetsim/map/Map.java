@@ -1,13 +1,25 @@
 package vanetsim.map;
 
 import java.awt.Color;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.concurrent.CyclicBarrier;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -27,14 +39,11 @@ import org.codehaus.staxmate.out.SMOutputElement;
 
 import vanetsim.ErrorLog;
 import vanetsim.VanetSimStart;
-import vanetsim.gui.Renderer;
-import vanetsim.gui.controlpanels.MapSizeDialog;
-import vanetsim.gui.helpers.MouseClickManager;
 import vanetsim.localization.Messages;
-import vanetsim.routing.A_Star.A_Star_LookupTableFactory;
 import vanetsim.scenario.Scenario;
 import vanetsim.scenario.Vehicle;
 import vanetsim.scenario.RSU;
+import vanetsim.simulation.SimulationEngine;
 
 /**
  * The map. The coordinate system is 2-dimensional with each axis allowing values from
@@ -44,25 +53,45 @@ import vanetsim.scenario.RSU;
  * vehicles, nodes and streets are stored in these regions.
  * Because of the regions, for example rendering and distance calculations only need to be done
  * on a limited amount of vehicles/streets/nodes which helps handling large maps a lot.
+ * <p>
+ * Maps are stored as XML files or in a binary format (see {@link #saveBinary(File)}) which can be loaded a lot faster.
  */
 public final class Map{
 
 	/** The only instance of this class (singleton). */
 	private static final Map INSTANCE = new Map();
 	
+	/** The first bytes of a binary map file ("VSBM"). */
+	private static final int BINARY_MAGIC = 0x5653424D;
+
+	/** The version of the binary map format. */
+	private static final int BINARY_VERSION = 2;
+
+	/** The charset of the strings in a binary map file. */
+	private static final Charset BINARY_CHARSET = Charset.forName("UTF-8"); //$NON-NLS-1$
+
 	/** The width of a single lane (3m). Used in various other places in this program! */
 	public static final int LANE_WIDTH = 300;
 
+	/** About how many streets should be in a region after the regions have been adapted to the streets of a map. */
+	private static final int STREETS_PER_REGION = 128;
+
+	/** The minimum width and height of a region adapted to the streets of a map (10m). */
+	private static final int MIN_REGION_SIZE = 1000;
+
+	/** If mix zones are added to all junctions automatically when the junctions are calculated. */
+	private boolean autoAddMixZones_ = false;
+
 	/** The width of the map in cm. */
 	private int width_ = 0;
 
 	/** The height of the map in cm. */
 	private int height_ = 0;
 
-	/** The width of a region in cm. */
+	/** The width of a region in cm. Only used until the regions are adapted to the streets of the map. */
 	private int regionWidth_ = 0;
 
-	/** The height of a region in cm. */
+	/** The height of a region in cm. Only used until the regions are adapted to the streets of the map. */
 	private int regionHeight_ = 0;
 
 	/** The amount of regions in x direction. */
@@ -71,12 +100,27 @@ public final class Map{
 	/** The amount of regions in y direction. */
 	private int regionCountY_ = 0;
 
+	/** The left boundaries of the regions in x direction followed by the right boundary of the last region (exclusive). */
+	private int[] regionBoundariesX_ = null;
+
+	/** The upper boundaries of the regions in y direction followed by the lower boundary of the last region (exclusive). */
+	private int[] regionBoundariesY_ = null;
+
 	/** An array holding all {@link Region}s. */
 	private Region[][] regions_ = null;
 
 	/** A flag to signal if loading is ready. While loading is in progress, simulation and rendering is not possible. */
 	private boolean ready_ = true;	
 
+	/** Counts the changes of the street network. Used to find out if data precomputed for routing is outdated. */
+	private volatile int changeCount_ = 0;
+
+	/** The snapshot of the street network used for routing or <code>null</code> if it hasn't been created yet. */
+	private volatile RoadGraph roadGraph_ = null;
+
+	/** The R-tree over all streets or <code>null</code> if it needs to be loaded (again). */
+	private volatile StreetTree streetTree_ = null;
+
 	/**
 	 * Empty, private constructor in order to disable instancing.
 	 */
@@ -93,7 +137,8 @@ public final class Map{
 	}
 
 	/**
-	 * Initializes a new map.
+	 * Initializes a new map. All regions have the same size until the map has been loaded. Then they are adapted to the streets
+	 * of the map in {@link #signalMapLoaded()}.
 	 * 
 	 * @param width			the width
 	 * @param height		the height
@@ -101,47 +146,33 @@ public final class Map{
 	 * @param regionHeight	the height of a region
 	 */
 	public void initNewMap(int width, int height, int regionWidth, int regionHeight){
-		int i, j;
 		if(ready_ == true){
 			ready_ = false;
 			//cleanup!
-			if(!Renderer.getInstance().isConsoleStart()){
+			if(!SimulationEngine.getInstance().isHeadless()){
 				Scenario.getInstance().initNewScenario();	//stops the simulation thread so we don't need to do it here
 				Scenario.getInstance().setReadyState(true);
 			}
 			
-			A_Star_LookupTableFactory.clear();
 			Node.resetNodeID();
+			++changeCount_;
+			roadGraph_ = null;
+			streetTree_ = null;
 			width_ = width;
 			height_ = height;
 			regionWidth_ = regionWidth;
 			regionHeight_ = regionHeight;
 
-			Renderer.getInstance().setMarkedStreet(null);
-			Renderer.getInstance().setMarkedVehicle(null);
-			Renderer.getInstance().setAttackerVehicle(null);
-			Renderer.getInstance().setAttackedVehicle(null);
+			Scenario.getInstance().setMarkedVehicle(null);
+			Scenario.getInstance().setAttackerVehicle(null);
+			Scenario.getInstance().setAttackedVehicle(null);
 
 			
-			if(!Renderer.getInstance().isConsoleStart())MouseClickManager.getInstance().cleanMarkings();
+			if(!SimulationEngine.getInstance().isHeadless()) SimulationEngine.getInstance().getListener().mapCleared();
 
 			// create the regions on the map
-			regionCountX_ = width_/regionWidth_;
-			if(width_%regionWidth_ > 0) ++regionCountX_;
-			regionCountY_ = height_/regionHeight_;
-			if(height_%regionHeight_ > 0) ++regionCountY_;
-			regions_ = new Region[regionCountX_][regionCountY_];
-			int upperboundary = 0, leftboundary = 0;
-			for(i = 0; i < regionCountX_; ++i){
-				for(j = 0; j < regionCountY_; ++j){
-					regions_[i][j] = new Region(i,j, leftboundary, leftboundary + regionWidth_-1, upperboundary, upperboundary + regionHeight_-1);
-					upperboundary += regionHeight_;
-				}
-				leftboundary += regionWidth_;
-				upperboundary = 0;
-			}
-			Vehicle.setRegions(regions_);
-			RSU.setRegions(regions_);
+			createRegions(getUniformBoundaries(width_, regionWidth_), getUniformBoundaries(height_, regionHeight_));
+			SpatialHash.getInstance().clear();
 		} else {
 			ErrorLog.log(Messages.getString("Map.mapLocked"), 7, getClass().getName(), "initNewMap", null); //$NON-NLS-1$ //$NON-NLS-2$
 		}
@@ -151,6 +182,7 @@ public final class Map{
 	 * This function needs to be called to signal that the loading process of the map has finished.
 	 */
 	public void signalMapLoaded(){
+		adaptRegions();
 		// optimize the ArrayLists in the regions in order to free wasted memory
 		for(int i = 0; i < regionCountX_; ++i){
 			for(int j = 0; j < regionCountY_; ++j){
@@ -158,12 +190,7 @@ public final class Map{
 			}
 		}
 		ready_ = true;
-		if(!Renderer.getInstance().isConsoleStart()){
-			Renderer.getInstance().setMiddle(width_/2, height_/2);
-			Renderer.getInstance().setMapZoom(Math.exp(5/100.0)/1000);
-			Renderer.getInstance().ReRender(true, false);
-
-		}
+		if(!SimulationEngine.getInstance().isHeadless()) SimulationEngine.getInstance().getListener().mapLoaded(width_, height_);
 
 		//start a thread which calculates bridges in background so that loading is faster (it's just eyecandy and not necessary otherwise ;))
 		Runnable job = new Runnable() {
@@ -181,14 +208,125 @@ public final class Map{
 	}
 
 	/**
-	 * Load a map.
+	 * Creates new, empty regions. The regions form a grid but the columns and rows may have different sizes.
+	 * 
+	 * @param boundariesX	the left boundaries of the columns followed by the right boundary of the last column (exclusive)
+	 * @param boundariesY	the upper boundaries of the rows followed by the lower boundary of the last row (exclusive)
+	 */
+	private void createRegions(int[] boundariesX, int[] boundariesY){
+		regionBoundariesX_ = boundariesX;
+		regionBoundariesY_ = boundariesY;
+		regionCountX_ = boundariesX.length - 1;
+		regionCountY_ = boundariesY.length - 1;
+		regions_ = new Region[regionCountX_][regionCountY_];
+		for(int i = 0; i < regionCountX_; ++i){
+			for(int j = 0; j < regionCountY_; ++j){
+				regions_[i][j] = new Region(i,j, boundariesX[i], boundariesX[i + 1] - 1, boundariesY[j], boundariesY[j + 1] - 1);
+			}
+		}
+		Vehicle.setRegions(regions_);
+		RSU.setRegions(regions_);
+	}
+
+	/**
+	 * Calculates the boundaries of regions which all have the same size.
+	 * 
+	 * @param size			the width or height of the map
+	 * @param regionSize	the width or height of a region
+	 * 
+	 * @return the boundaries (including the end of the last region)
+	 */
+	private static int[] getUniformBoundaries(int size, int regionSize){
+		int count = size/regionSize;
+		if(size%regionSize > 0) ++count;
+		int[] boundaries = new int[count + 1];
+		for(int i = 0; i <= count; ++i) boundaries[i] = (int)Math.min((long)i * regionSize, Integer.MAX_VALUE);
+		return boundaries;
+	}
+
+	/**
+	 * Adapts the regions to the density of the streets. The boundaries between the columns and between the rows of regions are
+	 * set so that each column and each row contains about the same amount of street ends. Dense parts of the map thus get small
+	 * regions and sparse parts large ones, so that checking the regions around a point costs about the same everywhere. The
+	 * regions still form a grid so that they can be used like before. All nodes and streets are moved into the new regions.
+	 * Should only be used while the map is loaded (vehicles, RSUs and mix zones are not moved).
+	 */
+	private void adaptRegions(){
+		ArrayList<Node> nodes = new ArrayList<Node>();
+		ArrayList<Street> streets = new ArrayList<Street>();
+		IdentityHashMap<Street, Boolean> foundStreets = new IdentityHashMap<Street, Boolean>();
+		Node[] regionNodes;
+		Street[] regionStreets;
+		int i, j, k;
+		for(i = 0; i < regionCountX_; ++i){
+			for(j = 0; j < regionCountY_; ++j){
+				regionNodes = regions_[i][j].getNodes();
+				for(k = 0; k < regionNodes.length; ++k) nodes.add(regionNodes[k]);
+				regionStreets = regions_[i][j].getStreets();
+				for(k = 0; k < regionStreets.length; ++k){
+					if(foundStreets.put(regionStreets[k], Boolean.TRUE) == null) streets.add(regionStreets[k]);
+				}
+			}
+		}
+		if(streets.size() == 0) return;		// nothing to adapt to (for example a new map)
+
+		int[] streetsX = new int[streets.size() * 2];
+		int[] streetsY = new int[streets.size() * 2];
+		for(i = 0; i < streets.size(); ++i){
+			streetsX[i * 2] = streets.get(i).getStartNode().getX();
+			streetsY[i * 2] = streets.get(i).getStartNode().getY();
+			streetsX[i * 2 + 1] = streets.get(i).getEndNode().getX();
+			streetsY[i * 2 + 1] = streets.get(i).getEndNode().getY();
+		}
+		int count = (int)Math.ceil(Math.sqrt(streets.size() / (double)STREETS_PER_REGION));
+		int[] boundariesX = getAdaptedBoundaries(streetsX, count, width_);
+		int[] boundariesY = getAdaptedBoundaries(streetsY, count, height_);
+		if(Arrays.equals(boundariesX, regionBoundariesX_) && Arrays.equals(boundariesY, regionBoundariesY_)) return;		// already adapted (binary files store the regions)
+
+		createRegions(boundariesX, boundariesY);
+		for(i = 0; i < streets.size(); ++i){		// nodes which are not in a region still need to know the new region
+			streets.get(i).getStartNode().setRegion(getRegionOfPoint(streets.get(i).getStartNode().getX(), streets.get(i).getStartNode().getY()));
+			streets.get(i).getEndNode().setRegion(getRegionOfPoint(streets.get(i).getEndNode().getX(), streets.get(i).getEndNode().getY()));
+		}
+		addNodesAndStreets(nodes, streets);
+		for(i = 0; i < streets.size(); ++i) streets.get(i).setMainRegion(streets.get(i).getStartNode().getRegion());
+	}
+
+	/**
+	 * Calculates the boundaries of regions so that each region contains about the same amount of coordinates.
+	 * 
+	 * @param values	the coordinates (are sorted by this function)
+	 * @param count		the wanted amount of regions. There might be less regions if they would get too small.
+	 * @param size		the width or height of the map
+	 * 
+	 * @return the boundaries (including the end of the last region)
+	 */
+	private static int[] getAdaptedBoundaries(int[] values, int count, int size){
+		Arrays.sort(values);
+		int[] boundaries = new int[count + 1];
+		int found = 1, value;		// the first region always starts at 0
+		for(int i = 1; i < count; ++i){
+			value = values[(int)((long)values.length * i / count)];
+			if(value - boundaries[found - 1] >= MIN_REGION_SIZE && (long)size - value >= MIN_REGION_SIZE) boundaries[found++] = value;
+		}
+		boundaries[found++] = size;
+		return Arrays.copyOf(boundaries, found);
+	}
+
+	/**
+	 * Load a map. Binary map files (see {@link #saveBinary(File)}) are recognized automatically.
 	 * 
 	 * @param file	the file to load
 	 * @param zip	<code>true</code> if the file given is zipped, else <code>false</code>
+	 * 
+	 * @return <code>true</code> if the map was loaded completely, <code>false</code> if loading failed (an empty map is used then
+	 * if the old map had already been removed)
 	 */
-	public void load(File file, boolean zip){
+	public boolean load(File file, boolean zip){
+		if(!zip && isBinaryMap(file)) return loadBinary(file);
+		boolean initialized = false, complete = false;
 		try{
-			if(!Renderer.getInstance().isConsoleStart())VanetSimStart.setProgressBar(true);
+			if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.setProgressBar(true);
 			String childtype, setting, streetName, streetType, trafficSignalException;
 			int x = 0, y = 0, maxSpeed, isOneway, lanes, newMapWidth, newMapHeight, newRegionWidth, newRegionHeight;
 			Color displayColor;
@@ -242,18 +380,19 @@ public final class Map{
 						}
 					}
 					if(newMapWidth > 0 && newMapHeight > 0 && newRegionWidth > 0 && newRegionHeight > 0){		// only continue if settings were all found
-						if(!Renderer.getInstance().isConsoleStart())VanetSimStart.setProgressBar(false);
+						if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.setProgressBar(false);
 						CyclicBarrier barrier = new CyclicBarrier(2);
-						if(!Renderer.getInstance().isConsoleStart()){
-							new MapSizeDialog(newMapWidth, newMapHeight, newRegionWidth, newRegionHeight, barrier);	//initialize new map
+						if(!SimulationEngine.getInstance().isHeadless()){
+							SimulationEngine.getInstance().getListener().requestMapSize(newMapWidth, newMapHeight, newRegionWidth, newRegionHeight, barrier);	//initialize new map
 							try {
 								barrier.await();
 							} catch (Exception e) {}
 						}
 						else Map.getInstance().initNewMap(newMapWidth, newMapHeight, newRegionWidth, newRegionHeight);
+						initialized = true;
 						int addX = (width_ - newMapWidth)/2;
 						int addY = (height_ - newMapHeight)/2;
-						if(!Renderer.getInstance().isConsoleStart())VanetSimStart.setProgressBar(true);
+						if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.setProgressBar(true);
 						while (childCrsr.getNext() != null){
 							if(childCrsr.getLocalName().toLowerCase().equals("streets")){ //$NON-NLS-1$
 								streetCrsr = childCrsr.childElementCursor();
@@ -334,6 +473,7 @@ public final class Map{
 								}
 							} else ErrorLog.log(Messages.getString("Map.unknownElementOnlyStreets"), 3, getClass().getName(), "load", null); //$NON-NLS-1$ //$NON-NLS-2$
 						}
+						complete = true;
 					} else ErrorLog.log(Messages.getString("Map.settingsIncomplete"), 7, getClass().getName(), "load", null); //$NON-NLS-1$ //$NON-NLS-2$
 				} else ErrorLog.log(Messages.getString("Map.settingsMissing"), 7, getClass().getName(), "load", null); //$NON-NLS-1$ //$NON-NLS-2$
 			} else ErrorLog.log(Messages.getString("Map.wrongRoot"), 7, getClass().getName(), "load", null); //$NON-NLS-1$ //$NON-NLS-2$
@@ -341,9 +481,14 @@ public final class Map{
 			sr.close();
 			filestream.close();
 		} catch (Exception e) {ErrorLog.log(Messages.getString("Map.errorLoading"), 7, getClass().getName(), "load", e);} //$NON-NLS-1$ //$NON-NLS-2$
-		if(!Renderer.getInstance().isConsoleStart())VanetSimStart.setProgressBar(false);
+		if(initialized && !complete){	// don't keep a partly loaded map
+			ready_ = true;
+			initNewMap(width_, height_, regionWidth_, regionHeight_);
+		}
+		if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.setProgressBar(false);
 		signalMapLoaded();
 		ErrorLog.log(Messages.getString("Map.loadingFinished"), 3, getClass().getName(), "load", null); //$NON-NLS-1$ //$NON-NLS-2$	
+		return complete;
 	}
 
 
@@ -355,7 +500,7 @@ public final class Map{
 	 */
 	public void save(File file, boolean zip){
 		try{
-			if(!Renderer.getInstance().isConsoleStart())VanetSimStart.setProgressBar(true);
+			if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.setProgressBar(true);
 			ErrorLog.log(Messages.getString("Map.savingMap") + file.getName(), 3, getClass().getName(), "save", null); //$NON-NLS-1$ //$NON-NLS-2$
 			int i, j, k;
 			Street[] streetsArray;
@@ -424,7 +569,375 @@ public final class Map{
 			xw.close();
 			filestream.close();
 		}catch (Exception e) {ErrorLog.log(Messages.getString("Map.errorSavingMap") , 6, getClass().getName(), "save", e);} //$NON-NLS-1$ //$NON-NLS-2$
-		if(!Renderer.getInstance().isConsoleStart())VanetSimStart.setProgressBar(false);
+		if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.setProgressBar(false);
+	}
+
+	/**
+	 * Checks if a file is a binary map file.
+	 * 
+	 * @param file	the file
+	 * 
+	 * @return <code>true</code> if the file starts like a binary map file, else <code>false</code>
+	 */
+	private static boolean isBinaryMap(File file){
+		if(file.length() < 8) return false;
+		try{
+			DataInputStream in = new DataInputStream(new FileInputStream(file));
+			try{
+				return in.readInt() == BINARY_MAGIC;
+			} finally {
+				in.close();
+			}
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Load a binary map file (see {@link #saveBinary(File)}). The file is mapped into memory and the nodes and streets are
+	 * created directly from it. If the size of the map and of the regions isn't changed while loading, the regions stored in the
+	 * file are used so that the nodes and streets don't need to be checked and assigned to regions one after another. Files of
+	 * version 1 (without the boundaries of the regions) can still be loaded. All amounts and indices are checked against the
+	 * file. If the file is corrupt, an empty map is created instead of leaving a partly loaded one.
+	 * 
+	 * @param file	the file to load
+	 * 
+	 * @return <code>true</code> if the map was loaded completely, else <code>false</code>
+	 */
+	public boolean loadBinary(File file){
+		boolean initialized = false, complete = false;
+		try{
+			if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.setProgressBar(true);
+			ErrorLog.log(Messages.getString("Map.loadingMap") + file.getName(), 3, getClass().getName(), "loadBinary", null); //$NON-NLS-1$ //$NON-NLS-2$
+			RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+			try{
+				FileChannel channel = randomAccessFile.getChannel();
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				buffer.getInt();	// magic number
+				int version = buffer.getInt();
+				if(version == 1 || version == BINARY_VERSION){
+					int newMapWidth = buffer.getInt();
+					int newMapHeight = buffer.getInt();
+					int newRegionWidth = buffer.getInt();
+					int newRegionHeight = buffer.getInt();
+					if(newMapWidth > 0 && newMapHeight > 0 && newRegionWidth > 0 && newRegionHeight > 0){
+						int[] newBoundariesX, newBoundariesY;
+						if(version == 1){		// all regions had the same size
+							newBoundariesX = getUniformBoundaries(newMapWidth, newRegionWidth);
+							newBoundariesY = getUniformBoundaries(newMapHeight, newRegionHeight);
+						} else {
+							newBoundariesX = readBoundaries(buffer, newMapWidth);
+							newBoundariesY = readBoundaries(buffer, newMapHeight);
+						}
+						if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.setProgressBar(false);
+						CyclicBarrier barrier = new CyclicBarrier(2);
+						if(!SimulationEngine.getInstance().isHeadless()){
+							SimulationEngine.getInstance().getListener().requestMapSize(newMapWidth, newMapHeight, newRegionWidth, newRegionHeight, barrier);	//initialize new map
+							try {
+								barrier.await();
+							} catch (Exception e) {}
+						}
+						else Map.getInstance().initNewMap(newMapWidth, newMapHeight, newRegionWidth, newRegionHeight);
+						initialized = true;
+						int addX = (width_ - newMapWidth)/2;
+						int addY = (height_ - newMapHeight)/2;
+						boolean useRegions = width_ == newMapWidth && height_ == newMapHeight && regionWidth_ == newRegionWidth && regionHeight_ == newRegionHeight && newBoundariesX.length > 1 && newBoundariesY.length > 1;
+						if(useRegions) createRegions(newBoundariesX, newBoundariesY);
+						if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.setProgressBar(true);
+						
+						int i, j, k, count, region;
+						Node node, startNode, endNode;
+						Integer color;
+						Color displayColor;
+						
+						// the names and types of the streets
+						String[] strings = new String[readCount(buffer, 4)];
+						byte[] bytes = new byte[64];
+						for(i = 0; i < strings.length; ++i){
+							count = readCount(buffer, 1);
+							if(count > bytes.length) bytes = new byte[Math.max(count, bytes.length * 2)];
+							buffer.get(bytes, 0, count);
+							strings[i] = new String(bytes, 0, count, BINARY_CHARSET);
+						}
+						
+						Node[] nodes = new Node[readCount(buffer, 13)];
+						int[] exceptions;
+						for(i = 0; i < nodes.length; ++i){
+							node = new Node(buffer.getInt() + addX, buffer.getInt() + addY, buffer.get() != 0);
+							count = buffer.getInt();
+							if(count > -1){
+								if(count > buffer.remaining() / 4) throw new IOException(Messages.getString("Map.corruptBinaryFile")); //$NON-NLS-1$
+								exceptions = new int[count];
+								for(j = 0; j < count; ++j) exceptions[j] = buffer.getInt();
+								node.setStreetHasException_(exceptions);
+							}
+							if(useRegions) nodes[i] = node;
+							else nodes[i] = addNode(node);
+						}
+						
+						Street[] streets = new Street[readCount(buffer, 33)];
+						HashMap<Integer, Color> colors = new HashMap<Integer, Color>();	// all streets of a type share their color
+						String streetName, streetType;
+						int isOneway, lanes, maxSpeed;
+						for(i = 0; i < streets.length; ++i){
+							startNode = nodes[readIndex(buffer, nodes.length)];
+							endNode = nodes[readIndex(buffer, nodes.length)];
+							streetName = strings[readIndex(buffer, strings.length)];
+							streetType = strings[readIndex(buffer, strings.length)];
+							isOneway = buffer.get();
+							lanes = buffer.getInt();
+							maxSpeed = buffer.getInt();
+							color = Integer.valueOf(buffer.getInt());
+							region = buffer.getInt();
+							if(useRegions && (region < 0 || region >= regionCountX_ * regionCountY_)) throw new IOException(Messages.getString("Map.corruptBinaryFile")); //$NON-NLS-1$
+							displayColor = colors.get(color);
+							if(displayColor == null){
+								displayColor = new Color(color.intValue());
+								colors.put(color, displayColor);
+							}
+							if(useRegions) streets[i] = new Street(streetName, startNode, endNode, streetType, isOneway, lanes, displayColor, regions_[region / regionCountY_][region % regionCountY_], maxSpeed);
+							else addStreet(new Street(streetName, startNode, endNode, streetType, isOneway, lanes, displayColor, getRegionOfPoint(startNode.getX(), startNode.getY()), maxSpeed));
+						}
+						
+						if(useRegions){
+							Node[] regionNodes;
+							Street[] regionStreets;
+							for(i = 0; i < regionCountX_; ++i){
+								for(j = 0; j < regionCountY_; ++j){
+									regionNodes = new Node[readCount(buffer, 4)];
+									for(k = 0; k < regionNodes.length; ++k){
+										regionNodes[k] = nodes[readIndex(buffer, nodes.length)];
+										regionNodes[k].setRegion(regions_[i][j]);
+									}
+									regions_[i][j].setNodes(regionNodes);
+									regionStreets = new Street[readCount(buffer, 4)];
+									for(k = 0; k < regionStreets.length; ++k) regionStreets[k] = streets[readIndex(buffer, streets.length)];
+									regions_[i][j].setStreets(regionStreets);
+								}
+							}
+							for(i = 0; i < nodes.length; ++i){
+								if(nodes[i].getRegion() == null) addNode(nodes[i]);		// only if the file was changed by hand
+							}
+							++changeCount_;
+						}
+						complete = true;
+					} else ErrorLog.log(Messages.getString("Map.settingsIncomplete"), 7, getClass().getName(), "loadBinary", null); //$NON-NLS-1$ //$NON-NLS-2$
+				} else ErrorLog.log(Messages.getString("Map.wrongBinaryVersion"), 7, getClass().getName(), "loadBinary", null); //$NON-NLS-1$ //$NON-NLS-2$
+			} finally {
+				randomAccessFile.close();
+			}
+		} catch (Exception e) {ErrorLog.log(Messages.getString("Map.errorLoading"), 7, getClass().getName(), "loadBinary", e);} //$NON-NLS-1$ //$NON-NLS-2$
+		if(initialized && !complete){	// don't keep a partly loaded map
+			ready_ = true;
+			initNewMap(width_, height_, regionWidth_, regionHeight_);
+		}
+		if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.setProgressBar(false);
+		signalMapLoaded();
+		ErrorLog.log(Messages.getString("Map.loadingFinished"), 3, getClass().getName(), "loadBinary", null); //$NON-NLS-1$ //$NON-NLS-2$
+		return complete;
+	}
+
+	/**
+	 * Reads the boundaries of the regions in one direction from a binary map file.
+	 * 
+	 * @param buffer	the file
+	 * @param size		the width or height of the map
+	 * 
+	 * @return the boundaries (including the end of the last region)
+	 * 
+	 * @throws IOException if the boundaries don't start at <code>0</code>, aren't increasing or don't cover the map
+	 */
+	private static int[] readBoundaries(MappedByteBuffer buffer, int size) throws IOException{
+		int[] boundaries = new int[readCount(buffer, 4)];
+		for(int i = 0; i < boundaries.length; ++i){
+			boundaries[i] = buffer.getInt();
+			if(i == 0 ? boundaries[i] != 0 : boundaries[i] <= boundaries[i - 1]) throw new IOException(Messages.getString("Map.corruptBinaryFile")); //$NON-NLS-1$
+		}
+		if(boundaries.length < 2 || boundaries[boundaries.length - 1] < size) throw new IOException(Messages.getString("Map.corruptBinaryFile")); //$NON-NLS-1$
+		return boundaries;
+	}
+
+	/**
+	 * Reads an amount of elements from a binary map file and checks that the rest of the file is large enough for them.
+	 * 
+	 * @param buffer		the file
+	 * @param elementSize	the minimum size of an element in bytes
+	 * 
+	 * @return the amount
+	 * 
+	 * @throws IOException if the amount is negative or too large
+	 */
+	private static int readCount(MappedByteBuffer buffer, int elementSize) throws IOException{
+		int count = buffer.getInt();
+		if(count < 0 || (long)count * elementSize > buffer.remaining()) throw new IOException(Messages.getString("Map.corruptBinaryFile")); //$NON-NLS-1$
+		return count;
+	}
+
+	/**
+	 * Reads an index from a binary map file.
+	 * 
+	 * @param buffer	the file
+	 * @param size		the size of the array the index refers to
+	 * 
+	 * @return the index
+	 * 
+	 * @throws IOException if the index is outside of the array
+	 */
+	private static int readIndex(MappedByteBuffer buffer, int size) throws IOException{
+		int index = buffer.getInt();
+		if(index < 0 || index >= size) throw new IOException(Messages.getString("Map.corruptBinaryFile")); //$NON-NLS-1$
+		return index;
+	}
+
+	/**
+	 * Save the map in a binary format which can be loaded a lot faster than XML files. All numbers are stored as big-endian
+	 * integers (flags as single bytes) in the following order:
+	 * <ul>
+	 * <li>the magic number "VSBM", the version of the format and the width and height of the map and of the regions</li>
+	 * <li>the amount of boundaries of the regions in x direction followed by each boundary and the same for the y direction
+	 * (see {@link #adaptRegions()})</li>
+	 * <li>the amount of strings followed by each string (length and UTF-8 bytes) used as names and types of the streets</li>
+	 * <li>the amount of nodes followed by each node (x, y, traffic signal flag, amount of traffic signal exceptions or
+	 * <code>-1</code> and the exceptions)</li>
+	 * <li>the amount of streets followed by each street (index of the start and end node, index of the name and type in the
+	 * strings, oneway flag, lanes, speed, color and index of the main region)</li>
+	 * <li>for each region the amount and indices of its nodes and the amount and indices of its streets</li>
+	 * </ul>
+	 * Regions are numbered by <code>x * regionCountY + y</code>.
+	 * 
+	 * @param file	the file in which to save
+	 */
+	public void saveBinary(File file){
+		try{
+			if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.setProgressBar(true);
+			ErrorLog.log(Messages.getString("Map.savingMap") + file.getName(), 3, getClass().getName(), "saveBinary", null); //$NON-NLS-1$ //$NON-NLS-2$
+			int i, j, k, pass;
+			Street[] streetsArray;
+			Node[] nodesArray;
+			Street street;
+			Node node;
+			Region region;
+			int[] exceptions;
+
+			// the streets are numbered like they are saved in XML files (in their main region), other streets afterwards
+			ArrayList<Street> streets = new ArrayList<Street>();
+			IdentityHashMap<Street, Integer> streetIndices = new IdentityHashMap<Street, Integer>();
+			for(pass = 0; pass < 2; ++pass){
+				for(i = 0; i < regionCountX_; ++i){
+					for(j = 0; j < regionCountY_; ++j){
+						streetsArray = regions_[i][j].getStreets();
+						for(k = 0; k < streetsArray.length; ++k){
+							street = streetsArray[k];
+							if((pass == 1 || street.getMainRegion() == regions_[i][j]) && !streetIndices.containsKey(street)){
+								streetIndices.put(street, Integer.valueOf(streets.size()));
+								streets.add(street);
+							}
+						}
+					}
+				}
+			}
+
+			// the nodes are numbered in the order in which they are created when loading an XML file, other nodes afterwards
+			ArrayList<Node> nodes = new ArrayList<Node>();
+			IdentityHashMap<Node, Integer> nodeIndices = new IdentityHashMap<Node, Integer>();
+			ArrayList<String> strings = new ArrayList<String>();
+			HashMap<String, Integer> stringIndices = new HashMap<String, Integer>();
+			for(i = 0; i < streets.size(); ++i){
+				street = streets.get(i);
+				for(pass = 0; pass < 2; ++pass){
+					node = (pass == 0) ? street.getStartNode() : street.getEndNode();
+					if(!nodeIndices.containsKey(node)){
+						nodeIndices.put(node, Integer.valueOf(nodes.size()));
+						nodes.add(node);
+					}
+				}
+				if(!stringIndices.containsKey(street.getName())){
+					stringIndices.put(street.getName(), Integer.valueOf(strings.size()));
+					strings.add(street.getName());
+				}
+				if(!stringIndices.containsKey(street.getStreetType_())){
+					stringIndices.put(street.getStreetType_(), Integer.valueOf(strings.size()));
+					strings.add(street.getStreetType_());
+				}
+			}
+			for(i = 0; i < regionCountX_; ++i){
+				for(j = 0; j < regionCountY_; ++j){
+					nodesArray = regions_[i][j].getNodes();
+					for(k = 0; k < nodesArray.length; ++k){
+						if(!nodeIndices.containsKey(nodesArray[k])){
+							nodeIndices.put(nodesArray[k], Integer.valueOf(nodes.size()));
+							nodes.add(nodesArray[k]);
+						}
+					}
+				}
+			}
+
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536));
+			try{
+				out.writeInt(BINARY_MAGIC);
+				out.writeInt(BINARY_VERSION);
+				out.writeInt(width_);
+				out.writeInt(height_);
+				out.writeInt(regionWidth_);
+				out.writeInt(regionHeight_);
+				out.writeInt(regionBoundariesX_.length);
+				for(i = 0; i < regionBoundariesX_.length; ++i) out.writeInt(regionBoundariesX_[i]);
+				out.writeInt(regionBoundariesY_.length);
+				for(i = 0; i < regionBoundariesY_.length; ++i) out.writeInt(regionBoundariesY_[i]);
+
+				byte[] bytes;
+				out.writeInt(strings.size());
+				for(i = 0; i < strings.size(); ++i){
+					bytes = strings.get(i).getBytes(BINARY_CHARSET);
+					out.writeInt(bytes.length);
+					out.write(bytes);
+				}
+
+				out.writeInt(nodes.size());
+				for(i = 0; i < nodes.size(); ++i){
+					node = nodes.get(i);
+					out.writeInt(node.getX());
+					out.writeInt(node.getY());
+					out.writeByte(node.isHasTrafficSignal_() ? 1 : 0);
+					exceptions = node.getStreetHasException_();
+					if(exceptions == null) out.writeInt(-1);
+					else {
+						out.writeInt(exceptions.length);
+						for(j = 0; j < exceptions.length; ++j) out.writeInt(exceptions[j]);
+					}
+				}
+
+				out.writeInt(streets.size());
+				for(i = 0; i < streets.size(); ++i){
+					street = streets.get(i);
+					region = street.getMainRegion();
+					if(region == null) region = getRegionOfPoint(street.getStartNode().getX(), street.getStartNode().getY());
+					out.writeInt(nodeIndices.get(street.getStartNode()).intValue());
+					out.writeInt(nodeIndices.get(street.getEndNode()).intValue());
+					out.writeInt(stringIndices.get(street.getName()).intValue());
+					out.writeInt(stringIndices.get(street.getStreetType_()).intValue());
+					out.writeByte(street.isOneway() ? 1 : 0);
+					out.writeInt(street.getLanesCount());
+					out.writeInt(street.getSpeed());
+					out.writeInt(street.getDisplayColor().getRGB());
+					out.writeInt(region.getX() * regionCountY_ + region.getY());
+				}
+
+				for(i = 0; i < regionCountX_; ++i){
+					for(j = 0; j < regionCountY_; ++j){
+						nodesArray = regions_[i][j].getNodes();
+						out.writeInt(nodesArray.length);
+						for(k = 0; k < nodesArray.length; ++k) out.writeInt(nodeIndices.get(nodesArray[k]).intValue());
+						streetsArray = regions_[i][j].getStreets();
+						out.writeInt(streetsArray.length);
+						for(k = 0; k < streetsArray.length; ++k) out.writeInt(streetIndices.get(streetsArray[k]).intValue());
+					}
+				}
+			} finally {
+				out.close();
+			}
+		}catch (Exception e) {ErrorLog.log(Messages.getString("Map.errorSavingMap") , 6, getClass().getName(), "saveBinary", e);} //$NON-NLS-1$ //$NON-NLS-2$
+		if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.setProgressBar(false);
 	}
 
 	/**
@@ -435,16 +948,11 @@ public final class Map{
 	 * @return the added node (might be different if already existing!)
 	 */
 	public Node addNode(Node node){
-		int regionX = node.getX()/regionWidth_;	//implicit rounding (=floor)because of integer values!
-		int regionY = node.getY()/regionHeight_;
-
-		// to prevent "array out of bounds" when node is outside of map
-		if (regionX >= regionCountX_) regionX = regionCountX_ - 1;
-		else if(regionX < 0) regionX = 0;
-		if (regionY >= regionCountY_) regionY = regionCountY_ - 1;
-		else if (regionY < 0) regionY = 0;
+		int regionX = getRegionIndexX(node.getX());
+		int regionY = getRegionIndexY(node.getY());
 
 		node.setRegion(regions_[regionX][regionY]);
+		++changeCount_;
 		return regions_[regionX][regionY].addNode(node, true);
 	}
 
@@ -455,6 +963,7 @@ public final class Map{
 	 */
 	public void delNode(Node node){
 		node.getRegion().delNode(node);
+		++changeCount_;
 	}
 
 	/**
@@ -464,14 +973,8 @@ public final class Map{
 	 * 
 	 */
 	public void addRSU(RSU rsu){
-		int regionX = rsu.getX()/regionWidth_;	//implicit rounding (=floor)because of integer values!
-		int regionY = rsu.getY()/regionHeight_;
-
-		// to prevent "array out of bounds" when RSU is outside of map
-		if (regionX >= regionCountX_) regionX = regionCountX_ - 1;
-		else if(regionX < 0) regionX = 0;
-		if (regionY >= regionCountY_) regionY = regionCountY_ - 1;
-		else if (regionY < 0) regionY = 0;
+		int regionX = getRegionIndexX(rsu.getX());
+		int regionY = getRegionIndexY(rsu.getY());
 
 		rsu.setRegion(regions_[regionX][regionY]);
 		regions_[regionX][regionY].addRSU(rsu);
@@ -519,14 +1022,8 @@ public final class Map{
 	 * @param vehicle	the vehicle to add
 	 */
 	public void addVehicle(Vehicle vehicle){
-		int regionX = vehicle.getX()/regionWidth_;	//implicit rounding (=floor)because of integer values!
-		int regionY = vehicle.getY()/regionHeight_;
-
-		// to prevent "array out of bounds" when vehicle is outside of map
-		if (regionX >= regionCountX_) regionX = regionCountX_ - 1;
-		else if(regionX < 0) regionX = 0;
-		if (regionY >= regionCountY_) regionY = regionCountY_ - 1;
-		else if (regionY < 0) regionY = 0;
+		int regionX = getRegionIndexX(vehicle.getX());
+		int regionY = getRegionIndexY(vehicle.getY());
 
 		vehicle.setRegion(regions_[regionX][regionY]);
 		regions_[regionX][regionY].addVehicle(vehicle, false);
@@ -550,27 +1047,50 @@ public final class Map{
 	 * @param street	the street to add
 	 */
 	public void addStreet(Street street){
+		++changeCount_;
+		Region[] regions = new Region[2 * (regionCountX_ + regionCountY_) + 2];
+		int count = getRegionsOfStreet(street, regions);
+		boolean added = false;
+		for(int i = 0; i < count; ++i){
+			if(regions[i].addStreet(street, true)) added = true;
+		}
+		if(added && streetTree_ != null){
+			synchronized(this){
+				if(streetTree_ != null) streetTree_ = streetTree_.withStreet(street);
+			}
+		}
+	}
+
+	/**
+	 * Finds all regions in which a street belongs. A region might be found more than once.
+	 * 
+	 * @param street	the street
+	 * @param result	an array for the regions with at least <code>2 * (regionCountX + regionCountY) + 2</code> elements
+	 * 
+	 * @return the amount of regions stored in <code>result</code>
+	 */
+	int getRegionsOfStreet(Street street, Region[] result){
 		int startRegionX = street.getStartNode().getRegion().getX();
 		int startRegionY = street.getStartNode().getRegion().getY();
 		int endRegionX = street.getEndNode().getRegion().getX();
 		int endRegionY = street.getEndNode().getRegion().getY();
-		int i;
+		int i, count = 0;
 
 		// find the regions in which this street belongs!
 		if(startRegionX == endRegionX){
-			if(startRegionY == endRegionY) regions_[startRegionX][startRegionY].addStreet(street, true);		// just in one region
+			if(startRegionY == endRegionY) result[count++] = regions_[startRegionX][startRegionY];		// just in one region
 			else{	// above or beneath
 				if(startRegionY < endRegionY){
-					for (i = startRegionY; i <= endRegionY; ++i) regions_[startRegionX][i].addStreet(street, true);
+					for (i = startRegionY; i <= endRegionY; ++i) result[count++] = regions_[startRegionX][i];
 				} else {
-					for (i = endRegionY; i <= startRegionY; ++i) regions_[startRegionX][i].addStreet(street, true);
+					for (i = endRegionY; i <= startRegionY; ++i) result[count++] = regions_[startRegionX][i];
 				}
 			}
 		} else if(startRegionY == endRegionY){
 			if(startRegionX < endRegionX){	// left or right
-				for (i = startRegionX; i <= endRegionX; ++i) regions_[i][startRegionY].addStreet(street, true);
+				for (i = startRegionX; i <= endRegionX; ++i) result[count++] = regions_[i][startRegionY];
 			} else {
-				for (i = endRegionX; i <= startRegionX; ++i) regions_[i][startRegionY].addStreet(street, true);
+				for (i = endRegionX; i <= startRegionX; ++i) result[count++] = regions_[i][startRegionY];
 			}
 		} else{		// seems to be non-trivial crossing regions, try some kind of bruteforce now!
 			// we now need the real coordinates and not just the regions!
@@ -579,102 +1099,141 @@ public final class Map{
 			int end_x = street.getEndNode().getX();
 			int end_y = street.getEndNode().getY();
 
-			regions_[startRegionX][startRegionY].addStreet(street, true);
-			regions_[endRegionX][endRegionY].addStreet(street, true);
+			result[count++] = regions_[startRegionX][startRegionY];
+			result[count++] = regions_[endRegionX][endRegionY];
 
 			// calculate line parameters: y = ax + b
 			double a = ((double)start_y - end_y) / ((double)start_x - end_x);	// (start_x - end_x) can't be zero because then (start_region_x == end_region_x) above would have been true!
 			double b = start_y - a * start_x;
 
 			double x, y;
-			long tmp;
+			int tmp;
 
 			int max_x = Math.max(endRegionX, startRegionX);		//cache so that the math-function isn't called too often
 			int max_y = Math.max(startRegionY, endRegionY);
 			for(i = Math.min(startRegionX, endRegionX); i < max_x; ++i){	// check all vertical grid lines of the regions to be considered
-				y = a * (i * regionWidth_) + b;	// left side of this grid
-				tmp = Math.round(y) / regionHeight_;
-				if(tmp > -1 && tmp < regionCountY_) regions_[i][(int)tmp].addStreet(street, true);
-				y = a * ((i * regionWidth_) + regionWidth_ - 1) + b;	// right side of this grid
-				tmp = Math.round(y) / regionHeight_;
-				if(tmp > -1 && tmp < regionCountY_) regions_[i][(int)tmp].addStreet(street, true);
+				y = a * regionBoundariesX_[i] + b;	// left side of this grid
+				tmp = findRegionIndex(regionBoundariesY_, Math.round(y));
+				if(tmp > -1 && tmp < regionCountY_) result[count++] = regions_[i][tmp];
+				y = a * (regionBoundariesX_[i + 1] - 1) + b;	// right side of this grid
+				tmp = findRegionIndex(regionBoundariesY_, Math.round(y));
+				if(tmp > -1 && tmp < regionCountY_) result[count++] = regions_[i][tmp];
 			}
 			for(i = Math.min(startRegionY, endRegionY); i < max_y; ++i){	// check all horizontal grid lines of the regions to be considered
-				x = ((i * regionHeight_) - b)/ a;		// upper side of this grid
-				tmp = Math.round(x) / regionWidth_;
-				if(tmp > -1 && tmp < regionCountX_) regions_[(int)tmp][i].addStreet(street, true);
-				x = (((i * regionHeight_) + regionHeight_ - 1) - b)/ a;	// lower side of this grid
-				tmp = Math.round(x) / regionWidth_;
-				if(tmp > -1 && tmp < regionCountX_) regions_[(int)tmp][i].addStreet(street, true);
+				x = (regionBoundariesY_[i] - b)/ a;		// upper side of this grid
+				tmp = findRegionIndex(regionBoundariesX_, Math.round(x));
+				if(tmp > -1 && tmp < regionCountX_) result[count++] = regions_[tmp][i];
+				x = ((regionBoundariesY_[i + 1] - 1) - b)/ a;	// lower side of this grid
+				tmp = findRegionIndex(regionBoundariesX_, Math.round(x));
+				if(tmp > -1 && tmp < regionCountX_) result[count++] = regions_[tmp][i];
 			}
 		}
+		return count;
 	}
 
-
 	/**
-	 * Delete a street from all region(s) it's in.
+	 * Adds many new nodes and streets at once, for example when a map is imported. The nodes and streets end up in the same
+	 * regions and in the same order as with {@link #addNode(Node)} and {@link #addStreet(Street)}, but the arrays of the regions
+	 * are only created once instead of growing with each node and street. In contrast to these functions, duplicates are not
+	 * detected: no node may have the position of another node and no street may connect the same nodes as another street.
+	 * Should only be used while the map is loaded (no bridges are calculated).
 	 * 
-	 * @param street	the street to delete
+	 * @param nodes		the new nodes
+	 * @param streets	the new streets
 	 */
-	public void delStreet(Street street){
-		int startRegionX = street.getStartNode().getRegion().getX();
-		int startRegionY = street.getStartNode().getRegion().getY();
-		int endRegionX = street.getEndNode().getRegion().getX();
-		int endRegionY = street.getEndNode().getRegion().getY();
-		int i;
+	public void addNodesAndStreets(ArrayList<Node> nodes, ArrayList<Street> streets){
+		++changeCount_;
+		streetTree_ = null;
+		int i, j, count, regionX, regionY;
+		Node node;
+
+		// count the new objects of each region first so that the arrays can be created with the right size
+		int[] nodeCounts = new int[regionCountX_ * regionCountY_];
+		int[] nodeRegions = new int[nodes.size()];
+		for(i = 0; i < nodes.size(); ++i){
+			node = nodes.get(i);
+			regionX = getRegionIndexX(node.getX());
+			regionY = getRegionIndexY(node.getY());
+			node.setRegion(regions_[regionX][regionY]);
+			nodeRegions[i] = regionX * regionCountY_ + regionY;
+			++nodeCounts[nodeRegions[i]];
+		}
 
-		// find the regions in which this street belongs!
-		if(startRegionX == endRegionX){
-			if(startRegionY == endRegionY) regions_[startRegionX][startRegionY].delStreet(street);		// just in one region
-			else{	// above or beneath
-				if(startRegionY < endRegionY){
-					for (i = startRegionY; i <= endRegionY; ++i) regions_[startRegionX][i].delStreet(street);
-				} else {
-					for (i = endRegionY; i <= startRegionY; ++i) regions_[startRegionX][i].delStreet(street);
-				}
-			}
-		} else if(startRegionY == endRegionY){
-			if(startRegionX < endRegionX){	// left or right
-				for (i = startRegionX; i <= endRegionX; ++i) regions_[i][startRegionY].delStreet(street);
-			} else {
-				for (i = endRegionX; i <= startRegionX; ++i) regions_[i][startRegionY].delStreet(street);
+		int[] streetCounts = new int[regionCountX_ * regionCountY_];
+		int[] streetRegions = new int[streets.size() * 2];		// a street is in one or two regions most of the time
+		int streetRegionCount = 0, region;
+		int[] streetRegionEnds = new int[streets.size()];
+		Region[] buffer = new Region[2 * (regionCountX_ + regionCountY_) + 2];
+		for(i = 0; i < streets.size(); ++i){
+			count = getRegionsOfStreet(streets.get(i), buffer);
+			for(j = 0; j < count; ++j){
+				region = buffer[j].getX() * regionCountY_ + buffer[j].getY();
+				if(streetRegionsContain(streetRegions, i == 0 ? 0 : streetRegionEnds[i - 1], streetRegionCount, region)) continue;	// the bruteforce search may find a region twice
+				if(streetRegionCount == streetRegions.length) streetRegions = Arrays.copyOf(streetRegions, streetRegions.length * 2);
+				streetRegions[streetRegionCount++] = region;
+				++streetCounts[region];
 			}
-		} else{		// seems to be non-trivial crossing regions, try some kind of bruteforce now!
-			// we now need the real coordinates and not just the regions!
-			int start_x = street.getStartNode().getX();
-			int start_y = street.getStartNode().getY();
-			int end_x = street.getEndNode().getX();
-			int end_y = street.getEndNode().getY();
+			streetRegionEnds[i] = streetRegionCount;
+		}
 
-			regions_[startRegionX][startRegionY].delStreet(street);
-			regions_[endRegionX][endRegionY].delStreet(street);
+		// create the arrays of the regions and fill them
+		Node[][] regionNodes = new Node[nodeCounts.length][];
+		Street[][] regionStreets = new Street[streetCounts.length][];
+		Region tmpRegion;
+		for(i = 0; i < nodeCounts.length; ++i){
+			tmpRegion = regions_[i / regionCountY_][i % regionCountY_];
+			regionNodes[i] = Arrays.copyOf(tmpRegion.getNodes(), tmpRegion.getNodes().length + nodeCounts[i]);
+			nodeCounts[i] = tmpRegion.getNodes().length;		// now used as the position for the next node
+			regionStreets[i] = Arrays.copyOf(tmpRegion.getStreets(), tmpRegion.getStreets().length + streetCounts[i]);
+			streetCounts[i] = tmpRegion.getStreets().length;
+		}
+		for(i = 0; i < nodeRegions.length; ++i){
+			regionNodes[nodeRegions[i]][nodeCounts[nodeRegions[i]]++] = nodes.get(i);
+		}
+		j = 0;
+		for(i = 0; i < streets.size(); ++i){
+			for(; j < streetRegionEnds[i]; ++j) regionStreets[streetRegions[j]][streetCounts[streetRegions[j]]++] = streets.get(i);
+		}
+		for(i = 0; i < nodeCounts.length; ++i){
+			tmpRegion = regions_[i / regionCountY_][i % regionCountY_];
+			tmpRegion.setNodes(regionNodes[i]);
+			tmpRegion.setStreets(regionStreets[i]);
+		}
+	}
 
-			// calculate line parameters: y = ax + b
-			double a = ((double)start_y - end_y) / ((double)start_x - end_x);	// (start_x - end_x) can't be zero because then (start_region_x == end_region_x) above would have been true!
-			double b = start_y - a * start_x;
+	/**
+	 * Checks if a region was already found for a street.
+	 * 
+	 * @param regions	the regions of all streets
+	 * @param from		the first region of the street (inclusive)
+	 * @param to		the last region of the street (exclusive)
+	 * @param region	the region to check
+	 * 
+	 * @return <code>true</code> if the region was already found, else <code>false</code>
+	 */
+	private static boolean streetRegionsContain(int[] regions, int from, int to, int region){
+		for(int i = from; i < to; ++i){
+			if(regions[i] == region) return true;
+		}
+		return false;
+	}
 
-			double x, y;
-			long tmp;
 
-			int max_x = Math.max(endRegionX, startRegionX);		//cache so that the math-function isn't called too often
-			int max_y = Math.max(startRegionY, endRegionY);
-			for(i = Math.min(startRegionX, endRegionX); i < max_x; ++i){	// check all vertical grid lines of the regions to be considered
-				y = a * (i * regionWidth_) + b;	// left side of this grid
-				tmp = Math.round(y) / regionHeight_;
-				if(tmp > -1 && tmp < regionCountY_) regions_[i][(int)tmp].delStreet(street);
-				y = a * ((i * regionWidth_) + regionWidth_ - 1) + b;	// right side of this grid
-				tmp = Math.round(y) / regionHeight_;
-				if(tmp > -1 && tmp < regionCountY_) regions_[i][(int)tmp].delStreet(street);
-			}
-			for(i = Math.min(startRegionY, endRegionY); i < max_y; ++i){	// check all horizontal grid lines of the regions to be considered
-				x = ((i * regionHeight_) - b)/ a;		// upper side of this grid
-				tmp = Math.round(x) / regionWidth_;
-				if(tmp > -1 && tmp < regionCountX_) regions_[(int)tmp][i].delStreet(street);
-				x = (((i * regionHeight_) + regionHeight_ - 1) - b)/ a;	// lower side of this grid
-				tmp = Math.round(x) / regionWidth_;
-				if(tmp > -1 && tmp < regionCountX_) regions_[(int)tmp][i].delStreet(street);
+	/**
+	 * Delete a street from all region(s) it's in.
+	 * 
+	 * @param street	the street to delete
+	 */
+	public void delStreet(Street street){
+		++changeCount_;
+		if(streetTree_ != null){
+			synchronized(this){
+				if(streetTree_ != null) streetTree_ = streetTree_.withoutStreet(street);
 			}
 		}
+		Region[] regions = new Region[2 * (regionCountX_ + regionCountY_) + 2];
+		int count = getRegionsOfStreet(street, regions);
+		for(int i = 0; i < count; ++i) regions[i].delStreet(street);
 	}
 
 
@@ -685,8 +1244,8 @@ public final class Map{
 	 * @param radius	the mix zone radius
 	 */
 	public void addMixZone(Node node, int radius){
-		int regionX = node.getX()/regionWidth_;	//implicit rounding (=floor)because of integer values!
-		int regionY = node.getY()/regionHeight_;
+		int regionX = getRegionIndexX(node.getX());
+		int regionY = getRegionIndexY(node.getY());
 		regions_[regionX][regionY].addMixZone(node, radius);
 	}
 	
@@ -694,8 +1253,8 @@ public final class Map{
 	 * Delete a mix zone in the correct region.
 	 */
 	public void deleteMixZone(Node node){
-		int regionX = node.getX()/regionWidth_;	//implicit rounding (=floor)because of integer values!
-		int regionY = node.getY()/regionHeight_;
+		int regionX = getRegionIndexX(node.getX());
+		int regionY = getRegionIndexY(node.getY());
 
 		regions_[regionX][regionY].deleteMixZone(node);
 	}
@@ -718,7 +1277,7 @@ public final class Map{
 	 * Delete every Vehicle on this map
 	 */
 	public void clearVehicles(){
-		Renderer.getInstance().setMarkedVehicle(null);
+		Scenario.getInstance().setMarkedVehicle(null);
 		for(int i = 0; i < regionCountX_; ++i) for(int j = 0; j < regionCountY_; ++j) regions_[i][j].cleanVehicles();
 	}
 	
@@ -860,7 +1419,7 @@ public final class Map{
 			}
 		}
 		
-		Renderer.getInstance().ReRender(true, true);
+		SimulationEngine.getInstance().getListener().render(true, true);
 		
 		saveReloadMap();
 	}
@@ -917,6 +1476,64 @@ public final class Map{
 		for(int i = 0; i < regionCountX_; ++i) for(int j = 0; j < regionCountY_; ++j) regions_[i][j].clearTrafficLights();
 	}
 		
+	/**
+	 * Signals that the properties of a street which are relevant for routing (speed, oneway...) were changed.
+	 */
+	public void signalStreetChanged(){
+		++changeCount_;
+	}
+
+	/**
+	 * Returns how often the street network has been changed. Adding, deleting or changing streets or nodes and loading a new
+	 * map increase this value.
+	 * 
+	 * @return the change count
+	 */
+	public int getChangeCount(){
+		return changeCount_;
+	}
+
+	/**
+	 * Gets the snapshot of the street network which is used for routing. The snapshot is created again if the street network
+	 * has changed since the last call. Don't call this while the map is loaded or changed!
+	 * 
+	 * @return the snapshot
+	 */
+	public RoadGraph getRoadGraph(){
+		RoadGraph graph = roadGraph_;
+		if(graph == null || graph.getChangeCount() != changeCount_){
+			synchronized(this){
+				graph = roadGraph_;
+				int changeCount = changeCount_;
+				if(graph == null || graph.getChangeCount() != changeCount){
+					graph = new RoadGraph(this, changeCount);
+					roadGraph_ = graph;
+				}
+			}
+		}
+		return graph;
+	}
+
+	/**
+	 * Gets the R-tree over all streets for finding the streets near a point. The tree is loaded if there's none yet or if
+	 * too many streets have been added or deleted since it was loaded. Don't call this while the map is loaded!
+	 * 
+	 * @return the tree
+	 */
+	public StreetTree getStreetTree(){
+		StreetTree tree = streetTree_;
+		if(tree == null){
+			synchronized(this){
+				tree = streetTree_;
+				if(tree == null){
+					tree = StreetTree.create(regions_);
+					streetTree_ = tree;
+				}
+			}
+		}
+		return tree;
+	}
+
 	/**
 	 * Gets the map width.
 	 * 
@@ -944,17 +1561,55 @@ public final class Map{
 	 * @return the region in which this point is located or <code>null</code> if there was a problem
 	 */
 	public Region getRegionOfPoint(int x, int y){
-		if(regionWidth_ > 0 && regionHeight_ > 0){
-			int region_x = x/regionWidth_;
-			int region_y = y/regionHeight_;
-			if (region_x < 0) region_x = 0;
-			else if (region_x >= regionCountX_) region_x = regionCountX_ - 1;
-			if (region_y < 0) region_y = 0;
-			else if (region_y >= regionCountY_) region_y = regionCountY_ - 1;
-			return regions_[region_x][region_y];
-		} else return null;
+		if(regions_ != null) return regions_[getRegionIndexX(x)][getRegionIndexY(y)];
+		else return null;
 	}	
 
+	/**
+	 * Calculates the x index of the region in which an x coordinate is located. Coordinates outside of the map are put into
+	 * the nearest region.
+	 * 
+	 * @param x	the x coordinate
+	 * 
+	 * @return the index
+	 */
+	private int getRegionIndexX(int x){
+		return Math.min(Math.max(findRegionIndex(regionBoundariesX_, x), 0), regionCountX_ - 1);
+	}
+
+	/**
+	 * Calculates the y index of the region in which a y coordinate is located. Coordinates outside of the map are put into
+	 * the nearest region.
+	 * 
+	 * @param y	the y coordinate
+	 * 
+	 * @return the index
+	 */
+	private int getRegionIndexY(int y){
+		return Math.min(Math.max(findRegionIndex(regionBoundariesY_, y), 0), regionCountY_ - 1);
+	}
+
+	/**
+	 * Finds the column or row of regions in which a coordinate is located (binary search as the regions may have different sizes).
+	 * 
+	 * @param boundaries	the boundaries of the columns or rows (including the end of the last one)
+	 * @param value			the coordinate
+	 * 
+	 * @return the index of the column or row, <code>-1</code> if the coordinate is before the first one or the amount of columns
+	 * 			or rows if it is behind the last one
+	 */
+	private static int findRegionIndex(int[] boundaries, long value){
+		int low = 0, high = boundaries.length - 1, middle;
+		if(value < boundaries[low]) return -1;
+		if(value >= boundaries[high]) return high;
+		while(high - low > 1){		// boundaries[low] <= value < boundaries[high]
+			middle = (low + high) >>> 1;
+			if(value < boundaries[middle]) high = middle;
+			else low = middle;
+		}
+		return low;
+	}
+
 	/**
 	 * write silent period header to log file
 	 */
@@ -990,6 +1645,24 @@ public final class Map{
 		return regionCountY_;
 	}
 
+	/**
+	 * If you want to add mix zones to all street corners automatically.
+	 * 
+	 * @param autoAddMixZones <code>true</code> if you want to add mix zones to all street corners automatically else <code>false</code>
+	 */
+	public void setAutoAddMixZones(boolean autoAddMixZones) {
+		autoAddMixZones_ = autoAddMixZones;
+	}
+
+	/**
+	 * Gets if mix zones are added automatically on each street corner
+	 * 
+	 * @return true if mix zones are added automatically
+	 */
+	public boolean isAutoAddMixZones() {
+		return autoAddMixZones_;
+	}
+
 	/**
 	 * Returns if a map is currently in the process of being loaded. While loading, simulation
 	 * and rendering should not be done because not all map elements are already existing!
@@ -1,5 +1,7 @@
 package vanetsim.map;
 
+import java.util.ArrayList;
+
 import vanetsim.scenario.Vehicle;
 
 /**
@@ -79,13 +81,13 @@ public final class MapHelper{
 	}
 
 	/**
-	 * Returns the nearest street to a given point. First all regions are calculated which are within <code>maxDistance</code>. Then, ALL
-	 * streets in these regions are checked if they are within this <code>maxDistance</code> and the best one is returned (if any exists).
+	 * Returns the nearest street to a given point. The streets near the point are found with the {@link StreetTree} of the map. If
+	 * several streets have the same distance, the one which comes first in the regions within <code>maxDistance</code> is returned
+	 * (like when checking all streets of these regions one after another).
 	 * 
 	 * @param x 			the x coordinate of the given point
 	 * @param y 			the x coordinate of the given point
-	 * @param maxDistance	the maximum distance; use <code>Integer.MAX_VALUE</code> if you just want to get any nearest street but note
-	 * 						that this costs a lot of performance because ALL regions and ALL streets are checked!
+	 * @param maxDistance	the maximum distance; use <code>Integer.MAX_VALUE</code> if you just want to get any nearest street
 	 * @param distance 		an array used to return the distance between the nearest point and the point given. This should be a <code>double[1]</code> array!
 	 * @param nearestPoint 	an array used to return the x-coordinate (<code>nearestpoint[0]</code>) and y-coordinate (<code>nearestpoint[1]</code>)
 	 * 						on the street.
@@ -94,68 +96,81 @@ public final class MapHelper{
 	 */
 	public static Street findNearestStreet(int x, int y, int maxDistance, double[] distance, int[] nearestPoint){
 		Map map = Map.getInstance();
-		Region[][] Regions = map.getRegions();
-		if(Regions != null && nearestPoint.length >1 && distance.length > 0){
-			int mapMinX, mapMinY, mapMaxX, mapMaxY, regionMinX, regionMinY, regionMaxX, regionMaxY;
-			int[] tmpPoint = new int[2];
-			Street[] streets;
-			int i, j, k, size;
-			Street bestStreet = null;
-			double tmpDistance, bestDistance = Double.MAX_VALUE;
-			long maxDistanceSquared = (long)maxDistance * maxDistance;
-
-			// Minimum x coordinate to be considered
-			long tmp = x - maxDistance;
-			if (tmp < 0) mapMinX = 0;		// Map stores only positive coordinates
-			else if(tmp < Integer.MAX_VALUE) mapMinX = (int) tmp;
-			else mapMinX = Integer.MAX_VALUE;
-
-			// Maximum x coordinate to be considered
-			tmp = x + (long)maxDistance;
-			if (tmp < 0) mapMaxX = 0;
-			else if(tmp < Integer.MAX_VALUE) mapMaxX = (int) tmp;
-			else mapMaxX = Integer.MAX_VALUE;
-
-			// Minimum y coordinate to be considered
-			tmp = y - maxDistance;
-			if (tmp < 0) mapMinY = 0;
-			else if(tmp < Integer.MAX_VALUE) mapMinY = (int) tmp;
-			else mapMinY = Integer.MAX_VALUE;
-
-			// Maximum y coordinate to be considered
-			tmp = y + (long)maxDistance;
-			if (tmp < 0) mapMaxY = 0;
-			else if(tmp < Integer.MAX_VALUE) mapMaxY = (int) tmp;
-			else mapMaxY = Integer.MAX_VALUE;
-
-			// Get the regions to be considered
-			Region tmpregion = map.getRegionOfPoint(mapMinX, mapMinY);
-			regionMinX = tmpregion.getX();
-			regionMinY = tmpregion.getY();
+		if(map.getRegions() != null && nearestPoint.length >1 && distance.length > 0){
+			ArrayList<Street> streets = new ArrayList<Street>(2);
+			map.getStreetTree().findNearestStreets(x, y, maxDistance, 1, streets);
+			if(streets.size() == 0){
+				distance[0] = Double.MAX_VALUE;
+				return null;
+			}
+			Street bestStreet = streets.get(0);
+			if(streets.size() > 1) bestStreet = getFirstStreetOfRegions(map, streets, getRegionRange(map, x, y, maxDistance));
+			distance[0] = calculateDistancePointToStreet(bestStreet, x, y, false, nearestPoint);
+			return bestStreet;
+		} else return null;
+	}
 
-			tmpregion = map.getRegionOfPoint(mapMaxX, mapMaxY);
-			regionMaxX = tmpregion.getX();
-			regionMaxY = tmpregion.getY();
+	/**
+	 * Gets the regions which are within a maximum distance of a point.
+	 * 
+	 * @param map			the map
+	 * @param x 			the x coordinate of the point
+	 * @param y 			the y coordinate of the point
+	 * @param maxDistance	the maximum distance
+	 * 
+	 * @return the minimum x, minimum y, maximum x and maximum y index of the regions
+	 */
+	private static int[] getRegionRange(Map map, int x, int y, int maxDistance){
+		// Map stores only positive coordinates
+		int mapMinX = (int)Math.min(Math.max((long)x - maxDistance, 0), Integer.MAX_VALUE);
+		int mapMaxX = (int)Math.min(Math.max((long)x + maxDistance, 0), Integer.MAX_VALUE);
+		int mapMinY = (int)Math.min(Math.max((long)y - maxDistance, 0), Integer.MAX_VALUE);
+		int mapMaxY = (int)Math.min(Math.max((long)y + maxDistance, 0), Integer.MAX_VALUE);
+		Region minRegion = map.getRegionOfPoint(mapMinX, mapMinY);
+		Region maxRegion = map.getRegionOfPoint(mapMaxX, mapMaxY);
+		return new int[]{minRegion.getX(), minRegion.getY(), maxRegion.getX(), maxRegion.getY()};
+	}
 
-			// only iterate through those regions which are within the distance
-			for(i = regionMinX; i <= regionMaxX; ++i){
-				for(j = regionMinY; j <= regionMaxY; ++j){
-					streets = Regions[i][j].getStreets();
-					size = streets.length;
-					for(k = 0; k < size; ++k){
-						tmpDistance = calculateDistancePointToStreet(streets[k], x, y, false, tmpPoint);
-						if(tmpDistance < maxDistanceSquared && tmpDistance < bestDistance){
-							bestDistance = tmpDistance;
-							bestStreet = streets[k];
-							nearestPoint[0] = tmpPoint[0];
-							nearestPoint[1] = tmpPoint[1];
-						}
+	/**
+	 * Gets the street which comes first when checking all streets of some regions one after another (the regions ordered by
+	 * their x and then their y index). Used to decide between streets with the same distance.
+	 * 
+	 * @param map		the map
+	 * @param streets	the streets to decide between
+	 * @param range		the minimum x, minimum y, maximum x and maximum y index of the regions
+	 * 
+	 * @return the first street
+	 */
+	private static Street getFirstStreetOfRegions(Map map, ArrayList<Street> streets, int[] range){
+		Region[][] regions = map.getRegions();
+		Region[] streetRegions = new Region[2 * (map.getRegionCountX() + map.getRegionCountY()) + 2];
+		Street bestStreet = null;
+		int bestRegion = Integer.MAX_VALUE, bestIndex = Integer.MAX_VALUE, region, index, count, i, j;
+		for(i = 0; i < streets.size(); ++i){
+			// find the first region of the street within the range
+			region = Integer.MAX_VALUE;
+			count = map.getRegionsOfStreet(streets.get(i), streetRegions);
+			for(j = 0; j < count; ++j){
+				if(streetRegions[j].getX() >= range[0] && streetRegions[j].getX() <= range[2] && streetRegions[j].getY() >= range[1] && streetRegions[j].getY() <= range[3]) region = Math.min(region, streetRegions[j].getX() * map.getRegionCountY() + streetRegions[j].getY());
+			}
+			if(region > bestRegion) continue;
+			index = Integer.MAX_VALUE;
+			if(region != Integer.MAX_VALUE){
+				Street[] regionStreets = regions[region / map.getRegionCountY()][region % map.getRegionCountY()].getStreets();
+				for(j = 0; j < regionStreets.length; ++j){
+					if(regionStreets[j] == streets.get(i)){
+						index = j;
+						break;
 					}
 				}
 			}
-			distance[0] = bestDistance;
-			return bestStreet;
-		} else return null;
+			if(bestStreet == null || region < bestRegion || index < bestIndex){
+				bestStreet = streets.get(i);
+				bestRegion = region;
+				bestIndex = index;
+			}
+		}
+		return bestStreet;
 	}
 
 	/**
@@ -242,78 +257,43 @@ public final class MapHelper{
 	}
 
 	/**
-	 * Returns the nearest node to a given point. First all regions are calculated which are within <code>maxDistance</code>. Then, ALL
-	 * nodes in these regions are checked if they are within this <code>maxDistance</code> and the best one is returned (if any exists).
+	 * Returns the nearest node to a given point. As all nodes belong to streets, the nodes are found through the streets near the
+	 * point in the {@link StreetTree} of the map: no node can be nearer than the nodes of the nearest street and all nodes which
+	 * are at most that far away belong to streets which are at most that far away. If several nodes have the same distance, the
+	 * one which comes first in the regions within <code>maxDistance</code> is returned (like when checking all nodes of these regions
+	 * one after another).
 	 * 
 	 * @param x 			the x coordinate of the given point
 	 * @param y 			the x coordinate of the given point
-	 * @param maxDistance 	the maximum distance; use <code>Integer.MAX_VALUE</code> if you just want to get any nearest vehicle but note
-	 * 						that this costs a lot of performance because ALL regions and ALL nodes are checked!
+	 * @param maxDistance 	the maximum distance; use <code>Integer.MAX_VALUE</code> if you just want to get any nearest node
 	 * @param distance 		an array used to return the distance between the nearest point and the point given. This should be a <code>long[1]</code> array!
 	 * 
 	 * @return the nearest node or <code>null</code> if none was found or an error occured
 	 */
 	public static Node findNearestNode(int x, int y, int maxDistance, long[] distance){
 		Map map = Map.getInstance();
-		Region[][] Regions = map.getRegions();
-		if(Regions != null && distance.length > 0){
-			int mapMinX, mapMinY, mapMaxX, mapMaxY, regionMinX, regionMinY, regionMaxX, regionMaxY;
-			Node[] nodes;
-			int i, j, k;
+		if(map.getRegions() != null && distance.length > 0){
+			StreetTree tree = map.getStreetTree();
+			ArrayList<Street> streets = new ArrayList<Street>();
 			Node tmpNode, bestNode = null;
 			long tmpDistance, bestDistance = Long.MAX_VALUE;
 			long maxDistanceSquared = (long)maxDistance * maxDistance;
-
-			// Minimum x coordinate to be considered
-			long tmp = x - maxDistance;
-			if (tmp < 0) mapMinX = 0;	// Map stores only positive coordinates
-			else if(tmp < Integer.MAX_VALUE) mapMinX = (int) tmp;
-			else mapMinX = Integer.MAX_VALUE;
-
-			// Maximum x coordinate to be considered
-			tmp = x + (long)maxDistance;
-			if (tmp < 0) mapMaxX = 0;
-			else if(tmp < Integer.MAX_VALUE) mapMaxX = (int) tmp;
-			else mapMaxX = Integer.MAX_VALUE;
-
-			// Minimum y coordinate to be considered
-			tmp = y - maxDistance;
-			if (tmp < 0) mapMinY = 0;
-			else if(tmp < Integer.MAX_VALUE) mapMinY = (int) tmp;
-			else mapMinY = Integer.MAX_VALUE;
-
-			// Maximum y coordinate to be considered
-			tmp = y + (long)maxDistance;
-			if (tmp < 0) mapMaxY = 0;
-			else if(tmp < Integer.MAX_VALUE) mapMaxY = (int) tmp;
-			else mapMaxY = Integer.MAX_VALUE;
-
-			// Get the regions to be considered
-			Region tmpregion = map.getRegionOfPoint(mapMinX, mapMinY);
-			regionMinX = tmpregion.getX();
-			regionMinY = tmpregion.getY();
-
-			tmpregion = map.getRegionOfPoint(mapMaxX, mapMaxY);
-			regionMaxX = tmpregion.getX();
-			regionMaxY = tmpregion.getY();
-
-			long dx, dy;
-
-			// only iterate through those regions which are within the distance
-			for(i = regionMinX; i <= regionMaxX; ++i){
-				for(j = regionMinY; j <= regionMaxY; ++j){
-					nodes = Regions[i][j].getNodes();
-					for(k = 0; k < nodes.length; ++k){
-						tmpNode = nodes[k];
-						if(tmpNode.getX() >= mapMinX && tmpNode.getX() <= mapMaxX && tmpNode.getY() >= mapMinY && tmpNode.getY() <= mapMaxY){	// precheck with a recangular bounding box should sort out most cases
-							dx = tmpNode.getX() - x;
-							dy = tmpNode.getY() - y;
-							tmpDistance = dx * dx + dy * dy;
-							if(tmpDistance < maxDistanceSquared && tmpDistance < bestDistance){
-								bestDistance = tmpDistance;
-								bestNode = tmpNode;
-							}
-						}
+			int i, j;
+
+			// the nodes of the nearest street limit the distance in which the nearest node can be
+			tree.findNearestStreets(x, y, maxDistance, 1, streets);
+			if(streets.size() > 0){
+				long searchDistance = Math.min(getSquaredDistance(streets.get(0).getStartNode(), x, y), getSquaredDistance(streets.get(0).getEndNode(), x, y));
+				streets.clear();
+				tree.findStreets(x, y, (int)Math.min((long)Math.sqrt(searchDistance) + 1, maxDistance), streets);
+			}
+			for(i = 0; i < streets.size(); ++i){
+				for(j = 0; j < 2; ++j){
+					tmpNode = (j == 0) ? streets.get(i).getStartNode() : streets.get(i).getEndNode();
+					tmpDistance = getSquaredDistance(tmpNode, x, y);
+					if(tmpDistance < maxDistanceSquared && (tmpDistance < bestDistance || (tmpDistance == bestDistance && tmpNode != bestNode && isBeforeInRegions(tmpNode, bestNode)))){
+						bestDistance = tmpDistance;
+						bestNode = tmpNode;
 					}
 				}
 			}
@@ -322,6 +302,44 @@ public final class MapHelper{
 		} else return null;
 	}
 
+	/**
+	 * Calculates the squared distance between a node and a point.
+	 * 
+	 * @param node	the node
+	 * @param x 	the x coordinate of the point
+	 * @param y 	the y coordinate of the point
+	 * 
+	 * @return the squared distance
+	 */
+	private static long getSquaredDistance(Node node, int x, int y){
+		long dx = (long)node.getX() - x;
+		long dy = (long)node.getY() - y;
+		return dx * dx + dy * dy;
+	}
+
+	/**
+	 * Checks if a node comes before another node when checking all nodes of the regions one after another (the regions ordered by
+	 * their x and then their y index). Used to decide between nodes with the same distance.
+	 * 
+	 * @param node		the node
+	 * @param otherNode	the other node
+	 * 
+	 * @return <code>true</code> if <code>node</code> comes first
+	 */
+	private static boolean isBeforeInRegions(Node node, Node otherNode){
+		Region region = node.getRegion(), otherRegion = otherNode.getRegion();
+		if(region != otherRegion){
+			if(region.getX() != otherRegion.getX()) return region.getX() < otherRegion.getX();
+			return region.getY() < otherRegion.getY();
+		}
+		Node[] nodes = region.getNodes();
+		for(int i = 0; i < nodes.length; ++i){
+			if(nodes[i] == node) return true;
+			if(nodes[i] == otherNode) return false;
+		}
+		return false;
+	}
+
 	/**
 	 * Finds an intersection between two segments.<br>
 	 * Code basically from <a href="http://workshop.evolutionzone.com/2007/09/10/code-2d-line-intersection/">
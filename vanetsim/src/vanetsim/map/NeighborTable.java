@@ -0,0 +1,393 @@
+package vanetsim.map;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import vanetsim.scenario.RSU;
+import vanetsim.scenario.Vehicle;
+
+/**
+ * The neighbors of all vehicles and Road-Side-Units which send beacons or messages in the current step. The table is
+ * calculated once per step from the {@link SpatialHash}. Each pair of objects is only checked once and the result is used for
+ * both directions as the communication distances of both objects are known. As most vehicles only send beacons in some steps,
+ * a pair is skipped completely if none of both objects sends anything in this step.
+ * <p>
+ * The neighbors are stored as indices into the arrays of the {@link SpatialHash} in compressed rows: the neighbors of the
+ * vehicle with the index <code>i</code> are stored in <code>getVehicleNeighbors()</code> from <code>getVehicleStarts()[i]</code>
+ * (inclusive) to <code>getVehicleStarts()[i+1]</code> (exclusive). The same scheme is used for the Road-Side-Units a vehicle
+ * reaches and the vehicles a Road-Side-Unit reaches. All objects in the table are within the communication distance of the sender,
+ * so no further checks are needed.
+ */
+public final class NeighborTable{
+
+	/** The only instance of this class (singleton). */
+	private static final NeighborTable INSTANCE = new NeighborTable();
+
+	/** How many vehicles are processed in one chunk. The pairs of each chunk are stored separately so that the result doesn't depend on the threads. */
+	private static final int CHUNK_SIZE = 512;
+
+	/** How many chunks a task processes at least. */
+	private static final int MIN_CHUNKS_PER_TASK = 4;
+
+	/** Flag of a pair: the first vehicle reaches the second one. */
+	private static final int FIRST_TO_SECOND = 1 << 30;
+
+	/** Flag of a pair: the second vehicle reaches the first one. */
+	private static final int SECOND_TO_FIRST = 1 << 31;
+
+	/** Mask for the index of the first vehicle of a pair. */
+	private static final int INDEX_MASK = FIRST_TO_SECOND - 1;
+
+	/** The vehicles (the same array as in the {@link SpatialHash}). */
+	private Vehicle[] vehicles_ = new Vehicle[0];
+
+	/** The Road-Side-Units (the same array as in the {@link SpatialHash}). */
+	private RSU[] rsus_ = new RSU[0];
+
+	/** If a vehicle needs its neighbors in this step. */
+	private boolean[] vehicleSenders_ = new boolean[0];
+
+	/** The communication distance of each vehicle. */
+	private int[] vehicleRadius_ = new int[0];
+
+	/** The pairs of vehicles found in each chunk. Each pair uses two values: the first index together with the flags and the second index. */
+	private int[][] chunkPairs_ = new int[0][];
+
+	/** How many values are used in each array of {@link #chunkPairs_}. */
+	private int[] chunkSizes_ = new int[0];
+
+	/** The first position of the neighbors of each vehicle in {@link #vehicleNeighbors_}. */
+	private int[] vehicleStarts_ = new int[1];
+
+	/** The indices of the vehicles each vehicle reaches. */
+	private int[] vehicleNeighbors_ = new int[0];
+
+	/** The first position of the Road-Side-Units of each vehicle in {@link #vehicleRSUs_}. */
+	private int[] vehicleRSUStarts_ = new int[1];
+
+	/** The indices of the Road-Side-Units each vehicle reaches. */
+	private int[] vehicleRSUs_ = new int[0];
+
+	/** The first position of the vehicles of each Road-Side-Unit in {@link #rsuNeighbors_}. */
+	private int[] rsuStarts_ = new int[1];
+
+	/** The indices of the vehicles each Road-Side-Unit reaches. */
+	private int[] rsuNeighbors_ = new int[0];
+
+	/**
+	 * Private constructor in order to disable instancing.
+	 */
+	private NeighborTable(){
+	}
+
+	/**
+	 * Gets the single instance of this table.
+	 *
+	 * @return single instance of this table
+	 */
+	public static NeighborTable getInstance(){
+		return INSTANCE;
+	}
+
+	/**
+	 * Calculates the neighbors from the current content of the {@link SpatialHash}. Needs to be called after each rebuild of the
+	 * hash. Don't call this while the table is used!
+	 *
+	 * @param pool	the pool used to calculate the pairs in parallel or <code>null</code> to calculate everything in the current thread
+	 */
+	public void rebuild(ForkJoinPool pool){
+		SpatialHash hash = SpatialHash.getInstance();
+		vehicles_ = hash.getVehicles();
+		rsus_ = hash.getRSUs();
+		int vehicleCount = vehicles_.length;
+		int i, j;
+
+		if(vehicleSenders_.length < vehicleCount){
+			vehicleSenders_ = new boolean[vehicleCount];
+			vehicleRadius_ = new int[vehicleCount];
+		}
+		for(i = 0; i < vehicleCount; ++i){
+			vehicleSenders_[i] = vehicles_[i].needsNeighbors();
+			vehicleRadius_[i] = vehicles_[i].getMaxCommDistance();
+		}
+
+		// find all pairs of vehicles
+		int chunks = (vehicleCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		if(chunkPairs_.length < chunks){
+			int[][] newPairs = new int[chunks][];
+			System.arraycopy(chunkPairs_, 0, newPairs, 0, chunkPairs_.length);
+			for(i = chunkPairs_.length; i < chunks; ++i) newPairs[i] = new int[CHUNK_SIZE * 4];
+			chunkPairs_ = newPairs;
+			chunkSizes_ = new int[chunks];
+		}
+		PairTask task = new PairTask(hash.getCellSize(), 0, chunks);
+		if(pool == null || chunks <= MIN_CHUNKS_PER_TASK) task.compute();
+		else pool.invoke(task);
+
+		// convert the pairs into rows
+		if(vehicleStarts_.length != vehicleCount + 1) vehicleStarts_ = new int[vehicleCount + 1];
+		else for(i = 0; i <= vehicleCount; ++i) vehicleStarts_[i] = 0;
+		int[] pairs;
+		int size, value;
+		for(i = 0; i < chunks; ++i){
+			pairs = chunkPairs_[i];
+			size = chunkSizes_[i];
+			for(j = 0; j < size; j += 2){
+				value = pairs[j];
+				if((value & FIRST_TO_SECOND) != 0) ++vehicleStarts_[(value & INDEX_MASK) + 1];
+				if((value & SECOND_TO_FIRST) != 0) ++vehicleStarts_[pairs[j + 1] + 1];
+			}
+		}
+		for(i = 1; i <= vehicleCount; ++i) vehicleStarts_[i] += vehicleStarts_[i - 1];
+		if(vehicleNeighbors_.length < vehicleStarts_[vehicleCount]) vehicleNeighbors_ = new int[vehicleStarts_[vehicleCount] + vehicleStarts_[vehicleCount] / 4];
+		int[] positions = vehicleStarts_.clone();
+		for(i = 0; i < chunks; ++i){
+			pairs = chunkPairs_[i];
+			size = chunkSizes_[i];
+			for(j = 0; j < size; j += 2){
+				value = pairs[j];
+				if((value & FIRST_TO_SECOND) != 0) vehicleNeighbors_[positions[value & INDEX_MASK]++] = pairs[j + 1];
+				if((value & SECOND_TO_FIRST) != 0) vehicleNeighbors_[positions[pairs[j + 1]]++] = value & INDEX_MASK;
+			}
+		}
+
+		findRSUPairs(hash);
+	}
+
+	/**
+	 * Finds the pairs of Road-Side-Units and vehicles. There are only few Road-Side-Units so this is done in the current thread.
+	 *
+	 * @param hash	the spatial hash
+	 */
+	private void findRSUPairs(SpatialHash hash){
+		int vehicleCount = vehicles_.length, rsuCount = rsus_.length;
+		int cellSize = hash.getCellSize();
+		int[] ranges = SpatialHash.getRangeBuffer();
+		int[] vehicleX = hash.getVehicleX(), vehicleY = hash.getVehicleY();
+		int i, j, k, rangeCount, end, rsuX, rsuY, radius;
+		boolean rsuSender;
+		long dx, dy, distance;
+		RSU rsu;
+
+		if(vehicleRSUStarts_.length != vehicleCount + 1) vehicleRSUStarts_ = new int[vehicleCount + 1];
+		else for(i = 0; i <= vehicleCount; ++i) vehicleRSUStarts_[i] = 0;
+		if(rsuStarts_.length != rsuCount + 1) rsuStarts_ = new int[rsuCount + 1];
+
+		// first pass: count, second pass: store
+		for(int pass = 0; pass < 2; ++pass){
+			if(pass == 1){
+				for(i = 1; i <= vehicleCount; ++i) vehicleRSUStarts_[i] += vehicleRSUStarts_[i - 1];
+				if(vehicleRSUs_.length < vehicleRSUStarts_[vehicleCount]) vehicleRSUs_ = new int[vehicleRSUStarts_[vehicleCount]];
+				if(rsuNeighbors_.length < rsuStarts_[rsuCount]) rsuNeighbors_ = new int[rsuStarts_[rsuCount]];
+			}
+			int[] positions = (pass == 1) ? vehicleRSUStarts_.clone() : null;
+			int count = 0;
+			for(i = 0; i < rsuCount; ++i){
+				rsu = rsus_[i];
+				rsuX = rsu.getX();
+				rsuY = rsu.getY();
+				radius = rsu.getWifiRadius();
+				rsuSender = rsu.needsNeighbors();
+				rsuStarts_[i] = count;
+				rangeCount = hash.getVehicleRanges(clamp((long)rsuX - cellSize), clamp((long)rsuY - cellSize), clamp((long)rsuX + cellSize), clamp((long)rsuY + cellSize), ranges);
+				for(j = 0; j < rangeCount; j += 2){
+					end = ranges[j + 1];
+					for(k = ranges[j]; k < end; ++k){
+						if(!rsuSender && !vehicleSenders_[k]) continue;
+						dx = vehicleX[k] - rsuX;
+						dy = vehicleY[k] - rsuY;
+						distance = dx * dx + dy * dy;
+						// the Road-Side-Unit reaches the vehicle
+						if(rsuSender && distance <= (long)radius * radius && vehicleX[k] >= 0 && vehicleY[k] >= 0){
+							if(pass == 1) rsuNeighbors_[count] = k;
+							++count;
+						}
+						// the vehicle reaches the Road-Side-Unit
+						if(vehicleSenders_[k] && distance <= (long)vehicleRadius_[k] * vehicleRadius_[k] && rsuX >= 0 && rsuY >= 0){
+							if(pass == 0) ++vehicleRSUStarts_[k + 1];
+							else vehicleRSUs_[positions[k]++] = i;
+						}
+					}
+				}
+			}
+			rsuStarts_[rsuCount] = count;
+		}
+	}
+
+	/**
+	 * Limits a coordinate to the range of an integer.
+	 *
+	 * @param value	the coordinate
+	 *
+	 * @return the limited coordinate
+	 */
+	private static int clamp(long value){
+		if(value < Integer.MIN_VALUE) return Integer.MIN_VALUE;
+		else if(value > Integer.MAX_VALUE) return Integer.MAX_VALUE;
+		else return (int)value;
+	}
+
+	/**
+	 * Gets all vehicles. The indices in {@link #getVehicleNeighbors()} and {@link #getRSUNeighbors()} refer to this array.
+	 *
+	 * @return the vehicles
+	 */
+	public Vehicle[] getVehicles(){
+		return vehicles_;
+	}
+
+	/**
+	 * Gets all Road-Side-Units. The indices in {@link #getVehicleRSUs()} refer to this array.
+	 *
+	 * @return the Road-Side-Units
+	 */
+	public RSU[] getRSUs(){
+		return rsus_;
+	}
+
+	/**
+	 * Gets the first position of the neighbors of each vehicle in {@link #getVehicleNeighbors()}. Has one more element than vehicles exist.
+	 *
+	 * @return the positions
+	 */
+	public int[] getVehicleStarts(){
+		return vehicleStarts_;
+	}
+
+	/**
+	 * Gets the indices of the vehicles each vehicle reaches.
+	 *
+	 * @return the indices
+	 */
+	public int[] getVehicleNeighbors(){
+		return vehicleNeighbors_;
+	}
+
+	/**
+	 * Gets the first position of the Road-Side-Units of each vehicle in {@link #getVehicleRSUs()}. Has one more element than vehicles exist.
+	 *
+	 * @return the positions
+	 */
+	public int[] getVehicleRSUStarts(){
+		return vehicleRSUStarts_;
+	}
+
+	/**
+	 * Gets the indices of the Road-Side-Units each vehicle reaches.
+	 *
+	 * @return the indices
+	 */
+	public int[] getVehicleRSUs(){
+		return vehicleRSUs_;
+	}
+
+	/**
+	 * Gets the first position of the vehicles of each Road-Side-Unit in {@link #getRSUNeighbors()}. Has one more element than Road-Side-Units exist.
+	 *
+	 * @return the positions
+	 */
+	public int[] getRSUStarts(){
+		return rsuStarts_;
+	}
+
+	/**
+	 * Gets the indices of the vehicles each Road-Side-Unit reaches.
+	 *
+	 * @return the indices
+	 */
+	public int[] getRSUNeighbors(){
+		return rsuNeighbors_;
+	}
+
+	/**
+	 * Finds the pairs of vehicles of a range of chunks. A pair is stored in the chunk of the sender or, if both vehicles send,
+	 * in the chunk of the vehicle with the lower index.
+	 */
+	private final class PairTask extends RecursiveAction{
+
+		/** The <code>serialVersionUID</code> needed because <code>RecursiveAction</code> is serializable. */
+		private static final long serialVersionUID = 4902315487266204153L;
+
+		/** The size of a cell of the spatial hash. */
+		private final int cellSize_;
+
+		/** The first chunk (inclusive). */
+		private final int from_;
+
+		/** The last chunk (exclusive). */
+		private final int to_;
+
+		/**
+		 * Creates a new task.
+		 *
+		 * @param cellSize	the size of a cell of the spatial hash
+		 * @param from		the first chunk (inclusive)
+		 * @param to		the last chunk (exclusive)
+		 */
+		public PairTask(int cellSize, int from, int to){
+			cellSize_ = cellSize;
+			from_ = from;
+			to_ = to;
+		}
+
+		/**
+		 * Finds the pairs or splits the range in two halves.
+		 */
+		protected void compute(){
+			if(to_ - from_ <= MIN_CHUNKS_PER_TASK){
+				for(int i = from_; i < to_; ++i) findPairs(i);
+			} else {
+				int middle = (from_ + to_) >>> 1;
+				invokeAll(new PairTask(cellSize_, from_, middle), new PairTask(cellSize_, middle, to_));
+			}
+		}
+
+		/**
+		 * Finds the pairs of the vehicles in one chunk.
+		 *
+		 * @param chunk	the chunk
+		 */
+		private void findPairs(int chunk){
+			SpatialHash hash = SpatialHash.getInstance();
+			int[] ranges = SpatialHash.getRangeBuffer();
+			int[] vehicleX = hash.getVehicleX(), vehicleY = hash.getVehicleY();
+			int[] pairs = chunkPairs_[chunk];
+			int size = 0;
+			int end = Math.min(vehicles_.length, (chunk + 1) * CHUNK_SIZE);
+			int i, j, k, rangeEnd, rangeCount, x, y, flags;
+			long dx, dy, distance, radiusSquared;
+			for(i = chunk * CHUNK_SIZE; i < end; ++i){
+				if(!vehicleSenders_[i]) continue;	// pairs without any sender are not needed and pairs with one sender are found by the sender
+				x = vehicleX[i];
+				y = vehicleY[i];
+				radiusSquared = (long)vehicleRadius_[i] * vehicleRadius_[i];
+				rangeCount = hash.getVehicleRanges(clamp((long)x - cellSize_), clamp((long)y - cellSize_), clamp((long)x + cellSize_), clamp((long)y + cellSize_), ranges);
+				for(j = 0; j < rangeCount; j += 2){
+					rangeEnd = ranges[j + 1];
+					for(k = ranges[j]; k < rangeEnd; ++k){
+						if(vehicleSenders_[k] && k <= i) continue;	// pairs of two senders are only found by the one with the lower index
+						dx = vehicleX[k] - x;
+						dy = vehicleY[k] - y;
+						distance = dx * dx + dy * dy;	// Pythagorean theorem: a^2 + b^2 = c^2 but without the needed Math.sqrt to save a little bit performance
+						flags = 0;
+						// negative coordinates are excluded like in the bounding box of the senders
+						if(distance <= radiusSquared && vehicleX[k] >= 0 && vehicleY[k] >= 0) flags |= FIRST_TO_SECOND;
+						if(vehicleSenders_[k] && distance <= (long)vehicleRadius_[k] * vehicleRadius_[k] && x >= 0 && y >= 0) flags |= SECOND_TO_FIRST;
+						if(flags != 0){
+							if(size + 2 > pairs.length){
+								int[] newArray = new int[pairs.length * 2];
+								System.arraycopy(pairs, 0, newArray, 0, size);
+								pairs = newArray;
+								chunkPairs_[chunk] = pairs;
+							}
+							pairs[size] = i | flags;
+							pairs[size + 1] = k;
+							size += 2;
+						}
+					}
+				}
+			}
+			chunkSizes_[chunk] = size;
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package vanetsim.map.OSM;
+
+import java.util.Arrays;
+
+/**
+ * Assigns dense indices (<code>0, 1, 2, ...</code> in the order of adding) to <code>long</code> keys like OSM IDs. The keys are
+ * stored in a hash table with open addressing and linear probing so that no objects are needed for the keys.
+ */
+final class LongIndex{
+
+	/** The keys in the hash table. */
+	private long[] keys_;
+
+	/** The index of the key in each slot or <code>-1</code> for an empty slot. */
+	private int[] slots_;
+
+	/** The size of the hash table minus 1 (the size is a power of 2). */
+	private int mask_;
+
+	/** The amount of keys. */
+	private int size_ = 0;
+
+	/**
+	 * Creates an empty index.
+	 *
+	 * @param expectedSize	the expected amount of keys
+	 */
+	public LongIndex(int expectedSize){
+		int capacity = 16;
+		while(capacity < expectedSize * 2) capacity <<= 1;
+		keys_ = new long[capacity];
+		slots_ = new int[capacity];
+		mask_ = capacity - 1;
+		Arrays.fill(slots_, -1);
+	}
+
+	/**
+	 * Adds a key if it isn't known yet.
+	 *
+	 * @param key	the key
+	 *
+	 * @return the index of the key. If it's equal to the size before adding, the key is new.
+	 */
+	public int add(long key){
+		int slot = hash(key) & mask_;
+		int index;
+		while((index = slots_[slot]) != -1){
+			if(keys_[slot] == key) return index;
+			slot = (slot + 1) & mask_;
+		}
+		index = size_;
+		keys_[slot] = key;
+		slots_[slot] = index;
+		++size_;
+		if(size_ * 2 > slots_.length) rehash();
+		return index;
+	}
+
+	/**
+	 * Gets the index of a key.
+	 *
+	 * @param key	the key
+	 *
+	 * @return the index or <code>-1</code> if the key wasn't added
+	 */
+	public int get(long key){
+		int slot = hash(key) & mask_;
+		int index;
+		while((index = slots_[slot]) != -1){
+			if(keys_[slot] == key) return index;
+			slot = (slot + 1) & mask_;
+		}
+		return -1;
+	}
+
+	/**
+	 * Gets the amount of keys.
+	 *
+	 * @return the amount
+	 */
+	public int size(){
+		return size_;
+	}
+
+	/**
+	 * Doubles the size of the hash table so that it stays at most half full.
+	 */
+	private void rehash(){
+		long[] oldKeys = keys_;
+		int[] oldSlots = slots_;
+		keys_ = new long[oldKeys.length * 2];
+		slots_ = new int[oldSlots.length * 2];
+		Arrays.fill(slots_, -1);
+		mask_ = slots_.length - 1;
+		int slot;
+		for(int i = 0; i < oldSlots.length; ++i){
+			if(oldSlots[i] != -1){
+				slot = hash(oldKeys[i]) & mask_;
+				while(slots_[slot] != -1) slot = (slot + 1) & mask_;
+				keys_[slot] = oldKeys[i];
+				slots_[slot] = oldSlots[i];
+			}
+		}
+	}
+
+	/**
+	 * Spreads the bits of a key. OSM IDs are mostly consecutive so they would fill neighboring slots otherwise.
+	 *
+	 * @param key	the key
+	 *
+	 * @return the hash
+	 */
+	private static int hash(long key){
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int)(h ^ (h >>> 32));
+	}
+}
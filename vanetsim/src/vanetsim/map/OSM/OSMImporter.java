@@ -0,0 +1,291 @@
+package vanetsim.map.OSM;
+
+import java.awt.Color;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import vanetsim.ErrorLog;
+import vanetsim.VanetSimStart;
+import vanetsim.localization.Messages;
+import vanetsim.map.Map;
+import vanetsim.map.Node;
+import vanetsim.map.Street;
+import vanetsim.simulation.SimulationEngine;
+
+/**
+ * Imports the streets of an OpenStreetMap file without any user interaction (for example in the {@link vanetsim.MapConverter}).
+ * XML files and PBF files (ending with <code>.pbf</code>) are supported, see {@link OSMXMLReader} and {@link OSMPBFReader}.
+ * In contrast to the {@link OSMLoader}, the file is streamed twice:
+ * <ol>
+ * <li>The first pass only reads the ways. The streets for cars are kept and the IDs of their nodes are added to an
+ * {@link OSMNodeTable}.</li>
+ * <li>The second pass only reads the coordinates and traffic signals of the nodes in the table. All other nodes (most nodes
+ * of a file don't belong to streets) are skipped.</li>
+ * </ol>
+ * So the memory only depends on the streets and not on the size of the file, and nodes which don't belong to streets don't
+ * enlarge the map. Afterwards, the coordinates of all nodes are converted in parallel and the streets are added to a new map
+ * with the same rules as in the {@link OSMLoader}. An importer can only be used once.
+ */
+public final class OSMImporter{
+
+	/** The width and height of the regions in cm while the streets are added (they are adapted to the streets afterwards). */
+	private static final int REGION_SIZE = 100000;
+
+	/** The space in m around the streets. */
+	private static final int BORDER = 500;
+
+	/** The nodes of the streets. */
+	private final OSMNodeTable nodes_ = new OSMNodeTable();
+
+	/** The streets in the order of the file. */
+	private final ArrayList<OSMStreet> streets_ = new ArrayList<OSMStreet>();
+
+	/** The indices of the nodes of all streets one after another. */
+	private int[] streetNodes_ = new int[1024];
+
+	/** The amount of used entries in {@link #streetNodes_}. */
+	private int streetNodeCount_ = 0;
+
+	/** The names and types of the streets so that equal strings are only stored once. */
+	private final HashMap<String, String> strings_ = new HashMap<String, String>();
+
+	/**
+	 * Creates a new importer.
+	 */
+	public OSMImporter(){
+	}
+
+	/**
+	 * Imports an OpenStreetMap XML file (version 0.5 or 0.6) or PBF file into a new map. The size of the map is calculated from the streets
+	 * with 500m spare on each side.
+	 *
+	 * @param file	the file to import
+	 *
+	 * @return <code>true</code> if a map was created, else <code>false</code>
+	 */
+	public boolean importOSM(File file){
+		Map map = Map.getInstance();
+		boolean success = false, mapCreated = false;
+		try{
+			if(!SimulationEngine.getInstance().isHeadless()) VanetSimStart.setProgressBar(true);
+			ErrorLog.log(Messages.getString("OSM_Loader.loading") + file.getName(), 3, OSMImporter.class.getName(), "importOSM", null); //$NON-NLS-1$ //$NON-NLS-2$
+			OSMReader reader;
+			if(file.getName().toLowerCase().endsWith(".pbf")) reader = new OSMPBFReader(); //$NON-NLS-1$
+			else reader = new OSMXMLReader();
+			if(reader.readWays(file, this)){
+				reader.readNodes(file, nodes_);
+				double[] bounds = new double[4];
+				int located = nodes_.getBounds(bounds);
+				if(located < nodes_.size()) ErrorLog.log(Messages.getString("OSM_Loader.missingNodes") + (nodes_.size() - located), 4, OSMImporter.class.getName(), "importOSM", null); //$NON-NLS-1$ //$NON-NLS-2$
+				if(located == 0) ErrorLog.log(Messages.getString("OSM_Loader.noStreets"), 6, OSMImporter.class.getName(), "importOSM", null); //$NON-NLS-1$ //$NON-NLS-2$
+				else if(map.getReadyState()){
+					mapCreated = true;
+					createMap(map, bounds);
+					success = true;
+				} else ErrorLog.log(Messages.getString("Map.mapLocked"), 7, OSMImporter.class.getName(), "importOSM", null); //$NON-NLS-1$ //$NON-NLS-2$
+			} else ErrorLog.log(Messages.getString("OSM_Loader.wrongFileFormat"), 6, OSMImporter.class.getName(), "importOSM", null); //$NON-NLS-1$ //$NON-NLS-2$
+		} catch (Exception e) {ErrorLog.log(Messages.getString("OSM_Loader.errorLoading"), 7, OSMImporter.class.getName(), "importOSM", e);} //$NON-NLS-1$ //$NON-NLS-2$
+		if(mapCreated) map.signalMapLoaded();
+		if(!SimulationEngine.getInstance().isHeadless()) VanetSimStart.setProgressBar(false);
+		ErrorLog.log(Messages.getString("OSM_Loader.loadingFinished"), 3, OSMImporter.class.getName(), "importOSM", null); //$NON-NLS-1$ //$NON-NLS-2$
+		return success;
+	}
+
+	/**
+	 * Handles a way found by the reader in the first pass. The way is kept if it's a street for cars.
+	 *
+	 * @param tags				the tags of the way
+	 * @param wayPoints			the IDs of the nodes of the way
+	 * @param wayPointCount		the amount of nodes
+	 */
+	void addWay(OSMWayTags tags, long[] wayPoints, int wayPointCount){
+		if(tags.getMaxSpeed() <= 0) return;		// if we don't have a maxspeed it's probably not a street for cars
+		if(streetNodeCount_ + wayPointCount > streetNodes_.length) streetNodes_ = Arrays.copyOf(streetNodes_, Math.max(streetNodeCount_ + wayPointCount, streetNodes_.length + (streetNodes_.length >> 1)));
+		streets_.add(new OSMStreet(intern(tags.getStreetName()), intern(tags.getStreetType()), tags.getOneway(), tags.getLanes(), tags.getDisplayColor(), tags.getMaxSpeed(), tags.isRoundabout(), streetNodeCount_, wayPointCount));
+		for(int i = 0; i < wayPointCount; ++i){
+			streetNodes_[streetNodeCount_] = nodes_.add(wayPoints[i]);
+			++streetNodeCount_;
+		}
+	}
+
+	/**
+	 * Gets a shared copy of a string.
+	 *
+	 * @param string	the string
+	 *
+	 * @return an equal string which is used for all equal strings
+	 */
+	private String intern(String string){
+		String shared = strings_.get(string);
+		if(shared == null){
+			strings_.put(string, string);
+			shared = string;
+		}
+		return shared;
+	}
+
+	/**
+	 * Creates the map and adds all streets.
+	 *
+	 * @param map		the map
+	 * @param bounds	the minimum and maximum latitude and the minimum and maximum longitude of all nodes
+	 */
+	private void createMap(Map map, double[] bounds){
+		double minLatitude = bounds[0], maxLatitude = bounds[1], minLongitude = bounds[2], maxLongitude = bounds[3];
+		double[] result1 = new double[2], result2 = new double[2], result3 = new double[2], result4 = new double[2], result5 = new double[2], result6 = new double[2];
+		double longitudeMiddle = minLongitude + (maxLongitude - minLongitude)/2;
+		OSMLoader loader = OSMLoader.getInstance();
+		// convert the bounds into meters
+		// all combinations to surely get min and max
+		loader.WGS84toUTM(result1, maxLongitude, minLatitude, false, longitudeMiddle, false);
+		loader.WGS84toUTM(result2, minLongitude, maxLatitude, false, longitudeMiddle, false);
+		loader.WGS84toUTM(result3, minLongitude, minLatitude, false, longitudeMiddle, false);
+		loader.WGS84toUTM(result4, maxLongitude, maxLatitude, false, longitudeMiddle, false);
+		// the min and max values of the height of the map can be in the middle of the sector because of the projection!
+		loader.WGS84toUTM(result5, longitudeMiddle, minLatitude, false, longitudeMiddle, false);
+		loader.WGS84toUTM(result6, longitudeMiddle, maxLatitude, false, longitudeMiddle, false);
+		double leftBound = Math.min(result2[0], result3[0]);
+		double rightBound = Math.max(result1[0], result4[0]);
+		double upperBound = Math.max(result2[1], result6[1]);
+		double lowerBound = Math.min(result1[1], result5[1]);
+		int width = (int)Math.round((rightBound - leftBound + 2 * BORDER)* 100);
+		int height = (int)Math.round((upperBound - lowerBound + 2 * BORDER)* 100);
+		map.initNewMap(width, height, REGION_SIZE, REGION_SIZE);
+
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors()));
+		try{
+			nodes_.convert(pool, longitudeMiddle, (int)Math.round(leftBound) - BORDER, (int)Math.round(upperBound) + BORDER);
+		} finally {
+			pool.shutdown();
+		}
+
+		// nodes at the same position are merged and equal streets are only added once like in Map.addNode() and Map.addStreet()
+		int[] mapNodes = new int[nodes_.size()];
+		Arrays.fill(mapNodes, -1);
+		LongIndex positions = new LongIndex(nodes_.size());
+		LongIndex connections = new LongIndex(streetNodeCount_);
+		ArrayList<Node> newNodes = new ArrayList<Node>(nodes_.size());
+		ArrayList<Street> newStreets = new ArrayList<Street>(streetNodeCount_);
+		OSMStreet street;
+		String streetName;
+		int i, j, end, node, lastNode, unnamed = 0;
+		for(i = 0; i < streets_.size(); ++i){
+			street = streets_.get(i);
+			streetName = street.name_;
+			if(streetName.length() == 0){		// give it a number if it doesn't have a name yet!
+				streetName = "S " + unnamed; //$NON-NLS-1$
+				++unnamed;
+			}
+			lastNode = -1;
+			end = street.firstNode_ + street.nodeCount_;
+			for(j = street.firstNode_; j < end; ++j){		// iterate through all waypoints and build streets out of them!
+				node = getMapNode(mapNodes, positions, newNodes, streetNodes_[j]);
+				if(node != -1){
+					if(lastNode != -1) addMapStreet(connections, newStreets, new Street(streetName, newNodes.get(lastNode), newNodes.get(node), street.type_, street.oneway_, street.lanes_, street.displayColor_, map.getRegionOfPoint(newNodes.get(node).getX(), newNodes.get(node).getY()), street.maxSpeed_), lastNode, node);
+					lastNode = node;
+				}
+			}
+			if(street.roundabout_ && street.nodeCount_ > 0){		//need to close roundabouts (connect last node to first node)!
+				node = getMapNode(mapNodes, positions, newNodes, streetNodes_[street.firstNode_]);
+				if(node != -1 && lastNode != -1) addMapStreet(connections, newStreets, new Street(streetName, newNodes.get(node), newNodes.get(lastNode), street.type_, street.oneway_, street.lanes_, street.displayColor_, map.getRegionOfPoint(newNodes.get(lastNode).getX(), newNodes.get(lastNode).getY()), street.maxSpeed_), node, lastNode);
+			}
+		}
+		map.addNodesAndStreets(newNodes, newStreets);
+		ErrorLog.log(Messages.getString("OSM_Loader.importedStreets") + streets_.size(), 3, OSMImporter.class.getName(), "createMap", null); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Gets the node on the map for a node of the table. The node is created when it's needed first. If another node has the same
+	 * position, this node is used instead.
+	 *
+	 * @param mapNodes	the positions of the nodes which were already created in <code>newNodes</code> (<code>-1</code> if not created yet)
+	 * @param positions	the index of the coordinates of all created nodes
+	 * @param newNodes	the created nodes
+	 * @param index		the index of the node in the table
+	 *
+	 * @return the position of the node in <code>newNodes</code> or <code>-1</code> if its coordinates are unknown
+	 */
+	private int getMapNode(int[] mapNodes, LongIndex positions, ArrayList<Node> newNodes, int index){
+		if(mapNodes[index] == -1 && nodes_.isLocated(index)){
+			int x = nodes_.getX(index), y = nodes_.getY(index);
+			mapNodes[index] = positions.add(((long)x << 32) | (y & 0xffffffffL));
+			if(mapNodes[index] == newNodes.size()) newNodes.add(new Node(x, y, nodes_.hasTrafficSignal(index)));
+		}
+		return mapNodes[index];
+	}
+
+	/**
+	 * Keeps a new street for the map if there's no other street between the same nodes yet.
+	 *
+	 * @param connections	the index of the pairs of nodes which are already connected
+	 * @param newStreets	the streets for the map
+	 * @param street		the new street
+	 * @param node1			the position of the first node in the created nodes
+	 * @param node2			the position of the second node in the created nodes
+	 */
+	private static void addMapStreet(LongIndex connections, ArrayList<Street> newStreets, Street street, int node1, int node2){
+		int size = connections.size();
+		if(connections.add(((long)Math.min(node1, node2) << 32) | Math.max(node1, node2)) == size) newStreets.add(street);
+	}
+
+	/**
+	 * A street found in the first pass.
+	 */
+	private static final class OSMStreet{
+
+		/** The name (empty if the way has no name). */
+		private final String name_;
+
+		/** The highway type. */
+		private final String type_;
+
+		/** The direction like in {@link OSMWayTags#getOneway()}. */
+		private final int oneway_;
+
+		/** The number of lanes in one direction. */
+		private final int lanes_;
+
+		/** The color in which to paint the street. */
+		private final Color displayColor_;
+
+		/** The maximum speed in cm/s. */
+		private final int maxSpeed_;
+
+		/** <code>true</code> if the street is a roundabout. */
+		private final boolean roundabout_;
+
+		/** The position of the first node in the node indices of all streets. */
+		private final int firstNode_;
+
+		/** The amount of nodes. */
+		private final int nodeCount_;
+
+		/**
+		 * Creates a new street.
+		 *
+		 * @param name			the name
+		 * @param type			the highway type
+		 * @param oneway		the direction
+		 * @param lanes			the number of lanes in one direction
+		 * @param displayColor	the color
+		 * @param maxSpeed		the maximum speed in cm/s
+		 * @param roundabout	<code>true</code> if the street is a roundabout
+		 * @param firstNode		the position of the first node in the node indices of all streets
+		 * @param nodeCount		the amount of nodes
+		 */
+		public OSMStreet(String name, String type, int oneway, int lanes, Color displayColor, int maxSpeed, boolean roundabout, int firstNode, int nodeCount){
+			name_ = name;
+			type_ = type;
+			oneway_ = oneway;
+			lanes_ = lanes;
+			displayColor_ = displayColor;
+			maxSpeed_ = maxSpeed;
+			roundabout_ = roundabout;
+			firstNode_ = firstNode;
+			nodeCount_ = nodeCount;
+		}
+	}
+}
@@ -18,11 +18,11 @@ import org.codehaus.staxmate.in.SMInputCursor;
 
 import vanetsim.ErrorLog;
 import vanetsim.VanetSimStart;
-import vanetsim.gui.controlpanels.MapSizeDialog;
 import vanetsim.localization.Messages;
 import vanetsim.map.Map;
 import vanetsim.map.Node;
 import vanetsim.map.Street;
+import vanetsim.simulation.SimulationEngine;
 
 /**
  * A class including functionality to import streets from the OpenStreetMap project. Implemented as Singleton.
@@ -81,13 +81,14 @@ public final class OSMLoader{
 			String childtype, waytype, nodetype, key, value, streetName, streetType;
 			int i=0, id, maxspeed, isOneway, lanes;
 			double latitude, longitude, minLatitude=Double.MAX_VALUE, maxLatitude=Double.MIN_VALUE, minLongitude=Double.MAX_VALUE, maxLongitude=Double.MIN_VALUE;
-			boolean maxspeedSet, onewaySet, isRoundabout, laneSet, correctionSet = false, hasTrafficSignal;
+			boolean correctionSet = false, hasTrafficSignal;
 			Node lastNode, node;
 			OSMNode tmpNode;
 			HashMap<Integer,OSMNode> OSMNodes = new HashMap<Integer,OSMNode>();
 			ArrayDeque<Integer> wayPoints = new ArrayDeque<Integer>();
 			Iterator<Integer> wayPointsIterator;
 			Color displayColor;
+			OSMWayTags tags = new OSMWayTags();
 			SMInputCursor wayCursor, nodeCursor;
 			XMLInputFactory factory = XMLInputFactory.newInstance();
 
@@ -159,7 +160,7 @@ public final class OSMLoader{
 									int height = (int)Math.round((upperBound - lowerBound + 1000)* 100);
 									VanetSimStart.setProgressBar(false);
 									CyclicBarrier barrier = new CyclicBarrier(2);
-									new MapSizeDialog(width , height, 100000, 100000, barrier);
+									SimulationEngine.getInstance().getListener().requestMapSize(width , height, 100000, 100000, barrier);
 									try {
 										barrier.await();
 									} catch (Exception e2) {}									
@@ -168,16 +169,7 @@ public final class OSMLoader{
 									int correctionY = (int)Math.round(upperBound + (Map.getInstance().getMapHeight() - height)/200) + 500;
 									OSMNode.setCorrections(longitudeMiddle, correctionX, correctionY);
 								}
-								streetName = ""; //$NON-NLS-1$
-								streetType = "unknown";
-								maxspeedSet = false;	// if value has been set by an explicit maxspeed-key then don't overwrite it based on streettype!
-								onewaySet = false;		// if value has been set by an explicit oneway-key then don't overwrite it based on streettype!
-								laneSet = false;
-								isOneway = 0;
-								isRoundabout = false;
-								lanes = 1;
-								displayColor = Color.WHITE;
-								maxspeed = -1;
+								tags.reset();
 								wayPoints.clear();
 								id = Integer.parseInt(childCrsr.getAttrValue("id")); //$NON-NLS-1$
 								wayCursor = childCrsr.childElementCursor();
@@ -189,120 +181,15 @@ public final class OSMLoader{
 											wayPoints.add(id);
 										} catch (Exception e) {}
 									} else if(waytype.equals("tag")){ //$NON-NLS-1$
-										key = wayCursor.getAttrValue("k").toLowerCase(); //$NON-NLS-1$
-										value = wayCursor.getAttrValue("v"); //$NON-NLS-1$
-										if((streetName.equals("") && key.equals("ref")) || key.equals("name")) streetName = value;		// streetname is taken from name field or if not present in ref //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
-										else if (key.equals("highway")){		// see http://wiki.openstreetmap.org/index.php/Map_Features (link last visited: 22.08.08) for details on highway types! //$NON-NLS-1$
-											streetType = value;
-											
-											if(value.equals("motorway")){ //$NON-NLS-1$
-												if(onewaySet == false) isOneway = 1;
-												if(laneSet == false) lanes = 2;		//motorways should always have at least two lanes!
-												displayColor = new Color(117,146,185);	//blue						
-												if(maxspeedSet == false){
-													maxspeed = 130*100000/3600;
-												}
-											} else if(value.equals("motorway_link")){ //$NON-NLS-1$
-												//if(onewaySet == false) isOneway = 1;	//actually, some OSM tools like Java OpenStreetMap (as of Aug. 2008) automatically set oneway but it's wrong according to http://wiki.openstreetmap.org/index.php/Tag:highway%3Dmotorway_link (link last visited: 20.09.2008)
-												displayColor = new Color(117,146,185);	//blue
-												if(maxspeedSet == false){
-													maxspeed = 70*100000/3600;
-												}													
-											} else if(value.equals("trunk")){ //$NON-NLS-1$
-												displayColor = new Color(116,194,116);	//green
-												if(maxspeedSet == false){
-													maxspeed = 110*100000/3600;
-												}
-											} else if(value.equals("trunk_link")){ //$NON-NLS-1$
-												displayColor = new Color(116,194,116);	//green
-												if(maxspeedSet == false){
-													maxspeed = 70*100000/3600;
-												}
-											} else if(value.equals("primary")){ //$NON-NLS-1$
-												displayColor = new Color(225,98,102);	//red
-												if(maxspeedSet == false){
-													maxspeed = 100*100000/3600;
-												}
-											} else if(value.equals("primary_link")){ //$NON-NLS-1$
-												displayColor = new Color(225,98,102);	//red
-												if(maxspeedSet == false){
-													maxspeed = 70*100000/3600;
-												}
-											} else if(value.equals("secondary")){ //$NON-NLS-1$
-												displayColor = new Color(253,184,100);	//orange
-												if(maxspeedSet == false){
-													maxspeed = 100*100000/3600;
-												}
-											} else if(value.equals("tertiary")){ //$NON-NLS-1$
-												displayColor = new Color(252,249,105);	//yellow
-												if(maxspeedSet == false){
-													maxspeed = 90*100000/3600;
-												}
-											} else if(value.equals("road")){ //$NON-NLS-1$
-												if(maxspeedSet == false){
-													maxspeed = 70*100000/3600;
-												}
-											} else if(value.equals("unclassified")){ //$NON-NLS-1$
-												if(maxspeedSet == false){
-													maxspeed = 70*100000/3600;
-												}
-											} else if(value.equals("residential")){ //$NON-NLS-1$
-												if(maxspeedSet == false){
-													maxspeed = 30*100000/3600;
-												}												
-											} else if(value.equals("living_street") || value.equals("service")){ //$NON-NLS-1$ //$NON-NLS-2$
-												if(maxspeedSet == false){
-													maxspeed = 10*100000/3600;
-												}
-											} else if(value.equals("unsurfaced") || value.equals("track")){ //$NON-NLS-1$ //$NON-NLS-2$
-												if(maxspeedSet == false){
-													maxspeed = 2*100000/3600;
-												}											
-											} else {		// anything else...pedestrian or so
-												if(maxspeedSet == false){
-													maxspeed = -1;
-												}
-											}
-										} else if (key.equals("network") && value.equals("BAB")){		// some motorways in Germany are markes as road with network=BAB set... //$NON-NLS-1$ //$NON-NLS-2$
-											if(onewaySet == false) isOneway = 1;
-											if(laneSet == false) lanes = 2;		//motorways should always have at least two lanes!
-											displayColor = Color.BLUE;
-											if(maxspeedSet == false){
-												maxspeed = 120*100000/3600;
-												maxspeedSet = true;
-											}
-										} else if (key.equals("tracktype") && maxspeedSet == false){	//see http://wiki.openstreetmap.org/index.php/Proposed_features/grade1-5 (link last visited: 22.09.2008) (all other tracks stay at 2km/h //$NON-NLS-1$
-											if(value.equals("grade1") && maxspeed < 10*100000/3600){ //$NON-NLS-1$
-												maxspeed = 10*100000/3600;		//grade1 is a paved track so 10km/h should be possible there
-												maxspeedSet = true;
-											}
-											else if(value.equals("grade2") && maxspeed < 5*100000/3600){ //$NON-NLS-1$
-												maxspeed = 5*100000/3600;	//grade2 is a track with gravel so 5km/h should be possible there
-												maxspeedSet = true;
-											}
-										} else if (key.equals("maxspeed")){ //$NON-NLS-1$
-											try{
-												maxspeed = Integer.parseInt(value)*100000/3600;
-												maxspeedSet = true;
-											} catch (Exception e) {}
-										} else if (key.equals("oneway")){	// A street is oneway when it mets several conditions like seen on http://wiki.openstreetmap.org/index.php/OSM_tags_for_routing (link last checked: 22.08.08) //$NON-NLS-1$
-											onewaySet = true;
-											if(value.equals("yes") || value.equals("true") || value.equals("1")) isOneway = 1; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
-											else if(value.equals("-1")) isOneway = -1;	//nodes are in opposite direction! //$NON-NLS-1$
-											else isOneway = 0;
-										} else if (key.equals("lanes")){ //$NON-NLS-1$
-											try{
-												lanes = Integer.parseInt(value);
-												if(lanes == 0) lanes = 1;	//a street with no lane would be useless...
-												laneSet = true;
-											} catch (Exception e) {}
-										} else if (key.equals("junction")){ //$NON-NLS-1$
-											if(value.equals("roundabout")){ //$NON-NLS-1$
-												isRoundabout = true;
-											}
-										}
+										tags.addTag(wayCursor.getAttrValue("k"), wayCursor.getAttrValue("v")); //$NON-NLS-1$ //$NON-NLS-2$
 									}
 								}
+								streetName = tags.getStreetName();
+								streetType = tags.getStreetType();
+								isOneway = tags.getOneway();
+								lanes = tags.getLanes();
+								displayColor = tags.getDisplayColor();
+								maxspeed = tags.getMaxSpeed();
 								if(maxspeed > 0){		// if we don't have a maxspeed set previously it's probably not a street for cars
 									wayPointsIterator = wayPoints.iterator();
 									if(streetName.length() == 0){		// give it a number if it doesn't have a name yet! //$NON-NLS-1$
@@ -323,7 +210,7 @@ public final class OSMLoader{
 											lastNode = node;											
 										}
 									}
-									if(isRoundabout){		//need to close roundabouts (connect last node to first node)!
+									if(tags.isRoundabout()){		//need to close roundabouts (connect last node to first node)!
 										wayPointsIterator = wayPoints.iterator();
 										if(wayPointsIterator.hasNext()){
 											id = wayPointsIterator.next();
@@ -0,0 +1,274 @@
+package vanetsim.map.OSM;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The nodes of an OpenStreetMap import stored in primitive arrays. Each OSM node ID (a <code>long</code> because current IDs
+ * don't fit into an <code>int</code> anymore) gets a dense index through a {@link LongIndex} when it's added for the first time,
+ * so neither the IDs nor the nodes need any objects.
+ * <p>
+ * Coordinates are stored like in OSM with 7 decimal places as <code>int</code> values. After all coordinates are known,
+ * {@link #convert(ForkJoinPool, double, double, double)} calculates the map coordinates of all nodes in parallel.
+ */
+final class OSMNodeTable{
+
+	/** Ranges with less nodes are converted without splitting the work. */
+	private static final int MIN_TASK_SIZE = 8192;
+
+	/** The factor between degrees and the stored coordinates. */
+	private static final double COORDINATE_FACTOR = 1e7;
+
+	/** Flag for a node whose coordinates were found. */
+	private static final byte LOCATED = 1;
+
+	/** Flag for a node with a traffic signal. */
+	private static final byte TRAFFIC_SIGNAL = 2;
+
+	/** The indices of the IDs. */
+	private final LongIndex ids_ = new LongIndex(1024);
+
+	/** The latitude of each node in 1e-7 degrees. */
+	private int[] latitudes_ = new int[256];
+
+	/** The longitude of each node in 1e-7 degrees. */
+	private int[] longitudes_ = new int[256];
+
+	/** The flags ({@link #LOCATED}, {@link #TRAFFIC_SIGNAL}) of each node. */
+	private byte[] flags_ = new byte[256];
+
+	/** The x coordinate of each node in cm. Only available after the conversion. */
+	private int[] x_ = null;
+
+	/** The y coordinate of each node in cm. Only available after the conversion. */
+	private int[] y_ = null;
+
+	/**
+	 * Adds a node if it isn't known yet.
+	 *
+	 * @param id	the OSM ID of the node
+	 *
+	 * @return the index of the node
+	 */
+	public int add(long id){
+		int size = ids_.size();
+		int index = ids_.add(id);
+		if(index == size && index == flags_.length){
+			int capacity = flags_.length + (flags_.length >> 1);
+			latitudes_ = Arrays.copyOf(latitudes_, capacity);
+			longitudes_ = Arrays.copyOf(longitudes_, capacity);
+			flags_ = Arrays.copyOf(flags_, capacity);
+		}
+		return index;
+	}
+
+	/**
+	 * Gets the index of a node.
+	 *
+	 * @param id	the OSM ID of the node
+	 *
+	 * @return the index or <code>-1</code> if the node wasn't added
+	 */
+	public int get(long id){
+		return ids_.get(id);
+	}
+
+	/**
+	 * Gets the amount of nodes.
+	 *
+	 * @return the amount
+	 */
+	public int size(){
+		return ids_.size();
+	}
+
+	/**
+	 * Sets the coordinates of a node.
+	 *
+	 * @param index		the index of the node
+	 * @param latitude	the latitude in degrees
+	 * @param longitude	the longitude in degrees
+	 */
+	public void setLocation(int index, double latitude, double longitude){
+		setLocation(index, (int)Math.round(latitude * COORDINATE_FACTOR), (int)Math.round(longitude * COORDINATE_FACTOR));
+	}
+
+	/**
+	 * Sets the coordinates of a node.
+	 *
+	 * @param index		the index of the node
+	 * @param latitude	the latitude in 1e-7 degrees
+	 * @param longitude	the longitude in 1e-7 degrees
+	 */
+	public void setLocation(int index, int latitude, int longitude){
+		latitudes_[index] = latitude;
+		longitudes_[index] = longitude;
+		flags_[index] |= LOCATED;
+	}
+
+	/**
+	 * Marks a node as having a traffic signal.
+	 *
+	 * @param index	the index of the node
+	 */
+	public void setTrafficSignal(int index){
+		flags_[index] |= TRAFFIC_SIGNAL;
+	}
+
+	/**
+	 * Checks if the coordinates of a node were found.
+	 *
+	 * @param index	the index of the node
+	 *
+	 * @return <code>true</code> if the node can be used
+	 */
+	public boolean isLocated(int index){
+		return (flags_[index] & LOCATED) != 0;
+	}
+
+	/**
+	 * Checks if a node has a traffic signal.
+	 *
+	 * @param index	the index of the node
+	 *
+	 * @return <code>true</code> if the node has a traffic signal
+	 */
+	public boolean hasTrafficSignal(int index){
+		return (flags_[index] & TRAFFIC_SIGNAL) != 0;
+	}
+
+	/**
+	 * Calculates the bounds of all located nodes.
+	 *
+	 * @param result	an array for the minimum latitude, maximum latitude, minimum longitude and maximum longitude (in degrees)
+	 *
+	 * @return the amount of located nodes
+	 */
+	public int getBounds(double[] result){
+		int minLatitude = Integer.MAX_VALUE, maxLatitude = Integer.MIN_VALUE, minLongitude = Integer.MAX_VALUE, maxLongitude = Integer.MIN_VALUE;
+		int count = 0;
+		for(int i = 0, size = ids_.size(); i < size; ++i){
+			if((flags_[i] & LOCATED) != 0){
+				++count;
+				if(latitudes_[i] < minLatitude) minLatitude = latitudes_[i];
+				if(latitudes_[i] > maxLatitude) maxLatitude = latitudes_[i];
+				if(longitudes_[i] < minLongitude) minLongitude = longitudes_[i];
+				if(longitudes_[i] > maxLongitude) maxLongitude = longitudes_[i];
+			}
+		}
+		result[0] = minLatitude / COORDINATE_FACTOR;
+		result[1] = maxLatitude / COORDINATE_FACTOR;
+		result[2] = minLongitude / COORDINATE_FACTOR;
+		result[3] = maxLongitude / COORDINATE_FACTOR;
+		return count;
+	}
+
+	/**
+	 * Converts the coordinates of all located nodes into map coordinates like {@link OSMNode#getRealNode()}. The geographic
+	 * coordinates aren't needed anymore afterwards and are released.
+	 *
+	 * @param pool				the pool used for the conversion
+	 * @param longitudeMiddle	the longitude used as the middle for all conversions from WGS84 to UTM
+	 * @param correctionX		the correction value for the x coordinate (minimum x value in m)
+	 * @param correctionY		the correction value for the y coordinate (maximum y value in m)
+	 */
+	public void convert(ForkJoinPool pool, double longitudeMiddle, double correctionX, double correctionY){
+		int size = ids_.size();
+		x_ = new int[size];
+		y_ = new int[size];
+		ConversionTask task = new ConversionTask(this, longitudeMiddle, correctionX, correctionY, 0, size);
+		if(size <= MIN_TASK_SIZE) task.compute();
+		else pool.invoke(task);
+		latitudes_ = null;
+		longitudes_ = null;
+	}
+
+	/**
+	 * Gets the x coordinate of a node. Only valid after the conversion.
+	 *
+	 * @param index	the index of the node
+	 *
+	 * @return the x coordinate in cm
+	 */
+	public int getX(int index){
+		return x_[index];
+	}
+
+	/**
+	 * Gets the y coordinate of a node. Only valid after the conversion.
+	 *
+	 * @param index	the index of the node
+	 *
+	 * @return the y coordinate in cm
+	 */
+	public int getY(int index){
+		return y_[index];
+	}
+
+	/**
+	 * Converts the coordinates of a range of nodes.
+	 */
+	private static final class ConversionTask extends RecursiveAction{
+
+		/** The <code>serialVersionUID</code> needed because <code>RecursiveAction</code> is serializable. */
+		private static final long serialVersionUID = -4780346823587921046L;
+
+		/** The table. */
+		private final OSMNodeTable table_;
+
+		/** The longitude used as the middle for all conversions. */
+		private final double longitudeMiddle_;
+
+		/** The correction value for the x coordinate. */
+		private final double correctionX_;
+
+		/** The correction value for the y coordinate. */
+		private final double correctionY_;
+
+		/** The first node (inclusive). */
+		private final int from_;
+
+		/** The last node (exclusive). */
+		private final int to_;
+
+		/**
+		 * Creates a new task.
+		 *
+		 * @param table				the table
+		 * @param longitudeMiddle	the longitude used as the middle for all conversions
+		 * @param correctionX		the correction value for the x coordinate
+		 * @param correctionY		the correction value for the y coordinate
+		 * @param from				the first node (inclusive)
+		 * @param to				the last node (exclusive)
+		 */
+		public ConversionTask(OSMNodeTable table, double longitudeMiddle, double correctionX, double correctionY, int from, int to){
+			table_ = table;
+			longitudeMiddle_ = longitudeMiddle;
+			correctionX_ = correctionX;
+			correctionY_ = correctionY;
+			from_ = from;
+			to_ = to;
+		}
+
+		/**
+		 * Converts the coordinates or splits the range in two halves.
+		 */
+		protected void compute(){
+			if(to_ - from_ <= MIN_TASK_SIZE){
+				OSMLoader loader = OSMLoader.getInstance();
+				double[] result = new double[2];
+				for(int i = from_; i < to_; ++i){
+					if((table_.flags_[i] & LOCATED) != 0){
+						loader.WGS84toUTM(result, table_.longitudes_[i] / COORDINATE_FACTOR, table_.latitudes_[i] / COORDINATE_FACTOR, false, longitudeMiddle_, false);
+						table_.x_[i] = (int)Math.round((result[0] - correctionX_) * 100);
+						table_.y_[i] = (int)Math.round((correctionY_ - result[1]) * 100);
+					}
+				}
+			} else {
+				int middle = (from_ + to_) >>> 1;
+				invokeAll(new ConversionTask(table_, longitudeMiddle_, correctionX_, correctionY_, from_, middle), new ConversionTask(table_, longitudeMiddle_, correctionX_, correctionY_, middle, to_));
+			}
+		}
+	}
+}
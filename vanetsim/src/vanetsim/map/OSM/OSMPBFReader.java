@@ -0,0 +1,583 @@
+package vanetsim.map.OSM;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import vanetsim.ErrorLog;
+import vanetsim.localization.Messages;
+
+/**
+ * Reads OpenStreetMap files in the PBF format (see <a href="http://wiki.openstreetmap.org/wiki/PBF_Format">PBF Format</a>).
+ * A PBF file is a sequence of blobs which each contain a zlib compressed block of up to 8000 nodes or ways. The blobs are read
+ * one after another but decompressed and decoded on a <code>ForkJoinPool</code>. The results are handed over in the order of the
+ * file so that the import is the same as with the XML file. Only a limited amount of blocks is decoded in advance so that the
+ * memory doesn't depend on the size of the file.
+ * <p>
+ * Files with history (the feature <code>HistoricalInformation</code>) and blobs with other compressions than zlib are not
+ * supported. Relations and the metadata of the elements are skipped because the importer doesn't need them.
+ */
+final class OSMPBFReader implements OSMReader{
+
+	/** The maximum size of a blob header according to the specification. */
+	private static final int MAX_BLOB_HEADER_SIZE = 64 * 1024;
+
+	/** The maximum size of a blob (compressed or not) according to the specification. */
+	private static final int MAX_BLOB_SIZE = 32 * 1024 * 1024;
+
+	/** The required features of a file which are supported. */
+	private static final String[] SUPPORTED_FEATURES = {"OsmSchema-V0.6", "DenseNodes"}; //$NON-NLS-1$ //$NON-NLS-2$
+
+	/** The key of the field with the keys of the tags in <code>Node</code> and <code>Way</code> messages (field 2, packed). */
+	private static final int TAG_KEYS = (2 << 3) | ProtobufInput.LENGTH_DELIMITED;
+
+	/** The key of the field with the values of the tags in <code>Node</code> and <code>Way</code> messages (field 3, packed). */
+	private static final int TAG_VALUES = (3 << 3) | ProtobufInput.LENGTH_DELIMITED;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean readWays(File file, OSMImporter importer) throws Exception{
+		return readBlocks(file, importer, null);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void readNodes(File file, OSMNodeTable nodes) throws Exception{
+		readBlocks(file, null, nodes);
+	}
+
+	/**
+	 * Reads all blocks of a file and decodes them in parallel.
+	 *
+	 * @param file		the file
+	 * @param importer	the importer which gets the ways or <code>null</code> in the second pass
+	 * @param nodes		the table which gets the coordinates of the nodes or <code>null</code> in the first pass
+	 *
+	 * @return <code>false</code> if the file is not a PBF file or uses unsupported features, else <code>true</code>
+	 *
+	 * @throws Exception	an exception if reading fails
+	 */
+	private boolean readBlocks(File file, OSMImporter importer, OSMNodeTable nodes) throws Exception{
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536));
+		int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+		ForkJoinPool pool = null;
+		ArrayDeque<ForkJoinTask<Block>> pending = new ArrayDeque<ForkJoinTask<Block>>();
+		try{
+			int[] dataSize = new int[1];
+			String type = readBlobHeader(in, dataSize);
+			if(!"OSMHeader".equals(type)) return false;	// the header block must be the first one //$NON-NLS-1$
+			byte[] blob = new byte[dataSize[0]];
+			in.readFully(blob);
+			if(!checkHeader(decompress(blob))) return false;
+
+			pool = new ForkJoinPool(threads);
+			while((type = readBlobHeader(in, dataSize)) != null){
+				blob = new byte[dataSize[0]];
+				in.readFully(blob);
+				if(type.equals("OSMData")){	// blobs of unknown types need to be skipped //$NON-NLS-1$
+					pending.add(pool.submit(new DecodeTask(blob, nodes)));
+					if(pending.size() > 2 * threads) pending.poll().get().apply(importer, nodes);
+				}
+			}
+			while(!pending.isEmpty()) pending.poll().get().apply(importer, nodes);
+			return true;
+		} finally {
+			in.close();
+			if(pool != null) pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Reads the header of the next blob.
+	 *
+	 * @param in		the stream of the file
+	 * @param dataSize	an array in which the size of the following blob is stored
+	 *
+	 * @return the type of the blob or <code>null</code> if the end of the file was reached
+	 *
+	 * @throws IOException	if reading fails or the file is broken
+	 */
+	private static String readBlobHeader(DataInputStream in, int[] dataSize) throws IOException{
+		int first = in.read();
+		if(first == -1) return null;
+		int headerSize = (first << 24) | (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+		if(headerSize < 0 || headerSize > MAX_BLOB_HEADER_SIZE) throw new IOException("Invalid PBF blob header size " + headerSize); //$NON-NLS-1$
+		byte[] header = new byte[headerSize];
+		in.readFully(header);
+		ProtobufInput input = new ProtobufInput(header, 0, headerSize);
+		String type = null;
+		long size = -1;
+		int tag;
+		while(input.hasMore()){
+			tag = input.readTag();
+			if(tag == ((1 << 3) | ProtobufInput.LENGTH_DELIMITED)) type = input.readString();
+			else if(tag == ((3 << 3) | ProtobufInput.VARINT)) size = input.readVarint();
+			else input.skip(tag);
+		}
+		if(type == null || size < 0 || size > MAX_BLOB_SIZE) throw new IOException("Invalid PBF blob header"); //$NON-NLS-1$
+		dataSize[0] = (int)size;
+		return type;
+	}
+
+	/**
+	 * Gets the content of a blob.
+	 *
+	 * @param blob	the encoded <code>Blob</code> message
+	 *
+	 * @return the uncompressed content
+	 *
+	 * @throws IOException	if the blob is broken or uses an unsupported compression
+	 */
+	private static byte[] decompress(byte[] blob) throws IOException{
+		ProtobufInput input = new ProtobufInput(blob, 0, blob.length);
+		int rawSize = -1, dataOffset = -1, dataLength = -1, tag;
+		boolean compressed = false;
+		while(input.hasMore()){
+			tag = input.readTag();
+			switch(tag >>> 3){
+				case 1:		// raw
+				case 3:		// zlib_data
+					if((tag & 7) != ProtobufInput.LENGTH_DELIMITED) throw new IOException("Invalid PBF blob"); //$NON-NLS-1$
+					compressed = (tag >>> 3) == 3;
+					dataLength = input.skipBytes();
+					dataOffset = input.getPosition() - dataLength;
+					break;
+				case 2:		// raw_size
+					rawSize = (int)input.readVarint();
+					break;
+				case 4:		// lzma_data
+				case 5:		// OBSOLETE_bzip2_data
+				case 6:		// lz4_data
+				case 7:		// zstd_data
+					throw new IOException("Unsupported PBF blob compression " + (tag >>> 3)); //$NON-NLS-1$
+				default:
+					input.skip(tag);
+			}
+		}
+		if(dataOffset == -1) throw new IOException("Empty PBF blob"); //$NON-NLS-1$
+		if(!compressed) return Arrays.copyOfRange(blob, dataOffset, dataOffset + dataLength);
+		if(rawSize < 0 || rawSize > MAX_BLOB_SIZE) throw new IOException("Invalid PBF blob size " + rawSize); //$NON-NLS-1$
+
+		byte[] result = new byte[rawSize];
+		Inflater inflater = new Inflater();
+		try{
+			inflater.setInput(blob, dataOffset, dataLength);
+			int length = 0, count;
+			while(length < rawSize && !inflater.finished()){
+				count = inflater.inflate(result, length, rawSize - length);
+				if(count == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+				length += count;
+			}
+			if(length != rawSize) throw new IOException("Truncated PBF blob"); //$NON-NLS-1$
+		} catch (DataFormatException e) {
+			throw new IOException("Invalid zlib data in PBF blob", e); //$NON-NLS-1$
+		} finally {
+			inflater.end();
+		}
+		return result;
+	}
+
+	/**
+	 * Checks if all required features of a file are supported.
+	 *
+	 * @param data	the <code>HeaderBlock</code> message
+	 *
+	 * @return <code>true</code> if the file can be read
+	 *
+	 * @throws IOException	if the header is broken
+	 */
+	private static boolean checkHeader(byte[] data) throws IOException{
+		ProtobufInput input = new ProtobufInput(data, 0, data.length);
+		String feature;
+		int i, tag;
+		while(input.hasMore()){
+			tag = input.readTag();
+			if(tag == ((4 << 3) | ProtobufInput.LENGTH_DELIMITED)){		// required_features
+				feature = input.readString();
+				for(i = 0; i < SUPPORTED_FEATURES.length; ++i){
+					if(SUPPORTED_FEATURES[i].equals(feature)) break;
+				}
+				if(i == SUPPORTED_FEATURES.length){
+					ErrorLog.log(Messages.getString("OSM_Loader.unsupportedFeature") + feature, 6, OSMPBFReader.class.getName(), "checkHeader", null); //$NON-NLS-1$ //$NON-NLS-2$
+					return false;
+				}
+			} else input.skip(tag);
+		}
+		return true;
+	}
+
+	/**
+	 * Gets a string of the string table of a block.
+	 *
+	 * @param strings	the string table
+	 * @param index		the index in the table
+	 *
+	 * @return the string
+	 *
+	 * @throws IOException	if the index is not in the table
+	 */
+	private static String getString(String[] strings, long index) throws IOException{
+		if(index < 0 || index >= strings.length) throw new IOException("Invalid PBF string index " + index); //$NON-NLS-1$
+		return strings[(int)index];
+	}
+
+	/**
+	 * Decodes one blob of a file.
+	 */
+	private static final class DecodeTask implements Callable<Block>{
+
+		/** The encoded <code>Blob</code> message. */
+		private final byte[] blob_;
+
+		/** The table of the nodes in the second pass or <code>null</code> in the first pass. */
+		private final OSMNodeTable nodes_;
+
+		/** The string table of the block. */
+		private String[] strings_ = null;
+
+		/** Which strings of the string table are <code>highway</code> keys (only in the second pass). */
+		private boolean[] highwayKeys_ = null;
+
+		/** Which strings of the string table are <code>traffic_signals</code> values (only in the second pass). */
+		private boolean[] signalValues_ = null;
+
+		/** The distance between two coordinates in nanodegrees. */
+		private long granularity_ = 100;
+
+		/** The offset of the latitudes in nanodegrees. */
+		private long latitudeOffset_ = 0;
+
+		/** The offset of the longitudes in nanodegrees. */
+		private long longitudeOffset_ = 0;
+
+		/**
+		 * Creates a new task.
+		 *
+		 * @param blob	the encoded <code>Blob</code> message
+		 * @param nodes	the table of the nodes in the second pass or <code>null</code> in the first pass. Nodes which are not
+		 * 				in this table are skipped.
+		 */
+		public DecodeTask(byte[] blob, OSMNodeTable nodes){
+			blob_ = blob;
+			nodes_ = nodes;
+		}
+
+		/**
+		 * Decodes the blob.
+		 *
+		 * @return the ways or nodes of the block
+		 *
+		 * @throws IOException	if the block is broken
+		 */
+		public Block call() throws IOException{
+			byte[] data = decompress(blob_);
+			ProtobufInput block = new ProtobufInput(data, 0, data.length);
+			ProtobufInput stringTable = null;
+			ArrayList<ProtobufInput> groups = new ArrayList<ProtobufInput>();
+			int tag;
+			while(block.hasMore()){		// the fields might come in any order so the groups are decoded afterwards
+				tag = block.readTag();
+				switch(tag){
+					case (1 << 3) | ProtobufInput.LENGTH_DELIMITED:
+						stringTable = block.readMessage();
+						break;
+					case (2 << 3) | ProtobufInput.LENGTH_DELIMITED:
+						groups.add(block.readMessage());
+						break;
+					case (17 << 3) | ProtobufInput.VARINT:
+						granularity_ = block.readVarint();
+						break;
+					case (19 << 3) | ProtobufInput.VARINT:
+						latitudeOffset_ = block.readVarint();
+						break;
+					case (20 << 3) | ProtobufInput.VARINT:
+						longitudeOffset_ = block.readVarint();
+						break;
+					default:
+						block.skip(tag);
+				}
+			}
+			ArrayList<String> strings = new ArrayList<String>();
+			while(stringTable != null && stringTable.hasMore()){
+				tag = stringTable.readTag();
+				if(tag == ((1 << 3) | ProtobufInput.LENGTH_DELIMITED)) strings.add(stringTable.readString());
+				else stringTable.skip(tag);
+			}
+			strings_ = strings.toArray(new String[strings.size()]);
+
+			if(nodes_ == null){
+				WayBlock result = new WayBlock();
+				for(int i = 0; i < groups.size(); ++i) decodeWays(groups.get(i), result);
+				return result;
+			} else {
+				NodeBlock result = new NodeBlock();
+				highwayKeys_ = new boolean[strings_.length];
+				signalValues_ = new boolean[strings_.length];
+				for(int i = 0; i < strings_.length; ++i){
+					highwayKeys_[i] = strings_[i].toLowerCase().equals("highway"); //$NON-NLS-1$
+					signalValues_[i] = strings_[i].equals("traffic_signals"); //$NON-NLS-1$
+				}
+				for(int i = 0; i < groups.size(); ++i) decodeNodes(groups.get(i), result);
+				return result;
+			}
+		}
+
+		/**
+		 * Decodes the ways of a <code>PrimitiveGroup</code> and keeps the streets.
+		 *
+		 * @param group		the group
+		 * @param result	the result of the block
+		 *
+		 * @throws IOException	if the group is broken
+		 */
+		private void decodeWays(ProtobufInput group, WayBlock result) throws IOException{
+			OSMWayTags tags = new OSMWayTags();
+			ProtobufInput way, keys, values, refs;
+			long[] wayPoints = new long[256];
+			int wayPointCount, tag;
+			long ref;
+			while(group.hasMore()){
+				tag = group.readTag();
+				if(tag != ((3 << 3) | ProtobufInput.LENGTH_DELIMITED)){	// not a way
+					group.skip(tag);
+					continue;
+				}
+				way = group.readMessage();
+				keys = null;
+				values = null;
+				refs = null;
+				while(way.hasMore()){
+					tag = way.readTag();
+					if(tag == TAG_KEYS) keys = way.readMessage();
+					else if(tag == TAG_VALUES) values = way.readMessage();
+					else if(tag == ((8 << 3) | ProtobufInput.LENGTH_DELIMITED)) refs = way.readMessage();
+					else way.skip(tag);
+				}
+				tags.reset();
+				while(keys != null && values != null && keys.hasMore() && values.hasMore()) tags.addTag(getString(strings_, keys.readVarint()), getString(strings_, values.readVarint()));
+				if(tags.getMaxSpeed() <= 0) continue;		// if we don't have a maxspeed it's probably not a street for cars
+
+				wayPointCount = 0;
+				ref = 0;
+				while(refs != null && refs.hasMore()){
+					if(wayPointCount == wayPoints.length) wayPoints = Arrays.copyOf(wayPoints, wayPoints.length * 2);
+					ref += refs.readSignedVarint();		// delta coded
+					wayPoints[wayPointCount] = ref;
+					++wayPointCount;
+				}
+				result.tags_.add(tags);
+				result.wayPoints_.add(Arrays.copyOf(wayPoints, wayPointCount));
+				tags = new OSMWayTags();
+			}
+		}
+
+		/**
+		 * Decodes the nodes of a <code>PrimitiveGroup</code> and keeps the nodes which are in the table.
+		 *
+		 * @param group		the group
+		 * @param result	the result of the block
+		 *
+		 * @throws IOException	if the group is broken
+		 */
+		private void decodeNodes(ProtobufInput group, NodeBlock result) throws IOException{
+			ProtobufInput node, keys, values;
+			long id, latitude, longitude, key, value;
+			int index, tag;
+			boolean signal;
+			while(group.hasMore()){
+				tag = group.readTag();
+				if(tag == ((1 << 3) | ProtobufInput.LENGTH_DELIMITED)){		// a single node
+					node = group.readMessage();
+					id = latitude = longitude = 0;
+					keys = values = null;
+					while(node.hasMore()){
+						tag = node.readTag();
+						if(tag == ((1 << 3) | ProtobufInput.VARINT)) id = node.readSignedVarint();
+						else if(tag == ((8 << 3) | ProtobufInput.VARINT)) latitude = node.readSignedVarint();
+						else if(tag == ((9 << 3) | ProtobufInput.VARINT)) longitude = node.readSignedVarint();
+						else if(tag == TAG_KEYS) keys = node.readMessage();
+						else if(tag == TAG_VALUES) values = node.readMessage();
+						else node.skip(tag);
+					}
+					index = nodes_.get(id);
+					if(index != -1){
+						signal = false;
+						while(keys != null && values != null && keys.hasMore() && values.hasMore()){
+							key = keys.readVarint();
+							value = values.readVarint();
+							if(isTrafficSignal(key, value)) signal = true;
+						}
+						result.add(index, toCoordinate(latitude, latitudeOffset_), toCoordinate(longitude, longitudeOffset_), signal);
+					}
+				} else if(tag == ((2 << 3) | ProtobufInput.LENGTH_DELIMITED)) decodeDenseNodes(group.readMessage(), result);
+				else group.skip(tag);
+			}
+		}
+
+		/**
+		 * Decodes a <code>DenseNodes</code> message and keeps the nodes which are in the table.
+		 *
+		 * @param dense	the message
+		 * @param result	the result of the block
+		 *
+		 * @throws IOException	if the message is broken
+		 */
+		private void decodeDenseNodes(ProtobufInput dense, NodeBlock result) throws IOException{
+			ProtobufInput ids = null, latitudes = null, longitudes = null, keysValues = null;
+			int tag;
+			while(dense.hasMore()){
+				tag = dense.readTag();
+				if(tag == ((1 << 3) | ProtobufInput.LENGTH_DELIMITED)) ids = dense.readMessage();
+				else if(tag == ((8 << 3) | ProtobufInput.LENGTH_DELIMITED)) latitudes = dense.readMessage();
+				else if(tag == ((9 << 3) | ProtobufInput.LENGTH_DELIMITED)) longitudes = dense.readMessage();
+				else if(tag == ((10 << 3) | ProtobufInput.LENGTH_DELIMITED)) keysValues = dense.readMessage();
+				else dense.skip(tag);
+			}
+			if(ids == null || latitudes == null || longitudes == null) return;
+
+			long id = 0, latitude = 0, longitude = 0, key, value;
+			int index;
+			boolean signal;
+			while(ids.hasMore()){		// all three fields are delta coded
+				id += ids.readSignedVarint();
+				latitude += latitudes.readSignedVarint();
+				longitude += longitudes.readSignedVarint();
+				index = nodes_.get(id);
+				signal = false;
+				// the tags of all nodes follow each other, each terminated by 0 (empty if no node in the block has tags)
+				while(keysValues != null && keysValues.hasMore()){
+					key = keysValues.readVarint();
+					if(key == 0) break;
+					value = keysValues.readVarint();
+					if(isTrafficSignal(key, value)) signal = true;
+				}
+				if(index != -1) result.add(index, toCoordinate(latitude, latitudeOffset_), toCoordinate(longitude, longitudeOffset_), signal);
+			}
+		}
+
+		/**
+		 * Checks if a tag of a node marks a traffic signal.
+		 *
+		 * @param key	the index of the key in the string table
+		 * @param value	the index of the value in the string table
+		 *
+		 * @return <code>true</code> if the tag is <code>highway=traffic_signals</code>
+		 *
+		 * @throws IOException	if an index is not in the string table
+		 */
+		private boolean isTrafficSignal(long key, long value) throws IOException{
+			if(key < 0 || key >= strings_.length || value < 0 || value >= strings_.length) throw new IOException("Invalid PBF string index"); //$NON-NLS-1$
+			return highwayKeys_[(int)key] && signalValues_[(int)value];
+		}
+
+		/**
+		 * Converts a coordinate of the block into the format of the {@link OSMNodeTable}.
+		 *
+		 * @param value		the coordinate in units of the granularity
+		 * @param offset	the offset in nanodegrees
+		 *
+		 * @return the coordinate in 1e-7 degrees
+		 */
+		private int toCoordinate(long value, long offset){
+			return (int)Math.round((offset + granularity_ * value) / 100.0);
+		}
+	}
+
+	/**
+	 * The decoded content of a block which is handed over in the order of the file.
+	 */
+	private abstract static class Block{
+
+		/**
+		 * Hands the content over.
+		 *
+		 * @param importer	the importer in the first pass
+		 * @param nodes		the table of the nodes in the second pass
+		 */
+		public abstract void apply(OSMImporter importer, OSMNodeTable nodes);
+	}
+
+	/**
+	 * The streets of a block.
+	 */
+	private static final class WayBlock extends Block{
+
+		/** The tags of the streets. */
+		private final ArrayList<OSMWayTags> tags_ = new ArrayList<OSMWayTags>();
+
+		/** The IDs of the nodes of the streets. */
+		private final ArrayList<long[]> wayPoints_ = new ArrayList<long[]>();
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public void apply(OSMImporter importer, OSMNodeTable nodes){
+			for(int i = 0; i < tags_.size(); ++i) importer.addWay(tags_.get(i), wayPoints_.get(i), wayPoints_.get(i).length);
+		}
+	}
+
+	/**
+	 * The nodes of a block which belong to streets.
+	 */
+	private static final class NodeBlock extends Block{
+
+		/** The indices of the nodes in the table. */
+		private int[] indices_ = new int[64];
+
+		/** The latitudes in 1e-7 degrees. */
+		private int[] latitudes_ = new int[64];
+
+		/** The longitudes in 1e-7 degrees. */
+		private int[] longitudes_ = new int[64];
+
+		/** If the nodes have a traffic signal. */
+		private boolean[] signals_ = new boolean[64];
+
+		/** The amount of nodes. */
+		private int size_ = 0;
+
+		/**
+		 * Adds a node.
+		 *
+		 * @param index		the index in the table
+		 * @param latitude	the latitude in 1e-7 degrees
+		 * @param longitude	the longitude in 1e-7 degrees
+		 * @param signal	<code>true</code> if the node has a traffic signal
+		 */
+		public void add(int index, int latitude, int longitude, boolean signal){
+			if(size_ == indices_.length){
+				indices_ = Arrays.copyOf(indices_, size_ * 2);
+				latitudes_ = Arrays.copyOf(latitudes_, size_ * 2);
+				longitudes_ = Arrays.copyOf(longitudes_, size_ * 2);
+				signals_ = Arrays.copyOf(signals_, size_ * 2);
+			}
+			indices_[size_] = index;
+			latitudes_[size_] = latitude;
+			longitudes_[size_] = longitude;
+			signals_[size_] = signal;
+			++size_;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public void apply(OSMImporter importer, OSMNodeTable nodes){
+			for(int i = 0; i < size_; ++i){
+				nodes.setLocation(indices_[i], latitudes_[i], longitudes_[i]);
+				if(signals_[i]) nodes.setTrafficSignal(indices_[i]);
+			}
+		}
+	}
+}
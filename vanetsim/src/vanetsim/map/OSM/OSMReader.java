@@ -0,0 +1,34 @@
+package vanetsim.map.OSM;
+
+import java.io.File;
+
+/**
+ * An interface for the file formats which can be read by the {@link OSMImporter}. The importer reads a file in two passes:
+ * first all ways and then the nodes which belong to streets.
+ */
+interface OSMReader{
+
+	/**
+	 * First pass: reads all ways and hands them to the importer in the order of the file with
+	 * {@link OSMImporter#addWay(OSMWayTags, long[], int)}.
+	 *
+	 * @param file		the file
+	 * @param importer	the importer
+	 *
+	 * @return <code>false</code> if the file has a wrong format or uses unsupported features, else <code>true</code>
+	 *
+	 * @throws Exception	an exception if reading fails
+	 */
+	public abstract boolean readWays(File file, OSMImporter importer) throws Exception;
+
+	/**
+	 * Second pass: reads the coordinates and traffic signals of all nodes which are contained in the table. All other nodes
+	 * are skipped.
+	 *
+	 * @param file	the file
+	 * @param nodes	the table of the nodes of all streets
+	 *
+	 * @throws Exception	an exception if reading fails
+	 */
+	public abstract void readNodes(File file, OSMNodeTable nodes) throws Exception;
+}
@@ -0,0 +1,263 @@
+package vanetsim.map.OSM;
+
+import java.awt.Color;
+
+/**
+ * Interprets the tags of an OpenStreetMap way (see <a href="http://wiki.openstreetmap.org/index.php/Map_Features">Map Features</a>,
+ * link last visited: 22.08.08). The tags need to be added in the order of the file because explicit tags like <code>maxspeed</code>
+ * or <code>oneway</code> take precedence over the default values derived from the <code>highway</code> type. One object can be
+ * reused for all ways by calling {@link #reset()} before each way.
+ */
+final class OSMWayTags{
+
+	/** The color of motorways. */
+	private static final Color MOTORWAY_COLOR = new Color(117,146,185);	//blue
+
+	/** The color of trunk roads. */
+	private static final Color TRUNK_COLOR = new Color(116,194,116);	//green
+
+	/** The color of primary roads. */
+	private static final Color PRIMARY_COLOR = new Color(225,98,102);	//red
+
+	/** The color of secondary roads. */
+	private static final Color SECONDARY_COLOR = new Color(253,184,100);	//orange
+
+	/** The color of tertiary roads. */
+	private static final Color TERTIARY_COLOR = new Color(252,249,105);	//yellow
+
+	/** The name of the street. Taken from the name field or if not present from the ref field. */
+	private String streetName_;
+
+	/** The highway type of the street. */
+	private String streetType_;
+
+	/** <code>true</code> if the speed has been set by an explicit maxspeed-key so that it isn't overwritten based on the street type. */
+	private boolean maxspeedSet_;
+
+	/** <code>true</code> if the direction has been set by an explicit oneway-key so that it isn't overwritten based on the street type. */
+	private boolean onewaySet_;
+
+	/** <code>true</code> if the lanes have been set by an explicit lanes-key. */
+	private boolean laneSet_;
+
+	/** <code>0</code>=twoway-street, <code>1</code>=oneway in the order of the nodes, <code>-1</code>=oneway in the opposite order. */
+	private int isOneway_;
+
+	/** <code>true</code> if the way is a roundabout and the last node needs to be connected to the first one. */
+	private boolean isRoundabout_;
+
+	/** The number of lanes in one direction. */
+	private int lanes_;
+
+	/** The color in which to paint the street. */
+	private Color displayColor_;
+
+	/** The maximum speed in cm/s or <code>-1</code> if the way is not a street for cars. */
+	private int maxspeed_;
+
+	/**
+	 * Creates a new object for the tags of a way.
+	 */
+	public OSMWayTags(){
+		reset();
+	}
+
+	/**
+	 * Removes all tags of the last way.
+	 */
+	public void reset(){
+		streetName_ = ""; //$NON-NLS-1$
+		streetType_ = "unknown"; //$NON-NLS-1$
+		maxspeedSet_ = false;
+		onewaySet_ = false;
+		laneSet_ = false;
+		isOneway_ = 0;
+		isRoundabout_ = false;
+		lanes_ = 1;
+		displayColor_ = Color.WHITE;
+		maxspeed_ = -1;
+	}
+
+	/**
+	 * Adds a tag of the way.
+	 *
+	 * @param key	the key of the tag
+	 * @param value	the value of the tag
+	 */
+	public void addTag(String key, String value){
+		key = key.toLowerCase();
+		if((streetName_.equals("") && key.equals("ref")) || key.equals("name")) streetName_ = value;		// streetname is taken from name field or if not present in ref //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		else if (key.equals("highway")){		// see http://wiki.openstreetmap.org/index.php/Map_Features (link last visited: 22.08.08) for details on highway types! //$NON-NLS-1$
+			streetType_ = value;
+
+			if(value.equals("motorway")){ //$NON-NLS-1$
+				if(onewaySet_ == false) isOneway_ = 1;
+				if(laneSet_ == false) lanes_ = 2;		//motorways should always have at least two lanes!
+				displayColor_ = MOTORWAY_COLOR;
+				if(maxspeedSet_ == false){
+					maxspeed_ = 130*100000/3600;
+				}
+			} else if(value.equals("motorway_link")){ //$NON-NLS-1$
+				//if(onewaySet_ == false) isOneway_ = 1;	//actually, some OSM tools like Java OpenStreetMap (as of Aug. 2008) automatically set oneway but it's wrong according to http://wiki.openstreetmap.org/index.php/Tag:highway%3Dmotorway_link (link last visited: 20.09.2008)
+				displayColor_ = MOTORWAY_COLOR;
+				if(maxspeedSet_ == false){
+					maxspeed_ = 70*100000/3600;
+				}
+			} else if(value.equals("trunk")){ //$NON-NLS-1$
+				displayColor_ = TRUNK_COLOR;
+				if(maxspeedSet_ == false){
+					maxspeed_ = 110*100000/3600;
+				}
+			} else if(value.equals("trunk_link")){ //$NON-NLS-1$
+				displayColor_ = TRUNK_COLOR;
+				if(maxspeedSet_ == false){
+					maxspeed_ = 70*100000/3600;
+				}
+			} else if(value.equals("primary")){ //$NON-NLS-1$
+				displayColor_ = PRIMARY_COLOR;
+				if(maxspeedSet_ == false){
+					maxspeed_ = 100*100000/3600;
+				}
+			} else if(value.equals("primary_link")){ //$NON-NLS-1$
+				displayColor_ = PRIMARY_COLOR;
+				if(maxspeedSet_ == false){
+					maxspeed_ = 70*100000/3600;
+				}
+			} else if(value.equals("secondary")){ //$NON-NLS-1$
+				displayColor_ = SECONDARY_COLOR;
+				if(maxspeedSet_ == false){
+					maxspeed_ = 100*100000/3600;
+				}
+			} else if(value.equals("tertiary")){ //$NON-NLS-1$
+				displayColor_ = TERTIARY_COLOR;
+				if(maxspeedSet_ == false){
+					maxspeed_ = 90*100000/3600;
+				}
+			} else if(value.equals("road")){ //$NON-NLS-1$
+				if(maxspeedSet_ == false){
+					maxspeed_ = 70*100000/3600;
+				}
+			} else if(value.equals("unclassified")){ //$NON-NLS-1$
+				if(maxspeedSet_ == false){
+					maxspeed_ = 70*100000/3600;
+				}
+			} else if(value.equals("residential")){ //$NON-NLS-1$
+				if(maxspeedSet_ == false){
+					maxspeed_ = 30*100000/3600;
+				}
+			} else if(value.equals("living_street") || value.equals("service")){ //$NON-NLS-1$ //$NON-NLS-2$
+				if(maxspeedSet_ == false){
+					maxspeed_ = 10*100000/3600;
+				}
+			} else if(value.equals("unsurfaced") || value.equals("track")){ //$NON-NLS-1$ //$NON-NLS-2$
+				if(maxspeedSet_ == false){
+					maxspeed_ = 2*100000/3600;
+				}
+			} else {		// anything else...pedestrian or so
+				if(maxspeedSet_ == false){
+					maxspeed_ = -1;
+				}
+			}
+		} else if (key.equals("network") && value.equals("BAB")){		// some motorways in Germany are markes as road with network=BAB set... //$NON-NLS-1$ //$NON-NLS-2$
+			if(onewaySet_ == false) isOneway_ = 1;
+			if(laneSet_ == false) lanes_ = 2;		//motorways should always have at least two lanes!
+			displayColor_ = Color.BLUE;
+			if(maxspeedSet_ == false){
+				maxspeed_ = 120*100000/3600;
+				maxspeedSet_ = true;
+			}
+		} else if (key.equals("tracktype") && maxspeedSet_ == false){	//see http://wiki.openstreetmap.org/index.php/Proposed_features/grade1-5 (link last visited: 22.09.2008) (all other tracks stay at 2km/h //$NON-NLS-1$
+			if(value.equals("grade1") && maxspeed_ < 10*100000/3600){ //$NON-NLS-1$
+				maxspeed_ = 10*100000/3600;		//grade1 is a paved track so 10km/h should be possible there
+				maxspeedSet_ = true;
+			}
+			else if(value.equals("grade2") && maxspeed_ < 5*100000/3600){ //$NON-NLS-1$
+				maxspeed_ = 5*100000/3600;	//grade2 is a track with gravel so 5km/h should be possible there
+				maxspeedSet_ = true;
+			}
+		} else if (key.equals("maxspeed")){ //$NON-NLS-1$
+			try{
+				maxspeed_ = Integer.parseInt(value)*100000/3600;
+				maxspeedSet_ = true;
+			} catch (Exception e) {}
+		} else if (key.equals("oneway")){	// A street is oneway when it mets several conditions like seen on http://wiki.openstreetmap.org/index.php/OSM_tags_for_routing (link last checked: 22.08.08) //$NON-NLS-1$
+			onewaySet_ = true;
+			if(value.equals("yes") || value.equals("true") || value.equals("1")) isOneway_ = 1; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			else if(value.equals("-1")) isOneway_ = -1;	//nodes are in opposite direction! //$NON-NLS-1$
+			else isOneway_ = 0;
+		} else if (key.equals("lanes")){ //$NON-NLS-1$
+			try{
+				lanes_ = Integer.parseInt(value);
+				if(lanes_ == 0) lanes_ = 1;	//a street with no lane would be useless...
+				laneSet_ = true;
+			} catch (Exception e) {}
+		} else if (key.equals("junction")){ //$NON-NLS-1$
+			if(value.equals("roundabout")){ //$NON-NLS-1$
+				isRoundabout_ = true;
+			}
+		}
+	}
+
+	/**
+	 * Gets the name of the street.
+	 *
+	 * @return the name or an empty string if the way has no name
+	 */
+	public String getStreetName(){
+		return streetName_;
+	}
+
+	/**
+	 * Gets the highway type of the street.
+	 *
+	 * @return the type
+	 */
+	public String getStreetType(){
+		return streetType_;
+	}
+
+	/**
+	 * Gets the direction of the street.
+	 *
+	 * @return <code>0</code>=twoway-street, <code>1</code>=oneway in the order of the nodes, <code>-1</code>=oneway in the opposite order
+	 */
+	public int getOneway(){
+		return isOneway_;
+	}
+
+	/**
+	 * Checks if the way is a roundabout.
+	 *
+	 * @return <code>true</code> if the last node needs to be connected to the first one
+	 */
+	public boolean isRoundabout(){
+		return isRoundabout_;
+	}
+
+	/**
+	 * Gets the number of lanes in one direction.
+	 *
+	 * @return the lanes
+	 */
+	public int getLanes(){
+		return lanes_;
+	}
+
+	/**
+	 * Gets the color in which to paint the street.
+	 *
+	 * @return the color
+	 */
+	public Color getDisplayColor(){
+		return displayColor_;
+	}
+
+	/**
+	 * Gets the maximum speed.
+	 *
+	 * @return the speed in cm/s. If it's not positive, the way is probably not a street for cars.
+	 */
+	public int getMaxSpeed(){
+		return maxspeed_;
+	}
+}
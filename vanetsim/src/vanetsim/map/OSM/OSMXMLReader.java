@@ -0,0 +1,135 @@
+package vanetsim.map.OSM;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.Arrays;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+import vanetsim.ErrorLog;
+import vanetsim.localization.Messages;
+
+/**
+ * Reads OpenStreetMap XML files (version 0.5 or 0.6) with a streaming parser so that the file never needs to be in memory.
+ */
+final class OSMXMLReader implements OSMReader{
+
+	/**
+	 * Creates a reader for an OpenStreetMap XML file.
+	 *
+	 * @param stream	the stream of the file
+	 *
+	 * @return the reader
+	 *
+	 * @throws Exception	an exception if the reader can't be created
+	 */
+	private static XMLStreamReader createReader(FileInputStream stream) throws Exception{
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+		factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_VALIDATING, Boolean.FALSE);
+		return factory.createXMLStreamReader(stream);
+	}
+
+	/**
+	 * Checks if an element should be used.
+	 *
+	 * @param reader	the reader positioned on the start of the element
+	 *
+	 * @return <code>true</code> if the visible attribute is missing or not <code>false</code>
+	 */
+	private static boolean isVisible(XMLStreamReader reader){
+		String visible = reader.getAttributeValue(null, "visible"); //$NON-NLS-1$
+		return visible == null || !visible.equals("false"); //$NON-NLS-1$
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean readWays(File file, OSMImporter importer) throws Exception{
+		FileInputStream filestream = new FileInputStream(file);
+		XMLStreamReader sr = createReader(filestream);
+		try{
+			while(sr.hasNext() && sr.next() != XMLStreamConstants.START_ELEMENT);
+			if(!sr.isStartElement() || !sr.getLocalName().toLowerCase().equals("osm")) return false; //$NON-NLS-1$
+			String version = sr.getAttributeValue(null, "version"); //$NON-NLS-1$
+			if(!"0.5".equals(version) && !"0.6".equals(version)) return false;	// only accept version 0.5 and 0.6 because other versions might have changed XML syntax! //$NON-NLS-1$ //$NON-NLS-2$
+
+			OSMWayTags tags = new OSMWayTags();
+			long[] wayPoints = new long[256];
+			int wayPointCount = 0;
+			boolean inWay = false;
+			String name, key, value;
+			int event;
+			while(sr.hasNext()){
+				event = sr.next();
+				if(event == XMLStreamConstants.START_ELEMENT){
+					name = sr.getLocalName();
+					if(name.equals("way")){ //$NON-NLS-1$
+						inWay = isVisible(sr);
+						tags.reset();
+						wayPointCount = 0;
+					} else if(inWay){
+						if(name.equals("nd")){ //$NON-NLS-1$
+							try{
+								if(wayPointCount == wayPoints.length) wayPoints = Arrays.copyOf(wayPoints, wayPoints.length * 2);
+								wayPoints[wayPointCount] = Long.parseLong(sr.getAttributeValue(null, "ref")); //$NON-NLS-1$
+								++wayPointCount;
+							} catch (Exception e) {}
+						} else if(name.equals("tag")){ //$NON-NLS-1$
+							key = sr.getAttributeValue(null, "k"); //$NON-NLS-1$
+							value = sr.getAttributeValue(null, "v"); //$NON-NLS-1$
+							if(key != null && value != null) tags.addTag(key, value);
+						}
+					}
+				} else if(event == XMLStreamConstants.END_ELEMENT && inWay && sr.getLocalName().equals("way")){ //$NON-NLS-1$
+					inWay = false;
+					importer.addWay(tags, wayPoints, wayPointCount);
+				}
+			}
+			return true;
+		} finally {
+			sr.close();
+			filestream.close();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void readNodes(File file, OSMNodeTable nodes) throws Exception{
+		FileInputStream filestream = new FileInputStream(file);
+		XMLStreamReader sr = createReader(filestream);
+		try{
+			int current = -1, index, event;
+			String name, key;
+			while(sr.hasNext()){
+				event = sr.next();
+				if(event == XMLStreamConstants.START_ELEMENT){
+					name = sr.getLocalName();
+					if(name.equals("node")){ //$NON-NLS-1$
+						current = -1;
+						if(isVisible(sr)){
+							try{
+								index = nodes.get(Long.parseLong(sr.getAttributeValue(null, "id"))); //$NON-NLS-1$
+								if(index != -1){
+									nodes.setLocation(index, Double.parseDouble(sr.getAttributeValue(null, "lat")), Double.parseDouble(sr.getAttributeValue(null, "lon"))); //$NON-NLS-1$ //$NON-NLS-2$
+									current = index;
+								}
+							} catch (Exception e) {ErrorLog.log(Messages.getString("OSM_Loader.errorParsingNode"), 5, OSMXMLReader.class.getName(), "readNodes", e);} //$NON-NLS-1$ //$NON-NLS-2$
+						}
+					} else if(current != -1 && name.equals("tag")){ //$NON-NLS-1$
+						key = sr.getAttributeValue(null, "k"); //$NON-NLS-1$
+						if(key != null && key.toLowerCase().equals("highway") && "traffic_signals".equals(sr.getAttributeValue(null, "v"))) nodes.setTrafficSignal(current); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					}
+				} else if(event == XMLStreamConstants.END_ELEMENT && current != -1 && sr.getLocalName().equals("node")) current = -1; //$NON-NLS-1$
+			}
+		} finally {
+			sr.close();
+			filestream.close();
+		}
+	}
+}
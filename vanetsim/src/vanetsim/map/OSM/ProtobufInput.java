@@ -0,0 +1,211 @@
+package vanetsim.map.OSM;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * Decodes a <a href="https://developers.google.com/protocol-buffers/docs/encoding">Protocol Buffers</a> message from a byte
+ * array. Only the parts needed for the OpenStreetMap PBF format are supported. Embedded messages and packed fields are read
+ * through a new object on the same array so that nothing needs to be copied.
+ */
+final class ProtobufInput{
+
+	/** The wire type of varints. */
+	public static final int VARINT = 0;
+
+	/** The wire type of 64bit values. */
+	public static final int FIXED64 = 1;
+
+	/** The wire type of strings, embedded messages and packed fields. */
+	public static final int LENGTH_DELIMITED = 2;
+
+	/** The wire type of 32bit values. */
+	public static final int FIXED32 = 5;
+
+	/** The charset of all strings. */
+	private static final Charset CHARSET = Charset.forName("UTF-8"); //$NON-NLS-1$
+
+	/** The array with the message. */
+	private final byte[] buffer_;
+
+	/** The position of the next byte to read. */
+	private int position_;
+
+	/** The position after the last byte of the message. */
+	private final int limit_;
+
+	/**
+	 * Creates a new input.
+	 *
+	 * @param buffer	the array with the message
+	 * @param offset	the position of the first byte of the message
+	 * @param length	the length of the message
+	 */
+	public ProtobufInput(byte[] buffer, int offset, int length){
+		buffer_ = buffer;
+		position_ = offset;
+		limit_ = offset + length;
+	}
+
+	/**
+	 * Checks if there is anything left to read.
+	 *
+	 * @return <code>true</code> if the end of the message isn't reached yet
+	 */
+	public boolean hasMore(){
+		return position_ < limit_;
+	}
+
+	/**
+	 * Reads the key of the next field.
+	 *
+	 * @return the key (the field number shifted by three bits and the wire type in the lower three bits)
+	 *
+	 * @throws IOException	if the message is broken
+	 */
+	public int readTag() throws IOException{
+		return (int)readVarint();
+	}
+
+	/**
+	 * Reads a varint (for the types <code>int32</code>, <code>int64</code>, <code>uint32</code>, <code>uint64</code> and
+	 * <code>bool</code>).
+	 *
+	 * @return the value
+	 *
+	 * @throws IOException	if the message is broken
+	 */
+	public long readVarint() throws IOException{
+		long result = 0;
+		int b;
+		for(int shift = 0; shift < 64; shift += 7){
+			if(position_ >= limit_) throw new IOException("Truncated protobuf message"); //$NON-NLS-1$
+			b = buffer_[position_++];
+			result |= (long)(b & 0x7F) << shift;
+			if((b & 0x80) == 0) return result;
+		}
+		throw new IOException("Malformed protobuf varint"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Reads a zigzag encoded varint (for the types <code>sint32</code> and <code>sint64</code>).
+	 *
+	 * @return the value
+	 *
+	 * @throws IOException	if the message is broken
+	 */
+	public long readSignedVarint() throws IOException{
+		long value = readVarint();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Reads an embedded message or a packed field.
+	 *
+	 * @return an input for the content
+	 *
+	 * @throws IOException	if the message is broken
+	 */
+	public ProtobufInput readMessage() throws IOException{
+		int length = readLength();
+		ProtobufInput result = new ProtobufInput(buffer_, position_, length);
+		position_ += length;
+		return result;
+	}
+
+	/**
+	 * Reads a string.
+	 *
+	 * @return the string
+	 *
+	 * @throws IOException	if the message is broken
+	 */
+	public String readString() throws IOException{
+		int length = readLength();
+		String result = new String(buffer_, position_, length, CHARSET);
+		position_ += length;
+		return result;
+	}
+
+	/**
+	 * Skips a byte array. The bytes end at {@link #getPosition()} afterwards so that they can be used without copying them.
+	 *
+	 * @return the length of the bytes which have been skipped
+	 *
+	 * @throws IOException	if the message is broken
+	 */
+	public int skipBytes() throws IOException{
+		int length = readLength();
+		position_ += length;
+		return length;
+	}
+
+	/**
+	 * Gets the position of the next byte to read.
+	 *
+	 * @return the position in the array
+	 */
+	public int getPosition(){
+		return position_;
+	}
+
+	/**
+	 * Gets the array with the message.
+	 *
+	 * @return the array
+	 */
+	public byte[] getBuffer(){
+		return buffer_;
+	}
+
+	/**
+	 * Skips the value of a field which is not needed.
+	 *
+	 * @param tag	the key of the field
+	 *
+	 * @throws IOException	if the message is broken or the wire type is unknown
+	 */
+	public void skip(int tag) throws IOException{
+		switch(tag & 7){
+			case VARINT:
+				readVarint();
+				break;
+			case FIXED64:
+				skipFixed(8);
+				break;
+			case LENGTH_DELIMITED:
+				skipBytes();
+				break;
+			case FIXED32:
+				skipFixed(4);
+				break;
+			default:
+				throw new IOException("Unsupported protobuf wire type " + (tag & 7)); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Skips a value of fixed size.
+	 *
+	 * @param length	the size in bytes
+	 *
+	 * @throws IOException	if the message is broken
+	 */
+	private void skipFixed(int length) throws IOException{
+		if(limit_ - position_ < length) throw new IOException("Truncated protobuf message"); //$NON-NLS-1$
+		position_ += length;
+	}
+
+	/**
+	 * Reads the length of a length delimited field and checks that it fits into the message.
+	 *
+	 * @return the length
+	 *
+	 * @throws IOException	if the message is broken
+	 */
+	private int readLength() throws IOException{
+		long length = readVarint();
+		if(length < 0 || length > limit_ - position_) throw new IOException("Truncated protobuf message"); //$NON-NLS-1$
+		return (int)length;
+	}
+}
@@ -2,11 +2,10 @@ package vanetsim.map;
 
 import java.util.ArrayList;
 
-import vanetsim.gui.Renderer;
-import vanetsim.gui.helpers.PrivacyLogWriter;
+import vanetsim.PrivacyLogWriter;
 import vanetsim.scenario.Vehicle;
 import vanetsim.scenario.RSU;
-import vanetsim.simulation.WorkerThread;
+import vanetsim.simulation.SimulationEngine;
 
 /**
  * A region stores all objects in a specific part of the map. It stores streets, nodes and vehicles.
@@ -52,12 +51,6 @@ public final class Region{
 	/** The simulation requests an array for the vehicles which is cached here. */
 	private Vehicle[] vehiclesArray_;
 	
-	/** The worker thread this region is associated with. */
-	private WorkerThread thread_ = null;
-	
-	/** The number of this region in the worker thread. */
-	private int numberInThread_ = -1;
-
 	/** <code>true</code> to indicate that the vehicles have changed since the last call to getVehicleArray() */
 	private boolean vehiclesDirty_ = true;
 
@@ -169,8 +162,10 @@ public final class Region{
 	 * 
 	 * @param street the street to add
 	 * @param doCheck 	<code>true</code> if a check should be made if this street already exists; else <code>false</code> to skip the test
+	 * 
+	 * @return <code>true</code> if the street was added, <code>false</code> if the same street already exists in this region
 	 */
-	public void addStreet(Street street, boolean doCheck){
+	public boolean addStreet(Street street, boolean doCheck){
 		boolean foundstreet = false;
 		boolean createBridges = false;
 		if(Map.getInstance().getReadyState() == true) createBridges = true;
@@ -201,7 +196,9 @@ public final class Region{
 			System.arraycopy (streets_,0,newArray,0,streets_.length);
 			newArray[streets_.length] = street;
 			streets_ = newArray;
+			return true;
 		}
+		return false;
 	}
 	
 	
@@ -261,12 +258,10 @@ public final class Region{
 		if(doCheck){
 			if(!vehicles_.contains(vehicle)){
 				vehicles_.add(vehicle);
-				if(thread_ != null) thread_.addChangedRegion(numberInThread_);
 				vehiclesDirty_ = true;
 			}
 		} else {
 			vehicles_.add(vehicle);
-			if(thread_ != null) thread_.addChangedRegion(numberInThread_);
 			vehiclesDirty_ = true;
 		}
 	}
@@ -278,7 +273,6 @@ public final class Region{
 	 */
 	public synchronized void delVehicle(Vehicle vehicle){
 		vehicles_.remove(vehicle);
-		if(thread_ != null) thread_.addChangedRegion(numberInThread_);
 		vehiclesDirty_ = true;
 	}
 
@@ -305,13 +299,14 @@ public final class Region{
 	 * and what their priority streets are. Furthermore, mixing zones are generated.
 	 */
 	public void calculateJunctions(){
-		if(Renderer.getInstance().isAutoAddMixZones()) mixZoneNodes_ = new Node[0];
+		boolean autoAddMixZones = Map.getInstance().isAutoAddMixZones();
+		if(autoAddMixZones) mixZoneNodes_ = new Node[0];
 		
 		for(int i = 0; i < nodes_.length; ++i){
 			nodes_[i].calculateJunction();		
 			
 			//Mix zones are only added if autoAddMixZones is activated
-			if(Renderer.getInstance().isAutoAddMixZones()){
+			if(autoAddMixZones){
 				if(nodes_[i].getJunction() != null){
 					Node[] newArray = new Node[mixZoneNodes_.length+1];
 					System.arraycopy (mixZoneNodes_,0,newArray,0,mixZoneNodes_.length);
@@ -924,6 +919,26 @@ public final class Region{
 		return streets_;
 	}
 
+	/**
+	 * Replaces all nodes in this region without any checks. Only used when loading a map which already contains the nodes
+	 * of each region.
+	 * 
+	 * @param nodes	the nodes
+	 */
+	void setNodes(Node[] nodes){
+		nodes_ = nodes;
+	}
+
+	/**
+	 * Replaces all streets in this region without any checks. Only used when loading a map which already contains the streets
+	 * of each region.
+	 * 
+	 * @param streets	the streets
+	 */
+	void setStreets(Street[] streets){
+		streets_ = streets;
+	}
+
 	/**
 	 * Used to return the <code>ArrayList</code> of all vehicles. Note that it can not guaranteed, that no
 	 * changes are made after you received this.
@@ -951,17 +966,6 @@ public final class Region{
 		return vehiclesArray_;
 	}
 	
-	/**
-	 * Creates a backlink to the worker thread which computes this region.
-	 * 
-	 * @param thread			the thread
-	 * @param numberinThread	the number in the thread
-	 */
-	public void createBacklink(WorkerThread thread, int numberinThread){
-		thread_ = thread;
-		numberInThread_ = numberinThread;
-	}
-	
 	/**
 	 * Gets the coordinate of the left boundary of this region.
 	 * 
@@ -0,0 +1,298 @@
+package vanetsim.map;
+
+/**
+ * An immutable snapshot of the street network in compressed sparse row format which is used by the routing algorithms.
+ * Instead of following the references between {@link Node}s and {@link Street}s (which are scattered over the whole heap),
+ * the data needed for routing is stored in a few large arrays. Nodes are identified by their ID (see {@link Node#getNodeID()}).
+ * The edges going out from node <code>i</code> are stored at the positions <code>getEdgeStarts()[i]</code> to
+ * <code>getEdgeStarts()[i+1]</code> (exclusive) in the same order as {@link Node#getOutgoingStreets()}. So one-way streets
+ * only create an edge in their direction. A snapshot is created by {@link Map#getRoadGraph()} and never changed afterwards so it
+ * may be used by several threads at the same time. The arrays returned by the getters may not be modified!
+ */
+public final class RoadGraph{
+
+	/** The change count of the map at the time the snapshot was created. */
+	private final int changeCount_;
+
+	/** The nodes indexed by their ID. <code>null</code> if there's no node on the map with this ID. */
+	private final Node[] nodes_;
+
+	/** The x coordinates of the nodes. */
+	private final int[] nodeX_;
+
+	/** The y coordinates of the nodes. */
+	private final int[] nodeY_;
+
+	/** The first edge of each node. Contains one more element than there are nodes. */
+	private final int[] edgeStarts_;
+
+	/** The source node of each edge. */
+	private final int[] edgeSources_;
+
+	/** The target node of each edge. */
+	private final int[] edgeTargets_;
+
+	/** The length of each edge in cm. */
+	private final double[] edgeLengths_;
+
+	/** The speed of each edge in cm/s. */
+	private final int[] edgeSpeeds_;
+
+	/** The street of each edge. */
+	private final Street[] edgeStreets_;
+
+	/** <code>true</code> if an edge goes from the startNode to the endNode of its street. */
+	private final boolean[] edgeForward_;
+
+	/** The first incoming edge of each node in {@link #reverseEdges_}. */
+	private final int[] reverseStarts_;
+
+	/** The edges sorted by their target node. */
+	private final int[] reverseEdges_;
+
+	/**
+	 * Creates a snapshot of the street network of the map.
+	 *
+	 * @param map			the map
+	 * @param changeCount	the change count of the map
+	 */
+	RoadGraph(Map map, int changeCount){
+		changeCount_ = changeCount;
+		int nodeCount = Node.getMaxNodeID();
+		nodes_ = new Node[nodeCount];
+		nodeX_ = new int[nodeCount];
+		nodeY_ = new int[nodeCount];
+		Region[][] regions = map.getRegions();
+		Node[] regionNodes;
+		Node node, otherNode;
+		int i, j, k;
+		if(regions != null){
+			for(i = 0; i < regions.length; ++i){
+				for(j = 0; j < regions[i].length; ++j){
+					regionNodes = regions[i][j].getNodes();
+					for(k = 0; k < regionNodes.length; ++k){
+						node = regionNodes[k];
+						if(node.getNodeID() < nodeCount){
+							nodes_[node.getNodeID()] = node;
+							nodeX_[node.getNodeID()] = node.getX();
+							nodeY_[node.getNodeID()] = node.getY();
+						}
+					}
+				}
+			}
+		}
+
+		// count the edges so that the arrays can be created with the right size
+		edgeStarts_ = new int[nodeCount + 1];
+		reverseStarts_ = new int[nodeCount + 1];
+		Street[] outgoingStreets;
+		for(i = 0; i < nodeCount; ++i){
+			if(nodes_[i] == null) continue;
+			outgoingStreets = nodes_[i].getOutgoingStreets();
+			for(j = 0; j < outgoingStreets.length; ++j){
+				otherNode = getOtherNode(outgoingStreets[j], nodes_[i]);
+				if(otherNode == null) continue;
+				++edgeStarts_[i + 1];
+				++reverseStarts_[otherNode.getNodeID() + 1];
+			}
+		}
+		for(i = 0; i < nodeCount; ++i){
+			edgeStarts_[i + 1] += edgeStarts_[i];
+			reverseStarts_[i + 1] += reverseStarts_[i];
+		}
+		int edgeCount = edgeStarts_[nodeCount];
+		edgeSources_ = new int[edgeCount];
+		edgeTargets_ = new int[edgeCount];
+		edgeLengths_ = new double[edgeCount];
+		edgeSpeeds_ = new int[edgeCount];
+		edgeStreets_ = new Street[edgeCount];
+		edgeForward_ = new boolean[edgeCount];
+		reverseEdges_ = new int[edgeCount];
+		int[] reversePositions = reverseStarts_.clone();
+		Street street;
+		k = 0;
+		for(i = 0; i < nodeCount; ++i){
+			if(nodes_[i] == null) continue;
+			outgoingStreets = nodes_[i].getOutgoingStreets();
+			for(j = 0; j < outgoingStreets.length; ++j){
+				street = outgoingStreets[j];
+				otherNode = getOtherNode(street, nodes_[i]);
+				if(otherNode == null) continue;
+				edgeSources_[k] = i;
+				edgeTargets_[k] = otherNode.getNodeID();
+				edgeLengths_[k] = street.getLength();
+				edgeSpeeds_[k] = street.getSpeed();
+				edgeStreets_[k] = street;
+				edgeForward_[k] = (street.getStartNode() == nodes_[i]);
+				reverseEdges_[reversePositions[otherNode.getNodeID()]++] = k;
+				++k;
+			}
+		}
+	}
+
+	/**
+	 * Gets the node on the other end of a street. A street which starts and ends at the same node leads to this node again.
+	 *
+	 * @param street	the street
+	 * @param node		the node on this end
+	 *
+	 * @return the other node or <code>null</code> if it's not part of this snapshot
+	 */
+	private Node getOtherNode(Street street, Node node){
+		Node otherNode = street.getStartNode();
+		if(otherNode == node) otherNode = street.getEndNode();
+		if(otherNode.getNodeID() >= nodes_.length || nodes_[otherNode.getNodeID()] != otherNode) return null;
+		return otherNode;
+	}
+
+	/**
+	 * Gets the change count of the map at the time this snapshot was created.
+	 *
+	 * @return the change count
+	 *
+	 * @see Map#getChangeCount()
+	 */
+	public int getChangeCount(){
+		return changeCount_;
+	}
+
+	/**
+	 * Gets the amount of node IDs covered by this snapshot. All node arrays have this length.
+	 *
+	 * @return the amount of node IDs
+	 */
+	public int getNodeCount(){
+		return nodes_.length;
+	}
+
+	/**
+	 * Gets the amount of edges.
+	 *
+	 * @return the amount of edges
+	 */
+	public int getEdgeCount(){
+		return edgeTargets_.length;
+	}
+
+	/**
+	 * Checks if a node is part of this snapshot.
+	 *
+	 * @param node	the node
+	 *
+	 * @return <code>true</code> if the node is known
+	 */
+	public boolean contains(Node node){
+		int index = node.getNodeID();
+		return index < nodes_.length && nodes_[index] == node;
+	}
+
+	/**
+	 * Gets the nodes.
+	 *
+	 * @return the nodes (index is the node ID, <code>null</code> if there's no node with this ID)
+	 */
+	public Node[] getNodes(){
+		return nodes_;
+	}
+
+	/**
+	 * Gets the x coordinates of the nodes.
+	 *
+	 * @return the array (index is the node ID)
+	 */
+	public int[] getNodeX(){
+		return nodeX_;
+	}
+
+	/**
+	 * Gets the y coordinates of the nodes.
+	 *
+	 * @return the array (index is the node ID)
+	 */
+	public int[] getNodeY(){
+		return nodeY_;
+	}
+
+	/**
+	 * Gets the first edge of each node. The edges of node <code>i</code> are at the positions from
+	 * <code>getEdgeStarts()[i]</code> to <code>getEdgeStarts()[i+1]</code> (exclusive).
+	 *
+	 * @return the array
+	 */
+	public int[] getEdgeStarts(){
+		return edgeStarts_;
+	}
+
+	/**
+	 * Gets the source node of each edge.
+	 *
+	 * @return the array
+	 */
+	public int[] getEdgeSources(){
+		return edgeSources_;
+	}
+
+	/**
+	 * Gets the target node of each edge.
+	 *
+	 * @return the array
+	 */
+	public int[] getEdgeTargets(){
+		return edgeTargets_;
+	}
+
+	/**
+	 * Gets the length of each edge.
+	 *
+	 * @return the array with the lengths in cm
+	 */
+	public double[] getEdgeLengths(){
+		return edgeLengths_;
+	}
+
+	/**
+	 * Gets the speed of each edge.
+	 *
+	 * @return the array with the speeds in cm/s
+	 */
+	public int[] getEdgeSpeeds(){
+		return edgeSpeeds_;
+	}
+
+	/**
+	 * Gets the street of each edge.
+	 *
+	 * @return the array
+	 */
+	public Street[] getEdgeStreets(){
+		return edgeStreets_;
+	}
+
+	/**
+	 * Gets the direction of each edge on its street.
+	 *
+	 * @return the array. <code>true</code> if the edge goes from the startNode to the endNode of the street.
+	 */
+	public boolean[] getEdgeForward(){
+		return edgeForward_;
+	}
+
+	/**
+	 * Gets the first incoming edge of each node. The incoming edges of node <code>i</code> are at the positions from
+	 * <code>getReverseStarts()[i]</code> to <code>getReverseStarts()[i+1]</code> (exclusive) in {@link #getReverseEdges()}.
+	 *
+	 * @return the array
+	 */
+	public int[] getReverseStarts(){
+		return reverseStarts_;
+	}
+
+	/**
+	 * Gets the edges sorted by their target node.
+	 *
+	 * @return the array with the edge indices
+	 */
+	public int[] getReverseEdges(){
+		return reverseEdges_;
+	}
+}
@@ -0,0 +1,389 @@
+package vanetsim.map;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import vanetsim.scenario.RSU;
+import vanetsim.scenario.Vehicle;
+
+/**
+ * A uniform spatial hash for finding the vehicles and Road-Side-Units within communication distance. The map is divided
+ * into square cells with the size of the largest communication distance so that each radius query needs to check at most
+ * 3x3 cells. The cells are hashed into a table which is about twice as large as the amount of objects, so the memory
+ * doesn't depend on the size of the map.
+ * <p>
+ * The hash is rebuilt once per step by the {@link vanetsim.simulation.SimulationEngine} after the positions of the vehicles
+ * are fixed for the communication phases. The objects are sorted by their bucket (counting sort) so that all objects of a bucket
+ * are stored consecutively in one array. Queries return ranges of this array. Note that different cells may share a bucket
+ * so you still need to check the coordinates of the objects!
+ * <p>
+ * The position of each object in the sorted arrays is stored in the object (see {@link Vehicle#getSpatialHashIndex()}).
+ */
+public final class SpatialHash{
+
+	/** The maximum amount of ranges a query can return (3x3 cells). */
+	public static final int MAX_RANGES = 9;
+
+	/** An empty vehicle array. */
+	private static final Vehicle[] EMPTY_VEHICLES = new Vehicle[0];
+
+	/** An empty RSU array. */
+	private static final RSU[] EMPTY_RSUS = new RSU[0];
+
+	/** The only instance of this class (singleton). */
+	private static final SpatialHash INSTANCE = new SpatialHash();
+
+	/** Hashes of less objects are built without splitting the work. */
+	private static final int MIN_TASK_SIZE = 4096;
+
+	/** A buffer for the ranges of a query for each thread. */
+	private static final ThreadLocal<int[]> RANGES = new ThreadLocal<int[]>(){
+		protected int[] initialValue(){
+			return new int[MAX_RANGES * 2];
+		}
+	};
+
+	/** The size of a cell in cm. */
+	private int cellSize_ = 1;
+
+	/** The size of the vehicle table minus 1 (the size is a power of 2). */
+	private int vehicleMask_ = 0;
+
+	/** The first index in {@link #vehicles_} of each bucket. The last entry is the amount of vehicles. */
+	private int[] vehicleStarts_ = new int[2];
+
+	/** The vehicles sorted by bucket. */
+	private Vehicle[] vehicles_ = EMPTY_VEHICLES;
+
+	/** The x coordinates of the vehicles in {@link #vehicles_}. */
+	private int[] vehicleX_ = new int[0];
+
+	/** The y coordinates of the vehicles in {@link #vehicles_}. */
+	private int[] vehicleY_ = new int[0];
+
+	/** The bucket of each vehicle while building (in the order of the source array). */
+	private int[] vehicleBuckets_ = new int[0];
+
+	/** The size of the RSU table minus 1 (the size is a power of 2). */
+	private int rsuMask_ = 0;
+
+	/** The first index in {@link #rsus_} of each bucket. The last entry is the amount of RSUs. */
+	private int[] rsuStarts_ = new int[2];
+
+	/** The RSUs sorted by bucket. */
+	private RSU[] rsus_ = EMPTY_RSUS;
+
+	/**
+	 * Private constructor in order to disable instancing.
+	 */
+	private SpatialHash(){
+	}
+
+	/**
+	 * Gets the single instance of this spatial hash.
+	 *
+	 * @return single instance of this spatial hash
+	 */
+	public static SpatialHash getInstance(){
+		return INSTANCE;
+	}
+
+	/**
+	 * Gets a buffer for the ranges of a query which belongs to the current thread. Don't use it for nested queries!
+	 *
+	 * @return an array with <code>2 * MAX_RANGES</code> elements
+	 */
+	public static int[] getRangeBuffer(){
+		return RANGES.get();
+	}
+
+	/**
+	 * Removes all objects (for example if a new map is loaded).
+	 */
+	public void clear(){
+		vehicleMask_ = 0;
+		vehicleStarts_ = new int[2];
+		vehicles_ = EMPTY_VEHICLES;
+		vehicleX_ = new int[0];
+		vehicleY_ = new int[0];
+		vehicleBuckets_ = new int[0];
+		rsuMask_ = 0;
+		rsuStarts_ = new int[2];
+		rsus_ = EMPTY_RSUS;
+	}
+
+	/**
+	 * Rebuilds the hash. Only active vehicles with wifi are added. Don't call this while any query is running!
+	 *
+	 * @param vehicles	all vehicles
+	 * @param rsus		all Road-Side-Units
+	 * @param pool		the pool used to calculate the buckets in parallel or <code>null</code> to calculate everything in the current thread
+	 */
+	public void rebuild(Vehicle[] vehicles, RSU[] rsus, ForkJoinPool pool){
+		int i, maxDistance = 1;
+		Vehicle vehicle;
+		for(i = 0; i < vehicles.length; ++i){
+			vehicle = vehicles[i];
+			if(vehicle.getMaxCommDistance() > maxDistance && vehicle.isWiFiEnabled()) maxDistance = vehicle.getMaxCommDistance();
+		}
+		for(i = 0; i < rsus.length; ++i){
+			if(rsus[i].getWifiRadius() > maxDistance) maxDistance = rsus[i].getWifiRadius();
+		}
+		cellSize_ = maxDistance;
+
+		// vehicles: calculate the buckets in parallel and sort them through a counting sort
+		vehicleMask_ = getTableSize(vehicles.length) - 1;
+		if(vehicleStarts_.length != vehicleMask_ + 2) vehicleStarts_ = new int[vehicleMask_ + 2];
+		else for(i = 0; i < vehicleStarts_.length; ++i) vehicleStarts_[i] = 0;
+		if(vehicleBuckets_.length < vehicles.length) vehicleBuckets_ = new int[vehicles.length];
+		BucketTask task = new BucketTask(vehicles, vehicleBuckets_, vehicleMask_, 0, vehicles.length);
+		if(pool == null || vehicles.length <= MIN_TASK_SIZE) task.compute();
+		else pool.invoke(task);
+		int count = 0;
+		for(i = 0; i < vehicles.length; ++i){
+			if(vehicleBuckets_[i] >= 0){
+				++vehicleStarts_[vehicleBuckets_[i] + 1];
+				++count;
+			}
+		}
+		for(i = 1; i < vehicleStarts_.length; ++i) vehicleStarts_[i] += vehicleStarts_[i - 1];
+		Vehicle[] sortedVehicles = vehicles_;
+		if(sortedVehicles.length != count){
+			sortedVehicles = new Vehicle[count];
+			vehicleX_ = new int[count];
+			vehicleY_ = new int[count];
+		}
+		int[] positions = vehicleStarts_.clone();
+		for(i = 0; i < vehicles.length; ++i){
+			if(vehicleBuckets_[i] >= 0){
+				vehicle = vehicles[i];
+				vehicle.setSpatialHashIndex(positions[vehicleBuckets_[i]]);
+				vehicleX_[positions[vehicleBuckets_[i]]] = vehicle.getX();
+				vehicleY_[positions[vehicleBuckets_[i]]] = vehicle.getY();
+				sortedVehicles[positions[vehicleBuckets_[i]]++] = vehicle;
+			} else vehicles[i].setSpatialHashIndex(-1);
+		}
+		vehicles_ = sortedVehicles;
+
+		// RSUs: only few, so just do it here
+		rsuMask_ = getTableSize(rsus.length) - 1;
+		int[] rsuBuckets = new int[rsus.length];
+		rsuStarts_ = new int[rsuMask_ + 2];
+		for(i = 0; i < rsus.length; ++i){
+			rsuBuckets[i] = getBucket(rsus[i].getX() / cellSize_, rsus[i].getY() / cellSize_, rsuMask_);
+			++rsuStarts_[rsuBuckets[i] + 1];
+		}
+		for(i = 1; i < rsuStarts_.length; ++i) rsuStarts_[i] += rsuStarts_[i - 1];
+		RSU[] sortedRSUs = new RSU[rsus.length];
+		positions = rsuStarts_.clone();
+		for(i = 0; i < rsus.length; ++i){
+			rsus[i].setSpatialHashIndex(positions[rsuBuckets[i]]);
+			sortedRSUs[positions[rsuBuckets[i]]++] = rsus[i];
+		}
+		rsus_ = sortedRSUs;
+	}
+
+	/**
+	 * Gets the size of the cells. No object is farther away from another object it can communicate with.
+	 *
+	 * @return the size in cm
+	 */
+	public int getCellSize(){
+		return cellSize_;
+	}
+
+	/**
+	 * Gets all vehicles in the hash sorted by bucket. Use together with {@link #getVehicleRanges(int, int, int, int, int[])}.
+	 *
+	 * @return the vehicles
+	 */
+	public Vehicle[] getVehicles(){
+		return vehicles_;
+	}
+
+	/**
+	 * Gets the x coordinates of the vehicles in {@link #getVehicles()} at the time of the last rebuild.
+	 *
+	 * @return the x coordinates
+	 */
+	public int[] getVehicleX(){
+		return vehicleX_;
+	}
+
+	/**
+	 * Gets the y coordinates of the vehicles in {@link #getVehicles()} at the time of the last rebuild.
+	 *
+	 * @return the y coordinates
+	 */
+	public int[] getVehicleY(){
+		return vehicleY_;
+	}
+
+	/**
+	 * Gets the ranges in the array of {@link #getVehicles()} which contain all vehicles within a rectangle. The rectangle may not be
+	 * larger than twice the largest communication distance in each dimension.
+	 *
+	 * @param minX		the minimum x coordinate
+	 * @param minY		the minimum y coordinate
+	 * @param maxX		the maximum x coordinate
+	 * @param maxY		the maximum y coordinate
+	 * @param ranges	an array with at least <code>2 * MAX_RANGES</code> elements. The ranges are stored as pairs of the first (inclusive)
+	 * 					and last (exclusive) index.
+	 *
+	 * @return how many values were stored in <code>ranges</code> (two for each range)
+	 */
+	public int getVehicleRanges(int minX, int minY, int maxX, int maxY, int[] ranges){
+		return getRanges(minX, minY, maxX, maxY, vehicleStarts_, vehicleMask_, vehicles_.length, ranges);
+	}
+
+	/**
+	 * Gets all Road-Side-Units in the hash sorted by bucket. Use together with {@link #getRSURanges(int, int, int, int, int[])}.
+	 *
+	 * @return the Road-Side-Units
+	 */
+	public RSU[] getRSUs(){
+		return rsus_;
+	}
+
+	/**
+	 * Gets the ranges in the array of {@link #getRSUs()} which contain all Road-Side-Units within a rectangle. The rectangle may not be
+	 * larger than twice the largest communication distance in each dimension.
+	 *
+	 * @param minX		the minimum x coordinate
+	 * @param minY		the minimum y coordinate
+	 * @param maxX		the maximum x coordinate
+	 * @param maxY		the maximum y coordinate
+	 * @param ranges	an array with at least <code>2 * MAX_RANGES</code> elements
+	 *
+	 * @return how many values were stored in <code>ranges</code> (two for each range)
+	 */
+	public int getRSURanges(int minX, int minY, int maxX, int maxY, int[] ranges){
+		return getRanges(minX, minY, maxX, maxY, rsuStarts_, rsuMask_, rsus_.length, ranges);
+	}
+
+	/**
+	 * Gets the ranges of all buckets which contain cells within a rectangle. Each bucket is only returned once.
+	 *
+	 * @param minX		the minimum x coordinate
+	 * @param minY		the minimum y coordinate
+	 * @param maxX		the maximum x coordinate
+	 * @param maxY		the maximum y coordinate
+	 * @param starts	the first index of each bucket
+	 * @param mask		the size of the table minus 1
+	 * @param size		the amount of objects
+	 * @param ranges	the array for the result
+	 *
+	 * @return how many values were stored in <code>ranges</code>
+	 */
+	private int getRanges(int minX, int minY, int maxX, int maxY, int[] starts, int mask, int size, int[] ranges){
+		int cellMinX = minX / cellSize_, cellMaxX = maxX / cellSize_, cellMinY = minY / cellSize_, cellMaxY = maxY / cellSize_;
+		if((cellMaxX - cellMinX + 1) * (cellMaxY - cellMinY + 1) > MAX_RANGES){	// rectangle too large: return everything
+			ranges[0] = 0;
+			ranges[1] = size;
+			return 2;
+		}
+		int count = 0, bucket, i, j, k;
+		for(i = cellMinX; i <= cellMaxX; ++i){
+			for(j = cellMinY; j <= cellMaxY; ++j){
+				bucket = getBucket(i, j, mask);
+				if(starts[bucket] == starts[bucket + 1]) continue;	// empty
+				for(k = 0; k < count; k += 2){
+					if(ranges[k] == starts[bucket]) break;	// same bucket already added
+				}
+				if(k == count){
+					ranges[count] = starts[bucket];
+					ranges[count + 1] = starts[bucket + 1];
+					count += 2;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Gets the table size for an amount of objects.
+	 *
+	 * @param objects	the amount of objects
+	 *
+	 * @return the smallest power of 2 which is at least twice the amount of objects (at least 16)
+	 */
+	private static int getTableSize(int objects){
+		int size = 16;
+		while(size < objects * 2 && size < (1 << 30)) size <<= 1;
+		return size;
+	}
+
+	/**
+	 * Gets the bucket of a cell.
+	 *
+	 * @param cellX	the x position of the cell
+	 * @param cellY	the y position of the cell
+	 * @param mask	the size of the table minus 1
+	 *
+	 * @return the bucket
+	 */
+	private static int getBucket(int cellX, int cellY, int mask){
+		int hash = cellX * 0x9E3779B1 + cellY * 0x85EBCA77;
+		hash ^= hash >>> 15;
+		return hash & mask;
+	}
+
+	/**
+	 * Calculates the buckets of a range of vehicles. Inactive vehicles and vehicles without wifi get the bucket <code>-1</code>.
+	 */
+	private final class BucketTask extends RecursiveAction{
+
+		/** The <code>serialVersionUID</code> needed because <code>RecursiveAction</code> is serializable. */
+		private static final long serialVersionUID = -3147429711928236107L;
+
+		/** The vehicles. */
+		private final Vehicle[] vehicles_;
+
+		/** The array for the buckets. */
+		private final int[] buckets_;
+
+		/** The size of the table minus 1. */
+		private final int mask_;
+
+		/** The first index (inclusive). */
+		private final int from_;
+
+		/** The last index (exclusive). */
+		private final int to_;
+
+		/**
+		 * Creates a new task.
+		 *
+		 * @param vehicles	the vehicles
+		 * @param buckets	the array for the buckets
+		 * @param mask		the size of the table minus 1
+		 * @param from		the first index (inclusive)
+		 * @param to		the last index (exclusive)
+		 */
+		public BucketTask(Vehicle[] vehicles, int[] buckets, int mask, int from, int to){
+			vehicles_ = vehicles;
+			buckets_ = buckets;
+			mask_ = mask;
+			from_ = from;
+			to_ = to;
+		}
+
+		/**
+		 * Calculates the buckets or splits the range in two halves.
+		 */
+		protected void compute(){
+			if(to_ - from_ <= MIN_TASK_SIZE){
+				int cellSize = cellSize_;
+				Vehicle vehicle;
+				for(int i = from_; i < to_; ++i){
+					vehicle = vehicles_[i];
+					if(vehicle.isWiFiEnabled() && vehicle.isActive()) buckets_[i] = getBucket(vehicle.getX() / cellSize, vehicle.getY() / cellSize, mask_);
+					else buckets_[i] = -1;
+				}
+			} else {
+				int middle = (from_ + to_) >>> 1;
+				invokeAll(new BucketTask(vehicles_, buckets_, mask_, from_, middle), new BucketTask(vehicles_, buckets_, mask_, middle, to_));
+			}
+		}
+	}
+}
@@ -23,7 +23,7 @@ public final class Street {
 	private final double yFactor_;
 	
 	/** The region this street is primarily assigned to. */
-	private final Region mainRegion_;
+	private Region mainRegion_;
 	
 	/** The lane from startNode to endNode. */
 	private final LaneContainer startToEndLane_ = new LaneContainer(true);
@@ -413,6 +413,15 @@ public final class Street {
 		return mainRegion_;
 	}
 	
+	/**
+	 * Sets the region to which this street is primarily assigned to. Used when the regions of the map are created again.
+	 * 
+	 * @param mainRegion	the region
+	 */
+	void setMainRegion(Region mainRegion){
+		mainRegion_ = mainRegion;
+	}
+	
 	/**
 	 * Sets the name of this street.
 	 * 
@@ -0,0 +1,437 @@
+package vanetsim.map;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * An R-tree over the streets of the map for finding the streets near a point without checking all streets of the regions.
+ * The tree is bulk-loaded with the Sort-Tile-Recursive algorithm (see Leutenegger et al.: "STR: A Simple and Efficient
+ * Algorithm for R-Tree Packing", 1997): the bounding boxes of one level are sorted into vertical slices by their x
+ * coordinate and each slice by the y coordinate, then consecutive boxes are packed into the nodes of the next level. The tree
+ * is stored in arrays per level and never changed.
+ * <p>
+ * Streets which are added or deleted afterwards (for example in the editor) are kept in a small list next to the packed tree
+ * (see {@link #withStreet(Street)} and {@link #withoutStreet(Street)}) because they would spoil the packing. When this list
+ * gets too long, the tree needs to be loaded again. A tree is created and maintained by {@link Map#getStreetTree()}. As all
+ * changes create a new object, a tree may be used by several threads at the same time.
+ * <p>
+ * All distances are calculated with {@link MapHelper#calculateDistancePointToStreet(Street, int, int, boolean, int[])} so they are
+ * exactly the same as when checking the streets one by one.
+ */
+public final class StreetTree{
+
+	/** The maximum amount of children of a node. */
+	private static final int NODE_CAPACITY = 16;
+
+	/** The maximum amount of streets added or deleted after the tree was loaded. */
+	private static final int MAX_CHANGES = 256;
+
+	/** An empty street array. */
+	private static final Street[] EMPTY_STREETS = new Street[0];
+
+	/** The streets in the order of the lowest level of the tree. */
+	private final Street[] streets_;
+
+	/** The bounding boxes of each level (minimum x, minimum y, maximum x, maximum y for each entry). Level 0 are the streets. The last level only contains the root. */
+	private final int[][] bounds_;
+
+	/** The children of each node in the level below (first and last+1 for each entry). Not used for level 0. */
+	private final int[][] children_;
+
+	/** The streets added after the tree was loaded. */
+	private final Street[] added_;
+
+	/** The streets of the packed tree deleted after it was loaded. */
+	private final Street[] deleted_;
+
+	/**
+	 * Loads a new tree.
+	 *
+	 * @param streets	all streets. Each street may only be contained once!
+	 */
+	public StreetTree(Street[] streets){
+		int count = streets.length;
+		int[] bounds = new int[count * 4];
+		for(int i = 0; i < count; ++i) setBounds(bounds, i, streets[i]);
+		int[] order = sortTiles(bounds, count);
+		streets_ = new Street[count];
+		for(int i = 0; i < count; ++i) streets_[i] = streets[order[i]];
+		bounds = reorder(bounds, order, 4);
+
+		ArrayList<int[]> levelBounds = new ArrayList<int[]>();
+		ArrayList<int[]> levelChildren = new ArrayList<int[]>();
+		levelBounds.add(bounds);
+		levelChildren.add(null);
+		while(count > 1){		// pack each level into the next one until only the root is left
+			int parentCount = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+			int[] parentBounds = new int[parentCount * 4];
+			int[] parentChildren = new int[parentCount * 2];
+			for(int i = 0; i < parentCount; ++i){
+				int first = i * NODE_CAPACITY, last = Math.min(count, first + NODE_CAPACITY);
+				parentChildren[i * 2] = first;
+				parentChildren[i * 2 + 1] = last;
+				parentBounds[i * 4] = Integer.MAX_VALUE;
+				parentBounds[i * 4 + 1] = Integer.MAX_VALUE;
+				parentBounds[i * 4 + 2] = Integer.MIN_VALUE;
+				parentBounds[i * 4 + 3] = Integer.MIN_VALUE;
+				for(int j = first; j < last; ++j){
+					parentBounds[i * 4] = Math.min(parentBounds[i * 4], bounds[j * 4]);
+					parentBounds[i * 4 + 1] = Math.min(parentBounds[i * 4 + 1], bounds[j * 4 + 1]);
+					parentBounds[i * 4 + 2] = Math.max(parentBounds[i * 4 + 2], bounds[j * 4 + 2]);
+					parentBounds[i * 4 + 3] = Math.max(parentBounds[i * 4 + 3], bounds[j * 4 + 3]);
+				}
+			}
+			if(parentCount > 1){	// the nodes of the next level are sorted again so that they are packed well, too
+				order = sortTiles(parentBounds, parentCount);
+				parentBounds = reorder(parentBounds, order, 4);
+				parentChildren = reorder(parentChildren, order, 2);
+			}
+			levelBounds.add(parentBounds);
+			levelChildren.add(parentChildren);
+			bounds = parentBounds;
+			count = parentCount;
+		}
+		bounds_ = levelBounds.toArray(new int[levelBounds.size()][]);
+		children_ = levelChildren.toArray(new int[levelChildren.size()][]);
+		added_ = EMPTY_STREETS;
+		deleted_ = EMPTY_STREETS;
+	}
+
+	/**
+	 * Creates a tree which shares the packed levels of another tree.
+	 *
+	 * @param tree		the other tree
+	 * @param added		the streets added after loading
+	 * @param deleted	the streets of the packed tree deleted after loading
+	 */
+	private StreetTree(StreetTree tree, Street[] added, Street[] deleted){
+		streets_ = tree.streets_;
+		bounds_ = tree.bounds_;
+		children_ = tree.children_;
+		added_ = added;
+		deleted_ = deleted;
+	}
+
+	/**
+	 * Loads a new tree with all streets of the map.
+	 *
+	 * @param regions	the regions of the map
+	 *
+	 * @return the tree
+	 */
+	static StreetTree create(Region[][] regions){
+		IdentityHashMap<Street, Boolean> found = new IdentityHashMap<Street, Boolean>();
+		ArrayList<Street> streets = new ArrayList<Street>();
+		Street[] regionStreets;
+		for(int i = 0; i < regions.length; ++i){
+			for(int j = 0; j < regions[i].length; ++j){
+				regionStreets = regions[i][j].getStreets();
+				for(int k = 0; k < regionStreets.length; ++k){		// streets crossing several regions are in all of them
+					if(found.put(regionStreets[k], Boolean.TRUE) == null) streets.add(regionStreets[k]);
+				}
+			}
+		}
+		return new StreetTree(streets.toArray(new Street[streets.size()]));
+	}
+
+	/**
+	 * Gets a tree which additionally contains a street.
+	 *
+	 * @param street	the new street
+	 *
+	 * @return the new tree or <code>null</code> if the tree should be loaded again because of too many changes
+	 */
+	public StreetTree withStreet(Street street){
+		if(added_.length + deleted_.length >= MAX_CHANGES) return null;
+		Street[] added = Arrays.copyOf(added_, added_.length + 1);
+		added[added_.length] = street;
+		return new StreetTree(this, added, deleted_);
+	}
+
+	/**
+	 * Gets a tree which doesn't contain a street anymore.
+	 *
+	 * @param street	the deleted street
+	 *
+	 * @return the new tree or <code>null</code> if the tree should be loaded again because of too many changes
+	 */
+	public StreetTree withoutStreet(Street street){
+		for(int i = 0; i < added_.length; ++i){
+			if(added_[i] == street){	// was added later so simply remove it from the list again
+				Street[] added = new Street[added_.length - 1];
+				System.arraycopy(added_, 0, added, 0, i);
+				System.arraycopy(added_, i + 1, added, i, added_.length - i - 1);
+				return new StreetTree(this, added, deleted_);
+			}
+		}
+		if(added_.length + deleted_.length >= MAX_CHANGES) return null;
+		Street[] deleted = Arrays.copyOf(deleted_, deleted_.length + 1);
+		deleted[deleted_.length] = street;
+		return new StreetTree(this, added_, deleted);
+	}
+
+	/**
+	 * Gets the amount of streets in the tree.
+	 *
+	 * @return the amount
+	 */
+	public int size(){
+		return streets_.length - deleted_.length + added_.length;
+	}
+
+	/**
+	 * Finds all streets which are nearer than a maximum distance to a point.
+	 *
+	 * @param x				the x coordinate of the point
+	 * @param y				the y coordinate of the point
+	 * @param maxDistance	the maximum distance (exclusive)
+	 * @param result		a list to which the streets are added (in no special order)
+	 */
+	public void findStreets(int x, int y, int maxDistance, ArrayList<Street> result){
+		long maxDistanceSquared = (long)maxDistance * maxDistance;
+		int[] point = new int[2];
+		if(streets_.length > 0) findStreets(bounds_.length - 1, 0, x, y, maxDistanceSquared, point, result);
+		for(int i = 0; i < added_.length; ++i){
+			if(MapHelper.calculateDistancePointToStreet(added_[i], x, y, false, point) < maxDistanceSquared) result.add(added_[i]);
+		}
+	}
+
+	/**
+	 * Checks an entry of the tree and all entries below it for {@link #findStreets(int, int, int, ArrayList)}.
+	 *
+	 * @param level					the level of the entry
+	 * @param index					the index of the entry in the level
+	 * @param x						the x coordinate of the point
+	 * @param y						the y coordinate of the point
+	 * @param maxDistanceSquared	the squared maximum distance (exclusive)
+	 * @param point					a buffer for the nearest point on a street
+	 * @param result				the list for the result
+	 */
+	private void findStreets(int level, int index, int x, int y, long maxDistanceSquared, int[] point, ArrayList<Street> result){
+		if(getDistanceToBounds(bounds_[level], index, x, y) >= maxDistanceSquared) return;
+		if(level == 0){
+			if(!isDeleted(streets_[index]) && MapHelper.calculateDistancePointToStreet(streets_[index], x, y, false, point) < maxDistanceSquared) result.add(streets_[index]);
+		} else {
+			for(int i = children_[level][index * 2], last = children_[level][index * 2 + 1]; i < last; ++i) findStreets(level - 1, i, x, y, maxDistanceSquared, point, result);
+		}
+	}
+
+	/**
+	 * Finds the streets nearest to a point. If several streets have the same distance as the last one, all of them are returned
+	 * so that the caller can decide which one to use.
+	 *
+	 * @param x				the x coordinate of the point
+	 * @param y				the y coordinate of the point
+	 * @param maxDistance	the maximum distance (exclusive); use <code>Integer.MAX_VALUE</code> to get the nearest streets in any distance
+	 * @param count			how many streets to find
+	 * @param result		a list to which the streets are added, ordered by their distance. Might contain less than
+	 * 						<code>count</code> streets if there are not enough streets within <code>maxDistance</code>.
+	 */
+	public void findNearestStreets(int x, int y, int maxDistance, int count, ArrayList<Street> result){
+		NearestStreets nearest = new NearestStreets(count, (long)maxDistance * maxDistance);
+		int[] point = new int[2];
+		if(streets_.length > 0) findNearestStreets(bounds_.length - 1, 0, x, y, point, new long[bounds_.length][NODE_CAPACITY], nearest);
+		for(int i = 0; i < added_.length; ++i) nearest.add(added_[i], MapHelper.calculateDistancePointToStreet(added_[i], x, y, false, point));
+		for(int i = 0; i < nearest.size_; ++i) result.add(nearest.streets_[i]);
+	}
+
+	/**
+	 * Checks an entry of the tree and all entries below it for {@link #findNearestStreets(int, int, int, int, ArrayList)}. The
+	 * children are checked in the order of their distance so that the search range shrinks as fast as possible.
+	 *
+	 * @param level		the level of the entry
+	 * @param index		the index of the entry in the level
+	 * @param x			the x coordinate of the point
+	 * @param y			the y coordinate of the point
+	 * @param point		a buffer for the nearest point on a street
+	 * @param buffers	a buffer for sorting the children on each level
+	 * @param nearest	the streets found so far
+	 */
+	private void findNearestStreets(int level, int index, int x, int y, int[] point, long[][] buffers, NearestStreets nearest){
+		if(level == 0){
+			if(!isDeleted(streets_[index])) nearest.add(streets_[index], MapHelper.calculateDistancePointToStreet(streets_[index], x, y, false, point));
+			return;
+		}
+		int first = children_[level][index * 2], last = children_[level][index * 2 + 1], childCount = 0, j;
+		long[] children = buffers[level];
+		long distance, key;
+		for(int i = first; i < last; ++i){
+			distance = getDistanceToBounds(bounds_[level - 1], i, x, y);
+			if(!nearest.isInRange((double)distance)) continue;
+			key = (Math.min(distance, Long.MAX_VALUE >> 5) << 4) | (i - first);		// sort by distance, NODE_CAPACITY fits into the lower 4 bits
+			for(j = childCount; j > 0 && children[j - 1] > key; --j) children[j] = children[j - 1];		// insertion sort is fastest for so few children
+			children[j] = key;
+			++childCount;
+		}
+		for(int i = 0; i < childCount; ++i){
+			if(!nearest.isInRange((double)(children[i] >> 4))) break;
+			findNearestStreets(level - 1, first + (int)(children[i] & 15), x, y, point, buffers, nearest);
+		}
+	}
+
+	/**
+	 * Checks if a street of the packed tree was deleted.
+	 *
+	 * @param street	the street
+	 *
+	 * @return <code>true</code> if it was deleted, else <code>false</code>
+	 */
+	private boolean isDeleted(Street street){
+		for(int i = 0; i < deleted_.length; ++i){
+			if(deleted_[i] == street) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Calculates the squared distance between a point and a bounding box.
+	 *
+	 * @param bounds	the bounding boxes of a level
+	 * @param index		the index of the box in the level
+	 * @param x			the x coordinate of the point
+	 * @param y			the y coordinate of the point
+	 *
+	 * @return the squared distance or <code>0</code> if the point is inside the box
+	 */
+	private static long getDistanceToBounds(int[] bounds, int index, int x, int y){
+		long dx = 0, dy = 0;
+		if(x < bounds[index * 4]) dx = (long)bounds[index * 4] - x;
+		else if(x > bounds[index * 4 + 2]) dx = (long)x - bounds[index * 4 + 2];
+		if(y < bounds[index * 4 + 1]) dy = (long)bounds[index * 4 + 1] - y;
+		else if(y > bounds[index * 4 + 3]) dy = (long)y - bounds[index * 4 + 3];
+		return dx * dx + dy * dy;
+	}
+
+	/**
+	 * Stores the bounding box of a street.
+	 *
+	 * @param bounds	the array for the bounding boxes
+	 * @param index		the index of the box
+	 * @param street	the street
+	 */
+	private static void setBounds(int[] bounds, int index, Street street){
+		int x1 = street.getStartNode().getX(), y1 = street.getStartNode().getY();
+		int x2 = street.getEndNode().getX(), y2 = street.getEndNode().getY();
+		bounds[index * 4] = Math.min(x1, x2);
+		bounds[index * 4 + 1] = Math.min(y1, y2);
+		bounds[index * 4 + 2] = Math.max(x1, x2);
+		bounds[index * 4 + 3] = Math.max(y1, y2);
+	}
+
+	/**
+	 * Sorts bounding boxes into tiles: first into vertical slices by the x coordinate of their center, then each slice by
+	 * the y coordinate of the center. Consecutive boxes in the result are near each other.
+	 *
+	 * @param bounds	the bounding boxes
+	 * @param count		the amount of boxes
+	 *
+	 * @return the indices of the boxes in the sorted order
+	 */
+	private static int[] sortTiles(int[] bounds, int count){
+		long[] keys = new long[count];
+		for(int i = 0; i < count; ++i) keys[i] = ((long)(int)(((long)bounds[i * 4] + bounds[i * 4 + 2]) >> 1) << 32) | i;	// center in the upper bits, index in the lower bits
+		Arrays.sort(keys);
+		int nodeCount = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+		int sliceSize = (int)Math.ceil(Math.sqrt(nodeCount)) * NODE_CAPACITY;
+		int index;
+		for(int first = 0; first < count; first += sliceSize){
+			int last = Math.min(count, first + sliceSize);
+			for(int i = first; i < last; ++i){
+				index = (int)keys[i];
+				keys[i] = ((long)(int)(((long)bounds[index * 4 + 1] + bounds[index * 4 + 3]) >> 1) << 32) | index;
+			}
+			Arrays.sort(keys, first, last);
+		}
+		int[] order = new int[count];
+		for(int i = 0; i < count; ++i) order[i] = (int)keys[i];
+		return order;
+	}
+
+	/**
+	 * Reorders the entries of an array.
+	 *
+	 * @param values	the values with <code>width</code> elements per entry
+	 * @param order		the old index of each new entry
+	 * @param width		the amount of elements per entry
+	 *
+	 * @return the reordered values
+	 */
+	private static int[] reorder(int[] values, int[] order, int width){
+		int[] result = new int[values.length];
+		for(int i = 0; i < order.length; ++i) System.arraycopy(values, order[i] * width, result, i * width, width);
+		return result;
+	}
+
+	/**
+	 * The nearest streets found so far in a query, ordered by their distance.
+	 */
+	private static final class NearestStreets{
+
+		/** How many streets are searched. */
+		private final int count_;
+
+		/** The squared maximum distance (exclusive). */
+		private final long maxDistanceSquared_;
+
+		/** The streets. */
+		private Street[] streets_;
+
+		/** The squared distances of the streets. */
+		private double[] distances_;
+
+		/** The amount of streets. Might be more than {@link #count_} if the last streets have the same distance. */
+		private int size_ = 0;
+
+		/**
+		 * Creates an empty result.
+		 *
+		 * @param count					how many streets are searched
+		 * @param maxDistanceSquared	the squared maximum distance (exclusive)
+		 */
+		public NearestStreets(int count, long maxDistanceSquared){
+			count_ = Math.max(1, count);
+			maxDistanceSquared_ = maxDistanceSquared;
+			streets_ = new Street[count_ + 1];
+			distances_ = new double[count_ + 1];
+		}
+
+		/**
+		 * Checks if a street in some distance could still be part of the result.
+		 *
+		 * @param distance	the squared distance
+		 *
+		 * @return <code>true</code> if it could be part of the result
+		 */
+		public boolean isInRange(double distance){
+			if(distance >= maxDistanceSquared_) return false;
+			return size_ < count_ || distance <= distances_[count_ - 1];
+		}
+
+		/**
+		 * Adds a street if it's near enough.
+		 *
+		 * @param street	the street
+		 * @param distance	the squared distance of the street
+		 */
+		public void add(Street street, double distance){
+			if(!isInRange(distance)) return;
+			if(size_ == streets_.length){
+				streets_ = Arrays.copyOf(streets_, size_ * 2);
+				distances_ = Arrays.copyOf(distances_, size_ * 2);
+			}
+			int i = size_;
+			while(i > 0 && distances_[i - 1] > distance){		// insertion sort, streets with the same distance stay in the order they were found
+				streets_[i] = streets_[i - 1];
+				distances_[i] = distances_[i - 1];
+				--i;
+			}
+			streets_[i] = street;
+			distances_[i] = distance;
+			++size_;
+			if(size_ > count_){		// only keep streets with the same distance as the last wanted one
+				while(size_ > count_ && distances_[size_ - 1] > distances_[count_ - 1]) --size_;
+			}
+		}
+	}
+}
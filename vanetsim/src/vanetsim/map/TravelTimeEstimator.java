@@ -0,0 +1,240 @@
+package vanetsim.map;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import vanetsim.scenario.LaneObject;
+
+/**
+ * Estimates the current speed on each edge of the {@link RoadGraph} from the objects on the lanes of the streets. Without this
+ * estimation, the time based routing only uses the maximum speeds of the streets so that all vehicles use the same "fast" streets
+ * even if they are jammed.
+ * <p>
+ * The {@link vanetsim.simulation.SimulationEngine} calls {@link #update(int, ForkJoinPool)} after each step. All
+ * <code>updateInterval</code> milliseconds, the average speed of the objects in each direction of each street is calculated
+ * in parallel. Each task writes its own range of a new array so that no locks are necessary. To avoid that single slow vehicles
+ * change the routes too much, the new value is smoothed with the last estimation. Empty streets slowly return to their maximum
+ * speed. The estimated speeds are never larger than the maximum speed of a street so that the heuristics of the routing algorithms
+ * still underestimate the costs.
+ * <p>
+ * The result is published as a new array with a new version number. A published array is never changed afterwards so that the
+ * routing algorithms can read it without synchronization while the next estimation is calculated.
+ */
+public final class TravelTimeEstimator{
+
+	/** The only instance of this class (singleton). */
+	private static final TravelTimeEstimator INSTANCE = new TravelTimeEstimator();
+
+	/** Ranges with less edges are calculated without splitting the work. */
+	private static final int MIN_TASK_SIZE = 4096;
+
+	/** The lowest estimated speed in cm/s (so that blocked streets don't get infinite costs). */
+	private static final int MIN_SPEED = 100;
+
+	/** How much a new observation changes the estimated speed (between <code>0</code> and <code>1</code>). */
+	private static final double SMOOTHING = 0.5;
+
+	/** The time in milliseconds between two estimations. <code>0</code> disables the estimation. */
+	private volatile int updateInterval_ = 0;
+
+	/** The simulation time of the last estimation in milliseconds. */
+	private int lastUpdate_ = -1;
+
+	/** The current estimation or <code>null</code> if nothing has been estimated yet. */
+	private volatile Estimation estimation_ = null;
+
+	/** The version of the current estimation. Changes each time a new estimation is published or the estimation is removed. */
+	private volatile int version_ = 0;
+
+	/**
+	 * Private constructor in order to disable instancing.
+	 */
+	private TravelTimeEstimator(){
+	}
+
+	/**
+	 * Gets the single instance of this estimator.
+	 *
+	 * @return single instance of this estimator
+	 */
+	public static TravelTimeEstimator getInstance(){
+		return INSTANCE;
+	}
+
+	/**
+	 * Sets the time between two estimations. Setting <code>0</code> disables the estimation and removes the current one so
+	 * that the routing uses the maximum speeds of the streets again.
+	 *
+	 * @param updateInterval	the interval in milliseconds
+	 */
+	public synchronized void setUpdateInterval(int updateInterval){
+		if(updateInterval < 0) updateInterval = 0;
+		updateInterval_ = updateInterval;
+		if(updateInterval == 0) reset();
+	}
+
+	/**
+	 * Gets the time between two estimations.
+	 *
+	 * @return the interval in milliseconds. <code>0</code> if the estimation is disabled.
+	 */
+	public int getUpdateInterval(){
+		return updateInterval_;
+	}
+
+	/**
+	 * Removes the current estimation (for example if a new simulation is started).
+	 */
+	public synchronized void reset(){
+		lastUpdate_ = -1;
+		if(estimation_ != null){
+			estimation_ = null;
+			++version_;
+		}
+	}
+
+	/**
+	 * Gets the version of the current estimation. The version changes each time the estimated speeds change.
+	 *
+	 * @return the version
+	 */
+	public int getVersion(){
+		return version_;
+	}
+
+	/**
+	 * Gets the estimated speeds for a snapshot of the street network.
+	 *
+	 * @param graph	the snapshot
+	 *
+	 * @return the estimated speed of each edge in cm/s (index is the edge of the <code>graph</code>) or <code>null</code> if
+	 * 			there's no estimation for this snapshot. The array may not be modified!
+	 */
+	public int[] getSpeeds(RoadGraph graph){
+		Estimation estimation = estimation_;
+		if(estimation != null && estimation.graph_ == graph) return estimation.speeds_;
+		else return null;
+	}
+
+	/**
+	 * Calculates a new estimation if the update interval has passed since the last one. Don't call this while the vehicles
+	 * are moving!
+	 *
+	 * @param time	the current simulation time in milliseconds
+	 * @param pool	the pool used to calculate the estimation in parallel or <code>null</code> to calculate everything in the current thread
+	 */
+	public synchronized void update(int time, ForkJoinPool pool){
+		if(updateInterval_ == 0) return;
+		if(time < lastUpdate_) reset();		// a new simulation has been started
+		if(lastUpdate_ != -1 && time - lastUpdate_ < updateInterval_) return;
+		lastUpdate_ = time;
+
+		RoadGraph graph = Map.getInstance().getRoadGraph();
+		int[] lastSpeeds = getSpeeds(graph);
+		if(lastSpeeds == null) lastSpeeds = graph.getEdgeSpeeds();	// start with the maximum speeds
+		int[] speeds = new int[graph.getEdgeCount()];
+		EstimationTask task = new EstimationTask(graph, lastSpeeds, speeds, 0, speeds.length);
+		if(pool == null || speeds.length <= MIN_TASK_SIZE) task.compute();
+		else pool.invoke(task);
+		estimation_ = new Estimation(graph, speeds);
+		++version_;
+	}
+
+	/**
+	 * A published estimation.
+	 */
+	private static final class Estimation{
+
+		/** The snapshot of the street network for which the speeds were estimated. */
+		private final RoadGraph graph_;
+
+		/** The estimated speed of each edge in cm/s. */
+		private final int[] speeds_;
+
+		/**
+		 * Creates a new estimation.
+		 *
+		 * @param graph		the snapshot of the street network
+		 * @param speeds	the estimated speeds
+		 */
+		public Estimation(RoadGraph graph, int[] speeds){
+			graph_ = graph;
+			speeds_ = speeds;
+		}
+	}
+
+	/**
+	 * Estimates the speeds of a range of edges.
+	 */
+	private static final class EstimationTask extends RecursiveAction{
+
+		/** The <code>serialVersionUID</code> needed because <code>RecursiveAction</code> is serializable. */
+		private static final long serialVersionUID = 6917464254180612359L;
+
+		/** The snapshot of the street network. */
+		private final RoadGraph graph_;
+
+		/** The last estimated speeds. */
+		private final int[] lastSpeeds_;
+
+		/** The array for the new speeds. */
+		private final int[] speeds_;
+
+		/** The first edge (inclusive). */
+		private final int from_;
+
+		/** The last edge (exclusive). */
+		private final int to_;
+
+		/**
+		 * Creates a new task.
+		 *
+		 * @param graph			the snapshot of the street network
+		 * @param lastSpeeds	the last estimated speeds
+		 * @param speeds		the array for the new speeds
+		 * @param from			the first edge (inclusive)
+		 * @param to			the last edge (exclusive)
+		 */
+		public EstimationTask(RoadGraph graph, int[] lastSpeeds, int[] speeds, int from, int to){
+			graph_ = graph;
+			lastSpeeds_ = lastSpeeds;
+			speeds_ = speeds;
+			from_ = from;
+			to_ = to;
+		}
+
+		/**
+		 * Estimates the speeds or splits the range in two halves.
+		 */
+		protected void compute(){
+			if(to_ - from_ <= MIN_TASK_SIZE){
+				Street[] streets = graph_.getEdgeStreets();
+				boolean[] forward = graph_.getEdgeForward();
+				int[] maxSpeeds = graph_.getEdgeSpeeds();
+				LaneObject object;
+				long sum;
+				int count, maxSpeed, minSpeed, speed;
+				for(int i = from_; i < to_; ++i){
+					maxSpeed = maxSpeeds[i];
+					sum = 0;
+					count = 0;
+					object = streets[i].getFirstLaneObject(forward[i]);
+					while(object != null){	// blockings have no speed and make the street slow
+						sum += object.getCurSpeed();
+						++count;
+						object = object.getNext();
+					}
+					if(count > 0) speed = (int)Math.round(lastSpeeds_[i] + (((double)sum / count) - lastSpeeds_[i]) * SMOOTHING);
+					else speed = (int)Math.round(lastSpeeds_[i] + (maxSpeed - lastSpeeds_[i]) * SMOOTHING);
+					minSpeed = Math.min(MIN_SPEED, maxSpeed);
+					if(speed > maxSpeed) speed = maxSpeed;
+					else if(speed < minSpeed) speed = minSpeed;
+					speeds_[i] = speed;
+				}
+			} else {
+				int middle = (from_ + to_) >>> 1;
+				invokeAll(new EstimationTask(graph_, lastSpeeds_, speeds_, from_, middle), new EstimationTask(graph_, lastSpeeds_, speeds_, middle, to_));
+			}
+		}
+	}
+}
@@ -3,8 +3,13 @@ package vanetsim.routing.A_Star;
 import java.util.ArrayDeque;
 //import java16.util.ArrayDeque;
 
+import vanetsim.map.Map;
 import vanetsim.map.Node;
+import vanetsim.map.RoadGraph;
 import vanetsim.map.Street;
+import vanetsim.map.TravelTimeEstimator;
+import vanetsim.routing.IndexedMinHeap;
+import vanetsim.routing.PenaltyIndex;
 import vanetsim.routing.RoutingAlgorithm;
 
 /**
@@ -15,27 +20,59 @@ import vanetsim.routing.RoutingAlgorithm;
  * <a href=http://de.wikipedia.org/wiki/A*-Algorithmus>German Wikipedia</a>
  * (link last time checked on 15.08.2008). However, it is modified and expanded with performance
  * optimizations and necessary changes for usage in a vanet-simulator (one-way-routes, barring...).
- * An own data structure is used which is basically the official <code>PriorityQueue</code> implementation but with
- * unnecessary function calls and casts removed. This uses about 25% less cpu than the original <code>PriorityQueue</code>
- * and about 40% less than a <code>TreeSet</code>. A basic <code>ArrayList</code> would take about 4x the performance.
+ * The open list is an {@link IndexedMinHeap} on the node IDs (a binary heap like the official <code>PriorityQueue</code> but
+ * without objects). This uses about 25% less cpu than the original <code>PriorityQueue</code> and about 40% less than a
+ * <code>TreeSet</code>. A basic <code>ArrayList</code> would take about 4x the performance.
  * 
  * Note for developers: It makes no sense to try to process streets which only have 2 crossings (no real junctions!) as one large street.
  * It surely saves some sqrt-operations but you trade this with lots of necessary checks and lookups and (what is a larger problem) you need
  * to rebuild the successors later because the vehicle needs a full path! Furthermore, it's also not a real A* anymore as you traverse nodes
  * which a real A* would not have checked because their f-value is too high. In a (not fully optimized) test scenario, this concept resulted 
  * in about 30% lower (!) performance so it's really not worth thinking about it.
+ * <p>
+ * Optionally, the lower bounds of the {@link A_Star_Landmarks} are used in addition to the euclidean distance (ALT). As the
+ * larger of two lower bounds is still a lower bound, the results stay optimal but a lot less nodes need to be investigated.
+ * Penalties are added to the heuristic like before. They are looked up in a {@link PenaltyIndex} so that many known penalties
+ * don't slow down the search.
+ * <p>
+ * The street network is read from the {@link RoadGraph} of the map so that the search only works on a few arrays. The values of
+ * the nodes are stored in an {@link A_Star_SearchState} for each thread, so concurrent searches neither lock nor create objects per node.
+ * In the time based mode, the speeds estimated by the {@link TravelTimeEstimator} are used instead of the maximum speeds of the
+ * streets if an estimation exists (except for the start and the target street).
  */
 public final class A_Star_Algorithm implements RoutingAlgorithm{
 	
+	/** The search state of each thread. */
+	private static final ThreadLocal<A_Star_SearchState> SEARCH_STATE = new ThreadLocal<A_Star_SearchState>(){
+		protected A_Star_SearchState initialValue(){
+			return new A_Star_SearchState();
+		}
+	};
+	
+	/** If the landmarks are used for the heuristic. */
+	private final boolean useLandmarks_;
+	
 	/**
-	 * Instantiates a new A_Star_Algo.
+	 * Instantiates a new A_Star_Algo which only uses the euclidean distance as heuristic.
 	 */
 	public A_Star_Algorithm(){
+		useLandmarks_ = false;
+	}
+	
+	/**
+	 * Instantiates a new A_Star_Algo.
+	 * 
+	 * @param useLandmarks	<code>true</code> to also use the lower bounds of the {@link A_Star_Landmarks} as heuristic
+	 */
+	public A_Star_Algorithm(boolean useLandmarks){
+		useLandmarks_ = useLandmarks;
 	}
 	
 	/**
 	 * Main calculation function.
 	 * 
+	 * @param graph				the snapshot of the street network
+	 * @param state				the search state of the current thread
 	 * @param mode				The mode in which to operate. <code>0</code> means calculating with street lengths, <code>1</code> means calculating based on speed/time 
 	 * @param direction			<code>0</code>=don't care about direction, <code>-1</code>=from startNode to endNode, <code>1</code>=from endNode to startNode
 	 * @param startStreet		the street on which the start point lies
@@ -51,210 +88,216 @@ public final class A_Star_Algorithm implements RoutingAlgorithm{
 	 * @param penaltySize		how many penalties exist.
 	 * @param additionalVar 	can be used to set the maximum speed for calculations in <code>mode=1</code>
 	 * 
-	 * @return an A_Star_Node which allows reconstructing the optimal path by going through the predecessors!
+	 * @return the ID of the last node of the optimal path (the path can be reconstructed through the predecessors in the <code>state</code>)
+	 * 			or <code>-1</code> if there's no route
 	 */
-	private A_Star_Node computeRoute(int mode, int direction, Street startStreet, double startStreetPos, int targetX, int targetY, Street targetStreet, double targetStreetPos, Street[] penaltyStreets, int[] penaltyDirections, int[] penalties, int penaltySize, int additionalVar){
+	private int computeRoute(RoadGraph graph, A_Star_SearchState state, int mode, int direction, Street startStreet, double startStreetPos, int targetX, int targetY, Street targetStreet, double targetStreetPos, Street[] penaltyStreets, int[] penaltyDirections, int[] penalties, int penaltySize, int additionalVar){
 		int distanceAdd;
 		long dx, dy;
 		double f, g, distance;
 		boolean target1found = false, target2found = false, endNodeMayBeDestination;
 		int speed;
-		Node tmpNode;
-		int i, j;
-		A_Star_Node currentNode, successor, startNode;
-		Street[] outgoingStreets;
-		Street tmpStreet;
-		A_Star_Queue openList = new A_Star_Queue();
+		int i, end, currentNode, successor, startNode;
+		
+		// the street network is read from the snapshot instead of the nodes and streets
+		if(!graph.contains(startStreet.getStartNode()) || !graph.contains(startStreet.getEndNode()) || !graph.contains(targetStreet.getStartNode()) || !graph.contains(targetStreet.getEndNode())) return -1;
+		int[] nodeX = graph.getNodeX(), nodeY = graph.getNodeY(), edgeStarts = graph.getEdgeStarts(), edgeTargets = graph.getEdgeTargets(), edgeSpeeds = graph.getEdgeSpeeds();
+		if(mode != 0){	// use the current speeds on the streets if they are estimated
+			int[] estimatedSpeeds = TravelTimeEstimator.getInstance().getSpeeds(graph);
+			if(estimatedSpeeds != null) edgeSpeeds = estimatedSpeeds;
+		}
+		double[] edgeLengths = graph.getEdgeLengths();
+		int targetStartID = targetStreet.getStartNode().getNodeID(), targetEndID = targetStreet.getEndNode().getNodeID();
+		
+		// the landmarks need the nodes at which the target street may be entered
+		A_Star_Landmarks landmarks = null;
+		int targetID1 = targetStartID, targetID2 = targetID1;
+		int[] lengthLandmarks = null, timeLandmarks = null;
+		double lowerBound, lowerBound2;
+		if(useLandmarks_){
+			landmarks = A_Star_Landmarks.getInstance();
+			if(!targetStreet.isOneway()) targetID2 = targetEndID;
+			lengthLandmarks = landmarks.getActiveLandmarks(false, startStreet.getStartNode().getNodeID(), targetID1);
+			if(mode != 0) timeLandmarks = landmarks.getActiveLandmarks(true, startStreet.getStartNode().getNodeID(), targetID1);
+		}
 		
-		// get LookupTable from factory. The LookupTable is needed for a mapping between our normal map nodes and the nodes for routing
-		int[] tmp = new int[1];
-		A_Star_LookupTable<Node, A_Star_Node> lookupTable = A_Star_LookupTableFactory.getTable(tmp);
-		int counter = tmp[0];
+		// a new stamp makes the values of the last search invalid
+		state.prepare(graph.getNodeCount());
+		int stamp = state.getStamp();
+		int[] stamps = state.getStamps(), predecessors = state.getPredecessors();
+		double[] fValues = state.getF(), gValues = state.getG();
+		byte[] flags = state.getFlags();
+		IndexedMinHeap openList = state.getQueue();
+		
+		// the penalties are indexed by edge once so that they don't need to be searched for each edge
+		PenaltyIndex penaltyIndex = state.getPenaltyIndex();
+		penaltyIndex.build(graph, penaltyStreets, penaltyDirections, penalties, penaltySize);
+		boolean hasPenalties = !penaltyIndex.isEmpty();
 		
 		if(targetStreet.isOneway()) endNodeMayBeDestination = false;
 		else endNodeMayBeDestination = true;
 		// penalties are not considered for the first node as it should not be possible to escape from them 
 		if(direction > -1){
-			startNode = lookupTable.get(startStreet.getStartNode());
-			if(startNode == null){		// not yet in table => put it
-				startNode = new A_Star_Node(startStreet.getStartNode(), counter);
-				lookupTable.put(startStreet.getStartNode(), startNode);
-			} else {
-				startNode.reset(counter);
-				startNode.setPredecessor(null);
-			}
+			startNode = startStreet.getStartNode().getNodeID();
+			stamps[startNode] = stamp;
+			predecessors[startNode] = -1;
 			if(mode == 0){
-				startNode.setF(startStreetPos);
-				startNode.setG(startStreetPos);
+				fValues[startNode] = startStreetPos;
+				gValues[startNode] = startStreetPos;
 			}
 			else {	//time calculation
 				if(startStreet.getSpeed() > additionalVar) speed = additionalVar;
 				else speed = startStreet.getSpeed();
-				startNode.setF(startStreetPos/speed);
-				startNode.setG(startStreetPos/speed);
+				fValues[startNode] = startStreetPos/speed;
+				gValues[startNode] = startStreetPos/speed;
 			}	
-			startNode.setInOpenList(true);
-			openList.add(startNode);
+			flags[startNode] = A_Star_SearchState.OPEN_LIST;
+			openList.update(startNode, fValues[startNode]);
 		}
 		if(direction < 1){
-			startNode = lookupTable.get(startStreet.getEndNode());
-			if(startNode == null){		// not yet in table => put it
-				startNode = new A_Star_Node(startStreet.getEndNode(), counter);
-				lookupTable.put(startStreet.getEndNode(), startNode);
-			} else {
-				startNode.reset(counter);
-				startNode.setPredecessor(null);
-			}
+			startNode = startStreet.getEndNode().getNodeID();
+			stamps[startNode] = stamp;
+			predecessors[startNode] = -1;
 			if(mode == 0){
-				startNode.setF(startStreet.getLength() - startStreetPos);
-				startNode.setG(startStreet.getLength() - startStreetPos);
+				fValues[startNode] = startStreet.getLength() - startStreetPos;
+				gValues[startNode] = startStreet.getLength() - startStreetPos;
 			}
 			else {	//time calculation
 				if(startStreet.getSpeed() > additionalVar) speed = additionalVar;
 				else speed = startStreet.getSpeed();
-				startNode.setF((startStreet.getLength() - startStreetPos)/speed);
-				startNode.setG((startStreet.getLength() - startStreetPos)/speed);
+				fValues[startNode] = (startStreet.getLength() - startStreetPos)/speed;
+				gValues[startNode] = (startStreet.getLength() - startStreetPos)/speed;
 			}
-			startNode.setInOpenList(true);
-			openList.add(startNode);
+			flags[startNode] = A_Star_SearchState.OPEN_LIST;
+			openList.update(startNode, fValues[startNode]);
 		}
 		do{
 			// take and remove node with smallest f value (=first element)
 			currentNode = openList.poll();
 			// found target?
-			if (endNodeMayBeDestination && currentNode.getRealNode() == targetStreet.getEndNode()){
-				if(target1found){
-					A_Star_LookupTableFactory.putTable(counter, lookupTable);
-					return currentNode;
-				}
+			if (endNodeMayBeDestination && currentNode == targetEndID){
+				if(target1found) return currentNode;
 				else {	//we're near the end but didn't add the costs for the last street yet
-					if(mode == 0) f = currentNode.getF() + (targetStreet.getLength() - targetStreetPos);
+					if(mode == 0) f = fValues[currentNode] + (targetStreet.getLength() - targetStreetPos);
 					else {
 						if(targetStreet.getSpeed() > additionalVar) speed = additionalVar;
 						else speed = targetStreet.getSpeed();
-						f = currentNode.getF() + ((targetStreet.getLength() - targetStreetPos)/speed);
+						f = fValues[currentNode] + ((targetStreet.getLength() - targetStreetPos)/speed);
 					}
-					currentNode.setF(f);
-					currentNode.setG(f);
-					openList.add(currentNode);	//the poll() has removed it but we need it again!
+					fValues[currentNode] = f;
+					gValues[currentNode] = f;
+					openList.update(currentNode, f);	//the poll() has removed it but we need it again!
 					target1found = true;
 				}
-			} else if(currentNode.getRealNode() == targetStreet.getStartNode()){
-				if(target2found){
-					A_Star_LookupTableFactory.putTable(counter, lookupTable);
-					return currentNode;
-				}
+			} else if(currentNode == targetStartID){
+				if(target2found) return currentNode;
 				else {	//we're near the end but didn't add the costs for the last street yet
-					if(mode == 0) f = currentNode.getF() + targetStreetPos;
+					if(mode == 0) f = fValues[currentNode] + targetStreetPos;
 					else {	//time calculation
 						if(targetStreet.getSpeed() > additionalVar) speed = additionalVar;
 						else speed = targetStreet.getSpeed();
-						f = currentNode.getF() + (targetStreetPos/speed);
+						f = fValues[currentNode] + (targetStreetPos/speed);
 					}
-					currentNode.setF(f);
-					currentNode.setG(f);
-					openList.add(currentNode);	//the poll() has removed it but we need it again!
+					fValues[currentNode] = f;
+					gValues[currentNode] = f;
+					openList.update(currentNode, f);	//the poll() has removed it but we need it again!
 					target2found = true;
 				}
 			// not yet at target. Check all streets going out from this node
 			} else {
-				outgoingStreets = currentNode.getRealNode().getOutgoingStreets();	// takes automatically care of one-way-routes as the list only contains correct streets!
-				for(i = 0; i < outgoingStreets.length; ++i){
-					tmpStreet = outgoingStreets[i];
-					tmpNode = tmpStreet.getStartNode();
-					if (tmpNode == currentNode.getRealNode()) tmpNode = tmpStreet.getEndNode();		//get the next node and not the same again
-					
-					successor = lookupTable.get(tmpNode);		// get an A_Star_Node from an ordinary node
-					if(successor == null){		// not yet in table => put it
-						successor = new A_Star_Node(tmpNode, counter);
-						lookupTable.put(tmpNode, successor);
-					} else {
-						if(successor.getCounter() != counter) successor.reset(counter);
+				end = edgeStarts[currentNode + 1];
+				for(i = edgeStarts[currentNode]; i < end; ++i){	// takes automatically care of one-way-routes as the snapshot only contains correct edges!
+					successor = edgeTargets[i];
+					if(stamps[successor] != stamp){		// not yet touched in this search
+						stamps[successor] = stamp;
+						flags[successor] = 0;
 					}
 					
 					// only treat this node when not already on ClosedList!
-					if (successor.isInClosedList() == false){
+					if ((flags[successor] & A_Star_SearchState.CLOSED_LIST) == 0){
 						// find penalties
-						distanceAdd = 0;
-						if(penaltySize > 0){
-							if(tmpStreet.getStartNode() == currentNode.getRealNode()){
-								for(j = 0; j < penaltySize; ++j){
-									if(penaltyStreets[j] == tmpStreet && penaltyDirections[j] < 1){
-										if(distanceAdd < penalties[j]) distanceAdd = penalties[j];
-									}
-								}
-							} else {
-								for(j = 0; j < penaltySize; ++j){
-									if(penaltyStreets[j] == tmpStreet && penaltyDirections[j] > -1){
-										if(distanceAdd < penalties[j]) distanceAdd = penalties[j];
-									}
-								}
+						if(hasPenalties) distanceAdd = penaltyIndex.get(i);
+						else distanceAdd = 0;
+						
+						dx = targetX - nodeX[successor];
+						dy = targetY - nodeY[successor];
+						distance = Math.sqrt(dx * dx + dy * dy); 	// Pythagorean theorem: a^2 + b^2 = c^2
+						if(landmarks != null){	// the landmarks give a lower bound for the length of the street route
+							lowerBound = landmarks.getLowerBound(false, successor, targetID1, lengthLandmarks);
+							if(targetID2 != targetID1){
+								lowerBound2 = landmarks.getLowerBound(false, successor, targetID2, lengthLandmarks);
+								if(lowerBound2 < lowerBound) lowerBound = lowerBound2;
 							}
-							
+							if(lowerBound > distance) distance = lowerBound;
 						}
-						
-						dx = targetX - tmpNode.getX();
-						dy = targetY - tmpNode.getY();
-						distance = distanceAdd + Math.sqrt(dx * dx + dy * dy); 	// Pythagorean theorem: a^2 + b^2 = c^2
+						distance += distanceAdd;
 						
 						if(mode == 0){	//distance calculation
-							g = currentNode.getG() + tmpStreet.getLength();
+							g = gValues[currentNode] + edgeLengths[i];
 							f = g + distance;
 						} else {	//time calculation
-							if(tmpStreet.getSpeed() > additionalVar) g = currentNode.getG() + (tmpStreet.getLength()/additionalVar);
-							else g = currentNode.getG() + (tmpStreet.getLength()/tmpStreet.getSpeed());
-							f = g + (distance/additionalVar);	//approximation based on maxspeed (stored in additionalVar) so that real time is always underestimated!
+							if(edgeSpeeds[i] > additionalVar) g = gValues[currentNode] + (edgeLengths[i]/additionalVar);
+							else g = gValues[currentNode] + (edgeLengths[i]/edgeSpeeds[i]);
+							f = distance/additionalVar;	//approximation based on maxspeed (stored in additionalVar) so that real time is always underestimated!
+							if(landmarks != null){	// no vehicle is faster than the streets allow
+								lowerBound = landmarks.getLowerBound(true, successor, targetID1, timeLandmarks);
+								if(targetID2 != targetID1){
+									lowerBound2 = landmarks.getLowerBound(true, successor, targetID2, timeLandmarks);
+									if(lowerBound2 < lowerBound) lowerBound = lowerBound2;
+								}
+								lowerBound += (double)distanceAdd/additionalVar;
+								if(lowerBound > f) f = lowerBound;
+							}
+							f += g;
 						}
-						if(!successor.isInOpenList()){		// not yet investigated...
-							successor.setPredecessor(currentNode);
-							successor.setF(f);
-							successor.setG(g);
-							successor.setInOpenList(true);
-							openList.add(successor);
-						} else if (successor.getF() > f){		// previously found but now has better value
-							if(target1found && successor.getRealNode() == targetStreet.getEndNode()){	//if the target street has a low speed we might overwrite it here with a wrong guessed value => calculate it precise!
+						if((flags[successor] & A_Star_SearchState.OPEN_LIST) == 0){		// not yet investigated...
+							predecessors[successor] = currentNode;
+							fValues[successor] = f;
+							gValues[successor] = g;
+							flags[successor] |= A_Star_SearchState.OPEN_LIST;
+							openList.update(successor, f);
+						} else if (fValues[successor] > f){		// previously found but now has better value
+							if(target1found && successor == targetEndID){	//if the target street has a low speed we might overwrite it here with a wrong guessed value => calculate it precise!
 								if(mode == 0) f = g + (targetStreet.getLength() - targetStreetPos);
 								else {
 									if(targetStreet.getSpeed() > additionalVar) speed = additionalVar;
 									else speed = targetStreet.getSpeed();
 									f = g + ((targetStreet.getLength() - targetStreetPos)/speed);
 								}
-								if(successor.getF() > f){
-									successor.setPredecessor(currentNode);
-									successor.setF(f);
-									successor.setG(g);
-									openList.signalDecreasedF(successor);
+								if(fValues[successor] > f){
+									predecessors[successor] = currentNode;
+									fValues[successor] = f;
+									gValues[successor] = g;
+									if(openList.contains(successor)) openList.update(successor, f);
 								}
-							} else if(target2found && successor.getRealNode() == targetStreet.getStartNode()){
+							} else if(target2found && successor == targetStartID){
 								if(mode == 0) f = g + targetStreetPos;
 								else {	//time calculation
 									if(targetStreet.getSpeed() > additionalVar) speed = additionalVar;
 									else speed = targetStreet.getSpeed();
 									f = g + (targetStreetPos/speed);
 								}
-								if(successor.getF() > f){
-									successor.setPredecessor(currentNode);
-									successor.setF(f);
-									successor.setG(g);
-									openList.signalDecreasedF(successor);
+								if(fValues[successor] > f){
+									predecessors[successor] = currentNode;
+									fValues[successor] = f;
+									gValues[successor] = g;
+									if(openList.contains(successor)) openList.update(successor, f);
 								}
 							} else {	// the "normal" case is this one!
-								successor.setPredecessor(currentNode);
-								successor.setF(f);
-								successor.setG(g);
-								openList.signalDecreasedF(successor);
+								predecessors[successor] = currentNode;
+								fValues[successor] = f;
+								gValues[successor] = g;
+								if(openList.contains(successor)) openList.update(successor, f);
 							}
 						}
 					}
 				}
 		        // current node has been completely investigated
-				currentNode.setInClosedList(true);
-				currentNode.setInOpenList(false);
+				flags[currentNode] = A_Star_SearchState.CLOSED_LIST;
 			}
 	    } while (!openList.isEmpty());
 	    // there's no route to the destination!
-		A_Star_LookupTableFactory.putTable(counter, lookupTable);
-		return null;	    
+		return -1;	    
 	}
 	
 	/**
@@ -283,11 +326,15 @@ public final class A_Star_Algorithm implements RoutingAlgorithm{
 	 * @see	vanetsim.routing.RoutingAlgorithm#getRouting(int, int, int, int, Street, double, int, int, Street, double, Street[], int[], int[], int, int)
 	 */
 	public ArrayDeque<Node> getRouting(int mode, int direction, int startX, int startY, Street startStreet, double startStreetPos, int targetX, int targetY, Street targetStreet, double targetStreetPos, Street[] penaltyStreets, int[] penaltyDirections, int[] penalties, int penaltySize, int additionalVar){
-		A_Star_Node curNode = computeRoute(mode, direction, startStreet, startStreetPos, targetX, targetY, targetStreet, targetStreetPos, penaltyStreets, penaltyDirections, penalties, penaltySize, additionalVar);
+		RoadGraph graph = Map.getInstance().getRoadGraph();
+		A_Star_SearchState state = SEARCH_STATE.get();
+		int curNode = computeRoute(graph, state, mode, direction, startStreet, startStreetPos, targetX, targetY, targetStreet, targetStreetPos, penaltyStreets, penaltyDirections, penalties, penaltySize, additionalVar);
 		ArrayDeque<Node> result = new ArrayDeque<Node>(255);
-		while(curNode != null){
-			result.addFirst(curNode.getRealNode());
-			curNode = curNode.getPredecessor();
+		Node[] nodes = graph.getNodes();
+		int[] predecessors = state.getPredecessors();
+		while(curNode != -1){
+			result.addFirst(nodes[curNode]);
+			curNode = predecessors[curNode];
 		}
 		return result;
 	}
@@ -0,0 +1,250 @@
+package vanetsim.routing.A_Star;
+
+import vanetsim.map.Map;
+import vanetsim.map.Node;
+import vanetsim.map.RoadGraph;
+import vanetsim.routing.IndexedMinHeap;
+
+/**
+ * Landmarks for the ALT heuristic (A*, landmarks, triangle inequality). For some nodes on the map (the landmarks), the shortest
+ * distances from and to all other nodes are precomputed. Because of the triangle inequality, <code>d(L,t) - d(L,v)</code> and
+ * <code>d(v,L) - d(t,L)</code> are lower bounds for the distance from a node <code>v</code> to a node <code>t</code>. On road
+ * networks, these bounds are much better than the euclidean distance if the landmarks lie at the border of the map.
+ * <p>
+ * The distances are computed for the street lengths and for the time needed if driving with the maximum speed of each street.
+ * The latter is a lower bound for the time of every vehicle as a vehicle can't drive faster than the street allows. The arrays
+ * are indexed by the node ID (see {@link Node#getNodeID()}). The landmarks are computed again if the street network has changed.
+ * Objects of this class aren't changed after creation so they can be used by several threads at the same time.
+ */
+public final class A_Star_Landmarks{
+
+	/** How many landmarks are computed. */
+	private static final int LANDMARK_COUNT = 8;
+
+	/** How many landmarks are used during one search. */
+	private static final int ACTIVE_LANDMARK_COUNT = 3;
+
+	/** The landmarks for the current map or <code>null</code> if they haven't been computed yet. */
+	private static A_Star_Landmarks current_ = null;
+
+	/** The change count of the map at the time of the computation. */
+	private final int changeCount_;
+
+	/** The number of node IDs covered by the arrays. */
+	private final int nodeCount_;
+
+	/** The length of the shortest path from each landmark to each node. */
+	private final double[][] lengthsFrom_;
+
+	/** The length of the shortest path from each node to each landmark. */
+	private final double[][] lengthsTo_;
+
+	/** The time of the fastest path from each landmark to each node. */
+	private final double[][] timesFrom_;
+
+	/** The time of the fastest path from each node to each landmark. */
+	private final double[][] timesTo_;
+
+	/**
+	 * Gets the landmarks for the current map. They are computed if the map has changed since the last call.
+	 *
+	 * @return the landmarks
+	 */
+	public static synchronized A_Star_Landmarks getInstance(){
+		int changeCount = Map.getInstance().getChangeCount();
+		if(current_ == null || current_.changeCount_ != changeCount) current_ = new A_Star_Landmarks(changeCount);
+		return current_;
+	}
+
+	/**
+	 * Computes the landmarks. The first landmark is the node which is farthest away from an arbitrary node, each following
+	 * landmark is the node which is farthest away from all landmarks chosen before (farthest selection).
+	 *
+	 * @param changeCount	the change count of the map
+	 */
+	private A_Star_Landmarks(int changeCount){
+		changeCount_ = changeCount;
+		RoadGraph graph = Map.getInstance().getRoadGraph();
+		nodeCount_ = graph.getNodeCount();
+		Node[] nodes = graph.getNodes();
+		int i, j, k, first = -1;
+		for(i = 0; i < nodeCount_; ++i){
+			if(nodes[i] != null){
+				first = i;
+				break;
+			}
+		}
+
+		// the forward graph is the snapshot itself, the backward graph stores the edges at their target
+		int[] forwardStarts = graph.getEdgeStarts(), forwardTargets = graph.getEdgeTargets(), edgeSources = graph.getEdgeSources();
+		int[] edgeSpeeds = graph.getEdgeSpeeds(), backwardStarts = graph.getReverseStarts(), reverseEdges = graph.getReverseEdges();
+		double[] forwardLengths = graph.getEdgeLengths();
+		int edgeCount = graph.getEdgeCount();
+		double[] forwardTimes = new double[edgeCount];
+		for(i = 0; i < edgeCount; ++i){
+			if(edgeSpeeds[i] > 0) forwardTimes[i] = forwardLengths[i] / edgeSpeeds[i];
+			else forwardTimes[i] = Double.POSITIVE_INFINITY;
+		}
+		int[] backwardTargets = new int[edgeCount];
+		double[] backwardLengths = new double[edgeCount], backwardTimes = new double[edgeCount];
+		for(i = 0; i < edgeCount; ++i){
+			k = reverseEdges[i];
+			backwardTargets[i] = edgeSources[k];
+			backwardLengths[i] = forwardLengths[k];
+			backwardTimes[i] = forwardTimes[k];
+		}
+
+		int landmarkCount = (first == -1) ? 0 : LANDMARK_COUNT;
+		lengthsFrom_ = new double[landmarkCount][];
+		lengthsTo_ = new double[landmarkCount][];
+		timesFrom_ = new double[landmarkCount][];
+		timesTo_ = new double[landmarkCount][];
+		if(landmarkCount == 0) return;
+		IndexedMinHeap queue = new IndexedMinHeap(nodeCount_);
+		double[] minDistances = new double[nodeCount_];
+		for(i = 0; i < nodeCount_; ++i) minDistances[i] = Double.POSITIVE_INFINITY;
+		int landmark = findFarthest(dijkstra(first, forwardStarts, forwardTargets, forwardLengths, queue), first);
+		for(i = 0; i < landmarkCount; ++i){
+			lengthsFrom_[i] = dijkstra(landmark, forwardStarts, forwardTargets, forwardLengths, queue);
+			lengthsTo_[i] = dijkstra(landmark, backwardStarts, backwardTargets, backwardLengths, queue);
+			timesFrom_[i] = dijkstra(landmark, forwardStarts, forwardTargets, forwardTimes, queue);
+			timesTo_[i] = dijkstra(landmark, backwardStarts, backwardTargets, backwardTimes, queue);
+			for(j = 0; j < nodeCount_; ++j){
+				if(lengthsFrom_[i][j] < minDistances[j]) minDistances[j] = lengthsFrom_[i][j];
+			}
+			landmark = findFarthest(minDistances, landmark);
+		}
+	}
+
+	/**
+	 * Finds the node with the highest finite distance.
+	 *
+	 * @param distances		the distances
+	 * @param defaultNode	returned if no node has a finite distance larger than 0
+	 *
+	 * @return the node
+	 */
+	private int findFarthest(double[] distances, int defaultNode){
+		int result = defaultNode;
+		double best = 0;
+		for(int i = 0; i < distances.length; ++i){
+			if(distances[i] > best && distances[i] < Double.POSITIVE_INFINITY){
+				best = distances[i];
+				result = i;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Computes the distances from one node to all other nodes.
+	 *
+	 * @param source	the source node
+	 * @param starts	the first edge of each node
+	 * @param targets	the target of each edge
+	 * @param weights	the weight of each edge
+	 * @param queue		an empty queue
+	 *
+	 * @return the distances (<code>Double.POSITIVE_INFINITY</code> if a node can't be reached)
+	 */
+	private double[] dijkstra(int source, int[] starts, int[] targets, double[] weights, IndexedMinHeap queue){
+		double[] distances = new double[nodeCount_];
+		for(int i = 0; i < nodeCount_; ++i) distances[i] = Double.POSITIVE_INFINITY;
+		distances[source] = 0;
+		queue.update(source, 0);
+		int node, target, i, end;
+		double distance;
+		while(!queue.isEmpty()){
+			node = queue.poll();
+			end = starts[node + 1];
+			for(i = starts[node]; i < end; ++i){
+				target = targets[i];
+				distance = distances[node] + weights[i];
+				if(distance < distances[target]){
+					distances[target] = distance;
+					queue.update(target, distance);
+				}
+			}
+		}
+		return distances;
+	}
+
+	/**
+	 * Selects the landmarks which give the best lower bounds for a search. Using only some landmarks makes the heuristic a bit
+	 * weaker but a lot cheaper to compute.
+	 *
+	 * @param time	<code>true</code> for the time if driving with the maximum speed of each street, <code>false</code> for the length
+	 * @param from	the ID of the start node
+	 * @param to	the ID of the target node
+	 *
+	 * @return the indices of the selected landmarks
+	 */
+	public int[] getActiveLandmarks(boolean time, int from, int to){
+		int count = Math.min(ACTIVE_LANDMARK_COUNT, lengthsFrom_.length);
+		int[] result = new int[count];
+		if(from >= nodeCount_ || to >= nodeCount_){
+			for(int i = 0; i < count; ++i) result[i] = i;
+			return result;
+		}
+		double[] bounds = new double[count];
+		double bound;
+		int i, j;
+		for(i = 0; i < lengthsFrom_.length; ++i){
+			bound = getLowerBound(time, i, from, to);
+			// insertion into the sorted list of the best landmarks
+			for(j = Math.min(i, count); j > 0 && bounds[j - 1] < bound; --j){
+				if(j < count){
+					bounds[j] = bounds[j - 1];
+					result[j] = result[j - 1];
+				}
+			}
+			if(j < count){
+				bounds[j] = bound;
+				result[j] = i;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Gets a lower bound for the shortest path between two nodes.
+	 *
+	 * @param time		<code>true</code> for the time if driving with the maximum speed of each street, <code>false</code> for the length
+	 * @param from		the ID of the start node
+	 * @param to		the ID of the target node
+	 * @param landmarks	the indices of the landmarks to use (see {@link #getActiveLandmarks(boolean, int, int)})
+	 *
+	 * @return the lower bound (in cm or seconds)
+	 */
+	public double getLowerBound(boolean time, int from, int to, int[] landmarks){
+		if(from >= nodeCount_ || to >= nodeCount_) return 0;
+		double result = 0, bound;
+		for(int i = 0; i < landmarks.length; ++i){
+			bound = getLowerBound(time, landmarks[i], from, to);
+			if(bound > result) result = bound;
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the lower bound of one landmark for the shortest path between two nodes.
+	 *
+	 * @param time		<code>true</code> for the time if driving with the maximum speed of each street, <code>false</code> for the length
+	 * @param landmark	the index of the landmark
+	 * @param from		the ID of the start node
+	 * @param to		the ID of the target node
+	 *
+	 * @return the lower bound (in cm or seconds)
+	 */
+	private double getLowerBound(boolean time, int landmark, int from, int to){
+		double[] distancesFrom = time ? timesFrom_[landmark] : lengthsFrom_[landmark];
+		double[] distancesTo = time ? timesTo_[landmark] : lengthsTo_[landmark];
+		double result = 0;
+		double a = distancesFrom[to], b = distancesFrom[from];
+		if(a - b > result && a < Double.POSITIVE_INFINITY) result = a - b;		// d(L,t) - d(L,v)
+		a = distancesTo[from];
+		b = distancesTo[to];
+		if(a - b > result && a < Double.POSITIVE_INFINITY) result = a - b;		// d(v,L) - d(t,L)
+		return result;
+	}
+}
@@ -0,0 +1,139 @@
+package vanetsim.routing.A_Star;
+
+import java.util.Arrays;
+
+import vanetsim.routing.IndexedMinHeap;
+import vanetsim.routing.PenaltyIndex;
+
+/**
+ * The working data of an A* search. All values are stored in arrays indexed by the node ID so that a search doesn't need to
+ * create any objects. Instead of clearing the arrays before each search, every search gets a new stamp. Values of a node are
+ * only valid if its stamp is the stamp of the current search, otherwise the node hasn't been touched yet. Each thread has its
+ * own search state, so no synchronization is necessary.
+ */
+final class A_Star_SearchState{
+
+	/** Flag for a node which is in the open list. */
+	public static final byte OPEN_LIST = 1;
+
+	/** Flag for a node which is in the closed list. */
+	public static final byte CLOSED_LIST = 2;
+
+	/** The stamp of the search in which a node was touched last. */
+	private int[] stamps_ = new int[0];
+
+	/** The stamp of the current search. */
+	private int stamp_ = 0;
+
+	/** The f value (costs so far plus heuristic) of each node. */
+	private double[] f_ = new double[0];
+
+	/** The g value (costs so far) of each node. */
+	private double[] g_ = new double[0];
+
+	/** The node from which a node was reached or <code>-1</code> for a start node. */
+	private int[] predecessors_ = new int[0];
+
+	/** The flags ({@link #OPEN_LIST}, {@link #CLOSED_LIST}) of each node. */
+	private byte[] flags_ = new byte[0];
+
+	/** The open list sorted by the f value. */
+	private IndexedMinHeap queue_ = new IndexedMinHeap(0);
+
+	/** The penalties of the current search. */
+	private final PenaltyIndex penaltyIndex_ = new PenaltyIndex();
+
+	/**
+	 * Prepares a new search. The arrays are only created again if the amount of nodes has changed.
+	 *
+	 * @param nodeCount	the amount of node IDs of the street network
+	 */
+	public void prepare(int nodeCount){
+		if(stamps_.length != nodeCount){
+			stamps_ = new int[nodeCount];
+			f_ = new double[nodeCount];
+			g_ = new double[nodeCount];
+			predecessors_ = new int[nodeCount];
+			flags_ = new byte[nodeCount];
+			queue_ = new IndexedMinHeap(nodeCount);
+			stamp_ = 0;
+		} else queue_.clear();
+		++stamp_;
+		if(stamp_ == Integer.MAX_VALUE){	// only happens after an enormous amount of searches
+			Arrays.fill(stamps_, 0);
+			stamp_ = 1;
+		}
+	}
+
+	/**
+	 * Gets the stamp of the current search.
+	 *
+	 * @return the stamp
+	 */
+	public int getStamp(){
+		return stamp_;
+	}
+
+	/**
+	 * Gets the stamps of the nodes.
+	 *
+	 * @return the array (index is the node ID)
+	 */
+	public int[] getStamps(){
+		return stamps_;
+	}
+
+	/**
+	 * Gets the f values of the nodes.
+	 *
+	 * @return the array (index is the node ID)
+	 */
+	public double[] getF(){
+		return f_;
+	}
+
+	/**
+	 * Gets the g values of the nodes.
+	 *
+	 * @return the array (index is the node ID)
+	 */
+	public double[] getG(){
+		return g_;
+	}
+
+	/**
+	 * Gets the predecessors of the nodes.
+	 *
+	 * @return the array (index is the node ID)
+	 */
+	public int[] getPredecessors(){
+		return predecessors_;
+	}
+
+	/**
+	 * Gets the flags of the nodes.
+	 *
+	 * @return the array (index is the node ID)
+	 */
+	public byte[] getFlags(){
+		return flags_;
+	}
+
+	/**
+	 * Gets the open list.
+	 *
+	 * @return the queue
+	 */
+	public IndexedMinHeap getQueue(){
+		return queue_;
+	}
+
+	/**
+	 * Gets the index for the penalties of the current search.
+	 *
+	 * @return the index
+	 */
+	public PenaltyIndex getPenaltyIndex(){
+		return penaltyIndex_;
+	}
+}
@@ -0,0 +1,203 @@
+package vanetsim.routing;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import vanetsim.map.Street;
+
+/**
+ * Calculates lots of independent routes in parallel, for example when a scenario with many vehicles is loaded. The routing
+ * algorithms keep their working data per thread (the A* in a search state, the contraction hierarchies in a query object)
+ * so that the requests can simply be distributed over a <code>ForkJoinPool</code>.
+ * <p>
+ * Cost matrices (for example origin-destination matrices for generating scenarios) are calculated with one
+ * {@link ShortestPathTree} per origin instead of a separate routing for each pair of origin and target.
+ */
+public final class BatchRouting{
+
+	/** The maximum amount of requests calculated in one task. */
+	private static final int MAX_REQUESTS_PER_TASK = 16;
+
+	/** The maximum amount of origins calculated in one task. */
+	private static final int MAX_ORIGINS_PER_TASK = 4;
+
+	/** The shortest path tree of each thread (reused for all origins calculated by the thread). */
+	private static final ThreadLocal<ShortestPathTree> TREES = new ThreadLocal<ShortestPathTree>(){
+		protected ShortestPathTree initialValue(){
+			return new ShortestPathTree();
+		}
+	};
+
+	/** The pool used for the calculations. Created when it's needed first. */
+	private static ForkJoinPool pool_ = null;
+
+	/**
+	 * Empty, private constructor in order to disable instancing.
+	 */
+	private BatchRouting(){
+	}
+
+	/**
+	 * Gets the pool and creates it if necessary.
+	 *
+	 * @return the pool
+	 */
+	private static synchronized ForkJoinPool getPool(){
+		if(pool_ == null) pool_ = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors()));
+		return pool_;
+	}
+
+	/**
+	 * Calculates the routes of all requests. The results are stored in the requests. This method returns when all routes
+	 * have been calculated.
+	 *
+	 * @param algorithm	the routing algorithm
+	 * @param requests	the requests. <code>null</code> entries are allowed and ignored.
+	 */
+	public static void getRoutings(RoutingAlgorithm algorithm, List<RouteRequest> requests){
+		RouteRequest[] requestArray = requests.toArray(new RouteRequest[requests.size()]);
+		RouteTask task = new RouteTask(algorithm, requestArray, 0, requestArray.length);
+		if(requestArray.length <= MAX_REQUESTS_PER_TASK) task.compute();
+		else getPool().invoke(task);
+	}
+
+	/**
+	 * Calculates the costs from each origin to each target. The origins are calculated in parallel. No penalties are used.
+	 *
+	 * @param mode		<code>0</code> means calculating with street lengths, <code>1</code> means calculating based on speed/time
+	 * @param origins	the origins
+	 * @param targets	the targets
+	 * @param maxSpeed	the maximum speed in cm/s for calculations in <code>mode=1</code>
+	 *
+	 * @return the costs (first index is the origin, second the target). The length in cm in mode <code>0</code>, else the time
+	 * 			in s. <code>Double.POSITIVE_INFINITY</code> if a target can't be reached from an origin.
+	 */
+	public static double[][] getCostMatrix(int mode, WayPoint[] origins, WayPoint[] targets, int maxSpeed){
+		double[][] costs = new double[origins.length][targets.length];
+		CostMatrixTask task = new CostMatrixTask(mode, origins, targets, maxSpeed, costs, 0, origins.length);
+		if(origins.length <= MAX_ORIGINS_PER_TASK) task.compute();
+		else getPool().invoke(task);
+		return costs;
+	}
+
+	/**
+	 * Calculates the routes of a range of requests.
+	 */
+	private static final class RouteTask extends RecursiveAction{
+
+		/** The <code>serialVersionUID</code> needed because <code>RecursiveAction</code> is serializable. */
+		private static final long serialVersionUID = -3364412962395184436L;
+
+		/** The routing algorithm. */
+		private final RoutingAlgorithm algorithm_;
+
+		/** All requests. */
+		private final RouteRequest[] requests_;
+
+		/** The first request (inclusive). */
+		private final int from_;
+
+		/** The last request (exclusive). */
+		private final int to_;
+
+		/**
+		 * Creates a new task.
+		 *
+		 * @param algorithm	the routing algorithm
+		 * @param requests	all requests
+		 * @param from		the first request (inclusive)
+		 * @param to		the last request (exclusive)
+		 */
+		public RouteTask(RoutingAlgorithm algorithm, RouteRequest[] requests, int from, int to){
+			algorithm_ = algorithm;
+			requests_ = requests;
+			from_ = from;
+			to_ = to;
+		}
+
+		/**
+		 * Calculates the routes or splits the range in two halves.
+		 */
+		protected void compute(){
+			if(to_ - from_ <= MAX_REQUESTS_PER_TASK){
+				for(int i = from_; i < to_; ++i){
+					if(requests_[i] != null) requests_[i].calculate(algorithm_);
+				}
+			} else {
+				int middle = (from_ + to_) >>> 1;
+				invokeAll(new RouteTask(algorithm_, requests_, from_, middle), new RouteTask(algorithm_, requests_, middle, to_));
+			}
+		}
+	}
+
+	/**
+	 * Calculates the costs from a range of origins to all targets.
+	 */
+	private static final class CostMatrixTask extends RecursiveAction{
+
+		/** The <code>serialVersionUID</code> needed because <code>RecursiveAction</code> is serializable. */
+		private static final long serialVersionUID = 2210938512046383125L;
+
+		/** The routing mode. */
+		private final int mode_;
+
+		/** All origins. */
+		private final WayPoint[] origins_;
+
+		/** All targets. */
+		private final WayPoint[] targets_;
+
+		/** The maximum speed in cm/s. */
+		private final int maxSpeed_;
+
+		/** The matrix for the results. */
+		private final double[][] costs_;
+
+		/** The first origin (inclusive). */
+		private final int from_;
+
+		/** The last origin (exclusive). */
+		private final int to_;
+
+		/**
+		 * Creates a new task.
+		 *
+		 * @param mode		the routing mode
+		 * @param origins	all origins
+		 * @param targets	all targets
+		 * @param maxSpeed	the maximum speed in cm/s
+		 * @param costs		the matrix for the results
+		 * @param from		the first origin (inclusive)
+		 * @param to		the last origin (exclusive)
+		 */
+		public CostMatrixTask(int mode, WayPoint[] origins, WayPoint[] targets, int maxSpeed, double[][] costs, int from, int to){
+			mode_ = mode;
+			origins_ = origins;
+			targets_ = targets;
+			maxSpeed_ = maxSpeed;
+			costs_ = costs;
+			from_ = from;
+			to_ = to;
+		}
+
+		/**
+		 * Calculates the costs or splits the range in two halves.
+		 */
+		protected void compute(){
+			if(to_ - from_ <= MAX_ORIGINS_PER_TASK){
+				ShortestPathTree tree = TREES.get();
+				int[] noPenalties = new int[0];
+				for(int i = from_; i < to_; ++i){
+					tree.build(mode_, 0, origins_[i].getStreet(), origins_[i].getPositionOnStreet(), new Street[0], noPenalties, noPenalties, 0, maxSpeed_);
+					for(int j = 0; j < targets_.length; ++j){
+						costs_[i][j] = tree.getCost(targets_[j].getStreet(), targets_[j].getPositionOnStreet());
+					}
+				}
+			} else {
+				int middle = (from_ + to_) >>> 1;
+				invokeAll(new CostMatrixTask(mode_, origins_, targets_, maxSpeed_, costs_, from_, middle), new CostMatrixTask(mode_, origins_, targets_, maxSpeed_, costs_, middle, to_));
+			}
+		}
+	}
+}
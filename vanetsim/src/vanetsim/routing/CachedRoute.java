@@ -0,0 +1,45 @@
+package vanetsim.routing;
+
+import vanetsim.map.Street;
+
+/**
+ * A route stored in the {@link RouteCache}. It consists of the streets a vehicle drives on and the direction on each of them.
+ * The arrays are shared between all vehicles using this route so they may not be modified.
+ */
+public final class CachedRoute{
+
+	/** The streets of the route. */
+	private final Street[] streets_;
+
+	/** The directions on the streets. <code>true</code> means from startNode to endNode. */
+	private final boolean[] directions_;
+
+	/**
+	 * Instantiates a new cached route.
+	 *
+	 * @param streets		the streets of the route
+	 * @param directions	the directions on the streets
+	 */
+	public CachedRoute(Street[] streets, boolean[] directions){
+		streets_ = streets;
+		directions_ = directions;
+	}
+
+	/**
+	 * Gets the streets of the route.
+	 *
+	 * @return the streets
+	 */
+	public Street[] getStreets(){
+		return streets_;
+	}
+
+	/**
+	 * Gets the directions on the streets of the route.
+	 *
+	 * @return the directions
+	 */
+	public boolean[] getDirections(){
+		return directions_;
+	}
+}
@@ -0,0 +1,218 @@
+package vanetsim.routing.ContractionHierarchies;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import vanetsim.ErrorLog;
+import vanetsim.localization.Messages;
+import vanetsim.map.Map;
+import vanetsim.map.Node;
+import vanetsim.map.Street;
+import vanetsim.map.TravelTimeEstimator;
+import vanetsim.routing.RoutingAlgorithm;
+import vanetsim.routing.A_Star.A_Star_Algorithm;
+
+/**
+ * A routing algorithm based on contraction hierarchies (Geisberger et al.: "Contraction Hierarchies: Faster and Simpler
+ * Hierarchical Routing in Road Networks", 2008). The street network is preprocessed once per loaded map so that a query only
+ * needs two small Dijkstra searches which go upwards in the hierarchy. The hierarchy doesn't depend on the metric (see
+ * {@link CH_Graph}), the weights of its edges are calculated in a much faster second step for each metric (see
+ * {@link CH_Metric}).
+ * <p>
+ * The time based metric (<code>mode=1</code>) depends on the maximum speed of the vehicle as a vehicle can't drive faster than
+ * this on fast streets. So that the weights don't need to be calculated for each speed, the speeds up to the highest speed of
+ * all streets are divided into {@link #SPEED_BUCKETS} buckets of the same size and the route of a vehicle is calculated with
+ * the highest speed of the bucket which is not faster than the vehicle. Routes of vehicles which are faster than all streets
+ * are as fast as the ones found by a Dijkstra search, slower vehicles might get a route which is a bit slower. Vehicles which
+ * are slower than the first bucket use the {@link A_Star_Algorithm}. If the {@link TravelTimeEstimator} provides estimated
+ * speeds, the weights of the time based metric are calculated again with these speeds whenever they change.
+ * <p>
+ * The hierarchy is built by the first thread which needs it; other threads waiting for it are blocked. Penalties known by a
+ * vehicle change the weights of single streets for this vehicle only. So if penalties are given, the route is calculated with
+ * the {@link A_Star_Algorithm} (using landmarks) instead. The same is done if the start or the target is not part of the
+ * preprocessed street network.
+ */
+public final class CH_Algorithm implements RoutingAlgorithm{
+
+	/** The amount of speed buckets for the time based metric. */
+	private static final int SPEED_BUCKETS = 16;
+
+	/** The key of the weights for the distance based metric. */
+	private static final Integer DISTANCE_KEY = Integer.valueOf(0);
+
+	/** The algorithm used if penalties exist. */
+	private final A_Star_Algorithm fallback_ = new A_Star_Algorithm(true);
+
+	/** The hierarchy of the current map (replaced if the map changes). */
+	private FutureTask<CH_Graph> graph_ = null;
+
+	/**
+	 * The weights for the hierarchy of the current map (replaced if the map changes). The key is the speed bucket for the
+	 * time based metric and {@link #DISTANCE_KEY} for the distance based metric.
+	 */
+	private ConcurrentHashMap<Integer, CH_Metric> metrics_ = new ConcurrentHashMap<Integer, CH_Metric>();
+
+	/** The change count of the map for which the hierarchy has been created. */
+	private int changeCount_ = -1;
+
+	/** The highest speed of all streets on the map. */
+	private int maxStreetSpeed_ = 0;
+
+	/** The query state of each thread. */
+	private final ThreadLocal<CH_Query> query_ = new ThreadLocal<CH_Query>(){
+		protected CH_Query initialValue(){
+			return new CH_Query();
+		}
+	};
+
+	/**
+	 * Instantiates a new CH_Algorithm. The preprocessing is done when a route is requested for the first time.
+	 */
+	public CH_Algorithm(){
+	}
+
+	/**
+	 * Drops the hierarchy and all weights so that they are created again when the next route is requested.
+	 */
+	public synchronized void clear(){
+		graph_ = null;
+		metrics_ = new ConcurrentHashMap<Integer, CH_Metric>();
+	}
+
+	/**
+	 * Gets the weights of the hierarchy for a metric and creates them if necessary. The hierarchy and all weights are dropped
+	 * if the map has changed. Only the check for changes is synchronized, the preprocessing is done without holding a lock.
+	 * If two threads need the same weights at the same time, they might both calculate them.
+	 *
+	 * @param mode		<code>0</code> for the distance based metric, <code>1</code> for the time based metric
+	 * @param maxSpeed	the maximum speed of the vehicle in cm/s (only used if <code>mode=1</code>)
+	 *
+	 * @return the weights or <code>null</code> if no hierarchy can be used for these parameters
+	 */
+	private CH_Metric getMetric(int mode, int maxSpeed){
+		FutureTask<CH_Graph> task;
+		ConcurrentHashMap<Integer, CH_Metric> metrics;
+		int maxStreetSpeed;
+		boolean builder = false;
+		synchronized(this){
+			int changeCount = Map.getInstance().getChangeCount();
+			if(graph_ == null || changeCount != changeCount_){
+				graph_ = new FutureTask<CH_Graph>(new Callable<CH_Graph>(){
+					public CH_Graph call(){
+						return new CH_Graph();
+					}
+				});
+				metrics_ = new ConcurrentHashMap<Integer, CH_Metric>();	// weights still being calculated for the old map don't end up in the new one
+				maxStreetSpeed_ = findMaxStreetSpeed();
+				changeCount_ = changeCount;
+				builder = true;
+			}
+			task = graph_;
+			metrics = metrics_;
+			maxStreetSpeed = maxStreetSpeed_;
+		}
+		if(builder) task.run();
+		CH_Graph graph;
+		try{
+			graph = task.get();
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e){
+			if(builder) ErrorLog.log(Messages.getString("CH_Algorithm.errorPreprocessing"), 6, getClass().getName(), "getMetric", e); //$NON-NLS-1$ //$NON-NLS-2$
+			return null;
+		}
+		Integer key;
+		int speedLimit, bucket;
+		if(mode == 0){
+			key = DISTANCE_KEY;
+			speedLimit = 0;
+		} else if(mode == 1){
+			if(maxStreetSpeed < 1) return null;
+			bucket = (int)((long)Math.min(maxSpeed, maxStreetSpeed) * SPEED_BUCKETS / maxStreetSpeed);
+			if(bucket < 1) return null;
+			key = Integer.valueOf(bucket);
+			speedLimit = (int)((long)maxStreetSpeed * bucket / SPEED_BUCKETS);
+		} else return null;
+		int version = TravelTimeEstimator.getInstance().getVersion();	// read before the speeds so that newer speeds are never stored with an older version
+		CH_Metric metric = metrics.get(key);
+		if(metric == null || (mode == 1 && metric.getVersion() != version)){
+			int[] speeds = null;
+			if(mode == 1) speeds = TravelTimeEstimator.getInstance().getSpeeds(graph.getRoadGraph());
+			metric = new CH_Metric(graph, mode, speedLimit, speeds, version);
+			metrics.put(key, metric);
+		}
+		return metric;
+	}
+
+	/**
+	 * Finds the highest speed of all streets on the map.
+	 *
+	 * @return the speed in cm/s
+	 */
+	private int findMaxStreetSpeed(){
+		int[] speeds = Map.getInstance().getRoadGraph().getEdgeSpeeds();
+		int result = 0;
+		for(int i = 0; i < speeds.length; ++i){
+			if(speeds[i] > result) result = speeds[i];
+		}
+		return result;
+	}
+
+	/**
+	 * Gets a routing result. If penalties are given, the {@link A_Star_Algorithm} is used.
+	 *
+	 * @param mode				The mode in which to operate. <code>0</code> means calculating with street lengths, <code>1</code> means calculating based on speed/time
+	 * @param direction			<code>0</code>=don't care about direction, <code>-1</code>=from startNode to endNode, <code>1</code>=from endNode to startNode
+	 * @param startX			the x coordinate of the start point
+	 * @param startY			the y coordinate of the start point
+	 * @param startStreet		the street on which the start point lies
+	 * @param startStreetPos	the position measured in cm from the startNode of the <code>startStreet</code>
+	 * @param targetX			the x coordinate of the target point
+	 * @param targetY			the y coordinate of the target point
+	 * @param targetStreet		the street on which the target point lies
+	 * @param targetStreetPos	the position measured in cm from the startNode of the <code>targetStreet</code>
+	 * @param penaltyStreets	an array with all streets which have penalties.
+	 * @param penaltyDirections	an array with directions corresponding to penaltyStreets. <code>1</code> in the array means from endNode to startNode,
+	 * 							<code>0</code> means both directions and <code>-1</code> means from startNode to endNode
+	 * @param penalties			an array with all penalties measured in cm.
+	 * @param penaltySize		how many penalties exist.
+	 * @param additionalVar		the maximum speed of the vehicle for calculations in <code>mode=1</code>
+	 *
+	 * @return An <code>ArrayDeque</code> for returning the result. The first element will be the start node and the last will be the end node of the routing.
+	 *
+	 * @see	vanetsim.routing.RoutingAlgorithm#getRouting(int, int, int, int, Street, double, int, int, Street, double, Street[], int[], int[], int, int)
+	 */
+	public ArrayDeque<Node> getRouting(int mode, int direction, int startX, int startY, Street startStreet, double startStreetPos, int targetX, int targetY, Street targetStreet, double targetStreetPos, Street[] penaltyStreets, int[] penaltyDirections, int[] penalties, int penaltySize, int additionalVar){
+		CH_Metric metric = null;
+		if(penaltySize == 0) metric = getMetric(mode, additionalVar);
+		CH_Graph graph = (metric == null) ? null : metric.getGraph();
+		if(graph == null || !graph.contains(startStreet.getStartNode()) || !graph.contains(startStreet.getEndNode()) || !graph.contains(targetStreet.getStartNode()) || !graph.contains(targetStreet.getEndNode())){
+			return fallback_.getRouting(mode, direction, startX, startY, startStreet, startStreetPos, targetX, targetY, targetStreet, targetStreetPos, penaltyStreets, penaltyDirections, penalties, penaltySize, additionalVar);
+		}
+		Node[] sources = new Node[2];
+		double[] sourceWeights = new double[2];
+		int sourceCount = 0;
+		if(direction > -1){
+			sources[sourceCount] = startStreet.getStartNode();
+			sourceWeights[sourceCount++] = metric.getWeight(startStreet, startStreetPos);
+		}
+		if(direction < 1){
+			sources[sourceCount] = startStreet.getEndNode();
+			sourceWeights[sourceCount++] = metric.getWeight(startStreet, startStreet.getLength() - startStreetPos);
+		}
+		Node[] targets = new Node[2];
+		double[] targetWeights = new double[2];
+		int targetCount = 0;
+		targets[targetCount] = targetStreet.getStartNode();
+		targetWeights[targetCount++] = metric.getWeight(targetStreet, targetStreetPos);
+		if(!targetStreet.isOneway()){	// oneway streets can only be entered at the startNode
+			targets[targetCount] = targetStreet.getEndNode();
+			targetWeights[targetCount++] = metric.getWeight(targetStreet, targetStreet.getLength() - targetStreetPos);
+		}
+		return query_.get().route(metric, sources, sourceWeights, sourceCount, targets, targetWeights, targetCount);
+	}
+}
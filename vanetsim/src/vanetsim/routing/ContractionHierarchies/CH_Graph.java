@@ -0,0 +1,487 @@
+package vanetsim.routing.ContractionHierarchies;
+
+import vanetsim.map.Map;
+import vanetsim.map.Node;
+import vanetsim.map.RoadGraph;
+import vanetsim.routing.IndexedMinHeap;
+
+/**
+ * A contraction hierarchy of the street network of the {@link Map} (read from its {@link RoadGraph}). The hierarchy doesn't
+ * depend on a metric: during the preprocessing, the nodes are contracted one after another ordered by the edge difference and
+ * when a node is contracted, shortcuts are added between all its remaining neighbours without searching for witnesses. So the
+ * hierarchy stays correct for any weights of the streets and only the weights of the edges need to be calculated again if the
+ * metric changes (see {@link CH_Metric}). For this, each shortcut remembers all pairs of edges (lower triangles) it may
+ * consist of. Afterwards, each edge is stored at the node with the lower rank so that both searches of a query only need to go
+ * upwards in the hierarchy.
+ * <p>
+ * The nodes are indexed by their ID (see {@link Node#getNodeID()}). Objects of this class aren't changed after the
+ * preprocessing so they can be used by several threads at the same time.
+ */
+final class CH_Graph{
+
+	/** The snapshot of the street network this hierarchy was created from. */
+	private final RoadGraph roadGraph_;
+
+	/** The change count of the map at the beginning of the preprocessing. */
+	private final int changeCount_;
+
+	/** The nodes (index is the node ID). Contains <code>null</code> for IDs which are not on the map. */
+	private final Node[] nodes_;
+
+	/**
+	 * The edge of the hierarchy for each edge of the {@link #roadGraph_} or <code>-1</code> for streets which begin and end at
+	 * the same node.
+	 */
+	private final int[] roadEdges_;
+
+	/** The first edge of each node in the upward graph used by the forward search. */
+	private final int[] upStarts_;
+
+	/** The target of each edge in the upward graph. */
+	private final int[] upTargets_;
+
+	/** The edge ID of each edge in the upward graph. */
+	private final int[] upEdges_;
+
+	/** The first edge of each node in the downward graph used by the backward search (edges are stored at their target). */
+	private final int[] downStarts_;
+
+	/** The source of each edge in the downward graph. */
+	private final int[] downSources_;
+
+	/** The edge ID of each edge in the downward graph. */
+	private final int[] downEdges_;
+
+	/** The target of each edge (by edge ID). */
+	private int[] edgeTargets_;
+
+	/** The source of each edge, only needed during the preprocessing (by edge ID). */
+	private int[] edgeSources_;
+
+	/** The amount of edges. */
+	private int edgeCount_ = 0;
+
+	/** The shortcut of each lower triangle. The triangles are stored in the order of the contraction. */
+	private int[] triangleEdges_;
+
+	/** The first edge of each lower triangle. */
+	private int[] triangleFirsts_;
+
+	/** The second edge of each lower triangle. */
+	private int[] triangleSeconds_;
+
+	/** The amount of lower triangles. */
+	private int triangleCount_ = 0;
+
+	/** The outgoing edges of each node during the preprocessing. */
+	private int[][] outEdges_;
+
+	/** The amount of outgoing edges of each node during the preprocessing. */
+	private int[] outCounts_;
+
+	/** The incoming edges of each node during the preprocessing. */
+	private int[][] inEdges_;
+
+	/** The amount of incoming edges of each node during the preprocessing. */
+	private int[] inCounts_;
+
+	/** If a node has been contracted. */
+	private boolean[] contracted_;
+
+	/**
+	 * Creates the contraction hierarchy for the current map.
+	 */
+	public CH_Graph(){
+		RoadGraph graph = Map.getInstance().getRoadGraph();
+		roadGraph_ = graph;
+		changeCount_ = graph.getChangeCount();
+		int nodeCount = graph.getNodeCount();
+		nodes_ = graph.getNodes();
+		int i, j, k;
+
+		// create the edges from the streets
+		int initialCapacity = nodeCount * 4 + 16;
+		edgeSources_ = new int[initialCapacity];
+		edgeTargets_ = new int[initialCapacity];
+		triangleEdges_ = new int[initialCapacity];
+		triangleFirsts_ = new int[initialCapacity];
+		triangleSeconds_ = new int[initialCapacity];
+		outEdges_ = new int[nodeCount][];
+		outCounts_ = new int[nodeCount];
+		inEdges_ = new int[nodeCount][];
+		inCounts_ = new int[nodeCount];
+		int[] edgeStarts = graph.getEdgeStarts(), edgeTargets = graph.getEdgeTargets();
+		roadEdges_ = new int[graph.getEdgeCount()];
+		for(i = 0; i < nodeCount; ++i){
+			for(j = edgeStarts[i]; j < edgeStarts[i + 1]; ++j){
+				if(edgeTargets[j] == i) roadEdges_[j] = -1;
+				else roadEdges_[j] = addEdge(i, edgeTargets[j]);
+			}
+		}
+
+		int[] ranks = contract();
+
+		// split the edges into the upward and the downward graph
+		upStarts_ = new int[nodeCount + 1];
+		downStarts_ = new int[nodeCount + 1];
+		int source, target;
+		for(i = 0; i < edgeCount_; ++i){
+			if(ranks[edgeSources_[i]] < ranks[edgeTargets_[i]]) ++upStarts_[edgeSources_[i] + 1];
+			else ++downStarts_[edgeTargets_[i] + 1];
+		}
+		for(i = 0; i < nodeCount; ++i){
+			upStarts_[i + 1] += upStarts_[i];
+			downStarts_[i + 1] += downStarts_[i];
+		}
+		upTargets_ = new int[upStarts_[nodeCount]];
+		upEdges_ = new int[upTargets_.length];
+		downSources_ = new int[downStarts_[nodeCount]];
+		downEdges_ = new int[downSources_.length];
+		int[] upPositions = upStarts_.clone();
+		int[] downPositions = downStarts_.clone();
+		for(i = 0; i < edgeCount_; ++i){
+			source = edgeSources_[i];
+			target = edgeTargets_[i];
+			if(ranks[source] < ranks[target]){
+				k = upPositions[source]++;
+				upTargets_[k] = target;
+				upEdges_[k] = i;
+			} else {
+				k = downPositions[target]++;
+				downSources_[k] = source;
+				downEdges_[k] = i;
+			}
+		}
+
+		// free the memory only needed during the preprocessing
+		edgeSources_ = null;
+		outEdges_ = null;
+		outCounts_ = null;
+		inEdges_ = null;
+		inCounts_ = null;
+		contracted_ = null;
+	}
+
+	/**
+	 * Contracts all nodes.
+	 *
+	 * @return the rank of each node
+	 */
+	private int[] contract(){
+		int nodeCount = nodes_.length;
+		int[] ranks = new int[nodeCount];
+		int[] deletedNeighbours = new int[nodeCount];
+		int[] neighbourStamps = new int[nodeCount];
+		contracted_ = new boolean[nodeCount];
+		IndexedMinHeap order = new IndexedMinHeap(nodeCount);
+		int i, j, node, neighbour, rank = 0;
+		for(i = 0; i < nodeCount; ++i){
+			if(nodes_[i] != null) order.update(i, getPriority(i, 0));
+		}
+		double priority;
+		while(!order.isEmpty()){
+			node = order.poll();
+			// lazy update: the priority might have changed since it was calculated
+			priority = getPriority(node, deletedNeighbours[node]);
+			if(!order.isEmpty() && priority > order.peekKey()){
+				order.update(node, priority);
+				continue;
+			}
+			processNode(node, true);
+			contracted_[node] = true;
+			ranks[node] = rank++;
+
+			// update the priorities of the neighbours
+			for(i = 0; i < 2; ++i){
+				int[] edges = (i == 0) ? outEdges_[node] : inEdges_[node];
+				int count = (i == 0) ? outCounts_[node] : inCounts_[node];
+				for(j = 0; j < count; ++j){
+					neighbour = (i == 0) ? edgeTargets_[edges[j]] : edgeSources_[edges[j]];
+					if(contracted_[neighbour] || neighbourStamps[neighbour] == rank) continue;
+					neighbourStamps[neighbour] = rank;
+					++deletedNeighbours[neighbour];
+					order.update(neighbour, getPriority(neighbour, deletedNeighbours[neighbour]));
+				}
+			}
+		}
+		return ranks;
+	}
+
+	/**
+	 * Calculates the priority of a node for the contraction order. Nodes with a lower priority are contracted first.
+	 *
+	 * @param node				the node
+	 * @param deletedNeighbours	how many neighbours have already been contracted
+	 *
+	 * @return the priority
+	 */
+	private double getPriority(int node, int deletedNeighbours){
+		int degree = 0, i;
+		for(i = 0; i < outCounts_[node]; ++i){
+			if(!contracted_[edgeTargets_[outEdges_[node][i]]]) ++degree;
+		}
+		for(i = 0; i < inCounts_[node]; ++i){
+			if(!contracted_[edgeSources_[inEdges_[node][i]]]) ++degree;
+		}
+		return processNode(node, false) - degree + deletedNeighbours;
+	}
+
+	/**
+	 * Finds the shortcuts needed if a node is contracted. Each pair of an incoming and an outgoing edge to nodes which
+	 * haven't been contracted yet needs a shortcut.
+	 *
+	 * @param node	the node
+	 * @param add	<code>true</code> to add the shortcuts, <code>false</code> to only count them
+	 *
+	 * @return the amount of shortcuts
+	 */
+	private int processNode(int node, boolean add){
+		int shortcuts = 0;
+		int i, j, inEdge, outEdge, source, target;
+		for(i = 0; i < inCounts_[node]; ++i){
+			inEdge = inEdges_[node][i];
+			source = edgeSources_[inEdge];
+			if(contracted_[source]) continue;
+			for(j = 0; j < outCounts_[node]; ++j){
+				outEdge = outEdges_[node][j];
+				target = edgeTargets_[outEdge];
+				if(contracted_[target] || target == source) continue;
+				++shortcuts;
+				if(add) addTriangle(addEdge(source, target), inEdge, outEdge);
+			}
+		}
+		return shortcuts;
+	}
+
+	/**
+	 * Adds an edge if there's no edge between the two nodes yet.
+	 *
+	 * @param source	the source node
+	 * @param target	the target node
+	 *
+	 * @return the ID of the new or the existing edge
+	 */
+	private int addEdge(int source, int target){
+		int i, edge;
+		for(i = 0; i < outCounts_[source]; ++i){
+			edge = outEdges_[source][i];
+			if(edgeTargets_[edge] == target) return edge;
+		}
+		if(edgeCount_ == edgeTargets_.length){
+			int capacity = edgeCount_ * 2;
+			int[] newInts = new int[capacity];
+			System.arraycopy(edgeSources_, 0, newInts, 0, edgeCount_);
+			edgeSources_ = newInts;
+			newInts = new int[capacity];
+			System.arraycopy(edgeTargets_, 0, newInts, 0, edgeCount_);
+			edgeTargets_ = newInts;
+		}
+		edge = edgeCount_++;
+		edgeSources_[edge] = source;
+		edgeTargets_[edge] = target;
+
+		if(outEdges_[source] == null) outEdges_[source] = new int[4];
+		else if(outCounts_[source] == outEdges_[source].length){
+			int[] newEdges = new int[outCounts_[source] * 2];
+			System.arraycopy(outEdges_[source], 0, newEdges, 0, outCounts_[source]);
+			outEdges_[source] = newEdges;
+		}
+		outEdges_[source][outCounts_[source]++] = edge;
+		if(inEdges_[target] == null) inEdges_[target] = new int[4];
+		else if(inCounts_[target] == inEdges_[target].length){
+			int[] newEdges = new int[inCounts_[target] * 2];
+			System.arraycopy(inEdges_[target], 0, newEdges, 0, inCounts_[target]);
+			inEdges_[target] = newEdges;
+		}
+		inEdges_[target][inCounts_[target]++] = edge;
+		return edge;
+	}
+
+	/**
+	 * Adds a lower triangle.
+	 *
+	 * @param edge		the shortcut
+	 * @param first		the first edge the shortcut may consist of
+	 * @param second	the second edge the shortcut may consist of
+	 */
+	private void addTriangle(int edge, int first, int second){
+		if(triangleCount_ == triangleEdges_.length){
+			int capacity = triangleCount_ * 2;
+			int[] newInts = new int[capacity];
+			System.arraycopy(triangleEdges_, 0, newInts, 0, triangleCount_);
+			triangleEdges_ = newInts;
+			newInts = new int[capacity];
+			System.arraycopy(triangleFirsts_, 0, newInts, 0, triangleCount_);
+			triangleFirsts_ = newInts;
+			newInts = new int[capacity];
+			System.arraycopy(triangleSeconds_, 0, newInts, 0, triangleCount_);
+			triangleSeconds_ = newInts;
+		}
+		triangleEdges_[triangleCount_] = edge;
+		triangleFirsts_[triangleCount_] = first;
+		triangleSeconds_[triangleCount_++] = second;
+	}
+
+	/**
+	 * Checks if a node belongs to this graph.
+	 *
+	 * @param node	the node
+	 *
+	 * @return <code>true</code> if it belongs to this graph, else <code>false</code>
+	 */
+	public boolean contains(Node node){
+		int index = node.getNodeID();
+		return index < nodes_.length && nodes_[index] == node;
+	}
+
+	/**
+	 * Gets the snapshot of the street network this graph was created from.
+	 *
+	 * @return the snapshot
+	 */
+	public RoadGraph getRoadGraph(){
+		return roadGraph_;
+	}
+
+	/**
+	 * Gets the change count of the map this graph was created from.
+	 *
+	 * @return the change count
+	 *
+	 * @see Map#getChangeCount()
+	 */
+	public int getChangeCount(){
+		return changeCount_;
+	}
+
+	/**
+	 * Gets the nodes.
+	 *
+	 * @return the nodes (index is the node ID)
+	 */
+	public Node[] getNodes(){
+		return nodes_;
+	}
+
+	/**
+	 * Gets the amount of edges (streets and shortcuts).
+	 *
+	 * @return the amount of edges
+	 */
+	public int getEdgeCount(){
+		return edgeCount_;
+	}
+
+	/**
+	 * Gets the edge of this graph for each edge of the snapshot of the street network. Several edges of the snapshot may
+	 * belong to the same edge if there are several streets between two nodes.
+	 *
+	 * @return the edge ID for each edge of the snapshot or <code>-1</code> if the edge isn't used
+	 */
+	public int[] getRoadEdges(){
+		return roadEdges_;
+	}
+
+	/**
+	 * Gets the amount of lower triangles.
+	 *
+	 * @return the amount
+	 */
+	public int getTriangleCount(){
+		return triangleCount_;
+	}
+
+	/**
+	 * Gets the shortcut of each lower triangle. The triangles are ordered so that both edges of a triangle don't belong to a
+	 * later triangle.
+	 *
+	 * @return the array
+	 */
+	public int[] getTriangleEdges(){
+		return triangleEdges_;
+	}
+
+	/**
+	 * Gets the first edge of each lower triangle.
+	 *
+	 * @return the array
+	 */
+	public int[] getTriangleFirsts(){
+		return triangleFirsts_;
+	}
+
+	/**
+	 * Gets the second edge of each lower triangle.
+	 *
+	 * @return the array
+	 */
+	public int[] getTriangleSeconds(){
+		return triangleSeconds_;
+	}
+
+	/**
+	 * Gets the first edge of each node in the upward graph. The edges of node <code>i</code> are at the positions from
+	 * <code>getUpStarts()[i]</code> to <code>getUpStarts()[i+1]</code> (exclusive).
+	 *
+	 * @return the array
+	 */
+	public int[] getUpStarts(){
+		return upStarts_;
+	}
+
+	/**
+	 * Gets the targets of the edges in the upward graph.
+	 *
+	 * @return the array
+	 */
+	public int[] getUpTargets(){
+		return upTargets_;
+	}
+
+	/**
+	 * Gets the edge IDs of the edges in the upward graph.
+	 *
+	 * @return the array
+	 */
+	public int[] getUpEdges(){
+		return upEdges_;
+	}
+
+	/**
+	 * Gets the first edge of each node in the downward graph.
+	 *
+	 * @return the array
+	 */
+	public int[] getDownStarts(){
+		return downStarts_;
+	}
+
+	/**
+	 * Gets the sources of the edges in the downward graph.
+	 *
+	 * @return the array
+	 */
+	public int[] getDownSources(){
+		return downSources_;
+	}
+
+	/**
+	 * Gets the edge IDs of the edges in the downward graph.
+	 *
+	 * @return the array
+	 */
+	public int[] getDownEdges(){
+		return downEdges_;
+	}
+
+	/**
+	 * Gets the target of an edge.
+	 *
+	 * @param edge	the edge ID
+	 *
+	 * @return the index of the target node
+	 */
+	public int getEdgeTarget(int edge){
+		return edgeTargets_[edge];
+	}
+}
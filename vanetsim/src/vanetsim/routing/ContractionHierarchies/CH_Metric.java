@@ -0,0 +1,184 @@
+package vanetsim.routing.ContractionHierarchies;
+
+import java.util.Arrays;
+
+import vanetsim.map.RoadGraph;
+import vanetsim.map.Street;
+
+/**
+ * The weights of the edges of a {@link CH_Graph} for one metric. The weights of the streets are calculated first, afterwards
+ * each shortcut gets the weight of its cheapest lower triangle. As the triangles are processed in the order of the contraction,
+ * the weights of both edges of a triangle are already final when it's used. The edges a shortcut consists of are remembered
+ * so that a query can unpack it.
+ * <p>
+ * Objects of this class aren't changed after their creation so they can be used by several threads at the same time.
+ */
+final class CH_Metric{
+
+	/** The hierarchy. */
+	private final CH_Graph graph_;
+
+	/** The mode (<code>0</code> for distance, <code>1</code> for time). */
+	private final int mode_;
+
+	/** The maximum speed used for the time based metric in cm/s. */
+	private final int speedLimit_;
+
+	/** The version of the estimated speeds used (see {@link vanetsim.map.TravelTimeEstimator#getVersion()}). */
+	private final int version_;
+
+	/** The weight of each edge in the upward graph. */
+	private final double[] upWeights_;
+
+	/** The weight of each edge in the downward graph. */
+	private final double[] downWeights_;
+
+	/** The first edge a shortcut consists of or <code>-1</code> if the edge is a street (by edge ID). */
+	private final int[] edgeFirst_;
+
+	/** The second edge a shortcut consists of (by edge ID). */
+	private final int[] edgeSecond_;
+
+	/**
+	 * Calculates the weights for a metric.
+	 *
+	 * @param graph			the hierarchy
+	 * @param mode			<code>0</code> to use the length of the streets as metric, <code>1</code> to use the time needed
+	 * @param speedLimit	the maximum speed in cm/s used for the time needed. Streets with a higher speed are treated as if
+	 * 						they had this speed.
+	 * @param speeds		the estimated speed of each edge of the snapshot of the street network or <code>null</code> to use
+	 * 						the maximum speeds of the streets
+	 * @param version		the version of the estimated speeds
+	 */
+	public CH_Metric(CH_Graph graph, int mode, int speedLimit, int[] speeds, int version){
+		graph_ = graph;
+		mode_ = mode;
+		speedLimit_ = speedLimit;
+		version_ = version;
+		RoadGraph roadGraph = graph.getRoadGraph();
+		if(speeds == null) speeds = roadGraph.getEdgeSpeeds();
+		double[] lengths = roadGraph.getEdgeLengths();
+		int edgeCount = graph.getEdgeCount();
+		int i, edge;
+		double weight;
+
+		// the streets (only the cheapest one is used if several streets connect two nodes)
+		double[] weights = new double[edgeCount];
+		Arrays.fill(weights, Double.POSITIVE_INFINITY);
+		edgeFirst_ = new int[edgeCount];
+		Arrays.fill(edgeFirst_, -1);
+		edgeSecond_ = new int[edgeCount];
+		Arrays.fill(edgeSecond_, -1);
+		int[] roadEdges = graph.getRoadEdges();
+		for(i = 0; i < roadEdges.length; ++i){
+			edge = roadEdges[i];
+			if(edge == -1) continue;
+			weight = getWeight(speeds[i], lengths[i]);
+			if(weight < weights[edge]) weights[edge] = weight;
+		}
+
+		// the shortcuts
+		int[] triangleEdges = graph.getTriangleEdges(), triangleFirsts = graph.getTriangleFirsts(), triangleSeconds = graph.getTriangleSeconds();
+		int triangleCount = graph.getTriangleCount();
+		for(i = 0; i < triangleCount; ++i){
+			edge = triangleEdges[i];
+			weight = weights[triangleFirsts[i]] + weights[triangleSeconds[i]];
+			if(weight < weights[edge]){
+				weights[edge] = weight;
+				edgeFirst_[edge] = triangleFirsts[i];
+				edgeSecond_[edge] = triangleSeconds[i];
+			}
+		}
+
+		int[] upEdges = graph.getUpEdges(), downEdges = graph.getDownEdges();
+		upWeights_ = new double[upEdges.length];
+		for(i = 0; i < upEdges.length; ++i) upWeights_[i] = weights[upEdges[i]];
+		downWeights_ = new double[downEdges.length];
+		for(i = 0; i < downEdges.length; ++i) downWeights_[i] = weights[downEdges[i]];
+	}
+
+	/**
+	 * Gets the weight of (a part of) a street in this metric. The maximum speed of the street is used even if speeds are
+	 * estimated (like in the {@link vanetsim.routing.A_Star.A_Star_Algorithm}).
+	 *
+	 * @param street	the street
+	 * @param length	the length of the part of the street in cm
+	 *
+	 * @return the weight
+	 */
+	public double getWeight(Street street, double length){
+		return getWeight(street.getSpeed(), length);
+	}
+
+	/**
+	 * Gets the weight of (a part of) a street in this metric.
+	 *
+	 * @param speed		the speed of the street in cm/s
+	 * @param length	the length of the part of the street in cm
+	 *
+	 * @return the weight
+	 */
+	private double getWeight(int speed, double length){
+		if(mode_ == 0) return length;
+		if(speed > speedLimit_) return length / speedLimit_;
+		else return length / speed;
+	}
+
+	/**
+	 * Gets the hierarchy.
+	 *
+	 * @return the hierarchy
+	 */
+	public CH_Graph getGraph(){
+		return graph_;
+	}
+
+	/**
+	 * Gets the version of the estimated speeds used for the weights.
+	 *
+	 * @return the version
+	 */
+	public int getVersion(){
+		return version_;
+	}
+
+	/**
+	 * Gets the weights of the edges in the upward graph.
+	 *
+	 * @return the array
+	 */
+	public double[] getUpWeights(){
+		return upWeights_;
+	}
+
+	/**
+	 * Gets the weights of the edges in the downward graph.
+	 *
+	 * @return the array
+	 */
+	public double[] getDownWeights(){
+		return downWeights_;
+	}
+
+	/**
+	 * Gets the first edge of a shortcut.
+	 *
+	 * @param edge	the edge ID
+	 *
+	 * @return the edge ID or <code>-1</code> if the edge is no shortcut
+	 */
+	public int getEdgeFirst(int edge){
+		return edgeFirst_[edge];
+	}
+
+	/**
+	 * Gets the second edge of a shortcut.
+	 *
+	 * @param edge	the edge ID
+	 *
+	 * @return the edge ID or <code>-1</code> if the edge is no shortcut
+	 */
+	public int getEdgeSecond(int edge){
+		return edgeSecond_[edge];
+	}
+}
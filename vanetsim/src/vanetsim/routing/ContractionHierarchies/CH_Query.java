@@ -0,0 +1,223 @@
+package vanetsim.routing.ContractionHierarchies;
+
+import java.util.ArrayDeque;
+
+import vanetsim.map.Node;
+import vanetsim.routing.IndexedMinHeap;
+
+/**
+ * The state of a bidirectional query on a {@link CH_Graph}. The forward search starts at the sources and only uses edges to
+ * nodes with a higher rank, the backward search starts at the targets and does the same on the reversed edges. The shortest
+ * path goes through the node where the sum of both distances is the smallest. The arrays are only reset through a stamp so
+ * that a query doesn't need to touch all nodes. A query object may only be used by one thread at a time.
+ */
+final class CH_Query{
+
+	/** The graph the arrays have been created for. */
+	private CH_Graph graph_ = null;
+
+	/** The distances of the forward search. */
+	private double[] forwardDistances_;
+
+	/** The distances of the backward search. */
+	private double[] backwardDistances_;
+
+	/** The edge used to reach a node in the forward search or <code>-1</code> for a source. */
+	private int[] forwardEdges_;
+
+	/** The node from which a node was reached in the forward search. */
+	private int[] forwardPredecessors_;
+
+	/** The edge used to reach a node in the backward search or <code>-1</code> for a target. */
+	private int[] backwardEdges_;
+
+	/** The node from which a node was reached in the backward search. */
+	private int[] backwardPredecessors_;
+
+	/** Marks which entries of the forward arrays are valid for the current query. */
+	private int[] forwardStamps_;
+
+	/** Marks which entries of the backward arrays are valid for the current query. */
+	private int[] backwardStamps_;
+
+	/** The stamp of the current query. */
+	private int stamp_ = 0;
+
+	/** The queue of the forward search. */
+	private IndexedMinHeap forwardQueue_;
+
+	/** The queue of the backward search. */
+	private IndexedMinHeap backwardQueue_;
+
+	/** A stack used to unpack the shortcuts. */
+	private int[] stack_ = new int[64];
+
+	/**
+	 * Prepares the arrays for a graph.
+	 *
+	 * @param graph	the graph
+	 */
+	private void prepare(CH_Graph graph){
+		if(graph_ != graph){
+			int nodeCount = graph.getNodes().length;
+			if(graph_ == null || forwardDistances_.length != nodeCount){
+				forwardDistances_ = new double[nodeCount];
+				backwardDistances_ = new double[nodeCount];
+				forwardEdges_ = new int[nodeCount];
+				forwardPredecessors_ = new int[nodeCount];
+				backwardEdges_ = new int[nodeCount];
+				backwardPredecessors_ = new int[nodeCount];
+				forwardQueue_ = new IndexedMinHeap(nodeCount);
+				backwardQueue_ = new IndexedMinHeap(nodeCount);
+			}
+			forwardStamps_ = new int[nodeCount];
+			backwardStamps_ = new int[nodeCount];
+			stamp_ = 0;
+			graph_ = graph;
+		}
+		forwardQueue_.clear();
+		backwardQueue_.clear();
+		++stamp_;
+	}
+
+	/**
+	 * Computes the shortest path from one of the sources to one of the targets.
+	 *
+	 * @param metric			the weights of the graph
+	 * @param sources			the source nodes
+	 * @param sourceWeights		the initial distance of each source
+	 * @param sourceCount		how many sources are used
+	 * @param targets			the target nodes
+	 * @param targetWeights		the distance from each target to the real destination
+	 * @param targetCount		how many targets are used
+	 *
+	 * @return the nodes of the path beginning with a source and ending with a target. Empty if there's no path.
+	 */
+	public ArrayDeque<Node> route(CH_Metric metric, Node[] sources, double[] sourceWeights, int sourceCount, Node[] targets, double[] targetWeights, int targetCount){
+		CH_Graph graph = metric.getGraph();
+		prepare(graph);
+		int i, node;
+		for(i = 0; i < sourceCount; ++i){
+			node = sources[i].getNodeID();
+			if(forwardStamps_[node] != stamp_ || sourceWeights[i] < forwardDistances_[node]){
+				forwardStamps_[node] = stamp_;
+				forwardDistances_[node] = sourceWeights[i];
+				forwardEdges_[node] = -1;
+				forwardQueue_.update(node, sourceWeights[i]);
+			}
+		}
+		for(i = 0; i < targetCount; ++i){
+			node = targets[i].getNodeID();
+			if(backwardStamps_[node] != stamp_ || targetWeights[i] < backwardDistances_[node]){
+				backwardStamps_[node] = stamp_;
+				backwardDistances_[node] = targetWeights[i];
+				backwardEdges_[node] = -1;
+				backwardQueue_.update(node, targetWeights[i]);
+			}
+		}
+
+		int[] upStarts = graph.getUpStarts(), upTargets = graph.getUpTargets(), upEdges = graph.getUpEdges();
+		int[] downStarts = graph.getDownStarts(), downSources = graph.getDownSources(), downEdges = graph.getDownEdges();
+		double[] upWeights = metric.getUpWeights(), downWeights = metric.getDownWeights();
+		double best = Double.POSITIVE_INFINITY, distance, forwardKey, backwardKey;
+		int meeting = -1, other, end;
+		while(true){
+			forwardKey = forwardQueue_.peekKey();
+			backwardKey = backwardQueue_.peekKey();
+			if(forwardKey >= best && backwardKey >= best) break;		// also stops if both queues are empty
+			if(forwardKey <= backwardKey){
+				node = forwardQueue_.poll();
+				if(backwardStamps_[node] == stamp_ && forwardDistances_[node] + backwardDistances_[node] < best){
+					best = forwardDistances_[node] + backwardDistances_[node];
+					meeting = node;
+				}
+				end = upStarts[node + 1];
+				for(i = upStarts[node]; i < end; ++i){
+					other = upTargets[i];
+					distance = forwardDistances_[node] + upWeights[i];
+					if(forwardStamps_[other] != stamp_ || distance < forwardDistances_[other]){
+						forwardStamps_[other] = stamp_;
+						forwardDistances_[other] = distance;
+						forwardEdges_[other] = upEdges[i];
+						forwardPredecessors_[other] = node;
+						forwardQueue_.update(other, distance);
+					}
+				}
+			} else {
+				node = backwardQueue_.poll();
+				if(forwardStamps_[node] == stamp_ && forwardDistances_[node] + backwardDistances_[node] < best){
+					best = forwardDistances_[node] + backwardDistances_[node];
+					meeting = node;
+				}
+				end = downStarts[node + 1];
+				for(i = downStarts[node]; i < end; ++i){
+					other = downSources[i];
+					distance = backwardDistances_[node] + downWeights[i];
+					if(backwardStamps_[other] != stamp_ || distance < backwardDistances_[other]){
+						backwardStamps_[other] = stamp_;
+						backwardDistances_[other] = distance;
+						backwardEdges_[other] = downEdges[i];
+						backwardPredecessors_[other] = node;
+						backwardQueue_.update(other, distance);
+					}
+				}
+			}
+		}
+
+		ArrayDeque<Node> result = new ArrayDeque<Node>(255);
+		if(meeting == -1) return result;
+		Node[] nodes = graph.getNodes();
+		// forward part: walk back to the source and unpack the edges in reverse order
+		ArrayDeque<Node> part = new ArrayDeque<Node>(64);
+		node = meeting;
+		while(forwardEdges_[node] != -1){
+			unpack(metric, forwardEdges_[node], part, true);
+			node = forwardPredecessors_[node];
+		}
+		result.add(nodes[node]);
+		while(!part.isEmpty()) result.add(part.pollLast());
+		// backward part: walk to the target
+		node = meeting;
+		while(backwardEdges_[node] != -1){
+			unpack(metric, backwardEdges_[node], result, false);
+			node = backwardPredecessors_[node];
+		}
+		return result;
+	}
+
+	/**
+	 * Adds the nodes of an edge to a deque. The source of the edge isn't added.
+	 *
+	 * @param metric	the weights of the graph
+	 * @param edge		the edge ID
+	 * @param result	the deque to add to
+	 * @param reverse	<code>true</code> to add the nodes in reverse order (from the target of the edge backwards)
+	 */
+	private void unpack(CH_Metric metric, int edge, ArrayDeque<Node> result, boolean reverse){
+		CH_Graph graph = metric.getGraph();
+		Node[] nodes = graph.getNodes();
+		int size = 0, first;
+		stack_[size++] = edge;
+		while(size > 0){
+			edge = stack_[--size];
+			first = metric.getEdgeFirst(edge);
+			if(first == -1){
+				result.add(nodes[graph.getEdgeTarget(edge)]);
+			} else {
+				if(size + 2 > stack_.length){
+					int[] newStack = new int[stack_.length * 2];
+					System.arraycopy(stack_, 0, newStack, 0, size);
+					stack_ = newStack;
+				}
+				// the edge processed first is pushed last
+				if(reverse){
+					stack_[size++] = first;
+					stack_[size++] = metric.getEdgeSecond(edge);
+				} else {
+					stack_[size++] = metric.getEdgeSecond(edge);
+					stack_[size++] = first;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,152 @@
+package vanetsim.routing;
+
+/**
+ * A binary min-heap of node indices with <code>double</code> keys. The position of each index in the heap is stored so
+ * that the key of an index can be changed in O(log n). Used for Dijkstra searches on node indices and for the node order
+ * of the contraction hierarchies.
+ */
+public final class IndexedMinHeap{
+
+	/** The indices in heap order. */
+	private int[] heap_;
+
+	/** The keys in heap order. */
+	private double[] keys_;
+
+	/** The position of each index in the heap or <code>-1</code> if it's not in the heap. */
+	private final int[] positions_;
+
+	/** The number of elements in the heap. */
+	private int size_ = 0;
+
+	/**
+	 * Creates a new heap.
+	 *
+	 * @param capacity	the maximum index plus 1
+	 */
+	public IndexedMinHeap(int capacity){
+		heap_ = new int[Math.max(16, Math.min(capacity, 1024))];
+		keys_ = new double[heap_.length];
+		positions_ = new int[capacity];
+		for(int i = 0; i < capacity; ++i) positions_[i] = -1;
+	}
+
+	/**
+	 * Checks if this heap is empty.
+	 *
+	 * @return <code>true</code> if it's empty, else <code>false</code>
+	 */
+	public boolean isEmpty(){
+		return size_ == 0;
+	}
+
+	/**
+	 * Checks if an index is in the heap.
+	 *
+	 * @param index	the index
+	 *
+	 * @return <code>true</code> if it's in the heap, else <code>false</code>
+	 */
+	public boolean contains(int index){
+		return positions_[index] > -1;
+	}
+
+	/**
+	 * Gets the smallest key.
+	 *
+	 * @return the smallest key or <code>Double.POSITIVE_INFINITY</code> if the heap is empty
+	 */
+	public double peekKey(){
+		if(size_ == 0) return Double.POSITIVE_INFINITY;
+		return keys_[0];
+	}
+
+	/**
+	 * Removes the index with the smallest key.
+	 *
+	 * @return the index
+	 */
+	public int poll(){
+		int result = heap_[0];
+		positions_[result] = -1;
+		--size_;
+		if(size_ > 0) siftDown(0, heap_[size_], keys_[size_]);
+		return result;
+	}
+
+	/**
+	 * Adds an index or changes its key if it's already in the heap.
+	 *
+	 * @param index	the index
+	 * @param key	the new key
+	 */
+	public void update(int index, double key){
+		int pos = positions_[index];
+		if(pos < 0){
+			if(size_ == heap_.length){
+				int[] newHeap = new int[size_ * 2];
+				System.arraycopy(heap_, 0, newHeap, 0, size_);
+				heap_ = newHeap;
+				double[] newKeys = new double[size_ * 2];
+				System.arraycopy(keys_, 0, newKeys, 0, size_);
+				keys_ = newKeys;
+			}
+			siftUp(size_++, index, key);
+		} else if(key < keys_[pos]) siftUp(pos, index, key);
+		else siftDown(pos, index, key);
+	}
+
+	/**
+	 * Removes all indices.
+	 */
+	public void clear(){
+		for(int i = 0; i < size_; ++i) positions_[heap_[i]] = -1;
+		size_ = 0;
+	}
+
+	/**
+	 * Inserts an index at <code>pos</code> and moves it up until its parent has a smaller or equal key.
+	 *
+	 * @param pos	the position to fill
+	 * @param index	the index
+	 * @param key	the key of the index
+	 */
+	private void siftUp(int pos, int index, double key){
+		int parent;
+		while(pos > 0){
+			parent = (pos - 1) >>> 1;
+			if(key >= keys_[parent]) break;
+			heap_[pos] = heap_[parent];
+			keys_[pos] = keys_[parent];
+			positions_[heap_[pos]] = pos;
+			pos = parent;
+		}
+		heap_[pos] = index;
+		keys_[pos] = key;
+		positions_[index] = pos;
+	}
+
+	/**
+	 * Inserts an index at <code>pos</code> and moves it down until its children have larger or equal keys.
+	 *
+	 * @param pos	the position to fill
+	 * @param index	the index
+	 * @param key	the key of the index
+	 */
+	private void siftDown(int pos, int index, double key){
+		int half = size_ >>> 1;
+		int child;
+		while(pos < half){
+			child = (pos << 1) + 1;
+			if(child + 1 < size_ && keys_[child] > keys_[child + 1]) ++child;
+			if(key <= keys_[child]) break;
+			heap_[pos] = heap_[child];
+			keys_[pos] = keys_[child];
+			positions_[heap_[pos]] = pos;
+			pos = child;
+		}
+		heap_[pos] = index;
+		keys_[pos] = key;
+		positions_[index] = pos;
+	}
+}
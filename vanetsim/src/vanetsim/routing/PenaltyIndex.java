@@ -0,0 +1,145 @@
+package vanetsim.routing;
+
+import vanetsim.map.RoadGraph;
+import vanetsim.map.Street;
+
+/**
+ * The penalties of a routing query indexed by the edges of the {@link RoadGraph}. The penalties are given as arrays of streets,
+ * directions and values (see {@link vanetsim.scenario.KnownPenalties}). Searching these arrays for each investigated edge costs
+ * a lot of time if a vehicle knows many penalties. So the arrays are converted once per query into a small hash table with
+ * the edge indices as keys (open addressing with linear probing, no objects). Afterwards, the penalty of an edge is found in
+ * constant time. An index may be reused for further queries but only be used by one thread at the same time.
+ */
+public final class PenaltyIndex{
+
+	/** The key of an empty slot. */
+	private static final int EMPTY = -1;
+
+	/** The edge indices (keys). */
+	private int[] edges_ = new int[16];
+
+	/** The largest penalty in cm of each edge (values). */
+	private int[] penalties_ = new int[16];
+
+	/** The size of the table minus 1 (the size is a power of 2). */
+	private int mask_ = 15;
+
+	/** The amount of edges with penalties. */
+	private int size_ = 0;
+
+	/**
+	 * Creates an empty index.
+	 */
+	public PenaltyIndex(){
+		for(int i = 0; i < edges_.length; ++i) edges_[i] = EMPTY;
+	}
+
+	/**
+	 * Fills the index with new penalties. The old penalties are removed.
+	 *
+	 * @param graph				the snapshot of the street network used for the query
+	 * @param penaltyStreets	an array with all streets which have penalties
+	 * @param penaltyDirections	an array with directions corresponding to penaltyStreets. <code>1</code> in the array means from endNode to startNode,
+	 * 							<code>0</code> means both directions and <code>-1</code> means from startNode to endNode
+	 * @param penalties			an array with all penalties measured in cm
+	 * @param penaltySize		how many penalties exist
+	 */
+	public void build(RoadGraph graph, Street[] penaltyStreets, int[] penaltyDirections, int[] penalties, int penaltySize){
+		// each penalty may affect two edges so the table needs to be larger than 4 times the penalties to stay at most half full
+		int capacity = 16;
+		while(capacity < penaltySize * 4) capacity <<= 1;
+		if(capacity > edges_.length || capacity * 8 < edges_.length){	// don't keep a huge table after a query with lots of penalties
+			edges_ = new int[capacity];
+			penalties_ = new int[capacity];
+			mask_ = capacity - 1;
+			for(int i = 0; i < capacity; ++i) edges_[i] = EMPTY;
+		} else if(size_ > 0){
+			for(int i = 0; i < edges_.length; ++i) edges_[i] = EMPTY;
+		}
+		size_ = 0;
+		if(penaltySize == 0) return;
+
+		int[] edgeStarts = graph.getEdgeStarts();
+		Street[] edgeStreets = graph.getEdgeStreets();
+		boolean[] edgeForward = graph.getEdgeForward();
+		Street street;
+		int i, j, end, node;
+		for(i = 0; i < penaltySize; ++i){
+			street = penaltyStreets[i];
+			if(penalties[i] <= 0 || !graph.contains(street.getStartNode()) || !graph.contains(street.getEndNode())) continue;	// edges without penalty have 0
+			// the edges of a street are found among the edges going out from its nodes
+			if(penaltyDirections[i] < 1){	// from startNode to endNode
+				node = street.getStartNode().getNodeID();
+				end = edgeStarts[node + 1];
+				for(j = edgeStarts[node]; j < end; ++j){
+					if(edgeStreets[j] == street && edgeForward[j]) put(j, penalties[i]);
+				}
+			}
+			if(penaltyDirections[i] > -1){	// from endNode to startNode
+				node = street.getEndNode().getNodeID();
+				end = edgeStarts[node + 1];
+				for(j = edgeStarts[node]; j < end; ++j){
+					if(edgeStreets[j] == street && !edgeForward[j]) put(j, penalties[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stores a penalty for an edge. If the edge already has a penalty, the larger one is kept.
+	 *
+	 * @param edge		the index of the edge
+	 * @param penalty	the penalty in cm
+	 */
+	private void put(int edge, int penalty){
+		int slot = hash(edge) & mask_;
+		while(edges_[slot] != EMPTY){
+			if(edges_[slot] == edge){
+				if(penalties_[slot] < penalty) penalties_[slot] = penalty;
+				return;
+			}
+			slot = (slot + 1) & mask_;
+		}
+		edges_[slot] = edge;
+		penalties_[slot] = penalty;
+		++size_;
+	}
+
+	/**
+	 * Gets the penalty of an edge.
+	 *
+	 * @param edge	the index of the edge
+	 *
+	 * @return the largest penalty in cm or <code>0</code> if the edge has no penalty
+	 */
+	public int get(int edge){
+		int slot = hash(edge) & mask_;
+		int key;
+		while((key = edges_[slot]) != EMPTY){
+			if(key == edge) return penalties_[slot];
+			slot = (slot + 1) & mask_;
+		}
+		return 0;
+	}
+
+	/**
+	 * Checks if there are any penalties.
+	 *
+	 * @return <code>true</code> if no edge has a penalty
+	 */
+	public boolean isEmpty(){
+		return size_ == 0;
+	}
+
+	/**
+	 * Spreads the bits of an edge index so that neighboring edges don't end in neighboring slots.
+	 *
+	 * @param edge	the index of the edge
+	 *
+	 * @return the hash
+	 */
+	private static int hash(int edge){
+		int h = edge * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,441 @@
+package vanetsim.routing;
+
+import java.util.LinkedHashMap;
+
+import vanetsim.map.Map;
+import vanetsim.map.Street;
+import vanetsim.map.TravelTimeEstimator;
+
+/**
+ * A cache for routes which have already been calculated (least recently used entries are dropped first). Many vehicles
+ * (especially recycled ones) request exactly the same route again and again so that the routing algorithm doesn't need
+ * to be run each time.
+ * <p>
+ * A route is stored as the streets and directions a vehicle uses. The key contains all values the routing algorithms
+ * depend on: the algorithm, the mode, the direction, the start and the target street with the positions on them and the
+ * target point. The speed is only part of the key in the time based mode as it's ignored otherwise. Routes calculated with
+ * penalties must not be put into the cache. The cache is cleared automatically if the map or the estimated speeds of the
+ * {@link TravelTimeEstimator} have changed and should be cleared if blockings change.
+ * <p>
+ * The cache is split into {@link #SEGMENTS} segments with an own lock so that routing threads don't block each other. The
+ * segment of a route is chosen by the hash code of its key and each segment drops its own least recently used entries.
+ */
+public final class RouteCache{
+
+	/** The maximum amount of cached routes. */
+	private static final int CAPACITY = 20000;
+
+	/** The amount of segments (must be a power of two). */
+	private static final int SEGMENTS = 16;
+
+	/** The estimated memory used by an entry without the arrays in bytes (map entry, key and route). */
+	private static final int ENTRY_OVERHEAD = 160;
+
+	/** The only instance of this class (singleton). */
+	private static final RouteCache INSTANCE = new RouteCache();
+
+	/** The segments of the cache. */
+	private final Segment[] segments_ = new Segment[SEGMENTS];
+
+	/** A key for each thread used for lookups so that no key needs to be created if a route is found. */
+	private final ThreadLocal<Key> lookupKey_ = new ThreadLocal<Key>(){
+		protected Key initialValue(){
+			return new Key();
+		}
+	};
+
+	/** The change count of the map for which the routes have been cached. */
+	private volatile int changeCount_ = -1;
+
+	/** The version of the estimated speeds for which the routes have been cached. */
+	private volatile int speedVersion_ = -1;
+
+	/**
+	 * Private constructor in order to disable instancing.
+	 */
+	private RouteCache(){
+		for(int i = 0; i < SEGMENTS; ++i) segments_[i] = new Segment(CAPACITY / SEGMENTS);
+	}
+
+	/**
+	 * Gets the single instance of this cache.
+	 *
+	 * @return single instance of this cache
+	 */
+	public static RouteCache getInstance(){
+		return INSTANCE;
+	}
+
+	/**
+	 * Gets a cached route.
+	 *
+	 * @param algorithm			the index of the routing algorithm
+	 * @param mode				the mode of the routing algorithm
+	 * @param direction			<code>0</code>=don't care about direction, <code>-1</code>=from startNode to endNode, <code>1</code>=from endNode to startNode
+	 * @param startStreet		the street on which the start point lies
+	 * @param startStreetPos	the position measured in cm from the startNode of the <code>startStreet</code>
+	 * @param targetX			the x coordinate of the target point
+	 * @param targetY			the y coordinate of the target point
+	 * @param targetStreet		the street on which the target point lies
+	 * @param targetStreetPos	the position measured in cm from the startNode of the <code>targetStreet</code>
+	 * @param speed				the maximum speed of the vehicle in cm/s
+	 *
+	 * @return the route or <code>null</code> if it's not cached. The arrays of the route may not be modified!
+	 */
+	public CachedRoute get(int algorithm, int mode, int direction, Street startStreet, double startStreetPos, int targetX, int targetY, Street targetStreet, double targetStreetPos, int speed){
+		checkMap();
+		Key key = lookupKey_.get();
+		key.set(algorithm, mode, direction, startStreet, startStreetPos, targetX, targetY, targetStreet, targetStreetPos, speed);
+		return getSegment(key).get(key);
+	}
+
+	/**
+	 * Puts a route into the cache. The parameters are the same as in {@link #get(int, int, int, Street, double, int, int, Street, double, int)}.
+	 *
+	 * @param algorithm			the index of the routing algorithm
+	 * @param mode				the mode of the routing algorithm
+	 * @param direction			<code>0</code>=don't care about direction, <code>-1</code>=from startNode to endNode, <code>1</code>=from endNode to startNode
+	 * @param startStreet		the street on which the start point lies
+	 * @param startStreetPos	the position measured in cm from the startNode of the <code>startStreet</code>
+	 * @param targetX			the x coordinate of the target point
+	 * @param targetY			the y coordinate of the target point
+	 * @param targetStreet		the street on which the target point lies
+	 * @param targetStreetPos	the position measured in cm from the startNode of the <code>targetStreet</code>
+	 * @param speed				the maximum speed of the vehicle in cm/s
+	 * @param streets			the streets of the route. The array may not be modified afterwards!
+	 * @param directions		the directions on the streets of the route. The array may not be modified afterwards!
+	 */
+	public void put(int algorithm, int mode, int direction, Street startStreet, double startStreetPos, int targetX, int targetY, Street targetStreet, double targetStreetPos, int speed, Street[] streets, boolean[] directions){
+		checkMap();
+		Key key = new Key();
+		key.set(algorithm, mode, direction, startStreet, startStreetPos, targetX, targetY, targetStreet, targetStreetPos, speed);
+		getSegment(key).put(key, new CachedRoute(streets, directions));
+	}
+
+	/**
+	 * Gets the segment responsible for a key.
+	 *
+	 * @param key	the key
+	 *
+	 * @return the segment
+	 */
+	private Segment getSegment(Key key){
+		return segments_[(key.hashCode() * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(SEGMENTS))];
+	}
+
+	/**
+	 * Removes all cached routes. The statistics are not reset.
+	 */
+	public void clear(){
+		for(int i = 0; i < SEGMENTS; ++i) segments_[i].clear();
+	}
+
+	/**
+	 * Removes all cached routes if the map has changed since the routes were cached.
+	 */
+	private void checkMap(){
+		int changeCount = Map.getInstance().getChangeCount();
+		int speedVersion = TravelTimeEstimator.getInstance().getVersion();
+		if(changeCount != changeCount_ || speedVersion != speedVersion_){
+			synchronized(this){
+				if(changeCount != changeCount_ || speedVersion != speedVersion_){
+					clear();
+					changeCount_ = changeCount;
+					speedVersion_ = speedVersion;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Estimates the memory used by a cached route.
+	 *
+	 * @param route	the route
+	 *
+	 * @return the memory in bytes
+	 */
+	private static long getMemoryUsage(CachedRoute route){
+		return ENTRY_OVERHEAD + 16 + 4L * route.getStreets().length + 16 + route.getDirections().length;
+	}
+
+	/**
+	 * Gets the amount of cached routes.
+	 *
+	 * @return the amount of routes
+	 */
+	public int getSize(){
+		int result = 0;
+		for(int i = 0; i < SEGMENTS; ++i) result += segments_[i].getSize();
+		return result;
+	}
+
+	/**
+	 * Gets the amount of routes which were found in the cache.
+	 *
+	 * @return the amount of hits
+	 */
+	public long getHits(){
+		long result = 0;
+		for(int i = 0; i < SEGMENTS; ++i) result += segments_[i].getHits();
+		return result;
+	}
+
+	/**
+	 * Gets the amount of routes which were not found in the cache.
+	 *
+	 * @return the amount of misses
+	 */
+	public long getMisses(){
+		long result = 0;
+		for(int i = 0; i < SEGMENTS; ++i) result += segments_[i].getMisses();
+		return result;
+	}
+
+	/**
+	 * Gets the ratio of routes found in the cache to all requests.
+	 *
+	 * @return the hit rate between <code>0</code> and <code>1</code>
+	 */
+	public double getHitRate(){
+		long hits = getHits();
+		long misses = getMisses();
+		if(hits + misses > 0) return hits/(double)(hits + misses);
+		else return 0;
+	}
+
+	/**
+	 * Gets the estimated memory used by the cached routes.
+	 *
+	 * @return the memory in bytes
+	 */
+	public long getMemoryUsage(){
+		long result = 0;
+		for(int i = 0; i < SEGMENTS; ++i) result += segments_[i].getMemoryUsage();
+		return result;
+	}
+
+	/**
+	 * Resets the hit and miss counters.
+	 */
+	public void resetStatistics(){
+		for(int i = 0; i < SEGMENTS; ++i) segments_[i].resetStatistics();
+	}
+
+	/**
+	 * A part of the cache with an own lock.
+	 */
+	private static final class Segment{
+
+		/** The maximum amount of routes in this segment. */
+		private final int capacity_;
+
+		/** The cached routes. Iteration order is the access order so that the eldest entry is the least recently used one. */
+		private final LinkedHashMap<Key, CachedRoute> routes_;
+
+		/** The amount of routes found in this segment. */
+		private long hits_ = 0;
+
+		/** The amount of routes which were not found in this segment. */
+		private long misses_ = 0;
+
+		/** The estimated memory used by the routes of this segment in bytes. */
+		private long memoryUsage_ = 0;
+
+		/**
+		 * Instantiates a new segment.
+		 *
+		 * @param capacity	the maximum amount of routes
+		 */
+		public Segment(int capacity){
+			capacity_ = capacity;
+			routes_ = new LinkedHashMap<Key, CachedRoute>(capacity * 4 / 3 + 1, 0.75f, true){
+				private static final long serialVersionUID = 1L;
+
+				protected boolean removeEldestEntry(java.util.Map.Entry<Key, CachedRoute> eldest){
+					if(size() > capacity_){
+						memoryUsage_ -= RouteCache.getMemoryUsage(eldest.getValue());
+						return true;
+					} else return false;
+				}
+			};
+		}
+
+		/**
+		 * Gets a cached route.
+		 *
+		 * @param key	the key of the route
+		 *
+		 * @return the route or <code>null</code> if it's not cached
+		 */
+		public synchronized CachedRoute get(Key key){
+			CachedRoute result = routes_.get(key);
+			if(result == null) ++misses_;
+			else ++hits_;
+			return result;
+		}
+
+		/**
+		 * Puts a route into this segment.
+		 *
+		 * @param key	the key of the route (may not be modified afterwards)
+		 * @param route	the route
+		 */
+		public synchronized void put(Key key, CachedRoute route){
+			CachedRoute old = routes_.put(key, route);
+			if(old != null) memoryUsage_ -= RouteCache.getMemoryUsage(old);
+			memoryUsage_ += RouteCache.getMemoryUsage(route);
+		}
+
+		/**
+		 * Removes all routes of this segment.
+		 */
+		public synchronized void clear(){
+			routes_.clear();
+			memoryUsage_ = 0;
+		}
+
+		/**
+		 * Gets the amount of routes in this segment.
+		 *
+		 * @return the amount of routes
+		 */
+		public synchronized int getSize(){
+			return routes_.size();
+		}
+
+		/**
+		 * Gets the amount of routes found in this segment.
+		 *
+		 * @return the amount of hits
+		 */
+		public synchronized long getHits(){
+			return hits_;
+		}
+
+		/**
+		 * Gets the amount of routes which were not found in this segment.
+		 *
+		 * @return the amount of misses
+		 */
+		public synchronized long getMisses(){
+			return misses_;
+		}
+
+		/**
+		 * Gets the estimated memory used by the routes of this segment.
+		 *
+		 * @return the memory in bytes
+		 */
+		public synchronized long getMemoryUsage(){
+			return memoryUsage_;
+		}
+
+		/**
+		 * Resets the hit and miss counters.
+		 */
+		public synchronized void resetStatistics(){
+			hits_ = 0;
+			misses_ = 0;
+		}
+	}
+
+	/**
+	 * The key of a cached route.
+	 */
+	private static final class Key{
+
+		/** The index of the routing algorithm. */
+		private int algorithm_;
+
+		/** The mode of the routing algorithm. */
+		private int mode_;
+
+		/** The direction on the start street. */
+		private int direction_;
+
+		/** The start street. */
+		private Street startStreet_;
+
+		/** The position on the start street. */
+		private double startStreetPos_;
+
+		/** The x coordinate of the target point. */
+		private int targetX_;
+
+		/** The y coordinate of the target point. */
+		private int targetY_;
+
+		/** The target street. */
+		private Street targetStreet_;
+
+		/** The position on the target street. */
+		private double targetStreetPos_;
+
+		/** The maximum speed of the vehicle (<code>0</code> if the mode doesn't depend on it). */
+		private int speed_;
+
+		/** The hash code. */
+		private int hashCode_;
+
+		/**
+		 * Sets all values of this key.
+		 *
+		 * @param algorithm			the index of the routing algorithm
+		 * @param mode				the mode of the routing algorithm
+		 * @param direction			the direction on the start street
+		 * @param startStreet		the start street
+		 * @param startStreetPos	the position on the start street
+		 * @param targetX			the x coordinate of the target point
+		 * @param targetY			the y coordinate of the target point
+		 * @param targetStreet		the target street
+		 * @param targetStreetPos	the position on the target street
+		 * @param speed				the maximum speed of the vehicle
+		 */
+		public void set(int algorithm, int mode, int direction, Street startStreet, double startStreetPos, int targetX, int targetY, Street targetStreet, double targetStreetPos, int speed){
+			algorithm_ = algorithm;
+			mode_ = mode;
+			direction_ = direction;
+			startStreet_ = startStreet;
+			startStreetPos_ = startStreetPos;
+			targetX_ = targetX;
+			targetY_ = targetY;
+			targetStreet_ = targetStreet;
+			targetStreetPos_ = targetStreetPos;
+			if(mode == 0) speed_ = 0;
+			else speed_ = speed;
+			long bits = Double.doubleToLongBits(startStreetPos) * 31 + Double.doubleToLongBits(targetStreetPos);
+			int hash = System.identityHashCode(startStreet);
+			hash = hash * 31 + System.identityHashCode(targetStreet);
+			hash = hash * 31 + (int)(bits ^ (bits >>> 32));
+			hash = hash * 31 + targetX;
+			hash = hash * 31 + targetY;
+			hash = hash * 31 + speed_;
+			hash = hash * 31 + (algorithm << 4) + (mode << 2) + direction;
+			hashCode_ = hash;
+		}
+
+		/**
+		 * Returns the hash code of this key.
+		 *
+		 * @return the hash code
+		 */
+		public int hashCode(){
+			return hashCode_;
+		}
+
+		/**
+		 * Checks if another object is a key with the same values.
+		 *
+		 * @param other	the other object
+		 *
+		 * @return <code>true</code> if all values are equal
+		 */
+		public boolean equals(Object other){
+			if(!(other instanceof Key)) return false;
+			Key key = (Key)other;
+			return hashCode_ == key.hashCode_ && startStreet_ == key.startStreet_ && targetStreet_ == key.targetStreet_ && startStreetPos_ == key.startStreetPos_
+				&& targetStreetPos_ == key.targetStreetPos_ && targetX_ == key.targetX_ && targetY_ == key.targetY_ && speed_ == key.speed_
+				&& algorithm_ == key.algorithm_ && mode_ == key.mode_ && direction_ == key.direction_;
+		}
+	}
+}
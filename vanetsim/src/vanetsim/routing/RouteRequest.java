@@ -0,0 +1,141 @@
+package vanetsim.routing;
+
+import java.util.ArrayDeque;
+
+import vanetsim.map.Node;
+import vanetsim.map.Street;
+
+/**
+ * A request for a route which can be calculated together with other requests through {@link BatchRouting}. It stores
+ * the same parameters as {@link RoutingAlgorithm#getRouting(int, int, int, int, Street, double, int, int, Street, double, Street[], int[], int[], int, int)}
+ * and the result of the calculation.
+ */
+public final class RouteRequest{
+
+	/** The mode of the routing algorithm. */
+	private final int mode_;
+
+	/** The direction on the start street. */
+	private final int direction_;
+
+	/** The x coordinate of the start point. */
+	private final int startX_;
+
+	/** The y coordinate of the start point. */
+	private final int startY_;
+
+	/** The street on which the start point lies. */
+	private final Street startStreet_;
+
+	/** The position on the start street. */
+	private final double startStreetPos_;
+
+	/** The x coordinate of the target point. */
+	private final int targetX_;
+
+	/** The y coordinate of the target point. */
+	private final int targetY_;
+
+	/** The street on which the target point lies. */
+	private final Street targetStreet_;
+
+	/** The position on the target street. */
+	private final double targetStreetPos_;
+
+	/** The streets which have penalties. */
+	private final Street[] penaltyStreets_;
+
+	/** The directions of the penalties. */
+	private final int[] penaltyDirections_;
+
+	/** The penalties in cm. */
+	private final int[] penalties_;
+
+	/** How many penalties exist. */
+	private final int penaltySize_;
+
+	/** The additional variable of the routing algorithm. */
+	private final int additionalVar_;
+
+	/** The calculated route or <code>null</code> if it hasn't been calculated (successfully). */
+	private ArrayDeque<Node> result_ = null;
+
+	/**
+	 * Instantiates a new request. The parameters are the same as in {@link RoutingAlgorithm#getRouting(int, int, int, int, Street, double, int, int, Street, double, Street[], int[], int[], int, int)}.
+	 *
+	 * @param mode				the mode of the routing algorithm
+	 * @param direction			<code>0</code>=don't care about direction, <code>-1</code>=from startNode to endNode, <code>1</code>=from endNode to startNode
+	 * @param startX			the x coordinate of the start point
+	 * @param startY			the y coordinate of the start point
+	 * @param startStreet		the street on which the start point lies
+	 * @param startStreetPos	the position measured in cm from the startNode of the <code>startStreet</code>
+	 * @param targetX			the x coordinate of the target point
+	 * @param targetY			the y coordinate of the target point
+	 * @param targetStreet		the street on which the target point lies
+	 * @param targetStreetPos	the position measured in cm from the startNode of the <code>targetStreet</code>
+	 * @param penaltyStreets	an array with all streets which have penalties.
+	 * @param penaltyDirections	an array with directions corresponding to penaltyStreets
+	 * @param penalties			an array with all penalties measured in cm.
+	 * @param penaltySize		how many penalties exist.
+	 * @param additionalVar		an additional variable specific to the routing algorithm
+	 */
+	public RouteRequest(int mode, int direction, int startX, int startY, Street startStreet, double startStreetPos, int targetX, int targetY, Street targetStreet, double targetStreetPos, Street[] penaltyStreets, int[] penaltyDirections, int[] penalties, int penaltySize, int additionalVar){
+		mode_ = mode;
+		direction_ = direction;
+		startX_ = startX;
+		startY_ = startY;
+		startStreet_ = startStreet;
+		startStreetPos_ = startStreetPos;
+		targetX_ = targetX;
+		targetY_ = targetY;
+		targetStreet_ = targetStreet;
+		targetStreetPos_ = targetStreetPos;
+		penaltyStreets_ = penaltyStreets;
+		penaltyDirections_ = penaltyDirections;
+		penalties_ = penalties;
+		penaltySize_ = penaltySize;
+		additionalVar_ = additionalVar;
+	}
+
+	/**
+	 * Calculates the route with an algorithm and stores the result. An exception in the algorithm leaves the result at <code>null</code>.
+	 *
+	 * @param algorithm	the routing algorithm
+	 */
+	public void calculate(RoutingAlgorithm algorithm){
+		try{
+			result_ = algorithm.getRouting(mode_, direction_, startX_, startY_, startStreet_, startStreetPos_, targetX_, targetY_, targetStreet_, targetStreetPos_, penaltyStreets_, penaltyDirections_, penalties_, penaltySize_, additionalVar_);
+		} catch (Exception e){
+			result_ = null;
+		}
+	}
+
+	/**
+	 * Checks if this request has been made for the given parameters. Penalties are not compared.
+	 *
+	 * @param mode				the mode of the routing algorithm
+	 * @param direction			the direction on the start street
+	 * @param startStreet		the street on which the start point lies
+	 * @param startStreetPos	the position on the start street
+	 * @param targetX			the x coordinate of the target point
+	 * @param targetY			the y coordinate of the target point
+	 * @param targetStreet		the street on which the target point lies
+	 * @param targetStreetPos	the position on the target street
+	 * @param additionalVar		the additional variable of the routing algorithm
+	 *
+	 * @return <code>true</code> if all parameters are equal
+	 */
+	public boolean matches(int mode, int direction, Street startStreet, double startStreetPos, int targetX, int targetY, Street targetStreet, double targetStreetPos, int additionalVar){
+		return mode_ == mode && direction_ == direction && startStreet_ == startStreet && startStreetPos_ == startStreetPos && targetX_ == targetX && targetY_ == targetY
+			&& targetStreet_ == targetStreet && targetStreetPos_ == targetStreetPos && additionalVar_ == additionalVar;
+	}
+
+	/**
+	 * Gets the calculated route.
+	 *
+	 * @return the route (empty if there's no route) or <code>null</code> if it hasn't been calculated
+	 */
+	public ArrayDeque<Node> getResult(){
+		return result_;
+	}
+}
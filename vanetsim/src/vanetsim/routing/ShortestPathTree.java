@@ -0,0 +1,344 @@
+package vanetsim.routing;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import vanetsim.map.Map;
+import vanetsim.map.Node;
+import vanetsim.map.RoadGraph;
+import vanetsim.map.Street;
+import vanetsim.map.TravelTimeEstimator;
+
+/**
+ * A tree of the shortest paths from one start point to all other nodes (one-to-many Dijkstra) on the {@link RoadGraph}.
+ * The tree is not calculated completely when it's built. Instead, the search is continued only as far as necessary for each
+ * query and stops again afterwards. So the costs to lots of targets can be calculated with one search instead of running
+ * a separate routing for each target, and a tree can be kept to answer further queries later (for example for an attacker
+ * following another vehicle).
+ * <p>
+ * The costs are the same as in the {@link vanetsim.routing.A_Star.A_Star_Algorithm}: the length in cm in mode <code>0</code>
+ * and the time in s in mode <code>1</code> (with the speeds estimated by the {@link TravelTimeEstimator} if there are any).
+ * Penalties are added to the costs of the streets. A tree gets invalid if the street network or the estimated speeds change.
+ * A tree may only be used by one thread at the same time.
+ */
+public final class ShortestPathTree{
+
+	/** The snapshot of the street network used by this tree. */
+	private RoadGraph graph_ = null;
+
+	/** The version of the estimated speeds when this tree was built. */
+	private int speedVersion_ = -1;
+
+	/** The speeds of the edges used by this tree in cm/s. */
+	private int[] edgeSpeeds_ = null;
+
+	/** The routing mode. <code>0</code> means calculating with street lengths, <code>1</code> means calculating based on speed/time. */
+	private int mode_ = 0;
+
+	/** The maximum speed in cm/s used in mode <code>1</code>. */
+	private int maxSpeed_ = 1;
+
+	/** The street on which the start point lies. */
+	private Street startStreet_ = null;
+
+	/** The streets with penalties. */
+	private Street[] penaltyStreets_ = new Street[0];
+
+	/** The directions of the penalties (see {@link #build(int, int, Street, double, Street[], int[], int[], int, int)}). */
+	private int[] penaltyDirections_ = new int[0];
+
+	/** The penalties in cm. */
+	private int[] penalties_ = new int[0];
+
+	/** The penalties indexed by edge. */
+	private final PenaltyIndex penaltyIndex_ = new PenaltyIndex();
+
+	/** The stamp of the tree in which a node was touched last. */
+	private int[] stamps_ = new int[0];
+
+	/** The stamp of the current tree. */
+	private int stamp_ = 0;
+
+	/** The costs from the start point to each node. Final if the node is settled. */
+	private double[] costs_ = new double[0];
+
+	/** The node from which a node was reached or <code>-1</code> for the nodes of the start street. */
+	private int[] predecessors_ = new int[0];
+
+	/** <code>true</code> if the cost of a node is final. Only valid if the stamp of the node is the current stamp. */
+	private boolean[] settled_ = new boolean[0];
+
+	/** The nodes which are not settled yet, sorted by their costs. */
+	private IndexedMinHeap queue_ = new IndexedMinHeap(0);
+
+	/** The amount of settled nodes. */
+	private int settledCount_ = 0;
+
+	/**
+	 * Creates an empty tree. Use {@link #build(int, int, Street, double, Street[], int[], int[], int, int)} before the first query.
+	 */
+	public ShortestPathTree(){
+	}
+
+	/**
+	 * Starts a new tree. The old tree is dropped but the arrays are reused.
+	 *
+	 * @param mode				<code>0</code> means calculating with street lengths, <code>1</code> means calculating based on speed/time
+	 * @param direction			<code>0</code>=don't care about direction, <code>-1</code>=from startNode to endNode, <code>1</code>=from endNode to startNode
+	 * @param startStreet		the street on which the start point lies
+	 * @param startStreetPos	the position measured in cm from the startNode of the <code>startStreet</code>
+	 * @param penaltyStreets	an array with all streets which have penalties
+	 * @param penaltyDirections	an array with directions corresponding to penaltyStreets. <code>1</code> in the array means from endNode to startNode,
+	 * 							<code>0</code> means both directions and <code>-1</code> means from startNode to endNode
+	 * @param penalties			an array with all penalties measured in cm
+	 * @param penaltySize		how many penalties exist
+	 * @param maxSpeed			the maximum speed in cm/s for calculations in <code>mode=1</code>
+	 */
+	public void build(int mode, int direction, Street startStreet, double startStreetPos, Street[] penaltyStreets, int[] penaltyDirections, int[] penalties, int penaltySize, int maxSpeed){
+		graph_ = Map.getInstance().getRoadGraph();
+		speedVersion_ = TravelTimeEstimator.getInstance().getVersion();
+		edgeSpeeds_ = graph_.getEdgeSpeeds();
+		if(mode != 0){
+			int[] estimatedSpeeds = TravelTimeEstimator.getInstance().getSpeeds(graph_);
+			if(estimatedSpeeds != null) edgeSpeeds_ = estimatedSpeeds;
+		}
+		mode_ = mode;
+		maxSpeed_ = Math.max(1, maxSpeed);
+		startStreet_ = startStreet;
+		penaltyStreets_ = Arrays.copyOf(penaltyStreets, penaltySize);
+		penaltyDirections_ = Arrays.copyOf(penaltyDirections, penaltySize);
+		penalties_ = Arrays.copyOf(penalties, penaltySize);
+		penaltyIndex_.build(graph_, penaltyStreets, penaltyDirections, penalties, penaltySize);
+
+		int nodeCount = graph_.getNodeCount();
+		if(stamps_.length != nodeCount){
+			stamps_ = new int[nodeCount];
+			costs_ = new double[nodeCount];
+			predecessors_ = new int[nodeCount];
+			settled_ = new boolean[nodeCount];
+			queue_ = new IndexedMinHeap(nodeCount);
+			stamp_ = 0;
+		} else queue_.clear();
+		++stamp_;
+		if(stamp_ == Integer.MAX_VALUE){	// only happens after an enormous amount of trees
+			Arrays.fill(stamps_, 0);
+			stamp_ = 1;
+		}
+		settledCount_ = 0;
+		if(!graph_.contains(startStreet.getStartNode()) || !graph_.contains(startStreet.getEndNode())) return;	// nothing can be reached
+
+		// penalties are not considered for the start street as it should not be possible to escape from them
+		if(direction > -1) addStart(startStreet.getStartNode().getNodeID(), getCost(startStreetPos, startStreet.getSpeed()));
+		if(direction < 1) addStart(startStreet.getEndNode().getNodeID(), getCost(startStreet.getLength() - startStreetPos, startStreet.getSpeed()));
+	}
+
+	/**
+	 * Adds a node of the start street to the tree.
+	 *
+	 * @param node	the ID of the node
+	 * @param cost	the cost to reach the node
+	 */
+	private void addStart(int node, double cost){
+		if(stamps_[node] == stamp_ && costs_[node] <= cost) return;
+		stamps_[node] = stamp_;
+		costs_[node] = cost;
+		predecessors_[node] = -1;
+		settled_[node] = false;
+		queue_.update(node, cost);
+	}
+
+	/**
+	 * Checks if this tree can still be used. This is not the case if it hasn't been built yet, if the street network or the
+	 * estimated speeds have changed or if other penalties are known now.
+	 *
+	 * @param penaltyStreets	an array with all streets which have penalties
+	 * @param penaltyDirections	an array with directions corresponding to penaltyStreets
+	 * @param penalties			an array with all penalties measured in cm
+	 * @param penaltySize		how many penalties exist
+	 *
+	 * @return <code>true</code> if this tree is valid
+	 */
+	public boolean isValid(Street[] penaltyStreets, int[] penaltyDirections, int[] penalties, int penaltySize){
+		if(graph_ == null || graph_ != Map.getInstance().getRoadGraph() || (mode_ != 0 && speedVersion_ != TravelTimeEstimator.getInstance().getVersion())) return false;
+		if(penaltySize != penaltyStreets_.length) return false;
+		for(int i = 0; i < penaltySize; ++i){
+			if(penaltyStreets[i] != penaltyStreets_[i] || penaltyDirections[i] != penaltyDirections_[i] || penalties[i] != penalties_[i]) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the street on which the start point of this tree lies.
+	 *
+	 * @return the street or <code>null</code> if the tree hasn't been built yet
+	 */
+	public Street getStartStreet(){
+		return startStreet_;
+	}
+
+	/**
+	 * Gets the amount of nodes for which the shortest path is known.
+	 *
+	 * @return the amount of settled nodes
+	 */
+	public int getSettledCount(){
+		return settledCount_;
+	}
+
+	/**
+	 * Calculates the cost to drive a distance.
+	 *
+	 * @param length	the length in cm
+	 * @param speed		the speed of the street in cm/s
+	 *
+	 * @return the length in mode <code>0</code>, else the time in s
+	 */
+	private double getCost(double length, int speed){
+		if(mode_ == 0) return length;
+		else if(speed > maxSpeed_) return length / maxSpeed_;
+		else return length / speed;
+	}
+
+	/**
+	 * Settles the node with the lowest costs which is not settled yet and updates the costs of its successors.
+	 */
+	private void settleNext(){
+		int node = queue_.poll();
+		settled_[node] = true;
+		++settledCount_;
+		int[] edgeStarts = graph_.getEdgeStarts(), edgeTargets = graph_.getEdgeTargets();
+		double[] edgeLengths = graph_.getEdgeLengths();
+		boolean hasPenalties = !penaltyIndex_.isEmpty();
+		int end = edgeStarts[node + 1];
+		int successor;
+		double cost;
+		for(int i = edgeStarts[node]; i < end; ++i){
+			successor = edgeTargets[i];
+			if(stamps_[successor] == stamp_ && settled_[successor]) continue;
+			cost = costs_[node] + getCost(edgeLengths[i], edgeSpeeds_[i]);
+			if(hasPenalties){	// penalties are measured in cm so they need to be converted in the time based mode
+				if(mode_ == 0) cost += penaltyIndex_.get(i);
+				else cost += (double)penaltyIndex_.get(i) / maxSpeed_;
+			}
+			if(stamps_[successor] != stamp_){
+				stamps_[successor] = stamp_;
+				settled_[successor] = false;
+			} else if(costs_[successor] <= cost) continue;
+			costs_[successor] = cost;
+			predecessors_[successor] = node;
+			queue_.update(successor, cost);
+		}
+	}
+
+	/**
+	 * Gets the node through which a target point is reached best. The tree is extended until this node is known for sure.
+	 *
+	 * @param targetStreet		the street on which the target point lies
+	 * @param targetStreetPos	the position measured in cm from the startNode of the <code>targetStreet</code>
+	 * @param cost				an array with at least one element to return the cost to the target point
+	 *
+	 * @return the ID of the node or <code>-1</code> if the target can't be reached
+	 */
+	private int findTargetNode(Street targetStreet, double targetStreetPos, double[] cost){
+		cost[0] = Double.POSITIVE_INFINITY;
+		if(graph_ == null || !graph_.contains(targetStreet.getStartNode()) || !graph_.contains(targetStreet.getEndNode())) return -1;
+		int startNode = targetStreet.getStartNode().getNodeID(), endNode = targetStreet.getEndNode().getNodeID();
+		double startCost = getCost(targetStreetPos, targetStreet.getSpeed());
+		double endCost = getCost(targetStreet.getLength() - targetStreetPos, targetStreet.getSpeed());
+		boolean endNodeMayBeUsed = !targetStreet.isOneway();	// one-way streets can only be entered at the startNode
+		int bestNode;
+		double best;
+		while(true){
+			bestNode = -1;
+			best = Double.POSITIVE_INFINITY;
+			if(stamps_[startNode] == stamp_ && settled_[startNode]){
+				bestNode = startNode;
+				best = costs_[startNode] + startCost;
+			}
+			if(endNodeMayBeUsed && stamps_[endNode] == stamp_ && settled_[endNode] && costs_[endNode] + endCost < best){
+				bestNode = endNode;
+				best = costs_[endNode] + endCost;
+			}
+			// all nodes which are not settled yet have higher costs so they can't lead to a better result
+			if(queue_.isEmpty() || queue_.peekKey() >= best) break;
+			settleNext();
+		}
+		cost[0] = best;
+		return bestNode;
+	}
+
+	/**
+	 * Gets the cost from the start point to a target point. The tree is extended as far as necessary.
+	 *
+	 * @param targetStreet		the street on which the target point lies
+	 * @param targetStreetPos	the position measured in cm from the startNode of the <code>targetStreet</code>
+	 *
+	 * @return the length in cm (mode <code>0</code>) or the time in s (mode <code>1</code>). <code>Double.POSITIVE_INFINITY</code>
+	 * 			if the target can't be reached.
+	 */
+	public double getCost(Street targetStreet, double targetStreetPos){
+		double[] cost = new double[1];
+		findTargetNode(targetStreet, targetStreetPos, cost);
+		return cost[0];
+	}
+
+	/**
+	 * Gets the route from the start point to a target point. The tree is extended as far as necessary.
+	 *
+	 * @param targetStreet		the street on which the target point lies
+	 * @param targetStreetPos	the position measured in cm from the startNode of the <code>targetStreet</code>
+	 *
+	 * @return the nodes of the route like in {@link RoutingAlgorithm#getRouting(int, int, int, int, Street, double, int, int, Street, double, Street[], int[], int[], int, int)}.
+	 * 			Empty if the target can't be reached.
+	 */
+	public ArrayDeque<Node> getRouting(Street targetStreet, double targetStreetPos){
+		ArrayDeque<Node> result = new ArrayDeque<Node>(255);
+		int node = findTargetNode(targetStreet, targetStreetPos, new double[1]);
+		Node[] nodes = graph_ == null ? null : graph_.getNodes();
+		while(node != -1){
+			result.addFirst(nodes[node]);
+			node = predecessors_[node];
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the rest of the route to a target point for a vehicle which has already driven a part of a route of this tree. If
+	 * the vehicle is on a street of the shortest path to the target (in the right direction), the rest of this path is also the
+	 * shortest path for the vehicle so that no new tree is needed. To limit the size of the tree, no route is returned if the
+	 * part of the path behind the vehicle costs more than the rest.
+	 *
+	 * @param curStreet			the street on which the vehicle is
+	 * @param curDirection		the direction of the vehicle on this street (<code>true</code> from startNode to endNode)
+	 * @param targetStreet		the street on which the target point lies
+	 * @param targetStreetPos	the position measured in cm from the startNode of the <code>targetStreet</code>
+	 *
+	 * @return the nodes of the route beginning with the node the vehicle drives to or <code>null</code> if the vehicle is not
+	 * 			on the shortest path to the target (a new tree needs to be built in this case)
+	 */
+	public ArrayDeque<Node> getRouting(Street curStreet, boolean curDirection, Street targetStreet, double targetStreetPos){
+		if(graph_ == null || targetStreet == curStreet) return null;
+		double[] cost = new double[1];
+		int node = findTargetNode(targetStreet, targetStreetPos, cost);
+		if(node == -1) return null;
+		int nextNode, previousNode;
+		if(curDirection){
+			nextNode = curStreet.getEndNode().getNodeID();
+			previousNode = curStreet.getStartNode().getNodeID();
+		} else {
+			nextNode = curStreet.getStartNode().getNodeID();
+			previousNode = curStreet.getEndNode().getNodeID();
+		}
+		ArrayDeque<Node> result = new ArrayDeque<Node>(255);
+		Node[] nodes = graph_.getNodes();
+		while(node != -1){
+			result.addFirst(nodes[node]);
+			if(node == nextNode && (predecessors_[node] == previousNode || (predecessors_[node] == -1 && curStreet == startStreet_))){
+				if(costs_[node] > cost[0] - costs_[node]) return null;	// the tree has become too large
+				return result;
+			}
+			node = predecessors_[node];
+		}
+		return null;
+	}
+}
@@ -1,6 +1,6 @@
 package vanetsim.scenario;
 
-import vanetsim.gui.Renderer;
+import vanetsim.simulation.SimulationEngine;
 
 
 /**
@@ -80,7 +80,7 @@ public final class AttackRSU {
 				tempArray[i]=Vehicle.getArsuList()[i];
 			}
 			Vehicle.setArsuList(tempArray);
-			Renderer.getInstance().ReRender(true, false);
+			SimulationEngine.getInstance().getListener().render(true, false);
 			returnValue = true;
 			}
 		
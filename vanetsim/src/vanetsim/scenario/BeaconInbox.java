@@ -0,0 +1,312 @@
+package vanetsim.scenario;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import vanetsim.map.NeighborTable;
+
+/**
+ * Collects the beacons sent between vehicles during the beacon phase so that the senders don't need to lock the
+ * {@link KnownVehiclesList} of the receivers. Each thread appends the beacons to its own buffer. After the beacon phase,
+ * the beacons are sorted by receiver and each {@link KnownVehiclesList} is updated by exactly one thread through the same code
+ * as {@link KnownVehiclesList#updateVehicle(Vehicle, long, int, int, double, long, boolean, boolean)}.
+ * <p>
+ * The receivers are identified by their index in the {@link NeighborTable}. Beacons are only buffered while the inbox is enabled
+ * by the {@link vanetsim.simulation.SimulationEngine}, else they are delivered directly.
+ */
+public final class BeaconInbox{
+
+	/** The only instance of this class (singleton). */
+	private static final BeaconInbox INSTANCE = new BeaconInbox();
+
+	/** Merging less receivers is not split up further. */
+	private static final int MIN_TASK_SIZE = 1024;
+
+	/** The buffers of all threads which have sent beacons. Buffers of terminated threads are removed on delivery once they are empty. */
+	private final ArrayList<Buffer> buffers_ = new ArrayList<Buffer>();
+
+	/** The buffer of each thread. */
+	private final ThreadLocal<Buffer> buffer_ = new ThreadLocal<Buffer>(){
+		protected Buffer initialValue(){
+			Buffer buffer = new Buffer();
+			synchronized(buffers_){
+				buffers_.add(buffer);
+			}
+			return buffer;
+		}
+	};
+
+	/** If beacons are buffered. */
+	private volatile boolean enabled_ = false;
+
+	/** The first position of the beacons of each receiver in {@link #beaconBuffers_} and {@link #beaconPositions_}. */
+	private int[] starts_ = new int[1];
+
+	/** The buffer of each beacon sorted by receiver. */
+	private Buffer[] beaconBuffers_ = new Buffer[0];
+
+	/** The position of each beacon in its buffer sorted by receiver. */
+	private int[] beaconPositions_ = new int[0];
+
+	/**
+	 * Private constructor in order to disable instancing.
+	 */
+	private BeaconInbox(){
+	}
+
+	/**
+	 * Gets the single instance of this inbox.
+	 *
+	 * @return single instance of this inbox
+	 */
+	public static BeaconInbox getInstance(){
+		return INSTANCE;
+	}
+
+	/**
+	 * Checks if beacons are buffered.
+	 *
+	 * @return <code>true</code> if beacons need to be added to the buffer of the current thread, <code>false</code> if they
+	 * need to be delivered directly
+	 */
+	public boolean isEnabled(){
+		return enabled_;
+	}
+
+	/**
+	 * Enables or disables buffering. Don't disable it before the beacons have been delivered through {@link #deliver(ForkJoinPool)}!
+	 *
+	 * @param enabled	<code>true</code> to buffer beacons
+	 */
+	public void setEnabled(boolean enabled){
+		enabled_ = enabled;
+	}
+
+	/**
+	 * Gets the buffer of the current thread.
+	 *
+	 * @return the buffer
+	 */
+	Buffer getBuffer(){
+		return buffer_.get();
+	}
+
+	/**
+	 * Delivers all buffered beacons to the receivers and empties the buffers. Don't call this while beacons are sent!
+	 *
+	 * @param pool	the pool used to deliver the beacons in parallel or <code>null</code> to deliver everything in the current thread
+	 */
+	public void deliver(ForkJoinPool pool){
+		Buffer[] buffers;
+		synchronized(buffers_){
+			Iterator<Buffer> iterator = buffers_.iterator();
+			Buffer buffer;
+			while(iterator.hasNext()){	// threads of a pool may be terminated and replaced
+				buffer = iterator.next();
+				if(buffer.size_ == 0 && !buffer.isOwnerAlive()) iterator.remove();
+			}
+			buffers = buffers_.toArray(new Buffer[buffers_.size()]);
+		}
+		Vehicle[] receivers = NeighborTable.getInstance().getVehicles();
+		int i, j, size, total = 0;
+		for(i = 0; i < buffers.length; ++i) total += buffers[i].size_;
+		if(total == 0) return;
+
+		// sort the beacons by receiver (counting sort)
+		if(starts_.length != receivers.length + 1) starts_ = new int[receivers.length + 1];
+		else for(i = 0; i < starts_.length; ++i) starts_[i] = 0;
+		int[] bufferReceivers;
+		for(i = 0; i < buffers.length; ++i){
+			bufferReceivers = buffers[i].receivers_;
+			size = buffers[i].size_;
+			for(j = 0; j < size; ++j) ++starts_[bufferReceivers[j] + 1];
+		}
+		for(i = 1; i < starts_.length; ++i) starts_[i] += starts_[i - 1];
+		if(beaconPositions_.length < total){
+			beaconPositions_ = new int[total + total / 4];
+			beaconBuffers_ = new Buffer[beaconPositions_.length];
+		}
+		int[] positions = starts_.clone();
+		int position;
+		for(i = 0; i < buffers.length; ++i){
+			bufferReceivers = buffers[i].receivers_;
+			size = buffers[i].size_;
+			for(j = 0; j < size; ++j){
+				position = positions[bufferReceivers[j]]++;
+				beaconBuffers_[position] = buffers[i];
+				beaconPositions_[position] = j;
+			}
+		}
+
+		// update the lists of the receivers
+		DeliverTask task = new DeliverTask(receivers, 0, receivers.length);
+		if(pool == null || receivers.length <= MIN_TASK_SIZE) task.compute();
+		else pool.invoke(task);
+
+		for(i = 0; i < buffers.length; ++i) buffers[i].clear();
+		for(i = 0; i < total; ++i) beaconBuffers_[i] = null;	// don't keep the senders alive
+	}
+
+	/**
+	 * An append-only buffer for the beacons sent by one thread.
+	 */
+	static final class Buffer{
+
+		/** The initial capacity. */
+		private static final int INITIAL_CAPACITY = 1024;
+
+		/** The index of the receiver in the {@link NeighborTable}. */
+		private int[] receivers_ = new int[INITIAL_CAPACITY];
+
+		/** The sending vehicles. */
+		private Vehicle[] senders_ = new Vehicle[INITIAL_CAPACITY];
+
+		/** The IDs of the senders. */
+		private long[] ids_ = new long[INITIAL_CAPACITY];
+
+		/** The x coordinates of the senders. */
+		private int[] x_ = new int[INITIAL_CAPACITY];
+
+		/** The y coordinates of the senders. */
+		private int[] y_ = new int[INITIAL_CAPACITY];
+
+		/** The speeds of the senders. */
+		private double[] speeds_ = new double[INITIAL_CAPACITY];
+
+		/** The IDs of the sources. */
+		private long[] sourceIDs_ = new long[INITIAL_CAPACITY];
+
+		/** The amount of beacons stored. */
+		private int size_ = 0;
+
+		/** The thread which uses this buffer. */
+		private final WeakReference<Thread> owner_ = new WeakReference<Thread>(Thread.currentThread());
+
+		/**
+		 * Checks if the thread which uses this buffer is still running.
+		 *
+		 * @return <code>true</code> if the thread is alive
+		 */
+		boolean isOwnerAlive(){
+			Thread owner = owner_.get();
+			return owner != null && owner.isAlive();
+		}
+
+		/**
+		 * Adds a beacon.
+		 *
+		 * @param receiver	the index of the receiver in the {@link NeighborTable}
+		 * @param vehicle	the sending vehicle
+		 * @param ID		the ID of the sending vehicle
+		 * @param x			the x coordinate
+		 * @param y			the y coordinate
+		 * @param speed		the speed
+		 * @param sourceID	ID of the source
+		 */
+		void add(int receiver, Vehicle vehicle, long ID, int x, int y, double speed, long sourceID){
+			if(size_ == receivers_.length) grow();
+			receivers_[size_] = receiver;
+			senders_[size_] = vehicle;
+			ids_[size_] = ID;
+			x_[size_] = x;
+			y_[size_] = y;
+			speeds_[size_] = speed;
+			sourceIDs_[size_] = sourceID;
+			++size_;
+		}
+
+		/**
+		 * Doubles the capacity.
+		 */
+		private void grow(){
+			int capacity = receivers_.length * 2;
+			int[] newReceivers = new int[capacity];
+			System.arraycopy(receivers_, 0, newReceivers, 0, size_);
+			receivers_ = newReceivers;
+			Vehicle[] newSenders = new Vehicle[capacity];
+			System.arraycopy(senders_, 0, newSenders, 0, size_);
+			senders_ = newSenders;
+			long[] newIDs = new long[capacity];
+			System.arraycopy(ids_, 0, newIDs, 0, size_);
+			ids_ = newIDs;
+			int[] newX = new int[capacity];
+			System.arraycopy(x_, 0, newX, 0, size_);
+			x_ = newX;
+			int[] newY = new int[capacity];
+			System.arraycopy(y_, 0, newY, 0, size_);
+			y_ = newY;
+			double[] newSpeeds = new double[capacity];
+			System.arraycopy(speeds_, 0, newSpeeds, 0, size_);
+			speeds_ = newSpeeds;
+			long[] newSourceIDs = new long[capacity];
+			System.arraycopy(sourceIDs_, 0, newSourceIDs, 0, size_);
+			sourceIDs_ = newSourceIDs;
+		}
+
+		/**
+		 * Removes all beacons.
+		 */
+		private void clear(){
+			for(int i = 0; i < size_; ++i) senders_[i] = null;	// don't keep the senders alive
+			size_ = 0;
+		}
+	}
+
+	/**
+	 * Delivers the beacons of a range of receivers.
+	 */
+	private final class DeliverTask extends RecursiveAction{
+
+		/** The <code>serialVersionUID</code> needed because <code>RecursiveAction</code> is serializable. */
+		private static final long serialVersionUID = -6385417602937118452L;
+
+		/** The receivers. */
+		private final Vehicle[] receivers_;
+
+		/** The first receiver (inclusive). */
+		private final int from_;
+
+		/** The last receiver (exclusive). */
+		private final int to_;
+
+		/**
+		 * Creates a new task.
+		 *
+		 * @param receivers	the receivers
+		 * @param from		the first receiver (inclusive)
+		 * @param to		the last receiver (exclusive)
+		 */
+		public DeliverTask(Vehicle[] receivers, int from, int to){
+			receivers_ = receivers;
+			from_ = from;
+			to_ = to;
+		}
+
+		/**
+		 * Delivers the beacons or splits the range in two halves.
+		 */
+		protected void compute(){
+			if(to_ - from_ <= MIN_TASK_SIZE){
+				int i, j, end, position;
+				Buffer buffer;
+				KnownVehiclesList list;
+				for(i = from_; i < to_; ++i){
+					end = starts_[i + 1];
+					if(starts_[i] == end) continue;
+					list = receivers_[i].getKnownVehiclesList();
+					for(j = starts_[i]; j < end; ++j){
+						buffer = beaconBuffers_[j];
+						position = beaconPositions_[j];
+						list.updateVehicleUnsynchronized(buffer.senders_[position], buffer.ids_[position], buffer.x_[position], buffer.y_[position], buffer.speeds_[position], buffer.sourceIDs_[position], false, false);
+					}
+				}
+			} else {
+				int middle = (from_ + to_) >>> 1;
+				invokeAll(new DeliverTask(receivers_, from_, middle), new DeliverTask(receivers_, middle, to_));
+			}
+		}
+	}
+}
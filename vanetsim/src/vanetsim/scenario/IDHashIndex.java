@@ -0,0 +1,124 @@
+package vanetsim.scenario;
+
+/**
+ * An open addressing hash index which maps the <code>long</code> IDs of known vehicles or RSUs to their position in the
+ * dense arrays of the {@link KnownVehiclesList} or {@link KnownRSUsList}. Linear probing is used and entries are removed
+ * through backward shifting so that no tombstones are needed. The IDs themselves are not stored here but read from the
+ * ID array of the owner.
+ */
+final class IDHashIndex{
+
+	/** The slots. Each slot contains the position in the dense arrays plus 1 or 0 if it's empty. The length is a power of 2. */
+	private int[] slots_ = new int[0];
+
+	/** The length of {@link #slots_} minus 1. */
+	private int mask_ = -1;
+
+	/**
+	 * Finds the position of an ID.
+	 *
+	 * @param ID	the ID
+	 * @param ids	the IDs of the owner
+	 *
+	 * @return the position in the dense arrays or <code>-1</code> if the ID is not stored
+	 */
+	int find(long ID, long[] ids){
+		if(mask_ < 0) return -1;
+		int slot = hash(ID) & mask_;
+		int value;
+		while((value = slots_[slot]) != 0){
+			if(ids[value - 1] == ID) return value - 1;
+			slot = (slot + 1) & mask_;
+		}
+		return -1;
+	}
+
+	/**
+	 * Adds an ID. The ID needs to be stored in <code>ids</code> already and may not be added twice.
+	 *
+	 * @param ID		the ID
+	 * @param position	the position in the dense arrays
+	 * @param ids		the IDs of the owner
+	 * @param size		the amount of IDs stored in the owner (including the new one)
+	 */
+	void add(long ID, int position, long[] ids, int size){
+		if(size * 2 > slots_.length) rehash(ids, size - 1, size * 4);
+		int slot = hash(ID) & mask_;
+		while(slots_[slot] != 0) slot = (slot + 1) & mask_;
+		slots_[slot] = position + 1;
+	}
+
+	/**
+	 * Removes an ID. The ID needs to be stored in <code>ids</code> until this function returns.
+	 *
+	 * @param ID	the ID
+	 * @param ids	the IDs of the owner
+	 */
+	void remove(long ID, long[] ids){
+		int slot = hash(ID) & mask_;
+		while(ids[slots_[slot] - 1] != ID) slot = (slot + 1) & mask_;
+		// shift all following entries of the probing sequence back if their slot would be reached before
+		int next = slot, ideal;
+		while(true){
+			next = (next + 1) & mask_;
+			if(slots_[next] == 0) break;
+			ideal = hash(ids[slots_[next] - 1]) & mask_;
+			if(slot <= next ? (slot < ideal && ideal <= next) : (slot < ideal || ideal <= next)) continue;
+			slots_[slot] = slots_[next];
+			slot = next;
+		}
+		slots_[slot] = 0;
+	}
+
+	/**
+	 * Changes the position of an ID.
+	 *
+	 * @param ID	the ID
+	 * @param from	the old position
+	 * @param to	the new position
+	 */
+	void move(long ID, int from, int to){
+		int slot = hash(ID) & mask_;
+		while(slots_[slot] != from + 1) slot = (slot + 1) & mask_;
+		slots_[slot] = to + 1;
+	}
+
+	/**
+	 * Removes all IDs and frees the memory.
+	 */
+	void clear(){
+		slots_ = new int[0];
+		mask_ = -1;
+	}
+
+	/**
+	 * Creates a larger table and adds all IDs again.
+	 *
+	 * @param ids		the IDs of the owner
+	 * @param size		the amount of IDs to add
+	 * @param minSlots	the minimum amount of slots
+	 */
+	private void rehash(long[] ids, int size, int minSlots){
+		int length = 8;
+		while(length < minSlots) length <<= 1;
+		slots_ = new int[length];
+		mask_ = length - 1;
+		int slot;
+		for(int i = 0; i < size; ++i){
+			slot = hash(ids[i]) & mask_;
+			while(slots_[slot] != 0) slot = (slot + 1) & mask_;
+			slots_[slot] = i + 1;
+		}
+	}
+
+	/**
+	 * Mixes the bits of an ID. The IDs are random in most cases but the mixing makes sure that sequential IDs don't form clusters.
+	 *
+	 * @param ID	the ID
+	 *
+	 * @return the hash
+	 */
+	private static int hash(long ID){
+		return (int)((ID * 0x9E3779B97F4A7C15L) >>> 32);
+	}
+}
@@ -1,7 +1,7 @@
 package vanetsim.scenario;
 
-import vanetsim.gui.Renderer;
 import vanetsim.scenario.messages.Message;
+import vanetsim.simulation.SimulationClock;
 
 /**
  * This class stores various messages in multiple separate arrays:
@@ -23,9 +23,6 @@ public class KnownMessages{
 	/** The timeout for an old message in milliseconds. After this time it will get deleted. */
 	private static final int MAX_OLD_TIME = 5000;
 	
-	/** A reference to the renderer */
-	private static final Renderer renderer_ = Renderer.getInstance();
-	
 	/** The vehicle this data structure belongs to. */
 	private final Vehicle vehicle_;
 	
@@ -187,7 +184,7 @@ public class KnownMessages{
 					oldMessageArrivalTime_ = newArray2;				
 				}
 				oldMessages_[oldMessageSize_] = forwardMessages_[position];
-				oldMessageArrivalTime_[oldMessageSize_] = renderer_.getTimePassed();
+				oldMessageArrivalTime_[oldMessageSize_] = SimulationClock.getTimePassed();
 				++oldMessageSize_;
 			}
 			// dont' really remove but just change size and copy leftwards
@@ -214,7 +211,7 @@ public class KnownMessages{
 				oldMessageArrivalTime_ = newArray2;				
 			}
 			System.arraycopy(forwardMessages_,0,oldMessages_,oldMessageSize_,forwardMessageSize_);
-			int time = renderer_.getTimePassed();
+			int time = SimulationClock.getTimePassed();
 			for(int i = oldMessageSize_ + forwardMessageSize_ - 1; i >= oldMessageSize_; --i){
 				oldMessageArrivalTime_[i] = time;
 			}
@@ -231,7 +228,7 @@ public class KnownMessages{
 	public synchronized void deleteAllFloodingForwardMessages(boolean addToOld){
 		Message[] newArray;
 		int[] newArray2;
-		int time = renderer_.getTimePassed();
+		int time = SimulationClock.getTimePassed();
 		for(int i = forwardMessageSize_ - 1; i > -1; --i){
 			if(forwardMessages_[i].getFloodingMode()){
 				if(addToOld){
@@ -281,7 +278,7 @@ public class KnownMessages{
 			// copy unprocessedMessages_ at end of forwardMessages_
 			System.arraycopy(unprocessedMessages_,0,forwardMessages_,forwardMessageSize_,unprocessedMessageSize);
 				
-			int time = renderer_.getTimePassed();
+			int time = SimulationClock.getTimePassed();
 			for(int i = forwardMessageSize_ + unprocessedMessageSize - 1; i >= forwardMessageSize_; --i){
 				forwardArrivalTime_[i] = time;
 			}
@@ -299,7 +296,7 @@ public class KnownMessages{
 	 * @param addToOld	<code>true</code> to add all to outdated forward messages to the old messages, else <code>false</code>
 	 */
 	public void checkOutdatedMessages(boolean addToOld){
-		int timeout = renderer_.getTimePassed() - MAX_FORWARD_TIME;
+		int timeout = SimulationClock.getTimePassed() - MAX_FORWARD_TIME;
 		// Check forward messages for outdated entries		
 		for(int i = forwardMessageSize_ - 1; i > -1; --i){		// going backwards because it's easier for deletion!
 			if(forwardArrivalTime_[i] < timeout || !forwardMessages_[i].isValid()){
@@ -314,7 +311,7 @@ public class KnownMessages{
 						oldMessageArrivalTime_ = newArray2;				
 					}
 					oldMessages_[oldMessageSize_] = forwardMessages_[i];
-					oldMessageArrivalTime_[oldMessageSize_] = renderer_.getTimePassed();
+					oldMessageArrivalTime_[oldMessageSize_] = SimulationClock.getTimePassed();
 					++oldMessageSize_;
 				}				
 				
@@ -326,7 +323,7 @@ public class KnownMessages{
 			}
 		}
 		
-		timeout = renderer_.getTimePassed() - MAX_OLD_TIME;
+		timeout = SimulationClock.getTimePassed() - MAX_OLD_TIME;
 		// Check old messages for outdated entries
 		for(int i = oldMessageSize_ - 1; i > -1; --i){		// going backwards because it's easier for deletion!
 			if(oldMessageArrivalTime_[i] < timeout  || !oldMessages_[i].isValid()){
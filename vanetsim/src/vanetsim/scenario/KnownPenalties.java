@@ -1,7 +1,7 @@
 package vanetsim.scenario;
 
-import vanetsim.gui.Renderer;
 import vanetsim.map.Street;
+import vanetsim.simulation.SimulationClock;
 
 /**
  * Stores all known penalties for streets. The streets are stored together with their direction and a penalty
@@ -51,7 +51,8 @@ public class KnownPenalties{
 
 	/**
 	 * Updates or adds a penalty. If a penalty already existed, the values for penalty and validUntil are
-	 * overwritten! If the penalty is new or differs from the last one, a new route calculation is initiated.
+	 * overwritten! If the penalty is new or differs from the last one and affects the route of the vehicle, the route is repaired
+	 * (if enabled, see {@link Vehicle#repairRoute(int)}) or calculated again.
 	 * 
 	 * @param street 		the street
 	 * @param direction 	the direction. <code>1</code> means from endNode to startNode, <code>0</code> means
@@ -130,10 +131,10 @@ public class KnownPenalties{
 					}
 				}				
 			}
-			// the route is affected => recalculate it!
+			// the route is affected => repair or recalculate it!
 			if(found){
 				routeUpdateNecessary_[size-1] = true;
-				vehicle_.calculateRoute(true, true);
+				if(!vehicle_.repairRoute(i)) vehicle_.calculateRoute(true, true);
 			}	
 		}
 	}
@@ -143,7 +144,7 @@ public class KnownPenalties{
 	 * sure that no other thread uses any function on this object at the same time!
 	 */
 	public void checkValidUntil(){
-		int timeout = Renderer.getInstance().getTimePassed();
+		int timeout = SimulationClock.getTimePassed();
 		boolean updateRoute = false;
 		
 		for(int i = size - 1; i > -1; --i){	// going backwards because it's easier for deletion!
@@ -1,16 +1,14 @@
 package vanetsim.scenario;
 
-import vanetsim.gui.Renderer;
-import vanetsim.gui.helpers.AttackLogWriter;
+import vanetsim.AttackLogWriter;
+import vanetsim.simulation.SimulationClock;
 
 /**
- * A list of all known Road-Side-Units which was discovered through beacons. In contrast to the KnownPenalties-
- * class, an own class is used for storing the information about the RSUs. Although this means slightly
- * more overhead, it should not be a big case and allows better extensibility.<br>
- * A simple hash algorithm based on the RSU ID is used to get better performance. The hash determines the 
- * corresponding linked list(beginnings of linked lists are found in <code>head_</code>). Known RSUs with the
- * same hash are connected together through their <code>next_</code> and <code>previous_</code> values (see 
- * KnownRSU-class).
+ * A list of all known Road-Side-Units which was discovered through beacons. The data of the known RSUs is stored in
+ * parallel arrays (one array for each value) without gaps so that iterating is fast and doesn't create any objects.
+ * The position of a RSU is found through an open addressing hash index on the RSU ID (see {@link IDHashIndex}).
+ * If a RSU is removed, the last RSU is moved to its position so the positions are only valid until the next
+ * call of {@link #checkOutdatedRSUs()} or {@link #clear()}.
  */
 public class KnownRSUsList{
 	
@@ -18,14 +16,32 @@ public class KnownRSUsList{
 	 * it is dropped from the list! */
 	private static final int VALID_TIME = 2000;
 	
-	/** How many hash buckets will be used. Increase if you expect lots of known RSUs! */
-	private static final int HASH_SIZE = 16;
+	/** How many RSUs can be stored initially. The arrays are created when the first RSU is added. */
+	private static final int INITIAL_CAPACITY = 4;
 	
 	/** How much time has passed since beginning of the simulation. Stored here as it's really needed often. */
 	private static int timePassed_ = 0;
 	
-	/** The array with all heads of the linked lists */
-	private KnownRSU[] head_ = new KnownRSU[HASH_SIZE];
+	/** The hash index for finding the position of an ID. */
+	private final IDHashIndex index_ = new IDHashIndex();
+	
+	/** The RSUs. */
+	private RSU[] rsus_ = new RSU[0];
+	
+	/** The IDs of the RSUs. */
+	private long[] ids_ = new long[0];
+	
+	/** The x coordinates. */
+	private int[] x_ = new int[0];
+	
+	/** The y coordinates. */
+	private int[] y_ = new int[0];
+	
+	/** The times when the RSUs were last updated in milliseconds. */
+	private int[] lastUpdates_ = new int[0];
+	
+	/** If the last beacon was encrypted. */
+	private boolean[] encrypted_ = new boolean[0];
 	
 	/** The amount of items stored. */
 	private int size_ = 0;
@@ -34,9 +50,6 @@ public class KnownRSUsList{
 	 * Empty constructor.
 	 */
 	public KnownRSUsList(){
-		for(int i = 0; i < HASH_SIZE; ++i){
-			head_[i] = null;
-		}
 	}
 		
 	/**
@@ -49,32 +62,51 @@ public class KnownRSUsList{
 	 * @param isEncrypted	if Beacon was encrypted
 	 */
 	public synchronized void updateRSU(RSU rsu, long ID, int x, int y, boolean isEncrypted){
-		boolean found = false;
-		int hash = (int)(ID % HASH_SIZE);
-		if(hash < 0) hash = -hash;
-		KnownRSU next = head_[hash];
-		while(next != null){
-			if(next.getID() == ID){	// update of entry possible
-				next.setX(x);
-				next.setY(y);
-				next.setEncrypted(isEncrypted);
-				next.setLastUpdate(timePassed_+VALID_TIME);
-				found = true;
-				break;
-			}
-			next = next.getNext();
-		}					
-		
-		if(!found){
-			next = new KnownRSU(rsu, ID, x, y, isEncrypted, timePassed_);
-			next.setNext(head_[hash]);
-			next.setPrevious(null);
-			if(head_[hash] != null) head_[hash].setPrevious(next);
-			head_[hash] = next;
+		int position = index_.find(ID, ids_);
+		if(position > -1){	// update of entry possible
+			x_[position] = x;
+			y_[position] = y;
+			encrypted_[position] = isEncrypted;
+			lastUpdates_[position] = timePassed_+VALID_TIME;
+		} else {
+			if(size_ == ids_.length) grow();
+			position = size_;
+			rsus_[position] = rsu;
+			ids_[position] = ID;
+			x_[position] = x;
+			y_[position] = y;
+			encrypted_[position] = isEncrypted;
+			lastUpdates_[position] = timePassed_;
+			index_.add(ID, position, ids_, size_ + 1);
 			++size_;
 		}
 		
-		AttackLogWriter.log(Renderer.getInstance().getTimePassed() + ":Any RSU Communication:" + rsu.getRSUID() + ":Any-Vehicle Data:" + Long.toHexString(ID) + ":" +  x + ":" +  y + ":" + isEncrypted);
+		AttackLogWriter.log(SimulationClock.getTimePassed() + ":Any RSU Communication:" + rsu.getRSUID() + ":Any-Vehicle Data:" + Long.toHexString(ID) + ":" +  x + ":" +  y + ":" + isEncrypted);
+	}
+	
+	/**
+	 * Doubles the capacity of the arrays.
+	 */
+	private void grow(){
+		int capacity = Math.max(INITIAL_CAPACITY, ids_.length * 2);
+		RSU[] newRSUs = new RSU[capacity];
+		System.arraycopy(rsus_, 0, newRSUs, 0, size_);
+		rsus_ = newRSUs;
+		long[] newIDs = new long[capacity];
+		System.arraycopy(ids_, 0, newIDs, 0, size_);
+		ids_ = newIDs;
+		int[] newX = new int[capacity];
+		System.arraycopy(x_, 0, newX, 0, size_);
+		x_ = newX;
+		int[] newY = new int[capacity];
+		System.arraycopy(y_, 0, newY, 0, size_);
+		y_ = newY;
+		int[] newLastUpdates = new int[capacity];
+		System.arraycopy(lastUpdates_, 0, newLastUpdates, 0, size_);
+		lastUpdates_ = newLastUpdates;
+		boolean[] newEncrypted = new boolean[capacity];
+		System.arraycopy(encrypted_, 0, newEncrypted, 0, size_);
+		encrypted_ = newEncrypted;
 	}
 	
 	/**
@@ -83,21 +115,24 @@ public class KnownRSUsList{
 	 */
 	public void checkOutdatedRSUs(){
 		int timeout = timePassed_ - VALID_TIME;
-		KnownRSU next;
-		for(int i = 0; i < HASH_SIZE; ++i){
-			next = head_[i];
-			while(next != null){
-				if(next.getLastUpdate() < timeout){ // remove!
-					if(next.getNext() != null) next.getNext().setPrevious(next.getPrevious());
-					if(next.getPrevious() != null) next.getPrevious().setNext(next.getNext());
-					else { //it is the head!
-						head_[i] = next.getNext();
-					}
-					--size_;
+		int last;
+		for(int i = size_ - 1; i > -1; --i){	// backwards as the last RSU is moved to the position of a removed one
+			if(lastUpdates_[i] < timeout){ // remove!
+				index_.remove(ids_[i], ids_);
+				last = size_ - 1;
+				if(i != last){
+					rsus_[i] = rsus_[last];
+					ids_[i] = ids_[last];
+					x_[i] = x_[last];
+					y_[i] = y_[last];
+					lastUpdates_[i] = lastUpdates_[last];
+					encrypted_[i] = encrypted_[last];
+					index_.move(ids_[i], last, i);
 				}
-				next = next.getNext();	// still works as we didn't change it. Garbage Collector will remove it now.
+				rsus_[last] = null;	// allow garbage collection
+				size_ = last;
 			}
-		}		
+		}
 	}
 	
 	/**
@@ -117,38 +152,88 @@ public class KnownRSUsList{
 		long dy = rsuY - destY;
 		long maxDistanceSquared = (long)maxDistance * maxDistance;
 		bestDistance = dx * dx + dy * dy;		// Pythagorean theorem but without costly sqrt because it's unnecessary
-		KnownRSU bestKnownRSU = null;
-		KnownRSU next;
-		for(int i = 0; i < HASH_SIZE; ++i){
-			next = head_[i];
-			while(next != null){
-				dx = next.getX() - destX;
-				dy = next.getY() - destY;
-				tmpDistance = dx * dx + dy * dy;
-				if(tmpDistance < bestDistance && !next.isEncrypted()){
-					dx = next.getX() - rsuX;
-					dy = next.getY() - rsuY;
-					if((dx * dx + dy *dy) < maxDistanceSquared){	// needs to be inside maximum distance
-						bestDistance = tmpDistance;
-						bestKnownRSU = next;
-					}
+		int best = -1;
+		for(int i = 0; i < size_; ++i){
+			dx = x_[i] - destX;
+			dy = y_[i] - destY;
+			tmpDistance = dx * dx + dy * dy;
+			if(tmpDistance < bestDistance && !encrypted_[i]){
+				dx = x_[i] - rsuX;
+				dy = y_[i] - rsuY;
+				if((dx * dx + dy *dy) < maxDistanceSquared){	// needs to be inside maximum distance
+					bestDistance = tmpDistance;
+					best = i;
 				}
-				next = next.getNext();
 			}
 		}		
-		if(bestKnownRSU != null) return bestKnownRSU.getRSU();
+		if(best > -1) return rsus_[best];
 		else return null;
 	}
 	
 	/**
-	 * Gets an hashed array with known RSUs (array length depends on the HASH_SIZE). You can iterate through 
-	 * all known RSUs by using <code>getNext()</code> until you get to a <code>null</code> element on all 
-	 * elements of this array
+	 * Gets the known RSU at a position.
+	 * 
+	 * @param position	the position (from 0 to <code>getSize() - 1</code>)
+	 * 
+	 * @return the RSU
+	 */
+	public RSU getRSU(int position){
+		return rsus_[position];
+	}
+	
+	/**
+	 * Gets the ID of the known RSU at a position.
+	 * 
+	 * @param position	the position (from 0 to <code>getSize() - 1</code>)
+	 * 
+	 * @return the ID
+	 */
+	public long getID(int position){
+		return ids_[position];
+	}
+	
+	/**
+	 * Gets the known x coordinate of the RSU at a position.
+	 * 
+	 * @param position	the position (from 0 to <code>getSize() - 1</code>)
+	 * 
+	 * @return the x coordinate
+	 */
+	public int getX(int position){
+		return x_[position];
+	}
+	
+	/**
+	 * Gets the known y coordinate of the RSU at a position.
+	 * 
+	 * @param position	the position (from 0 to <code>getSize() - 1</code>)
+	 * 
+	 * @return the y coordinate
+	 */
+	public int getY(int position){
+		return y_[position];
+	}
+	
+	/**
+	 * Gets the time of the last update of the RSU at a position.
+	 * 
+	 * @param position	the position (from 0 to <code>getSize() - 1</code>)
+	 * 
+	 * @return the time in milliseconds
+	 */
+	public int getLastUpdate(int position){
+		return lastUpdates_[position];
+	}
+	
+	/**
+	 * Checks if the last beacon of the RSU at a position was encrypted.
+	 * 
+	 * @param position	the position (from 0 to <code>getSize() - 1</code>)
 	 * 
-	 * @return the array with known RSUs
+	 * @return <code>true</code> if it was encrypted
 	 */
-	public KnownRSU[] getFirstKnownRSU(){
-		return head_;
+	public boolean isEncrypted(int position){
+		return encrypted_[position];
 	}
 	
 	/**
@@ -173,7 +258,13 @@ public class KnownRSUsList{
 	 * Clears everything from this data structure.
 	 */
 	public void clear(){
-		head_ = new KnownRSU[HASH_SIZE];
+		index_.clear();
+		rsus_ = new RSU[0];
+		ids_ = new long[0];
+		x_ = new int[0];
+		y_ = new int[0];
+		lastUpdates_ = new int[0];
+		encrypted_ = new boolean[0];
 		size_ = 0;
 	}
-}
\ No newline at end of file
+}
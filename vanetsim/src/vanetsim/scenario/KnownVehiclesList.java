@@ -1,16 +1,20 @@
 package vanetsim.scenario;
 
-import vanetsim.gui.Renderer;
-import vanetsim.gui.helpers.AttackLogWriter;
+import vanetsim.AttackLogWriter;
+import vanetsim.simulation.SimulationClock;
 
 /**
- * A list of all known vehicles which was discovered through beacons. In contrast to the KnownPenalties-
- * class, an own class is used for storing the information about the vehicles. Although this means slightly
- * more overhead, it should not be a big case and allows better extensibility.<br>
- * A simple hash algorithm based on the vehicle ID is used to get better performance. The hash determines the 
- * corresponding linked list(beginnings of linked lists are found in <code>head_</code>). Known vehicles with the
- * same hash are connected together through their <code>next_</code> and <code>previous_</code> values (see 
- * KnownVehicle-class).
+ * A list of all known vehicles which was discovered through beacons. The data of the known vehicles is stored in
+ * parallel arrays (one array for each value) without gaps so that iterating is fast and doesn't create any objects:
+ * <pre>
+ * for(int i = 0; i &lt; list.getSize(); ++i){
+ * 	Vehicle vehicle = list.getVehicle(i);
+ * 	...
+ * }
+ * </pre>
+ * The position of a vehicle is found through an open addressing hash index on the vehicle ID (see {@link IDHashIndex}).
+ * If a vehicle is removed, the last vehicle is moved to its position so the positions are only valid until the next
+ * call of {@link #checkOutdatedVehicles()} or {@link #clear()}.
  */
 public class KnownVehiclesList{
 	
@@ -18,14 +22,35 @@ public class KnownVehiclesList{
 	 * it is dropped from the list! */
 	private static final int VALID_TIME = 1000;
 	
-	/** How many hash buckets will be used. Increase if you expect lots of known vehicles! */
-	private static final int HASH_SIZE = 32;
+	/** How many vehicles can be stored initially. The arrays are created when the first vehicle is added. */
+	private static final int INITIAL_CAPACITY = 8;
 	
 	/** How much time has passed since beginning of the simulation. Stored here as it's really needed often. */
 	private static int timePassed_ = 0;
 	
-	/** The array with all heads of the linked lists */
-	private KnownVehicle[] head_ = new KnownVehicle[HASH_SIZE];
+	/** The hash index for finding the position of an ID. */
+	private final IDHashIndex index_ = new IDHashIndex();
+	
+	/** The vehicles. */
+	private Vehicle[] vehicles_ = new Vehicle[0];
+	
+	/** The IDs of the vehicles. */
+	private long[] ids_ = new long[0];
+	
+	/** The x coordinates. */
+	private int[] x_ = new int[0];
+	
+	/** The y coordinates. */
+	private int[] y_ = new int[0];
+	
+	/** The speeds. */
+	private double[] speeds_ = new double[0];
+	
+	/** The times when the vehicles were last updated in milliseconds. */
+	private int[] lastUpdates_ = new int[0];
+	
+	/** If the last beacon was encrypted. */
+	private boolean[] encrypted_ = new boolean[0];
 	
 	/** The amount of items stored. */
 	private int size_ = 0;
@@ -34,9 +59,6 @@ public class KnownVehiclesList{
 	 * Empty constructor.
 	 */
 	public KnownVehiclesList(){
-		for(int i = 0; i < HASH_SIZE; ++i){
-			head_[i] = null;
-		}
 	}
 		
 	/**
@@ -52,49 +74,110 @@ public class KnownVehiclesList{
 	 * @param isARSU	if Beacon was sent from an ARSU
 	 */
 	public synchronized void updateVehicle(Vehicle vehicle, long ID, int x, int y, double speed, long sourceID, boolean isEncrypted, boolean isARSU){
-		
-		boolean found = false;
-		int hash = (int)(ID % HASH_SIZE);
-		if(hash < 0) hash = -hash;
-		KnownVehicle next = head_[hash];
-		while(next != null){
-			if(next.getID() == ID){	// update of entry possible
-				next.setX(x);
-				next.setY(y);
-				next.setLastUpdate(timePassed_+VALID_TIME);
-				next.setSpeed(speed);
-				next.setEncrypted_(isEncrypted);
-				found = true;
-				break;
-			}
-			next = next.getNext();
-		}					
-		
-		if(!found){
-			next = new KnownVehicle(vehicle, ID, x, y, timePassed_, speed, isEncrypted);
-			next.setNext(head_[hash]);
-			next.setPrevious(null);
-			if(head_[hash] != null) head_[hash].setPrevious(next);
-			head_[hash] = next;
-			++size_;
+		updateVehicleUnsynchronized(vehicle, ID, x, y, speed, sourceID, isEncrypted, isARSU);
+	}
+
+	/**
+	 * Update a vehicle or add it if it doesn't exist yet. Note that this function is not synchronized! It's used by the
+	 * {@link BeaconInbox} which makes sure that only one thread updates this list at the same time.
+	 * 
+	 * @param vehicle	a reference to the vehicle
+	 * @param ID		the ID of the vehicle
+	 * @param x			the x coordinate
+	 * @param y			the y coordinate
+	 * @param speed		the speed
+	 * @param sourceID	ID of the source
+	 * @param isEncrypted	if Beacon was encrypted
+	 * @param isARSU	if Beacon was sent from an ARSU
+	 */
+	void updateVehicleUnsynchronized(Vehicle vehicle, long ID, int x, int y, double speed, long sourceID, boolean isEncrypted, boolean isARSU){
+		int position = index_.find(ID, ids_);
+		if(position > -1){	// update of entry possible
+			x_[position] = x;
+			y_[position] = y;
+			lastUpdates_[position] = timePassed_+VALID_TIME;
+			speeds_[position] = speed;
+			encrypted_[position] = isEncrypted;
+		} else {
+			if(size_ == ids_.length) grow();
+			position = size_;
+			vehicles_[position] = vehicle;
+			ids_[position] = ID;
+			x_[position] = x;
+			y_[position] = y;
+			lastUpdates_[position] = timePassed_;
+			speeds_[position] = speed;
+			encrypted_[position] = isEncrypted;
+			index_.add(ID, position, ids_, size_ + 1);
+			++size_;	// increased last so that unsynchronized readers don't see an incomplete entry
 		}
 		
 		if(Vehicle.isAttackerDataLogged_()){
-			if(Renderer.getInstance().getAttackerVehicle() != null && this.equals(Renderer.getInstance().getAttackerVehicle().getKnownVehiclesList()) && Vehicle.isAttackerDataLogged_()){
+			if(Scenario.getInstance().getAttackerVehicle() != null && this.equals(Scenario.getInstance().getAttackerVehicle().getKnownVehiclesList()) && Vehicle.isAttackerDataLogged_()){
 				if(!isEncrypted || (Vehicle.isAttackerEncryptedDataLogged_() && isEncrypted)){
 					if(isARSU){
-						if(Renderer.getInstance().getAttackedVehicle() != null && Renderer.getInstance().getAttackedVehicle().getID() == ID) AttackLogWriter.log(Renderer.getInstance().getTimePassed() + ":Source(Attacker-RSU):" + sourceID + ":Attacked-Vehicle Data:" + Long.toHexString(ID) + ":" +  x + ":" +  y + ":"+ speed + ":" + isEncrypted );
-						else AttackLogWriter.log(Renderer.getInstance().getTimePassed() + ":Source(Attacker-RSU):" + sourceID + ":Other-Vehicle Data:" + Long.toHexString(ID) + ":" +  x + ":" +  y + ":"+ speed + ":" + isEncrypted );
+						if(Scenario.getInstance().getAttackedVehicle() != null && Scenario.getInstance().getAttackedVehicle().getID() == ID) AttackLogWriter.log(SimulationClock.getTimePassed() + ":Source(Attacker-RSU):" + sourceID + ":Attacked-Vehicle Data:" + Long.toHexString(ID) + ":" +  x + ":" +  y + ":"+ speed + ":" + isEncrypted );
+						else AttackLogWriter.log(SimulationClock.getTimePassed() + ":Source(Attacker-RSU):" + sourceID + ":Other-Vehicle Data:" + Long.toHexString(ID) + ":" +  x + ":" +  y + ":"+ speed + ":" + isEncrypted );
 					}
 					
 					else{
-						if(Renderer.getInstance().getAttackedVehicle() != null && Renderer.getInstance().getAttackedVehicle().getID() == ID) AttackLogWriter.log(Renderer.getInstance().getTimePassed() + ":Source(Attacker):"+ Long.toHexString(sourceID) + ":Attacked-Vehicle-Data:" + Long.toHexString(ID) + ":" + x + ":" +  y + ":"+ speed + ":" + isEncrypted);
-						else AttackLogWriter.log(Renderer.getInstance().getTimePassed() + ":Source(Attacker):"+ Long.toHexString(sourceID) + ":Other-Vehicle-Data:" + Long.toHexString(ID) + ":" + x + ":" +  y + ":"+ speed + ":" + isEncrypted);
+						if(Scenario.getInstance().getAttackedVehicle() != null && Scenario.getInstance().getAttackedVehicle().getID() == ID) AttackLogWriter.log(SimulationClock.getTimePassed() + ":Source(Attacker):"+ Long.toHexString(sourceID) + ":Attacked-Vehicle-Data:" + Long.toHexString(ID) + ":" + x + ":" +  y + ":"+ speed + ":" + isEncrypted);
+						else AttackLogWriter.log(SimulationClock.getTimePassed() + ":Source(Attacker):"+ Long.toHexString(sourceID) + ":Other-Vehicle-Data:" + Long.toHexString(ID) + ":" + x + ":" +  y + ":"+ speed + ":" + isEncrypted);
 					}
 				}
-			}else AttackLogWriter.log(Renderer.getInstance().getTimePassed() + ":Any Communication:" + sourceID + ":Any-Vehicle Data:" + Long.toHexString(ID) + ":" +  x + ":" +  y + ":"+ speed + ":" + isEncrypted);
+			}else AttackLogWriter.log(SimulationClock.getTimePassed() + ":Any Communication:" + sourceID + ":Any-Vehicle Data:" + Long.toHexString(ID) + ":" +  x + ":" +  y + ":"+ speed + ":" + isEncrypted);
 		}
-
+	}
+	
+	/**
+	 * Doubles the capacity of the arrays.
+	 */
+	private void grow(){
+		int capacity = Math.max(INITIAL_CAPACITY, ids_.length * 2);
+		Vehicle[] newVehicles = new Vehicle[capacity];
+		System.arraycopy(vehicles_, 0, newVehicles, 0, size_);
+		long[] newIDs = new long[capacity];
+		System.arraycopy(ids_, 0, newIDs, 0, size_);
+		int[] newX = new int[capacity];
+		System.arraycopy(x_, 0, newX, 0, size_);
+		int[] newY = new int[capacity];
+		System.arraycopy(y_, 0, newY, 0, size_);
+		double[] newSpeeds = new double[capacity];
+		System.arraycopy(speeds_, 0, newSpeeds, 0, size_);
+		int[] newLastUpdates = new int[capacity];
+		System.arraycopy(lastUpdates_, 0, newLastUpdates, 0, size_);
+		boolean[] newEncrypted = new boolean[capacity];
+		System.arraycopy(encrypted_, 0, newEncrypted, 0, size_);
+		// set the arrays with the values first and the vehicles last so that unsynchronized readers always find the values
+		ids_ = newIDs;
+		x_ = newX;
+		y_ = newY;
+		speeds_ = newSpeeds;
+		lastUpdates_ = newLastUpdates;
+		encrypted_ = newEncrypted;
+		vehicles_ = newVehicles;
+	}
+	
+	/**
+	 * Removes the vehicle at a position. The last vehicle is moved to this position.
+	 * 
+	 * @param position	the position
+	 */
+	private void remove(int position){
+		index_.remove(ids_[position], ids_);
+		int last = size_ - 1;
+		if(position != last){
+			vehicles_[position] = vehicles_[last];
+			ids_[position] = ids_[last];
+			x_[position] = x_[last];
+			y_[position] = y_[last];
+			speeds_[position] = speeds_[last];
+			lastUpdates_[position] = lastUpdates_[last];
+			encrypted_[position] = encrypted_[last];
+			index_.move(ids_[position], last, position);
+		}
+		vehicles_[last] = null;	// allow garbage collection
+		size_ = last;
 	}
 	
 	/**
@@ -104,21 +187,9 @@ public class KnownVehiclesList{
 	public void checkOutdatedVehicles(){
 		//int timeout = timePassed_ - VALID_TIME;
 		int timeout = timePassed_;
-		KnownVehicle next;
-		for(int i = 0; i < HASH_SIZE; ++i){
-			next = head_[i];
-			while(next != null){
-				if(next.getLastUpdate() < timeout){ // remove!
-					if(next.getNext() != null) next.getNext().setPrevious(next.getPrevious());
-					if(next.getPrevious() != null) next.getPrevious().setNext(next.getNext());
-					else { //it is the head!
-						head_[i] = next.getNext();
-					}
-					--size_;
-				}
-				next = next.getNext();	// still works as we didn't change it. Garbage Collector will remove it now.
-			}
-		}		
+		for(int i = size_ - 1; i > -1; --i){	// backwards as the last vehicle is moved to the position of a removed one
+			if(lastUpdates_[i] < timeout) remove(i);
+		}
 	}
 	
 	/**
@@ -138,38 +209,99 @@ public class KnownVehiclesList{
 		long dy = vehicleY - destY;
 		long maxDistanceSquared = (long)maxDistance * maxDistance;
 		bestDistance = dx * dx + dy * dy;		// Pythagorean theorem but without costly sqrt because it's unnecessary
-		KnownVehicle bestVehicle = null;
-		KnownVehicle next;
-		for(int i = 0; i < HASH_SIZE; ++i){
-			next = head_[i];
-			while(next != null){
-				dx = next.getX() - destX;
-				dy = next.getY() - destY;
-				tmpDistance = dx * dx + dy * dy;
-				if(tmpDistance < bestDistance){
-					dx = next.getX() - vehicleX;
-					dy = next.getY() - vehicleY;
-					if((dx * dx + dy *dy) < maxDistanceSquared){	// needs to be inside maximum distance
-						bestDistance = tmpDistance;
-						bestVehicle = next;
-					}
+		int best = -1;
+		for(int i = 0; i < size_; ++i){
+			dx = x_[i] - destX;
+			dy = y_[i] - destY;
+			tmpDistance = dx * dx + dy * dy;
+			if(tmpDistance < bestDistance){
+				dx = x_[i] - vehicleX;
+				dy = y_[i] - vehicleY;
+				if((dx * dx + dy *dy) < maxDistanceSquared){	// needs to be inside maximum distance
+					bestDistance = tmpDistance;
+					best = i;
 				}
-				next = next.getNext();
 			}
 		}		
-		if(bestVehicle != null) return bestVehicle.getVehicle();
+		if(best > -1) return vehicles_[best];
 		else return null;
 	}
 	
 	/**
-	 * Gets an hashed array with known vehicles (array length depends on the HASH_SIZE). You can iterate through 
-	 * all known vehicles by using <code>getNext()</code> until you get to a <code>null</code> element on all 
-	 * elements of this array
+	 * Gets the known vehicle at a position.
+	 * 
+	 * @param position	the position (from 0 to <code>getSize() - 1</code>)
+	 * 
+	 * @return the vehicle
+	 */
+	public Vehicle getVehicle(int position){
+		return vehicles_[position];
+	}
+	
+	/**
+	 * Gets the ID of the known vehicle at a position.
+	 * 
+	 * @param position	the position (from 0 to <code>getSize() - 1</code>)
+	 * 
+	 * @return the ID
+	 */
+	public long getID(int position){
+		return ids_[position];
+	}
+	
+	/**
+	 * Gets the last known x coordinate of the vehicle at a position.
+	 * 
+	 * @param position	the position (from 0 to <code>getSize() - 1</code>)
+	 * 
+	 * @return the x coordinate
+	 */
+	public int getX(int position){
+		return x_[position];
+	}
+	
+	/**
+	 * Gets the last known y coordinate of the vehicle at a position.
+	 * 
+	 * @param position	the position (from 0 to <code>getSize() - 1</code>)
+	 * 
+	 * @return the y coordinate
+	 */
+	public int getY(int position){
+		return y_[position];
+	}
+	
+	/**
+	 * Gets the last known speed of the vehicle at a position.
+	 * 
+	 * @param position	the position (from 0 to <code>getSize() - 1</code>)
+	 * 
+	 * @return the speed
+	 */
+	public double getSpeed(int position){
+		return speeds_[position];
+	}
+	
+	/**
+	 * Gets the time of the last update of the vehicle at a position.
+	 * 
+	 * @param position	the position (from 0 to <code>getSize() - 1</code>)
+	 * 
+	 * @return the time in milliseconds
+	 */
+	public int getLastUpdate(int position){
+		return lastUpdates_[position];
+	}
+	
+	/**
+	 * Checks if the last beacon of the vehicle at a position was encrypted.
+	 * 
+	 * @param position	the position (from 0 to <code>getSize() - 1</code>)
 	 * 
-	 * @return the array with known vehicles
+	 * @return <code>true</code> if it was encrypted
 	 */
-	public KnownVehicle[] getFirstKnownVehicle(){
-		return head_;
+	public boolean isEncrypted(int position){
+		return encrypted_[position];
 	}
 	
 	/**
@@ -194,7 +326,14 @@ public class KnownVehiclesList{
 	 * Clears everything from this data structure.
 	 */
 	public void clear(){
-		head_ = new KnownVehicle[HASH_SIZE];
+		index_.clear();
+		vehicles_ = new Vehicle[0];
+		ids_ = new long[0];
+		x_ = new int[0];
+		y_ = new int[0];
+		speeds_ = new double[0];
+		lastUpdates_ = new int[0];
+		encrypted_ = new boolean[0];
 		size_ = 0;
 	}
-}
\ No newline at end of file
+}
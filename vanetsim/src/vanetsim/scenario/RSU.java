@@ -6,13 +6,14 @@ import java.util.ArrayDeque;
 //import java16.util.ArrayDeque;
 
 
-import vanetsim.gui.Renderer;
-import vanetsim.gui.controlpanels.ReportingControlPanel;
+import vanetsim.map.NeighborTable;
 import vanetsim.map.Node;
 import vanetsim.map.Region;
+import vanetsim.map.SpatialHash;
 import vanetsim.map.Street;
 import vanetsim.scenario.messages.Message;
 import vanetsim.map.Map;
+import vanetsim.simulation.SimulationEngine;
 
 
 /**
@@ -21,9 +22,6 @@ import vanetsim.map.Map;
 
 public final class RSU {
 	
-	/** A reference to the reporting control panel so that we don't need to call this over and over again. */
-	private static final ReportingControlPanel REPORT_PANEL = Vehicle.getREPORT_PANEL();
-	
 	/** A common counter to generate unique IDs */
 	private static int counter_ = 1;
 	
@@ -71,6 +69,9 @@ public final class RSU {
 	
 	/** A countdown for communication. Also used for cleaning up outdated known messages. */
 	private int communicationCountdown_;
+
+	/** The position of this Road-Side-Unit in the {@link SpatialHash}. */
+	private int spatialHashIndex_ = -1;
 	
 	/** A countdown for rechecking if known vehicles are outdated. */
 	private int knownVehiclesTimeoutCountdown_;
@@ -148,7 +149,7 @@ public final class RSU {
 		Message[] messages = knownMessages_.getForwardMessages();
 		int messageSize = knownMessages_.getSize();
 		
-		int i, j, k, size, MapMinX, MapMinY, MapMaxX, MapMaxY, RegionMinX, RegionMinY, RegionMaxX, RegionMaxY;
+		int i, k, size, MapMinX, MapMinY, MapMaxX, MapMaxY;
 		Vehicle[] vehicles = null;
 		Vehicle vehicle = null;
 
@@ -176,41 +177,34 @@ public final class RSU {
 		else if(tmp < Integer.MAX_VALUE) MapMaxY = (int) tmp;
 		else MapMaxY = Integer.MAX_VALUE;
 
-		// Get the regions to be considered for sending beacons
-		Region tmpregion = MAP.getRegionOfPoint(MapMinX, MapMinY);
-		RegionMinX = tmpregion.getX();
-		RegionMinY = tmpregion.getY();
-
-		tmpregion = MAP.getRegionOfPoint(MapMaxX, MapMaxY);
-		RegionMaxX = tmpregion.getX();
-		RegionMaxY = tmpregion.getY();
 		long maxCommDistanceSquared = (long)wifiRadius_ * wifiRadius_;
 		long dx, dy;
 
 		int sendCount = 0;
 
-		// only iterate through those regions which are within the distance
-		for(i = RegionMinX; i <= RegionMaxX; ++i){
-			for(j = RegionMinY; j <= RegionMaxY; ++j){
-				vehicles = regions_[i][j].getVehicleArray();	//use the array as it's MUCH faster!
-				size = vehicles.length;
-				for(k = 0; k < size; ++k){
-					vehicle = vehicles[k];
-					// precheck if the vehicle is near enough and valid (check is not exact as its a rectangular box and not circle)
-					if(vehicle.isWiFiEnabled() && vehicle.isActive() && vehicle.getX() >= MapMinX && vehicle.getX() <= MapMaxX && vehicle.getY() >= MapMinY && vehicle.getY() <= MapMaxY){
-						dx = vehicle.getX() - x_;
-						dy = vehicle.getY() - y_;
-						++sendCount;
-						if((dx * dx + dy * dy) <= maxCommDistanceSquared){	// Pythagorean theorem: a^2 + b^2 = c^2 but without the needed Math.sqrt to save a little bit performance
-							for(int l = messageSize - 1; l > -1; --l){		
-								vehicle.receiveMessage(x_, y_, messages[l]);
-							}
+		// only iterate through those buckets of the spatial hash which are within the distance
+		int[] ranges = SpatialHash.getRangeBuffer();
+		int rangeCount = SpatialHash.getInstance().getVehicleRanges(MapMinX, MapMinY, MapMaxX, MapMaxY, ranges);
+		vehicles = SpatialHash.getInstance().getVehicles();
+		for(i = 0; i < rangeCount; i += 2){
+			size = ranges[i + 1];
+			for(k = ranges[i]; k < size; ++k){
+				vehicle = vehicles[k];
+				// precheck if the vehicle is near enough and valid (check is not exact as its a rectangular box and not circle)
+				if(vehicle.isWiFiEnabled() && vehicle.isActive() && vehicle.getX() >= MapMinX && vehicle.getX() <= MapMaxX && vehicle.getY() >= MapMinY && vehicle.getY() <= MapMaxY){
+					dx = vehicle.getX() - x_;
+					dy = vehicle.getY() - y_;
+					++sendCount;
+					if((dx * dx + dy * dy) <= maxCommDistanceSquared){	// Pythagorean theorem: a^2 + b^2 = c^2 but without the needed Math.sqrt to save a little bit performance
+						for(int l = messageSize - 1; l > -1; --l){		
+							vehicle.receiveMessage(x_, y_, messages[l]);
 						}
 					}
 				}
 			}
 		}
-		if(sendCount > 0) knownMessages_.deleteForwardMessage(i, true);
+		// keep the position of the deleted message as it was when the regions were iterated
+		if(sendCount > 0) knownMessages_.deleteForwardMessage(MAP.getRegionOfPoint(MapMaxX, MapMaxY).getX() + 1, true);
 	}
 	
 
@@ -225,62 +219,14 @@ public final class RSU {
 	public void sendBeacons(){
 		beaconCountdown_ += beaconInterval_;
 
-		int i, j, k, size, MapMinX, MapMinY, MapMaxX, MapMaxY, RegionMinX, RegionMinY, RegionMaxX, RegionMaxY;
-		Vehicle[] vehicles = null;
-		Vehicle vehicle = null;
-
-		// Minimum x coordinate to be considered for sending beacons
-		long tmp = x_ - wifiRadius_;
-		if (tmp < 0) MapMinX = 0;	// Map stores only positive coordinates
-		else if(tmp < Integer.MAX_VALUE) MapMinX = (int) tmp;
-		else MapMinX = Integer.MAX_VALUE;
-
-		// Maximum x coordinate to be considered for sending beacons
-		tmp = x_ + (long)wifiRadius_;
-		if (tmp < 0) MapMaxX = 0;
-		else if(tmp < Integer.MAX_VALUE) MapMaxX = (int) tmp;
-		else MapMaxX = Integer.MAX_VALUE;
-
-		// Minimum y coordinate to be considered for sending beacons
-		tmp = y_ - wifiRadius_;
-		if (tmp < 0) MapMinY = 0;
-		else if(tmp < Integer.MAX_VALUE) MapMinY = (int) tmp;
-		else MapMinY = Integer.MAX_VALUE;
-
-		// Maximum y coordinate to be considered for sending beacons
-		tmp = y_ + (long)wifiRadius_;
-		if (tmp < 0) MapMaxY = 0;
-		else if(tmp < Integer.MAX_VALUE) MapMaxY = (int) tmp;
-		else MapMaxY = Integer.MAX_VALUE;
-
-		// Get the regions to be considered for sending beacons
-		Region tmpregion = MAP.getRegionOfPoint(MapMinX, MapMinY);
-		RegionMinX = tmpregion.getX();
-		RegionMinY = tmpregion.getY();
-
-		tmpregion = MAP.getRegionOfPoint(MapMaxX, MapMaxY);
-		RegionMaxX = tmpregion.getX();
-		RegionMaxY = tmpregion.getY();
-		long maxCommDistanceSquared = (long)wifiRadius_ * wifiRadius_;
-		long dx, dy;
-
-	
-		// only iterate through those regions which are within the distance
-		for(i = RegionMinX; i <= RegionMaxX; ++i){
-			for(j = RegionMinY; j <= RegionMaxY; ++j){
-				vehicles = regions_[i][j].getVehicleArray();	//use the array as it's MUCH faster!
-				size = vehicles.length;
-				for(k = 0; k < size; ++k){
-					vehicle = vehicles[k];
-					// precheck if the vehicle is near enough and valid (check is not exact as its a rectangular box and not circle)
-					if(vehicle.isWiFiEnabled() && vehicle.isActive() && vehicle.getX() >= MapMinX && vehicle.getX() <= MapMaxX && vehicle.getY() >= MapMinY && vehicle.getY() <= MapMaxY){
-						dx = vehicle.getX() - x_;
-						dy = vehicle.getY() - y_;
-						if((dx * dx + dy * dy) <= maxCommDistanceSquared){	// Pythagorean theorem: a^2 + b^2 = c^2 but without the needed Math.sqrt to save a little bit performance
-							vehicle.getKnownRSUsList().updateRSU(this, rsuID_, x_, y_, isEncrypted_);
-						}
-					}
-				}
+		// send to all vehicles found for this step (all of them have wifi, are active and are within the distance)
+		if(spatialHashIndex_ > -1){
+			NeighborTable table = NeighborTable.getInstance();
+			Vehicle[] vehicles = table.getVehicles();
+			int[] neighbors = table.getRSUNeighbors();
+			int end = table.getRSUStarts()[spatialHashIndex_ + 1];
+			for(int k = table.getRSUStarts()[spatialHashIndex_]; k < end; ++k){
+				vehicles[neighbors[k]].getKnownRSUsList().updateRSU(this, rsuID_, x_, y_, isEncrypted_);
 			}
 		}
 
@@ -288,7 +234,7 @@ public final class RSU {
 		// allow beacon monitoring
 		if(beaconMonitorEnabled_){
 			if(x_ >= beaconMonitorMinX_ && x_ <= beaconMonitorMaxX_ && y_ >= beaconMonitorMinY_ && y_ <= beaconMonitorMaxY_){
-				REPORT_PANEL.addBeacon(this, rsuID_, x_, y_, false);
+				SimulationEngine.getInstance().getListener().beaconSent(this, rsuID_, x_, y_, false);
 			}
 		}
 
@@ -337,15 +283,10 @@ public final class RSU {
 		
 		long distanceSenderToNodeFront, senderDxFront, senderDyFront, distanceSenderToNodeBehind, senderDxBehind, senderDyBehind, distanceRecipientToNodeFront, recipientDxFront, recipientDyFront, distanceRecipientToNodeBehind, recipientDxBehind, recipientDyBehind, distanceRecipientToNodeJunction, nodeJunctionDx, nodeJunctionDy, tmpDx, tmpDy, dxMix = 0, dyMix = 0;
 		
-		//lists to compare every vehicle with every vehicle
-		KnownVehicle[] senderHeads = knownVehiclesList_.getFirstKnownVehicle();
+		//compare every vehicle with every vehicle (vehicles added concurrently are ignored)
+		int knownSize = knownVehiclesList_.getSize();
 		Vehicle senderVehicle = null;
-		KnownVehicle senderNext;
-
-		
-		KnownVehicle[] recipientHeads = knownVehiclesList_.getFirstKnownVehicle();
 		Vehicle recipientVehicle = null;
-		KnownVehicle recipientNext;
 
 
 		long radiusSquared = 0;
@@ -354,10 +295,9 @@ public final class RSU {
 		HashMap<String, Vehicle> tmpVehicles = new HashMap<String, Vehicle>();
 
 		//traverse every vehicle in the mix zone
-		for(int j = 0; j < senderHeads.length; ++j){
-			senderNext = senderHeads[j];								
-			while(senderNext != null){
-				senderVehicle = senderNext.getVehicle();
+		for(int j = 0; j < knownSize; ++j){
+				senderVehicle = knownVehiclesList_.getVehicle(j);
+				if(senderVehicle == null) continue;
 					//clear the data of the previous round
 					tmpVehicles.clear();	
 	
@@ -427,15 +367,12 @@ public final class RSU {
 					
 					
 					//get second vehicle list and compare to first
-					for(int i = 0; i < recipientHeads.length; ++i){
-
-						recipientNext = recipientHeads[i];								
-						while(recipientNext != null){
+					for(int i = 0; i < knownSize; ++i){
 
-							recipientVehicle = recipientNext.getVehicle();
+							recipientVehicle = knownVehiclesList_.getVehicle(i);
 
 							//check if the sender is the recipient
-							if(!recipientVehicle.equals(senderVehicle)) {
+							if(recipientVehicle != null && !recipientVehicle.equals(senderVehicle)) {
 
 								//calculate distances
 								recipientDxFront = recipientVehicle.getX() - nodeFront.getX();
@@ -542,9 +479,6 @@ public final class RSU {
 									}
 								}
 							}
-
-						recipientNext = recipientNext.getNext();
-						}	
 					}
 					//clear colored vehicles
 					
@@ -552,7 +486,7 @@ public final class RSU {
 					for(int k = 0; k < vehicleBehind_.length; k++){
 						if(vehicleBehind_[k] != null){
 							vehicleBehind_[k].getKnownVehiclesList().updateVehicle(senderVehicle, senderVehicle.getID(), senderVehicle.getX(), senderVehicle.getY(), senderVehicle.getCurSpeed(), rsuID_, true, false);
-							if(senderVehicle.equals(Renderer.getInstance().getMarkedVehicle()) && showEncryptedBeaconsInMix_) {
+							if(senderVehicle.equals(Scenario.getInstance().getMarkedVehicle()) && showEncryptedBeaconsInMix_) {
 								coloredVehicles.add(vehicleBehind_[k]);
 								vehicleBehind_[k].setColor(Color.red);
 								lastSender = this;
@@ -560,7 +494,7 @@ public final class RSU {
 						}
 						if(vehicleFront_[k] != null){
 							vehicleFront_[k].getKnownVehiclesList().updateVehicle(senderVehicle, senderVehicle.getID(), senderVehicle.getX(), senderVehicle.getY(), senderVehicle.getCurSpeed(), rsuID_, true, false);
-							if(senderVehicle.equals(Renderer.getInstance().getMarkedVehicle()) && showEncryptedBeaconsInMix_){
+							if(senderVehicle.equals(Scenario.getInstance().getMarkedVehicle()) && showEncryptedBeaconsInMix_){
 								coloredVehicles.add(vehicleFront_[k]);
 								vehicleFront_[k].setColor(Color.red);
 								lastSender = this;
@@ -568,7 +502,7 @@ public final class RSU {
 						}
 						if(vehicleToward_[k] != null){
 							vehicleToward_[k].getKnownVehiclesList().updateVehicle(senderVehicle, senderVehicle.getID(), senderVehicle.getX(), senderVehicle.getY(), senderVehicle.getCurSpeed(), rsuID_, true, false);
-							if(senderVehicle.equals(Renderer.getInstance().getMarkedVehicle()) && showEncryptedBeaconsInMix_){
+							if(senderVehicle.equals(Scenario.getInstance().getMarkedVehicle()) && showEncryptedBeaconsInMix_){
 								coloredVehicles.add(vehicleToward_[k]);
 								vehicleToward_[k].setColor(Color.red);
 								lastSender = this;
@@ -577,14 +511,12 @@ public final class RSU {
 					}	
 					for(Vehicle v : tmpVehicles.values()) {
 						v.getKnownVehiclesList().updateVehicle(senderVehicle, senderVehicle.getID(), senderVehicle.getX(), senderVehicle.getY(), senderVehicle.getCurSpeed(), rsuID_, true, false);
-						if(senderVehicle.equals(Renderer.getInstance().getMarkedVehicle()) && showEncryptedBeaconsInMix_){
+						if(senderVehicle.equals(Scenario.getInstance().getMarkedVehicle()) && showEncryptedBeaconsInMix_){
 							coloredVehicles.add(v);
 							v.setColor(Color.red);
 							lastSender = this;
 						}
 					}
-				senderNext = senderNext.getNext();
-			}		
 		}
 	}	
 
@@ -709,6 +641,24 @@ public final class RSU {
 	public int getBeaconCountdown(){
 		return beaconCountdown_;
 	}
+
+	/**
+	 * Checks if this Road-Side-Unit sends beacons in the current step.
+	 * 
+	 * @return <code>true</code> if the neighbors are needed, else <code>false</code>
+	 */
+	public boolean needsNeighbors(){
+		return beaconCountdown_ < 1 && !isEncrypted_;	// see sendBeacons()
+	}
+
+	/**
+	 * Sets the position of this Road-Side-Unit in the {@link SpatialHash}.
+	 * 
+	 * @param index	the position
+	 */
+	public void setSpatialHashIndex(int index){
+		spatialHashIndex_ = index;
+	}
 	
 	/**
 	 * Gets the current communication countdown
@@ -8,6 +8,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.BitSet;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.zip.ZipEntry;
@@ -28,21 +29,23 @@ import org.codehaus.staxmate.in.SMInputCursor;
 import org.codehaus.staxmate.out.SMOutputDocument;
 import org.codehaus.staxmate.out.SMOutputElement;
 
+import vanetsim.AttackLogWriter;
 import vanetsim.ErrorLog;
+import vanetsim.PrivacyLogWriter;
 import vanetsim.VanetSimStart;
-import vanetsim.gui.Renderer;
-import vanetsim.gui.helpers.AttackLogWriter;
-import vanetsim.gui.helpers.MouseClickManager;
-import vanetsim.gui.helpers.PrivacyLogWriter;
 import vanetsim.localization.Messages;
 import vanetsim.map.Map;
 import vanetsim.map.Node;
 import vanetsim.map.Region;
+import vanetsim.map.TravelTimeEstimator;
+import vanetsim.routing.RouteCache;
 import vanetsim.routing.WayPoint;
 import vanetsim.scenario.events.Event;
 import vanetsim.scenario.events.EventList;
 import vanetsim.scenario.events.StartBlocking;
 import vanetsim.scenario.events.StopBlocking;
+import vanetsim.simulation.SimulationClock;
+import vanetsim.simulation.SimulationEngine;
 
 /**
  * A scenario saves the vehicles and events.
@@ -58,6 +61,15 @@ public final class Scenario{
 	/** File name of the Scenario. Used to name log files */
 	private String scenarioName = "";
 	
+	/** A vehicle which is marked (selected by user). */
+	private volatile Vehicle markedVehicle_ = null;
+	
+	/** The attacker vehicle. */
+	private volatile Vehicle attackerVehicle_ = null;
+	
+	/** The vehicle which is attacked. */
+	private volatile Vehicle attackedVehicle_ = null;
+	
 	/**
 	 * Empty, private constructor in order to disable instancing.
 	 */
@@ -79,24 +91,25 @@ public final class Scenario{
 	public void initNewScenario(){
 		if(ready_ == true){
 			ready_ = false;
-			if(!Renderer.getInstance().isConsoleStart())VanetSimStart.getSimulationMaster().stopThread();
-			if(!Renderer.getInstance().isConsoleStart())VanetSimStart.getMainControlPanel().getSimulatePanel().setSimulationStop();
+			if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.getSimulationMaster().stopThread();
+			else SimulationEngine.getInstance().stopWorkers();
+			if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.getMainControlPanel().getSimulatePanel().setSimulationStop();
 			KnownVehiclesList.setTimePassed(0);
 			KnownRSUsList.setTimePassed(0);
-			Renderer.getInstance().setTimePassed(0);
-			Renderer.getInstance().setMarkedVehicle(null);
-			Renderer.getInstance().setShowVehicles(false);
-			Renderer.getInstance().setShowRSUs(false);
-			Renderer.getInstance().setShowMixZones(false);
-			Renderer.getInstance().setAttackedVehicle(null);
-			Renderer.getInstance().setAttackerVehicle(null);
-			Renderer.getInstance().setShowAttackers(false);
+			SimulationClock.setTimePassed(0);
+			markedVehicle_ = null;
+			attackedVehicle_ = null;
+			attackerVehicle_ = null;
+			if(!SimulationEngine.getInstance().isHeadless()) SimulationEngine.getInstance().getListener().scenarioCleared();
 			Vehicle.setMaximumCommunicationDistance(0);
 			Vehicle.resetGlobalRandomGenerator();
 			Vehicle.setMinTravelTimeForRecycling(60000);	// standard value for recycle time
 			Vehicle.setArsuList(new AttackRSU[0]);
 			Vehicle.setAttackedVehicleID_(0);
-			if(!Renderer.getInstance().isConsoleStart())MouseClickManager.getInstance().cleanMarkings();
+			TravelTimeEstimator.getInstance().setUpdateInterval(0);	// disables the estimation and drops the estimated speeds of the old scenario
+			Vehicle.setRouteRepairEnabled(false);
+			Vehicle.setRoutingAlgorithm(0);	// standard value is A*
+			RouteCache.getInstance().clear();
 			Region[][] Regions = Map.getInstance().getRegions();
 			int Region_max_x = Map.getInstance().getRegionCountX();
 			int Region_max_y = Map.getInstance().getRegionCountY();
@@ -107,7 +120,7 @@ public final class Scenario{
 				}
 			}
 			EventList.getInstance().clearEvents();
-			if(!Renderer.getInstance().isConsoleStart())VanetSimStart.getMainControlPanel().getEditPanel().getEditEventPanel().updateList();
+			if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.getMainControlPanel().getEditPanel().getEditEventPanel().updateList();
 		}		
 	}
 
@@ -116,13 +129,16 @@ public final class Scenario{
 	 * 
 	 * @param file	the file to load
 	 * @param zip	<code>true</code> if the file given is zipped, else <code>false</code>
+	 * 
+	 * @return <code>true</code> if the scenario was loaded completely, else <code>false</code>
 	 */
-	public void load(File file, boolean zip){
+	public boolean load(File file, boolean zip){
+		boolean complete = false;
 		scenarioName = file.getName();
 		Map.getInstance().clearMixZones();
 		Map.getInstance().clearRSUs();
 		try{
-			if(!Renderer.getInstance().isConsoleStart())VanetSimStart.setProgressBar(true);
+			if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.setProgressBar(true);
 			initNewScenario();
 			String type;
 			int x, y, time, maxSpeed, vehicleLength, maxCommDistance, direction, lanes, braking_rate, acceleration_rate, timeDistance, politeness, color, mixX, mixY, mixRadius, wifiX, wifiY, wifiRadius;
@@ -161,58 +177,58 @@ public final class Scenario{
 							if(settingsCrsr.getLocalName().toLowerCase().equals("communicationenabled")){ //$NON-NLS-1$
 								if(settingsCrsr.collectDescendantText(false).equals("true")) tmpBoolean = true;	//$NON-NLS-1$
 								else tmpBoolean = false;
-								if(!Renderer.getInstance().isConsoleStart())VanetSimStart.getMainControlPanel().getEditPanel().getEditSettingsPanel().setCommunication(tmpBoolean);
+								if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.getMainControlPanel().getEditPanel().getEditSettingsPanel().setCommunication(tmpBoolean);
 								Vehicle.setCommunicationEnabled(tmpBoolean);
 								RSU.setCommunicationEnabled(tmpBoolean);
 							} else if(settingsCrsr.getLocalName().toLowerCase().equals("beaconsenabled")){ //$NON-NLS-1$
 								if(settingsCrsr.collectDescendantText(false).equals("true")) tmpBoolean = true;	//$NON-NLS-1$
 								else tmpBoolean = false;
-								if(!Renderer.getInstance().isConsoleStart())VanetSimStart.getMainControlPanel().getEditPanel().getEditSettingsPanel().setBeacons(tmpBoolean);
+								if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.getMainControlPanel().getEditPanel().getEditSettingsPanel().setBeacons(tmpBoolean);
 								Vehicle.setBeaconsEnabled(tmpBoolean);
 								RSU.setBeaconsEnabled(tmpBoolean);
 							} else if(settingsCrsr.getLocalName().toLowerCase().equals("fallbackinmixzonesenabled")){ //$NON-NLS-1$
 								if(settingsCrsr.collectDescendantText(false).equals("true")) tmpBoolean = true;	//$NON-NLS-1$
 								else tmpBoolean = false;
-								if(!Renderer.getInstance().isConsoleStart())VanetSimStart.getMainControlPanel().getEditPanel().getEditSettingsPanel().setMixZonesFallbackEnabled(tmpBoolean);
+								if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.getMainControlPanel().getEditPanel().getEditSettingsPanel().setMixZonesFallbackEnabled(tmpBoolean);
 								Vehicle.setMixZonesFallbackEnabled(tmpBoolean);
 							} else if(settingsCrsr.getLocalName().toLowerCase().equals("fallbackinmixzonesfloodingonly")){ //$NON-NLS-1$
 								if(settingsCrsr.collectDescendantText(false).equals("true")) tmpBoolean = true;	//$NON-NLS-1$
 								else tmpBoolean = false;
-								if(!Renderer.getInstance().isConsoleStart())VanetSimStart.getMainControlPanel().getEditPanel().getEditSettingsPanel().setMixZonesFallbackFloodingOnly(tmpBoolean);
+								if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.getMainControlPanel().getEditPanel().getEditSettingsPanel().setMixZonesFallbackFloodingOnly(tmpBoolean);
 								Vehicle.setMixZonesFallbackFloodingOnly(tmpBoolean);								
 							} else if(settingsCrsr.getLocalName().toLowerCase().equals("globalInfrastructureenabled")){ //$NON-NLS-1$
 								if(settingsCrsr.collectDescendantText(false).equals("true")) tmpBoolean = true;	//$NON-NLS-1$
 								else tmpBoolean = false;
-								if(!Renderer.getInstance().isConsoleStart())VanetSimStart.getMainControlPanel().getEditPanel().getEditSettingsPanel().setGlobalInfrastructure(tmpBoolean);
+								if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.getMainControlPanel().getEditPanel().getEditSettingsPanel().setGlobalInfrastructure(tmpBoolean);
 								// implementation missing
 							} else if(settingsCrsr.getLocalName().toLowerCase().equals("mixzonesenabled")){ //$NON-NLS-1$
 								if(settingsCrsr.collectDescendantText(false).equals("true")) tmpBoolean = true;	//$NON-NLS-1$
 								else tmpBoolean = false;
-								if(!Renderer.getInstance().isConsoleStart())VanetSimStart.getMainControlPanel().getEditPanel().getEditSettingsPanel().setMixZonesEnabled(tmpBoolean);
+								if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.getMainControlPanel().getEditPanel().getEditSettingsPanel().setMixZonesEnabled(tmpBoolean);
 								Vehicle.setMixZonesEnabled(tmpBoolean);
 							} else if(settingsCrsr.getLocalName().toLowerCase().equals("vehiclerecyclingenabled")){ //$NON-NLS-1$
 								if(settingsCrsr.collectDescendantText(false).equals("true")) tmpBoolean = true;	//$NON-NLS-1$
 								else tmpBoolean = false;
-								if(!Renderer.getInstance().isConsoleStart())VanetSimStart.getMainControlPanel().getEditPanel().getEditSettingsPanel().setRecyclingEnabled(tmpBoolean);
+								if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.getMainControlPanel().getEditPanel().getEditSettingsPanel().setRecyclingEnabled(tmpBoolean);
 								Vehicle.setRecyclingEnabled(tmpBoolean);
 							} else if(settingsCrsr.getLocalName().toLowerCase().equals("communicationinterval")){ //$NON-NLS-1$
 								try{
 									int tmp = Integer.parseInt(settingsCrsr.collectDescendantText(false));
-									if(!Renderer.getInstance().isConsoleStart())VanetSimStart.getMainControlPanel().getEditPanel().getEditSettingsPanel().setCommunicationInterval(tmp);
+									if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.getMainControlPanel().getEditPanel().getEditSettingsPanel().setCommunicationInterval(tmp);
 									Vehicle.setCommunicationInterval(tmp);
 									RSU.setCommunicationInterval(tmp);
 								} catch (Exception e) {}
 							} else if(settingsCrsr.getLocalName().toLowerCase().equals("beaconsinterval")){ //$NON-NLS-1$
 								try{
 									int tmp = Integer.parseInt(settingsCrsr.collectDescendantText(false));
-									if(!Renderer.getInstance().isConsoleStart())VanetSimStart.getMainControlPanel().getEditPanel().getEditSettingsPanel().setBeaconInterval(tmp);
+									if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.getMainControlPanel().getEditPanel().getEditSettingsPanel().setBeaconInterval(tmp);
 									Vehicle.setBeaconInterval(tmp);
 									RSU.setBeaconInterval(tmp);
 								} catch (Exception e) {}
 							} else if(settingsCrsr.getLocalName().toLowerCase().equals("mixzoneradius")){ //$NON-NLS-1$
 								try{
 									int tmp = Integer.parseInt(settingsCrsr.collectDescendantText(false));
-									if(!Renderer.getInstance().isConsoleStart())VanetSimStart.getMainControlPanel().getEditPanel().getEditSettingsPanel().setMixZoneRadius(tmp);
+									if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.getMainControlPanel().getEditPanel().getEditSettingsPanel().setMixZoneRadius(tmp);
 									Vehicle.setMixZoneRadius(tmp);
 								} catch (Exception e) {}
 							} else if(settingsCrsr.getLocalName().toLowerCase().equals("routingmode")){ //$NON-NLS-1$
@@ -220,9 +236,21 @@ public final class Scenario{
 									int tmp = Integer.parseInt(settingsCrsr.collectDescendantText(false));
 									if(tmp > 1) tmp = 1;
 									else if (tmp < 0) tmp = 0;
-									if(!Renderer.getInstance().isConsoleStart())VanetSimStart.getMainControlPanel().getEditPanel().getEditSettingsPanel().setRoutingMode(tmp);
+									if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.getMainControlPanel().getEditPanel().getEditSettingsPanel().setRoutingMode(tmp);
 									Vehicle.setRoutingMode(tmp);
 								} catch (Exception e) {}
+							} else if(settingsCrsr.getLocalName().toLowerCase().equals("routingalgorithm")){ //$NON-NLS-1$
+								try{
+									Vehicle.setRoutingAlgorithm(Integer.parseInt(settingsCrsr.collectDescendantText(false)));
+								} catch (Exception e) {}
+							} else if(settingsCrsr.getLocalName().toLowerCase().equals("routerepairenabled")){ //$NON-NLS-1$
+								if(settingsCrsr.collectDescendantText(false).equals("true")) tmpBoolean = true;	//$NON-NLS-1$
+								else tmpBoolean = false;
+								Vehicle.setRouteRepairEnabled(tmpBoolean);
+							} else if(settingsCrsr.getLocalName().toLowerCase().equals("travelspeedupdateinterval")){ //$NON-NLS-1$
+								try{
+									TravelTimeEstimator.getInstance().setUpdateInterval(Integer.parseInt(settingsCrsr.collectDescendantText(false)));
+								} catch (Exception e) {}
 							} else if(settingsCrsr.getLocalName().toLowerCase().equals("mintraveltimeforrecycling")){ //$NON-NLS-1$
 								try{
 									int tmp = Integer.parseInt(settingsCrsr.collectDescendantText(false));
@@ -237,11 +265,11 @@ public final class Scenario{
 								try{
 									String tmp = settingsCrsr.collectDescendantText(false);
 									if(tmp.equals("true")){
-										if(!Renderer.getInstance().isConsoleStart())VanetSimStart.getMainControlPanel().getEditPanel().getEditLogControlPanel_().getLogAttackerCheckBox_().setSelected(true);
+										if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.getMainControlPanel().getEditPanel().getEditLogControlPanel_().getLogAttackerCheckBox_().setSelected(true);
 										Vehicle.setAttackerDataLogged_(true);
 									}
 									else{
-										if(!Renderer.getInstance().isConsoleStart())VanetSimStart.getMainControlPanel().getEditPanel().getEditLogControlPanel_().getLogAttackerCheckBox_().setSelected(false);
+										if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.getMainControlPanel().getEditPanel().getEditLogControlPanel_().getLogAttackerCheckBox_().setSelected(false);
 										Vehicle.setAttackerDataLogged_(false);
 									}
 								} catch (Exception e) {}
@@ -249,11 +277,11 @@ public final class Scenario{
 								try{
 									String tmp = settingsCrsr.collectDescendantText(false);
 									if(tmp.equals("true")){
-										if(!Renderer.getInstance().isConsoleStart())VanetSimStart.getMainControlPanel().getEditPanel().getEditLogControlPanel_().getEncryptedLogging_().setSelected(true);
+										if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.getMainControlPanel().getEditPanel().getEditLogControlPanel_().getEncryptedLogging_().setSelected(true);
 										Vehicle.setAttackerEncryptedDataLogged_(true);
 									}
 									else{
-										if(!Renderer.getInstance().isConsoleStart())VanetSimStart.getMainControlPanel().getEditPanel().getEditLogControlPanel_().getEncryptedLogging_().setSelected(false);
+										if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.getMainControlPanel().getEditPanel().getEditLogControlPanel_().getEncryptedLogging_().setSelected(false);
 										Vehicle.setAttackerEncryptedDataLogged_(false);
 									}
 								} catch (Exception e) {}
@@ -261,13 +289,13 @@ public final class Scenario{
 								try{
 									String tmp = settingsCrsr.collectDescendantText(false);
 									if(tmp.equals("true")){
-										if(!Renderer.getInstance().isConsoleStart())VanetSimStart.getMainControlPanel().getEditPanel().getEditLogControlPanel_().getLogPrivacyCheckBox_().setSelected(true);
+										if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.getMainControlPanel().getEditPanel().getEditLogControlPanel_().getLogPrivacyCheckBox_().setSelected(true);
 										Vehicle.setPrivacyDataLogged_(true);
 										PrivacyLogWriter.setLogPath(System.getProperty("user.dir"));
 										System.out.println("logged:" + Vehicle.isPrivacyDataLogged_() + " pfad: " + PrivacyLogWriter.getLogPath());
 									}
 									else{
-										if(!Renderer.getInstance().isConsoleStart())VanetSimStart.getMainControlPanel().getEditPanel().getEditLogControlPanel_().getLogPrivacyCheckBox_().setSelected(false);
+										if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.getMainControlPanel().getEditPanel().getEditLogControlPanel_().getLogPrivacyCheckBox_().setSelected(false);
 										Vehicle.setPrivacyDataLogged_(false);
 									}
 								} catch (Exception e) {}	
@@ -278,11 +306,11 @@ public final class Scenario{
 								try{
 									String tmp = settingsCrsr.collectDescendantText(false);
 									if(tmp.equals("true")){
-										if(!Renderer.getInstance().isConsoleStart())VanetSimStart.getMainControlPanel().getEditPanel().getEditMixZonePanel_().getShowEncryptedBeacons_().setSelected(true);
+										if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.getMainControlPanel().getEditPanel().getEditMixZonePanel_().getShowEncryptedBeacons_().setSelected(true);
 										RSU.setShowEncryptedBeaconsInMix_(true);
 									}
 									else{
-										if(!Renderer.getInstance().isConsoleStart())VanetSimStart.getMainControlPanel().getEditPanel().getEditMixZonePanel_().getShowEncryptedBeacons_().setSelected(false);
+										if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.getMainControlPanel().getEditPanel().getEditMixZonePanel_().getShowEncryptedBeacons_().setSelected(false);
 										RSU.setShowEncryptedBeaconsInMix_(false);
 									}
 								} catch (Exception e) {}	
@@ -309,6 +337,10 @@ public final class Scenario{
 							}
 						}
 					} else if(childCrsr.getLocalName().toLowerCase().equals("vehicles")){	//$NON-NLS-1$
+						// the vehicles are only collected here. Their first routes are calculated in parallel afterwards.
+						VehicleBatch vehicleBatch = new VehicleBatch();
+						BitSet attackers = new BitSet(), attackedVehicles = new BitSet();
+						int vehicleIndex;
 						vehiclesCrsr = childCrsr.childElementCursor();
 						while (vehiclesCrsr.getNext() != null){
 							if(vehiclesCrsr.getLocalName().toLowerCase().equals("vehicle")){ //$NON-NLS-1$
@@ -409,20 +441,26 @@ public final class Scenario{
 									} else ErrorLog.log(Messages.getString("Scenario.unknownElementWhileVehicle") + vehicleCrsr.getLocalName(), 5, getClass().getName(), "load", null);  //$NON-NLS-1$//$NON-NLS-2$
 								}
 								if(maxCommDistance != -1 && maxSpeed != -1 && destinations.size() > 1){
-									try{
-										tmpVehicle = new Vehicle(destinations, vehicleLength, maxSpeed, maxCommDistance, wifi, emergencyVehicle, braking_rate, acceleration_rate, timeDistance, politeness, new Color(color));
-										Map.getInstance().addVehicle(tmpVehicle);
-										if(tmpAttacker) Renderer.getInstance().setAttackerVehicle(tmpVehicle);
-										if(tmpAttacked) {
-											Renderer.getInstance().setAttackedVehicle(tmpVehicle);
-											Vehicle.setAttackedVehicleID_(tmpVehicle.getID());
-										}
-										tmpAttacker = false;
-										tmpAttacked = false;
-									} catch (Exception e){}
+									vehicleIndex = vehicleBatch.add(destinations, vehicleLength, maxSpeed, maxCommDistance, wifi, emergencyVehicle, braking_rate, acceleration_rate, timeDistance, politeness, new Color(color));
+									if(tmpAttacker) attackers.set(vehicleIndex);
+									if(tmpAttacked) attackedVehicles.set(vehicleIndex);
+									tmpAttacker = false;
+									tmpAttacked = false;
 								} else ErrorLog.log(Messages.getString("Scenario.notAllFieldsForVehicle"), 5, getClass().getName(), "load", null);  //$NON-NLS-1$//$NON-NLS-2$
 							} else ErrorLog.log(Messages.getString("Scenario.unknownElementWhileVehicles") + vehiclesCrsr.getLocalName(), 5, getClass().getName(), "load", null);  //$NON-NLS-1$//$NON-NLS-2$
 						}
+						vehicleBatch.calculateRoutes();
+						for(vehicleIndex = 0; vehicleIndex < vehicleBatch.size(); ++vehicleIndex){
+							try{
+								tmpVehicle = vehicleBatch.createVehicle(vehicleIndex);
+								Map.getInstance().addVehicle(tmpVehicle);
+								if(attackers.get(vehicleIndex)) Scenario.getInstance().setAttackerVehicle(tmpVehicle);
+								if(attackedVehicles.get(vehicleIndex)) {
+									Scenario.getInstance().setAttackedVehicle(tmpVehicle);
+									Vehicle.setAttackedVehicleID_(tmpVehicle.getID());
+								}
+							} catch (Exception e){}
+						}
 					} else if(childCrsr.getLocalName().toLowerCase().equals("mixzones")){	//$NON-NLS-1$
 						mixNodesCrsr = childCrsr.childElementCursor();
 						int maxMixRadius = 0;
@@ -468,7 +506,7 @@ public final class Scenario{
 														Regions[i][j].addMixZone(tmpNode, mixRadius);
 														if(maxMixRadius < mixRadius)maxMixRadius = mixRadius;
 														Vehicle.setEncryptedBeaconsInMix_(false);
-														if(!Renderer.getInstance().isConsoleStart())VanetSimStart.getMainControlPanel().getEditPanel().getEditMixZonePanel_().getEncryptedBeacons_().setSelected(false);
+														if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.getMainControlPanel().getEditPanel().getEditMixZonePanel_().getEncryptedBeacons_().setSelected(false);
 													}
 												}
 											}
@@ -591,13 +629,17 @@ public final class Scenario{
 						}
 					} else ErrorLog.log(Messages.getString("Scenario.unknownElementWhileScenario") + childCrsr.getLocalName(), 5, getClass().getName(), "load", null);  //$NON-NLS-1$//$NON-NLS-2$
 				}
+				complete = true;
 			} else ErrorLog.log(Messages.getString("Scenario.wrongRoot"), 7, getClass().getName(), "load", null); //$NON-NLS-1$ //$NON-NLS-2$
 		} catch (Exception e) {ErrorLog.log(Messages.getString("Scenario.errorLoading"), 7, getClass().getName(), "load", e);} //$NON-NLS-1$ //$NON-NLS-2$
-		if(!Renderer.getInstance().isConsoleStart())VanetSimStart.setProgressBar(false);
+		if(!SimulationEngine.getInstance().isHeadless())VanetSimStart.setProgressBar(false);
 		ready_ = true;
-		Renderer.getInstance().ReRender(false, false);
-		if(!Renderer.getInstance().isConsoleStart())VanetSimStart.getMainControlPanel().getEditPanel().getEditEventPanel().updateList();
+		if(!SimulationEngine.getInstance().isHeadless()){
+			SimulationEngine.getInstance().getListener().render(false, false);
+			VanetSimStart.getMainControlPanel().getEditPanel().getEditEventPanel().updateList();
+		}
 		ErrorLog.log(Messages.getString("Scenario.finishedLoading"), 3, getClass().getName(), "load", null); //$NON-NLS-1$ //$NON-NLS-2$
+		return complete;
 	}
 
 	/**
@@ -656,6 +698,9 @@ public final class Scenario{
 			settings.addElement("MixZonesEnabled").addValue(Vehicle.getMixZonesEnabled()); //$NON-NLS-1$
 			settings.addElement("MixZoneRadius").addValue(Vehicle.getMixZoneRadius()); //$NON-NLS-1$
 			settings.addElement("RoutingMode").addValue(Vehicle.getRoutingMode()); //$NON-NLS-1$
+			settings.addElement("RoutingAlgorithm").addValue(Vehicle.getRoutingAlgorithm()); //$NON-NLS-1$
+			settings.addElement("RouteRepairEnabled").addValue(Vehicle.isRouteRepairEnabled()); //$NON-NLS-1$
+			settings.addElement("TravelSpeedUpdateInterval").addValue(TravelTimeEstimator.getInstance().getUpdateInterval()); //$NON-NLS-1$
 			settings.addElement("VehicleRecyclingEnabled").addValue(Vehicle.getRecyclingEnabled()); //$NON-NLS-1$
 			settings.addElement("FallBackInMixZonesEnabled").addValue(Vehicle.getMixZonesFallbackEnabled());	//$NON-NLS-1$
 			settings.addElement("FallBackInMixZonesFloodingOnly").addValue(Vehicle.getMixZonesFallbackFloodingOnly());	//$NON-NLS-1$
@@ -694,9 +739,9 @@ public final class Scenario{
 						level1.addElement("timeDistance").addValue(vehicle.getTimeDistance()); //$NON-NLS-1$
 						level1.addElement("politeness").addValue(vehicle.getPoliteness()); //$NON-NLS-1$
 						level1.addElement("Color").addValue(vehicle.getColor().getRGB()); //$NON-NLS-1$
-						if(Renderer.getInstance().getAttackerVehicle() == vehicle) level1.addElement("isAttacker").addValue(true); //$NON-NLS-1$
+						if(Scenario.getInstance().getAttackerVehicle() == vehicle) level1.addElement("isAttacker").addValue(true); //$NON-NLS-1$
 						else level1.addElement("isAttacker").addValue(false);
-						if(Renderer.getInstance().getAttackedVehicle() == vehicle) level1.addElement("isAttacked").addValue(true); //$NON-NLS-1$
+						if(Scenario.getInstance().getAttackedVehicle() == vehicle) level1.addElement("isAttacked").addValue(true); //$NON-NLS-1$
 						else level1.addElement("isAttacked").addValue(false);
 						level2 = level1.addElement("Destinations"); //$NON-NLS-1$
 						//add the start point manually as this was already "popped" from the vehicle's destinations
@@ -804,6 +849,60 @@ public final class Scenario{
 		return ready_;
 	}
 
+	/**
+	 * Gets the vehicle which is marked by the user.
+	 * 
+	 * @return the marked vehicle or <code>null</code> if none is marked
+	 */
+	public Vehicle getMarkedVehicle(){
+		return markedVehicle_;
+	}
+
+	/**
+	 * Sets the vehicle which is marked by the user.
+	 * 
+	 * @param markedVehicle	the vehicle to mark
+	 */
+	public void setMarkedVehicle(Vehicle markedVehicle){
+		markedVehicle_ = markedVehicle;
+	}
+
+	/**
+	 * Gets the attacker vehicle.
+	 * 
+	 * @return the attacker vehicle or <code>null</code> if there is none
+	 */
+	public Vehicle getAttackerVehicle(){
+		return attackerVehicle_;
+	}
+
+	/**
+	 * Sets the attacker vehicle.
+	 * 
+	 * @param attackerVehicle	the attacker vehicle
+	 */
+	public void setAttackerVehicle(Vehicle attackerVehicle){
+		attackerVehicle_ = attackerVehicle;
+	}
+
+	/**
+	 * Gets the attacked vehicle.
+	 * 
+	 * @return the attacked vehicle or <code>null</code> if there is none
+	 */
+	public Vehicle getAttackedVehicle(){
+		return attackedVehicle_;
+	}
+
+	/**
+	 * Sets the attacked vehicle.
+	 * 
+	 * @param attackedVehicle	the attacked vehicle
+	 */
+	public void setAttackedVehicle(Vehicle attackedVehicle){
+		attackedVehicle_ = attackedVehicle;
+	}
+
 	public String getScenarioName() {
 		return scenarioName;
 	}
@@ -3,26 +3,34 @@ package vanetsim.scenario;
 import java.awt.Color;
 import java.text.ParseException;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Random;
 import java.util.ArrayDeque;
 
 //import java16.util.ArrayDeque;
 
 
-import vanetsim.VanetSimStart;
-import vanetsim.gui.Renderer;
-import vanetsim.gui.controlpanels.ReportingControlPanel;
-import vanetsim.gui.helpers.PrivacyLogWriter;
+import vanetsim.PrivacyLogWriter;
+import vanetsim.simulation.SimulationClock;
 import vanetsim.localization.Messages;
 import vanetsim.map.Map;
+import vanetsim.map.NeighborTable;
 import vanetsim.map.Node;
 import vanetsim.map.Region;
+import vanetsim.map.SpatialHash;
 import vanetsim.map.Street;
+import vanetsim.routing.BatchRouting;
+import vanetsim.routing.CachedRoute;
+import vanetsim.routing.RouteCache;
+import vanetsim.routing.RouteRequest;
 import vanetsim.routing.RoutingAlgorithm;
+import vanetsim.routing.ShortestPathTree;
 import vanetsim.routing.WayPoint;
 import vanetsim.routing.A_Star.A_Star_Algorithm;
+import vanetsim.routing.ContractionHierarchies.CH_Algorithm;
 import vanetsim.scenario.messages.Message;
 import vanetsim.scenario.messages.PenaltyMessage;
+import vanetsim.simulation.SimulationEngine;
 
 /**
  * A vehicle which can move and communicate (if wifi is enabled).
@@ -32,9 +40,6 @@ public final class Vehicle extends LaneObject{
 	/** A reference to the map so that we don't need to call this over and over again. */
 	private static final Map MAP = Map.getInstance();
 	
-	/** A reference to the reporting control panel so that we don't need to call this over and over again. */
-	private static final ReportingControlPanel REPORT_PANEL = getReportingPanel();
-	
 	/** When known vehicles are rechecked for outdated entries. Measured in milliseconds. */
 	private static final int KNOWN_VEHICLES_TIMEOUT_CHECKINTERVAL = 30000;
 	
@@ -74,11 +79,32 @@ public final class Vehicle extends LaneObject{
 	/** A global random number generator used to initialize the generators of the vehicles. */
 	private static final Random RANDOM = new Random(1L);
 
-	/** The routing algorithm used. */
-	private static final RoutingAlgorithm ROUTING_ALGO = new A_Star_Algorithm();	
+	/** The contraction hierarchies (kept separately so that their preprocessed data can be dropped). */
+	private static final CH_Algorithm CH_ALGORITHM = new CH_Algorithm();
+
+	/** The routing algorithms which can be selected. <code>0</code>=A*, <code>1</code>=contraction hierarchies, <code>2</code>=A* with landmarks. */
+	private static final RoutingAlgorithm[] ROUTING_ALGOS = {new A_Star_Algorithm(), CH_ALGORITHM, new A_Star_Algorithm(true)};
+
+	/** An empty array of streets used for routes calculated without penalties. */
+	private static final Street[] NO_PENALTY_STREETS = new Street[0];
+
+	/** An empty array of penalties used for routes calculated without penalties. */
+	private static final int[] NO_PENALTIES = new int[0];
+
+	/** The cache for routes calculated without penalties. */
+	private static final RouteCache ROUTE_CACHE = RouteCache.getInstance();
+
+	/** The routing algorithm used (index in {@link #ROUTING_ALGOS}). */
+	private static int routingAlgorithm_ = 0;
 
 	/** The routing mode used. See the A_Star_Algo for details. */
 	private static int routingMode_ = 1;
+
+	/** If routes affected by new penalties are repaired locally instead of being calculated completely again. */
+	private static boolean routeRepairEnabled_ = false;
+
+	/** The minimum length in cm of the old route which is skipped behind a penalized street when repairing a route. */
+	private static final int ROUTE_REPAIR_REJOIN_DISTANCE = 50000;
 	
 	/** The minimum time a vehicle must have traveled to get recycled. This shall prevent very shortliving 
 	 * vehicles from consuming lots of CPU time for recycling. */
@@ -244,6 +270,9 @@ public final class Vehicle extends LaneObject{
 	/** An array with the directions on the streets corresponding to <code>routeStreets_</code> */
 	private boolean[] routeDirections_;
 
+	/** A route which has been calculated before the vehicle was created. Only set while the constructor is running. */
+	private RouteRequest precalculatedRoute_ = null;
+
 	/** The current position in the <code>routeStreets_</code> and <code>routeDirections_</code> array */
 	private int routePosition_;
 
@@ -293,6 +322,9 @@ public final class Vehicle extends LaneObject{
 	/** A countdown for sending beacons. */
 	private int beaconCountdown_;
 
+	/** The position of this vehicle in the {@link SpatialHash} or <code>-1</code> if it's not in the hash. */
+	private int spatialHashIndex_ = -1;
+
 	/** A countdown for checking if inside a mix or not. */
 	private int mixCheckCountdown_;
 
@@ -329,6 +361,9 @@ public final class Vehicle extends LaneObject{
 	/** Flag is set true when the attacker finds the attacked vehicle the first time */
 	private Boolean firstContact = false;
 
+	/** The shortest paths from the position where the attacker last calculated a route. Reused while the attacker follows the attacked vehicle. */
+	private ShortestPathTree pursuitTree_ = null;
+
 	/** Saves the node of the current mix-zone. Used for encrypted Beacons*/
 	private Node curMixNode_ = null;
 
@@ -372,7 +407,29 @@ public final class Vehicle extends LaneObject{
 	 * @throws ParseException an Exception indicating that you did not supply a valid destination list.
 	 */
 	public Vehicle(ArrayDeque<WayPoint> destinations, int vehicleLength, int maxSpeed, int maxCommDist, boolean wiFiEnabled, boolean emergencyVehicle, int brakingRate, int accelerationRate, int timeDistance, int politeness, Color color) throws ParseException {
+		this(destinations, vehicleLength, maxSpeed, maxCommDist, wiFiEnabled, emergencyVehicle, brakingRate, accelerationRate, timeDistance, politeness, color, null);
+	}
+
+	/**
+	 * Instantiates a new vehicle using a route which has already been calculated. The route needs to be created with
+	 * {@link #createRouteRequest(ArrayDeque, int)} and calculated with {@link #calculateRoutes(List)}. If the route doesn't fit,
+	 * it's calculated again. Apart from that, it's the same as {@link #Vehicle(ArrayDeque, int, int, int, boolean, boolean, int, int, int, int, Color)}.
+	 * 
+	 * @param destinations		an <code>ArrayDeque</code> with at least 2 elements (start and target) indicating where to move.
+	 * @param vehicleLength		the vehicle length
+	 * @param maxSpeed			the maximum speed of this vehicle in cm/s
+	 * @param maxCommDist		the maximum distance in cm this vehicle can communicate
+	 * @param wiFiEnabled		<code>true</code> if this vehicle has a communication device (WiFi), else <code>false</code>
+	 * @param emergencyVehicle	<code>true</code> vehicle is an emergency vehicle
+	 * @param brakingRate		the braking rate in cm/s^2
+	 * @param accelerationRate	the acceleration rate in cm/s^2
+	 * @param color				the color of the vehicle, if empty the default (color.black) is used
+	 * @param firstRoute		the calculated route to the first destination or <code>null</code>
+	 * @throws ParseException an Exception indicating that you did not supply a valid destination list.
+	 */
+	public Vehicle(ArrayDeque<WayPoint> destinations, int vehicleLength, int maxSpeed, int maxCommDist, boolean wiFiEnabled, boolean emergencyVehicle, int brakingRate, int accelerationRate, int timeDistance, int politeness, Color color, RouteRequest firstRoute) throws ParseException {
 		if(destinations != null && destinations.size()>1){
+			precalculatedRoute_ = firstRoute;
 			originalDestinations_ = destinations; 
 			destinations_ = originalDestinations_.clone();			
 			ID_ = RANDOM.nextLong();
@@ -408,6 +465,7 @@ public final class Vehicle extends LaneObject{
 					curWaitTime_ = destinations_.pollFirst().getWaittime();
 				}
 			}
+			precalculatedRoute_ = null;
 			if(destinations_.size() == 0) throw new ParseException(Messages.getString("Vehicle.errorNotEnoughDestinations"),0); //$NON-NLS-1$
 			if(curWaitTime_ == 0){
 				active_ = true;
@@ -454,69 +512,31 @@ public final class Vehicle extends LaneObject{
 			if(!careAboutDirection) direction = 0;
 			else if(curDirection_) direction = -1;
 			else direction = 1;
-			ArrayDeque<Node> routing = ROUTING_ALGO.getRouting(routingMode_, direction, curX_, curY_, curStreet_, curPosition_, nextPoint.getX(), nextPoint.getY(), nextPoint.getStreet(), nextPoint.getPositionOnStreet(), knownPenalties_.getStreets(), knownPenalties_.getDirections(), knownPenalties_.getPenalties(), knownPenalties_.getSize(), maxSpeed_);
-
-			if(routing.size() > 0){
-				if(routing.size() == 1){
-					routeStreets_ = new Street[2];
-					routeStreets_[0] = curStreet_;
-					routeStreets_[1] = nextPoint.getStreet();
-					routeDirections_ = new boolean[2];
-					if(routing.peekFirst() == curStreet_.getEndNode()) routeDirections_[0] = true;
-					else routeDirections_[0] = false;
-					if(routing.peekFirst() == nextPoint.getStreet().getStartNode()) routeDirections_[1] = true;
-					else routeDirections_[1] = false;
+			boolean useCache = knownPenalties_.getSize() == 0;	// penalties are different for each vehicle
+			if(useCache){
+				CachedRoute cachedRoute = ROUTE_CACHE.get(routingAlgorithm_, routingMode_, direction, curStreet_, curPosition_, nextPoint.getX(), nextPoint.getY(), nextPoint.getStreet(), nextPoint.getPositionOnStreet(), maxSpeed_);
+				if(cachedRoute != null){
+					routeStreets_ = cachedRoute.getStreets();
+					routeDirections_ = cachedRoute.getDirections();
 					routePosition_ = 0;
-					return true;
-				} else {
-					Node nextNode;
-					int i;
-					boolean usedDestination = false;
-					Street[] outgoingStreets;
-					Street tmpStreet = curStreet_, tmpStreet2;
-					routeStreets_ = new Street[routing.size() + 1];
-					routeDirections_ = new boolean[routing.size() + 1];
-					Iterator<Node> routeIterator = routing.iterator();
-					if(routing.peekFirst() == curStreet_.getEndNode()) curDirection_ = true;
-					else curDirection_ = false;
-					routeStreets_[0] = curStreet_;	//add current street as first element
-					boolean tmpDirection;
-					if(routeIterator.next() == curStreet_.getEndNode()) tmpDirection = true;
-					else tmpDirection = false;
-					routeDirections_[0] = tmpDirection;
-					routePosition_ = 1;
-	
-					while(true){	//add all streets from routing
-						if(routeIterator.hasNext()) nextNode = routeIterator.next();
-						else if (!usedDestination){
-							usedDestination = true;
-							if(nextPoint.getStreet() != tmpStreet){
-								nextNode = nextPoint.getStreet().getStartNode();
-								if((!tmpDirection && nextNode == tmpStreet.getStartNode()) || (tmpDirection && nextNode == tmpStreet.getEndNode())) nextNode = nextPoint.getStreet().getEndNode();
-							} else break;
-						} else break;
-						if(tmpDirection) outgoingStreets = tmpStreet.getEndNode().getOutgoingStreets();
-						else outgoingStreets = tmpStreet.getStartNode().getOutgoingStreets();
-						for(i = 0; i < outgoingStreets.length; ++i){
-							tmpStreet2 = outgoingStreets[i];
-							if (tmpStreet2.getStartNode() == nextNode){
-								tmpStreet = tmpStreet2;
-								tmpDirection = false;
-								break;		// found street we want to => no need to look through others
-							} else if (tmpStreet2.getEndNode() == nextNode){
-								tmpStreet = tmpStreet2;
-								tmpDirection = true;
-								break;		// found street we want to => no need to look through others
-							}
-						}
-						routeStreets_[routePosition_] = tmpStreet;
-						routeDirections_[routePosition_] = tmpDirection;
-						++routePosition_;
+					if(routeStreets_.length > 2){	// same as calculated below for routes over more than one node
+						curDirection_ = routeDirections_[0];
+						destinationCheckCountdown_ = 0;
 					}
-					routePosition_ = 0;
-					destinationCheckCountdown_ = 0;
 					return true;
 				}
+			}
+			ArrayDeque<Node> routing = null;
+			if(precalculatedRoute_ != null && useCache && precalculatedRoute_.matches(routingMode_, direction, curStreet_, curPosition_, nextPoint.getX(), nextPoint.getY(), nextPoint.getStreet(), nextPoint.getPositionOnStreet(), maxSpeed_)){
+				routing = precalculatedRoute_.getResult();
+				precalculatedRoute_ = null;
+			}
+			if(routing == null) routing = ROUTING_ALGOS[routingAlgorithm_].getRouting(routingMode_, direction, curX_, curY_, curStreet_, curPosition_, nextPoint.getX(), nextPoint.getY(), nextPoint.getStreet(), nextPoint.getPositionOnStreet(), knownPenalties_.getStreets(), knownPenalties_.getDirections(), knownPenalties_.getPenalties(), knownPenalties_.getSize(), maxSpeed_);
+
+			if(routing.size() > 0){
+				setRoute(routing, nextPoint.getStreet());
+				if(useCache) ROUTE_CACHE.put(routingAlgorithm_, routingMode_, direction, curStreet_, curPosition_, nextPoint.getX(), nextPoint.getY(), nextPoint.getStreet(), nextPoint.getPositionOnStreet(), maxSpeed_, routeStreets_, routeDirections_);
+				return true;
 			} else {
 				if(!isReroute && destinations_.size() < 2) {
 					active_ = false;
@@ -532,6 +552,173 @@ public final class Vehicle extends LaneObject{
 		}
 	}
 
+	/**
+	 * Sets the route from the result of a routing algorithm. The route starts with the current street and ends with the target street.
+	 * 
+	 * @param routing		the result of the routing algorithm (must contain at least one node)
+	 * @param targetStreet	the street on which the target lies
+	 */
+	private void setRoute(ArrayDeque<Node> routing, Street targetStreet){
+		if(routing.size() == 1){
+			routeStreets_ = new Street[2];
+			routeStreets_[0] = curStreet_;
+			routeStreets_[1] = targetStreet;
+			routeDirections_ = new boolean[2];
+			if(routing.peekFirst() == curStreet_.getEndNode()) routeDirections_[0] = true;
+			else routeDirections_[0] = false;
+			if(routing.peekFirst() == targetStreet.getStartNode()) routeDirections_[1] = true;
+			else routeDirections_[1] = false;
+			routePosition_ = 0;
+		} else {
+			Node nextNode;
+			int i;
+			boolean usedDestination = false;
+			Street[] outgoingStreets;
+			Street tmpStreet = curStreet_, tmpStreet2;
+			routeStreets_ = new Street[routing.size() + 1];
+			routeDirections_ = new boolean[routing.size() + 1];
+			Iterator<Node> routeIterator = routing.iterator();
+			if(routing.peekFirst() == curStreet_.getEndNode()) curDirection_ = true;
+			else curDirection_ = false;
+			routeStreets_[0] = curStreet_;	//add current street as first element
+			boolean tmpDirection;
+			if(routeIterator.next() == curStreet_.getEndNode()) tmpDirection = true;
+			else tmpDirection = false;
+			routeDirections_[0] = tmpDirection;
+			routePosition_ = 1;
+
+			while(true){	//add all streets from routing
+				if(routeIterator.hasNext()) nextNode = routeIterator.next();
+				else if (!usedDestination){
+					usedDestination = true;
+					if(targetStreet != tmpStreet){
+						nextNode = targetStreet.getStartNode();
+						if((!tmpDirection && nextNode == tmpStreet.getStartNode()) || (tmpDirection && nextNode == tmpStreet.getEndNode())) nextNode = targetStreet.getEndNode();
+					} else break;
+				} else break;
+				if(tmpDirection) outgoingStreets = tmpStreet.getEndNode().getOutgoingStreets();
+				else outgoingStreets = tmpStreet.getStartNode().getOutgoingStreets();
+				for(i = 0; i < outgoingStreets.length; ++i){
+					tmpStreet2 = outgoingStreets[i];
+					if (tmpStreet2.getStartNode() == nextNode){
+						tmpStreet = tmpStreet2;
+						tmpDirection = false;
+						break;		// found street we want to => no need to look through others
+					} else if (tmpStreet2.getEndNode() == nextNode){
+						tmpStreet = tmpStreet2;
+						tmpDirection = true;
+						break;		// found street we want to => no need to look through others
+					}
+				}
+				routeStreets_[routePosition_] = tmpStreet;
+				routeDirections_[routePosition_] = tmpDirection;
+				++routePosition_;
+			}
+			routePosition_ = 0;
+			destinationCheckCountdown_ = 0;
+		}
+	}
+
+	/**
+	 * Calculates the route of the attacker to the position of the attacked vehicle (the next destination). The attacked vehicle
+	 * usually moves on along the route the attacker is following. As long as the attacker is on the shortest path from the point
+	 * where it last calculated a route to the new position, the rest of this path is used and no new search is necessary.
+	 * Otherwise, a new {@link ShortestPathTree} is started at the current position.
+	 * 
+	 * @return <code>true</code> if a new route has been found, else <code>false</code>
+	 */
+	private boolean calculatePursuitRoute(){
+		try{
+			WayPoint nextPoint = destinations_.peekFirst();
+			if(nextPoint.getStreet() == curStreet_) return calculateRoute(false, true);
+			ArrayDeque<Node> routing = null;
+			if(pursuitTree_ == null) pursuitTree_ = new ShortestPathTree();
+			else if(pursuitTree_.isValid(knownPenalties_.getStreets(), knownPenalties_.getDirections(), knownPenalties_.getPenalties(), knownPenalties_.getSize())){
+				routing = pursuitTree_.getRouting(curStreet_, curDirection_, nextPoint.getStreet(), nextPoint.getPositionOnStreet());
+			}
+			if(routing == null){
+				pursuitTree_.build(routingMode_, 0, curStreet_, curPosition_, knownPenalties_.getStreets(), knownPenalties_.getDirections(), knownPenalties_.getPenalties(), knownPenalties_.getSize(), maxSpeed_);
+				routing = pursuitTree_.getRouting(nextPoint.getStreet(), nextPoint.getPositionOnStreet());
+			}
+			if(routing.size() == 0) return false;
+			setRoute(routing, nextPoint.getStreet());
+			return true;
+		} catch (Exception e){
+			return false;
+		}
+	}
+
+	/**
+	 * Repairs the current route after the costs of a street on it have changed (for example because a penalty for a
+	 * jammed or blocked street has become known). Instead of calculating the whole route to the next destination again, only
+	 * a detour from the current position to a street some distance behind the affected street is calculated. The rest of the
+	 * old route is kept. As the detour search ends near the vehicle, it investigates much less nodes than a complete route
+	 * calculation which is important if lots of vehicles need to reroute in the same step. The repaired route is not always
+	 * the best route to the destination but the search for the detour uses all known penalties.
+	 * 
+	 * @param affectedPosition	the position of the affected street in the route
+	 * 
+	 * @return <code>true</code> if the route has been repaired, <code>false</code> if repairing is disabled or not possible
+	 * 			(the route needs to be calculated completely again in this case)
+	 */
+	public boolean repairRoute(int affectedPosition){
+		if(!routeRepairEnabled_ || affectedPosition <= routePosition_ || affectedPosition >= routeStreets_.length || destinations_.isEmpty()) return false;
+		try{
+			Street[] oldStreets = routeStreets_;
+			boolean[] oldDirections = routeDirections_;
+			int oldPosition = routePosition_;
+			boolean oldDirection = curDirection_;
+			
+			// find the street at which the vehicle returns to its old route. The last street leads to the destination and can't be used.
+			int rejoinPosition = affectedPosition + 1;
+			double skippedLength = 0;
+			while(rejoinPosition < oldStreets.length - 1 && skippedLength < ROUTE_REPAIR_REJOIN_DISTANCE){
+				skippedLength += oldStreets[rejoinPosition].getLength();
+				++rejoinPosition;
+			}
+			if(rejoinPosition >= oldStreets.length - 1 || oldStreets[rejoinPosition] == null || oldStreets[rejoinPosition] == curStreet_) return false;
+			Street rejoinStreet = oldStreets[rejoinPosition];
+			Node rejoinNode;
+			double rejoinStreetPos;
+			if(oldDirections[rejoinPosition]){	// from startNode to endNode
+				rejoinNode = rejoinStreet.getStartNode();
+				rejoinStreetPos = 0;
+			} else {
+				rejoinNode = rejoinStreet.getEndNode();
+				rejoinStreetPos = rejoinStreet.getLength();
+			}
+			
+			int direction;
+			if(curDirection_) direction = -1;
+			else direction = 1;
+			ArrayDeque<Node> routing = ROUTING_ALGOS[routingAlgorithm_].getRouting(routingMode_, direction, curX_, curY_, curStreet_, curPosition_, rejoinNode.getX(), rejoinNode.getY(), rejoinStreet, rejoinStreetPos, knownPenalties_.getStreets(), knownPenalties_.getDirections(), knownPenalties_.getPenalties(), knownPenalties_.getSize(), maxSpeed_);
+			if(routing.size() == 0 || routing.peekLast() != rejoinNode) return false;
+			setRoute(routing, rejoinStreet);
+			
+			// the detour must end by entering the rejoin street like the old route did
+			int detourLength = routeStreets_.length;
+			if(routeStreets_[detourLength - 1] != rejoinStreet || routeDirections_[detourLength - 1] != oldDirections[rejoinPosition]){
+				routeStreets_ = oldStreets;
+				routeDirections_ = oldDirections;
+				routePosition_ = oldPosition;
+				curDirection_ = oldDirection;
+				return false;
+			}
+			Street[] newStreets = new Street[detourLength + oldStreets.length - rejoinPosition - 1];
+			boolean[] newDirections = new boolean[newStreets.length];
+			System.arraycopy(routeStreets_, 0, newStreets, 0, detourLength);
+			System.arraycopy(routeDirections_, 0, newDirections, 0, detourLength);
+			System.arraycopy(oldStreets, rejoinPosition + 1, newStreets, detourLength, oldStreets.length - rejoinPosition - 1);
+			System.arraycopy(oldDirections, rejoinPosition + 1, newDirections, detourLength, oldStreets.length - rejoinPosition - 1);
+			routeStreets_ = newStreets;
+			routeDirections_ = newDirections;
+			routePosition_ = 0;
+			return true;
+		} catch (Exception e){
+			return false;
+		}
+	}
+
 	/**
 	 * Adjust the speed if reaching crossings or other cars. It also checks if the vehicle should get active.
 	 * Furthermore some cleanup in the known messages and vehicles is done and new jam messages are created if necessary.
@@ -672,7 +859,7 @@ public final class Vehicle extends LaneObject{
 				// ================================= 
 				if(newSpeed_ > maxSpeed_) newSpeed_ = maxSpeed_;
 				else if (newSpeed_ < 0) newSpeed_ = 0;	//no negative speed
-				if(newSpeed_ > curStreet_.getSpeed() && this != Renderer.getInstance().getAttackerVehicle()) newSpeed_ = curStreet_.getSpeed();
+				if(newSpeed_ > curStreet_.getSpeed() && this != Scenario.getInstance().getAttackerVehicle()) newSpeed_ = curStreet_.getSpeed();
 			}
 
 			// ================================= 
@@ -756,7 +943,7 @@ public final class Vehicle extends LaneObject{
 							if(destX != -1 && destY != -1){
 								int direction = -1;
 								if(!curDirection_) direction = 1;
-								int time = Renderer.getInstance().getTimePassed();
+								int time = SimulationClock.getTimePassed();
 								PenaltyMessage message = new PenaltyMessage(destX, destY, PENALTY_MESSAGE_RADIUS, time + PENALTY_MESSAGE_VALID, curStreet_, direction, PENALTY_MESSAGE_VALUE, time + PENALTY_VALID);
 								long dx = message.getDestinationX_() - curX_;
 								long dy = message.getDestinationY_() - curY_;
@@ -846,8 +1033,8 @@ public final class Vehicle extends LaneObject{
 						
 						if(needsToMix != isInMixZone_){
 							if(privacyDataLogged_){
-								if(needsToMix) 	PrivacyLogWriter.log(Renderer.getInstance().getTimePassed() + ":Steady ID:" + this.steadyID_ + ":Pseudonym:" + Long.toHexString(this.ID_) + ":TraveledDistance:" + totalTravelDistance_ + ":TraveledTime:" + totalTravelTime_ + ":Node ID:" + curMixNode_.getNodeID() + ":Direction:IN" + ":Street:" + this.getCurStreet().getName() + ":StreetSpeed:" + this.getCurStreet().getSpeed() + ":VehicleSpeed:" + this.getCurSpeed() +  ":x:" + this.curX_ + ":y:" + this.curY_);
-								else PrivacyLogWriter.log(Renderer.getInstance().getTimePassed() + ":Steady ID:" + this.steadyID_ + ":Pseudonym:" + Long.toHexString(this.ID_) + ":TraveledDistance:" + totalTravelDistance_ + ":TraveledTime:" + totalTravelTime_ + ":Node ID:" + curMixNode_.getNodeID() + ":Direction:OUT" + ":Street:" + this.getCurStreet().getName() + ":StreetSpeed:" + this.getCurStreet().getSpeed() + ":VehicleSpeed:" + this.getCurSpeed() + ":x:" + this.curX_ + ":y:" + this.curY_);
+								if(needsToMix) 	PrivacyLogWriter.log(SimulationClock.getTimePassed() + ":Steady ID:" + this.steadyID_ + ":Pseudonym:" + Long.toHexString(this.ID_) + ":TraveledDistance:" + totalTravelDistance_ + ":TraveledTime:" + totalTravelTime_ + ":Node ID:" + curMixNode_.getNodeID() + ":Direction:IN" + ":Street:" + this.getCurStreet().getName() + ":StreetSpeed:" + this.getCurStreet().getSpeed() + ":VehicleSpeed:" + this.getCurSpeed() +  ":x:" + this.curX_ + ":y:" + this.curY_);
+								else PrivacyLogWriter.log(SimulationClock.getTimePassed() + ":Steady ID:" + this.steadyID_ + ":Pseudonym:" + Long.toHexString(this.ID_) + ":TraveledDistance:" + totalTravelDistance_ + ":TraveledTime:" + totalTravelTime_ + ":Node ID:" + curMixNode_.getNodeID() + ":Direction:OUT" + ":Street:" + this.getCurStreet().getName() + ":StreetSpeed:" + this.getCurStreet().getSpeed() + ":VehicleSpeed:" + this.getCurSpeed() + ":x:" + this.curX_ + ":y:" + this.curY_);
 							}
 							if(needsToMix){
 								++IDsChanged_;
@@ -881,7 +1068,7 @@ public final class Vehicle extends LaneObject{
 		if(next_ != null){
 			if(next_.getCurLane() == lane){	// next one is on the same lane
 				//System.out.println("Fahrzeug vor uns: (1.Versuch) " + next_.curPosition_);
-				if(this.equals(Renderer.getInstance().getMarkedVehicle())) ((Vehicle)next_).setColor(Color.cyan);
+				if(this.equals(Scenario.getInstance().getMarkedVehicle())) ((Vehicle)next_).setColor(Color.cyan);
 				f = (Vehicle)next_;
 				vehicleInFront = true;
 			} else {	// need to search for the next which is on our lane
@@ -889,7 +1076,7 @@ public final class Vehicle extends LaneObject{
 				while(tmpLaneObject != null){
 					if(tmpLaneObject.getCurLane() == lane){
 					//	System.out.println("Fahrzeug vor uns: (2. Versuch)" + tmpLaneObject.curPosition_);
-						if(this.equals(Renderer.getInstance().getMarkedVehicle())) ((Vehicle)tmpLaneObject).setColor(Color.cyan);
+						if(this.equals(Scenario.getInstance().getMarkedVehicle())) ((Vehicle)tmpLaneObject).setColor(Color.cyan);
 						f = (Vehicle)tmpLaneObject;
 						vehicleInFront = true;
 						break;	// only check the first on our lane!
@@ -909,7 +1096,7 @@ public final class Vehicle extends LaneObject{
 				while(tmpLaneObject != null){
 					if(tmpLaneObject.getCurLane() == lane){
 						//System.out.println("Fahrzeug vor uns: (3. Versuch)" + tmpLaneObject.curPosition_);
-						if(this.equals(Renderer.getInstance().getMarkedVehicle())) ((Vehicle)tmpLaneObject).setColor(Color.cyan);
+						if(this.equals(Scenario.getInstance().getMarkedVehicle())) ((Vehicle)tmpLaneObject).setColor(Color.cyan);
 						f = (Vehicle) tmpLaneObject;
 						i=routeStreets_.length;
 						break;
@@ -924,7 +1111,7 @@ public final class Vehicle extends LaneObject{
 		if(next_ != null){
 			if(next_.getCurLane() == lane+1){	// next one is on the same lane
 				//System.out.println("!!!Fahrzeug dann vor uns: (1.Versuch) " + next_.curPosition_);
-				if(this.equals(Renderer.getInstance().getMarkedVehicle())) ((Vehicle)next_).setColor(Color.cyan);
+				if(this.equals(Scenario.getInstance().getMarkedVehicle())) ((Vehicle)next_).setColor(Color.cyan);
 				f2 = (Vehicle)next_;
 				vehicleInFront2 = true;
 			} else {	// need to search for the next which is on our lane
@@ -932,7 +1119,7 @@ public final class Vehicle extends LaneObject{
 				while(tmpLaneObject != null){
 					if(tmpLaneObject.getCurLane() == lane+1){
 						//System.out.println("!!!Fahrzeug dann vor uns: (2. Versuch)" + tmpLaneObject.curPosition_);
-						if(this.equals(Renderer.getInstance().getMarkedVehicle())) ((Vehicle)tmpLaneObject).setColor(Color.cyan);
+						if(this.equals(Scenario.getInstance().getMarkedVehicle())) ((Vehicle)tmpLaneObject).setColor(Color.cyan);
 						f2 = (Vehicle)tmpLaneObject;
 						vehicleInFront2 = true;
 						break;	// only check the first on our lane!
@@ -953,7 +1140,7 @@ public final class Vehicle extends LaneObject{
 
 					if(tmpLaneObject.getCurLane() == lane+1){
 						//System.out.println("!!!Fahrzeug dann vor uns: (3. Versuch)" + tmpLaneObject.curPosition_);
-						if(this.equals(Renderer.getInstance().getMarkedVehicle())) ((Vehicle)tmpLaneObject).setColor(Color.cyan);
+						if(this.equals(Scenario.getInstance().getMarkedVehicle())) ((Vehicle)tmpLaneObject).setColor(Color.cyan);
 						f2 = (Vehicle) tmpLaneObject;
 						i = routeStreets_.length;
 						break;
@@ -976,7 +1163,7 @@ public final class Vehicle extends LaneObject{
 			if(previous_.getCurLane() == lane){	// is on the same lane
 				vehicleBehind = true;
 				//System.out.println("Fahrzeug hinter uns: (1. Versuch)" + previous_.curPosition_);
-				if(this.equals(Renderer.getInstance().getMarkedVehicle())) ((Vehicle)previous_).setColor(Color.cyan);
+				if(this.equals(Scenario.getInstance().getMarkedVehicle())) ((Vehicle)previous_).setColor(Color.cyan);
 				b = (Vehicle)previous_;
 			} else {	// need to search for the previous one which is on our lane
 				LaneObject tmpLaneObject = previous_.getPrevious();
@@ -984,7 +1171,7 @@ public final class Vehicle extends LaneObject{
 					if(tmpLaneObject.getCurLane() == lane){
 						vehicleBehind = true;
 					//	System.out.println("Fahrzeug hinter uns: (2. Versuch)" + previous_.curPosition_);
-						if(this.equals(Renderer.getInstance().getMarkedVehicle())) ((Vehicle)tmpLaneObject).setColor(Color.cyan);
+						if(this.equals(Scenario.getInstance().getMarkedVehicle())) ((Vehicle)tmpLaneObject).setColor(Color.cyan);
 						b = (Vehicle)tmpLaneObject;
 						break;	// only check the first on our lane!
 					}
@@ -1027,7 +1214,7 @@ public final class Vehicle extends LaneObject{
 					while(tmpLaneObject != null){
 						if(tmpLaneObject.getCurLane() == lane && !tmpLaneObject.equals(this)){
 						//	System.out.println("Fahrzeug hinter uns: (3. Versuch)" + tmpLaneObject.curPosition_);
-							if(this.equals(Renderer.getInstance().getMarkedVehicle())) ((Vehicle)tmpLaneObject).setColor(Color.cyan);
+							if(this.equals(Scenario.getInstance().getMarkedVehicle())) ((Vehicle)tmpLaneObject).setColor(Color.cyan);
 							b = (Vehicle)tmpLaneObject;
 							counter = 3;
 							break;
@@ -1050,7 +1237,7 @@ public final class Vehicle extends LaneObject{
 			if(previous_.getCurLane() == lane+1){	// is on the same lane
 				vehicleBehind2 = true;
 			//	System.out.println("!!!Fahrzeug dann hinter uns: (1. Versuch)" + previous_.curPosition_);
-				if(this.equals(Renderer.getInstance().getMarkedVehicle())) ((Vehicle)previous_).setColor(Color.cyan);
+				if(this.equals(Scenario.getInstance().getMarkedVehicle())) ((Vehicle)previous_).setColor(Color.cyan);
 				b2 = (Vehicle)previous_;
 			} else {	// need to search for the previous one which is on our lane
 				LaneObject tmpLaneObject = previous_.getPrevious();
@@ -1058,7 +1245,7 @@ public final class Vehicle extends LaneObject{
 					if(tmpLaneObject.getCurLane() == lane+1){
 						vehicleBehind2 = true;
 					//	System.out.println("!!!Fahrzeug dann hinter uns: (2. Versuch)" + previous_.curPosition_);
-						if(this.equals(Renderer.getInstance().getMarkedVehicle())) ((Vehicle)tmpLaneObject).setColor(Color.cyan);
+						if(this.equals(Scenario.getInstance().getMarkedVehicle())) ((Vehicle)tmpLaneObject).setColor(Color.cyan);
 						b2 = (Vehicle)tmpLaneObject;
 						break;	// only check the first on our lane!
 					}
@@ -1116,7 +1303,7 @@ public final class Vehicle extends LaneObject{
 							if(tmpDirection) distance =  tmpStreet.getLength()-tmpLaneObject.getCurPosition()+distance;
 							else distance = tmpLaneObject.getCurPosition()+distance;
 							
-							if(this.equals(Renderer.getInstance().getMarkedVehicle())) ((Vehicle)tmpLaneObject).setColor(Color.cyan);
+							if(this.equals(Scenario.getInstance().getMarkedVehicle())) ((Vehicle)tmpLaneObject).setColor(Color.cyan);
 							b2 = (Vehicle)tmpLaneObject;
 
 							break;
@@ -1582,40 +1769,30 @@ public final class Vehicle extends LaneObject{
 			//send messages to all knownRSUs
 			RSU nearestRSU;
 			for(int i = size - 1; i > -1; --i){			
-				KnownRSU[] rsuHeads = knownRSUsList_.getFirstKnownRSU();
 				int sendCount = 0;
-				KnownRSU rsuNext;
+				int knownSize = knownRSUsList_.getSize();
 				long dx, dy, maxCommSquared = (long)maxCommDistance_ * maxCommDistance_;
-				for(int j = 0; j < rsuHeads.length; ++j){
-					rsuNext = rsuHeads[j];								
-					while(rsuNext != null){
-						++sendCount;
-						nearestRSU = rsuNext.getRSU();
-						dx = nearestRSU.getX() - curX_;
-						dy = nearestRSU.getY() - curY_;
-						if((dx * dx + dy * dy) < maxCommSquared && !nearestRSU.isEncrypted_()){	//check if vehicle really is in communication distance and it's no mix-zone rsu
-							nearestRSU.receiveMessage(curX_, curY_, messages[i]);
-						}
-						rsuNext = rsuNext.getNext();
+				for(int j = 0; j < knownSize; ++j){
+					++sendCount;
+					nearestRSU = knownRSUsList_.getRSU(j);
+					dx = nearestRSU.getX() - curX_;
+					dy = nearestRSU.getY() - curY_;
+					if((dx * dx + dy * dy) < maxCommSquared && !nearestRSU.isEncrypted_()){	//check if vehicle really is in communication distance and it's no mix-zone rsu
+						nearestRSU.receiveMessage(curX_, curY_, messages[i]);
 					}
 				}
 				
 				// flooding mode => send to all known vehicles
 				if(messages[i].getFloodingMode()){
-					KnownVehicle[] heads = knownVehiclesList_.getFirstKnownVehicle();
-					KnownVehicle next;
+					knownSize = knownVehiclesList_.getSize();
 					//maxCommSquared = (long)maxCommDistance_ * maxCommDistance_;
-					for(int j = 0; j < heads.length; ++j){
-						next = heads[j];								
-						while(next != null){
-							++sendCount;
-							nearestVehicle = next.getVehicle();
-							dx = nearestVehicle.getX() - curX_;
-							dy = nearestVehicle.getY() - curY_;
-							if((dx * dx + dy * dy) < maxCommSquared){	//check if vehicle really is in communication distance
-								nearestVehicle.receiveMessage(curX_, curY_, messages[i]);
-							}
-							next = next.getNext();
+					for(int j = 0; j < knownSize; ++j){
+						++sendCount;
+						nearestVehicle = knownVehiclesList_.getVehicle(j);
+						dx = nearestVehicle.getX() - curX_;
+						dy = nearestVehicle.getY() - curY_;
+						if((dx * dx + dy * dy) < maxCommSquared){	//check if vehicle really is in communication distance
+							nearestVehicle.receiveMessage(curX_, curY_, messages[i]);
 						}
 					}
 
@@ -1634,98 +1811,43 @@ public final class Vehicle extends LaneObject{
 			int messageSize = knownMessages_.getSize();
 			if(messageSize > 0){
 				// only look through all vehicles if beacons are generally disabled and messages need to be sent in a bruteforce-mode or if the fallback mode in mix zones is enabled
-				int MapMinX, MapMinY, MapMaxX, MapMaxY, RegionMinX, RegionMinY, RegionMaxX, RegionMaxY;
-	
-				// Minimum x coordinate to be considered for communication
-				long tmp = curX_ - maxCommDistance_;
-				if (tmp < 0) MapMinX = 0;	// Map stores only positive coordinates
-				else if(tmp < Integer.MAX_VALUE) MapMinX = (int) tmp;
-				else MapMinX = Integer.MAX_VALUE;
-	
-				// Maximum x coordinate to be considered for communication
-				tmp = curX_ + (long)maxCommDistance_;
-				if (tmp < 0) MapMaxX = 0;
-				else if(tmp < Integer.MAX_VALUE) MapMaxX = (int) tmp;
-				else MapMaxX = Integer.MAX_VALUE;
-	
-				// Minimum y coordinate to be considered for communication
-				tmp = curY_ - maxCommDistance_;
-				if (tmp < 0) MapMinY = 0;
-				else if(tmp < Integer.MAX_VALUE) MapMinY = (int) tmp;
-				else MapMinY = Integer.MAX_VALUE;
-	
-				// Maximum y coordinate to be considered for communication
-				tmp = curY_ + (long)maxCommDistance_;
-				if (tmp < 0) MapMaxY = 0;
-				else if(tmp < Integer.MAX_VALUE) MapMaxY = (int) tmp;
-				else MapMaxY = Integer.MAX_VALUE;
-	
-				// Get the regions to be considered for communication
-				Region tmpregion = MAP.getRegionOfPoint(MapMinX, MapMinY);
-				RegionMinX = tmpregion.getX();
-				RegionMinY = tmpregion.getY();
-	
-				tmpregion = MAP.getRegionOfPoint(MapMaxX, MapMaxY);
-				RegionMaxX = tmpregion.getX();
-				RegionMaxY = tmpregion.getY();
-				long maxCommDistance_square = (long)maxCommDistance_ * maxCommDistance_;
-				long dx, dy, distance = 0;
-				int i, j, k, l, size;
-				Vehicle[] vehicles = null;
-				Vehicle vehicle = null;
-				
-				RSU[] rsus = null;
-				RSU rsu = null;
-				
-	
-				// only iterate through those regions which are within the distance
-				for(i = RegionMinX; i <= RegionMaxX; ++i){
-					for(j = RegionMinY; j <= RegionMaxY; ++j){
-						//send to vehicles
-						vehicles = regions_[i][j].getVehicleArray();	//use the array as it's MUCH faster!
-						size = vehicles.length;
-						for(k = 0; k < size; ++k){
-							vehicle = vehicles[k];
-							// precheck if the vehicle is near enough and valid (check is not exact as its a rectangular box and not circle)
-							if(vehicle.isWiFiEnabled() && vehicle.isActive() && vehicle != this && vehicle.getX() >= MapMinX && vehicle.getX() <= MapMaxX && vehicle.getY() >= MapMinY && vehicle.getY() <= MapMaxY){
-								dx = vehicle.getX() - curX_;
-								dy = vehicle.getY() - curY_;
-								distance = dx * dx + dy * dy; 	// Pythagorean theorem: a^2 + b^2 = c^2 but without the needed Math.sqrt to save a little bit performance
-								if(distance <= maxCommDistance_square){
-									if(!isInMixZone_ || !mixZonesFallbackFloodingOnly_){
-										for(l = 0; l < messageSize; ++l){
-											vehicle.receiveMessage(curX_, curY_, messages[l]);
-										}
-									} else {
-										for(l = 0; l < messageSize; ++l){
-											if(messages[l].getFloodingMode()) vehicle.receiveMessage(curX_, curY_, messages[l]);
-										}
-									}
-								}
+				// all neighbors found for this step have wifi, are active and are within the distance
+				if(spatialHashIndex_ > -1){
+					NeighborTable table = NeighborTable.getInstance();
+					int k, l, end;
+
+					//send to vehicles
+					Vehicle[] vehicles = table.getVehicles();
+					Vehicle vehicle;
+					int[] neighbors = table.getVehicleNeighbors();
+					end = table.getVehicleStarts()[spatialHashIndex_ + 1];
+					for(k = table.getVehicleStarts()[spatialHashIndex_]; k < end; ++k){
+						vehicle = vehicles[neighbors[k]];
+						if(!isInMixZone_ || !mixZonesFallbackFloodingOnly_){
+							for(l = 0; l < messageSize; ++l){
+								vehicle.receiveMessage(curX_, curY_, messages[l]);
+							}
+						} else {
+							for(l = 0; l < messageSize; ++l){
+								if(messages[l].getFloodingMode()) vehicle.receiveMessage(curX_, curY_, messages[l]);
 							}
 						}
-						
-						//send to Road-Side-Units
-						rsus = regions_[i][j].getRSUs();	//use the array as it's MUCH faster!
-						size = rsus.length;
-						for(k = 0; k < size; ++k){
-							rsu = rsus[k];
-							// precheck if the rsu is near enough and valid (check is not exact as its a rectangular box and not circle)
-							if(rsu.getX() >= MapMinX && rsu.getX() <= MapMaxX && rsu.getY() >= MapMinY && rsu.getY() <= MapMaxY){
-								dx = rsu.getX() - curX_;
-								dy = rsu.getY() - curY_;
-								distance = dx * dx + dy * dy; 	// Pythagorean theorem: a^2 + b^2 = c^2 but without the needed Math.sqrt to save a little bit performance
-								if(distance <= maxCommDistance_square){
-									if(!isInMixZone_ || !mixZonesFallbackFloodingOnly_){
-										for(l = 0; l < messageSize; ++l){
-											rsu.receiveMessage(curX_, curY_, messages[l]);
-										}
-									} else {
-										for(l = 0; l < messageSize; ++l){
-											if(messages[l].getFloodingMode()) rsu.receiveMessage(curX_, curY_, messages[l]);
-										}
-									}
-								}
+					}
+
+					//send to Road-Side-Units
+					RSU[] rsus = table.getRSUs();
+					RSU rsu;
+					neighbors = table.getVehicleRSUs();
+					end = table.getVehicleRSUStarts()[spatialHashIndex_ + 1];
+					for(k = table.getVehicleRSUStarts()[spatialHashIndex_]; k < end; ++k){
+						rsu = rsus[neighbors[k]];
+						if(!isInMixZone_ || !mixZonesFallbackFloodingOnly_){
+							for(l = 0; l < messageSize; ++l){
+								rsu.receiveMessage(curX_, curY_, messages[l]);
+							}
+						} else {
+							for(l = 0; l < messageSize; ++l){
+								if(messages[l].getFloodingMode()) rsu.receiveMessage(curX_, curY_, messages[l]);
 							}
 						}
 					}
@@ -1792,63 +1914,26 @@ public final class Vehicle extends LaneObject{
 		
 		if(!silent_period){
 			
-			int i, j, k, size = 0, MapMinX, MapMinY, MapMaxX, MapMaxY, RegionMinX, RegionMinY, RegionMaxX, RegionMaxY;
-			Vehicle[] vehicles = null;
-			Vehicle vehicle = null;
-		
-
-			// Minimum x coordinate to be considered for sending beacons
-			long tmp = curX_ - maxCommDistance_;
-			if (tmp < 0) MapMinX = 0;	// Map stores only positive coordinates
-			else if(tmp < Integer.MAX_VALUE) MapMinX = (int) tmp;
-			else MapMinX = Integer.MAX_VALUE;
-
-			// Maximum x coordinate to be considered for sending beacons
-			tmp = curX_ + (long)maxCommDistance_;
-			if (tmp < 0) MapMaxX = 0;
-			else if(tmp < Integer.MAX_VALUE) MapMaxX = (int) tmp;
-			else MapMaxX = Integer.MAX_VALUE;
-
-			// Minimum y coordinate to be considered for sending beacons
-			tmp = curY_ - maxCommDistance_;
-			if (tmp < 0) MapMinY = 0;
-			else if(tmp < Integer.MAX_VALUE) MapMinY = (int) tmp;
-			else MapMinY = Integer.MAX_VALUE;
-
-			// Maximum y coordinate to be considered for sending beacons
-			tmp = curY_ + (long)maxCommDistance_;
-			if (tmp < 0) MapMaxY = 0;
-			else if(tmp < Integer.MAX_VALUE) MapMaxY = (int) tmp;
-			else MapMaxY = Integer.MAX_VALUE;
-
-			// Get the regions to be considered for sending beacons
-			Region tmpregion = MAP.getRegionOfPoint(MapMinX, MapMinY);
-			RegionMinX = tmpregion.getX();
-			RegionMinY = tmpregion.getY();
-
-			tmpregion = MAP.getRegionOfPoint(MapMaxX, MapMaxY);
-			RegionMaxX = tmpregion.getX();
-			RegionMaxY = tmpregion.getY();
 			long maxCommDistanceSquared = (long)maxCommDistance_ * maxCommDistance_;
 			long dx, dy;
 
-
-			// only iterate through those regions which are within the distance
-			for(i = RegionMinX; i <= RegionMaxX; ++i){
-				for(j = RegionMinY; j <= RegionMaxY; ++j){
-					vehicles = regions_[i][j].getVehicleArray();	//use the array as it's MUCH faster!
-					size = vehicles.length;
-
-					for(k = 0; k < size; ++k){
-						vehicle = vehicles[k];
-						// precheck if the vehicle is near enough and valid (check is not exact as its a rectangular box and not circle)
-						if(vehicle.isWiFiEnabled() && vehicle.isActive() && vehicle != this && vehicle.getX() >= MapMinX && vehicle.getX() <= MapMaxX && vehicle.getY() >= MapMinY && vehicle.getY() <= MapMaxY){
-							dx = vehicle.getX() - curX_;
-							dy = vehicle.getY() - curY_;
-							if((dx * dx + dy * dy) <= maxCommDistanceSquared){	// Pythagorean theorem: a^2 + b^2 = c^2 but without the needed Math.sqrt to save a little bit performance
-								vehicle.getKnownVehiclesList().updateVehicle(this, ID_, curX_, curY_, curSpeed_, vehicle.getID(), false,false);
-							}
-						}
+			// send to all neighbors found for this step (all of them have wifi, are active and are within the distance)
+			if(spatialHashIndex_ > -1){
+				NeighborTable table = NeighborTable.getInstance();
+				Vehicle[] vehicles = table.getVehicles();
+				int[] neighbors = table.getVehicleNeighbors();
+				int end = table.getVehicleStarts()[spatialHashIndex_ + 1];
+				int k;
+				if(BeaconInbox.getInstance().isEnabled()){	// the lists of the receivers are updated later without locking
+					BeaconInbox.Buffer buffer = BeaconInbox.getInstance().getBuffer();
+					for(k = table.getVehicleStarts()[spatialHashIndex_]; k < end; ++k){
+						buffer.add(neighbors[k], this, ID_, curX_, curY_, curSpeed_, vehicles[neighbors[k]].getID());
+					}
+				} else {
+					Vehicle vehicle;
+					for(k = table.getVehicleStarts()[spatialHashIndex_]; k < end; ++k){
+						vehicle = vehicles[neighbors[k]];
+						vehicle.getKnownVehiclesList().updateVehicle(this, ID_, curX_, curY_, curSpeed_, vehicle.getID(), false,false);
 					}
 				}
 			}
@@ -1856,7 +1941,7 @@ public final class Vehicle extends LaneObject{
 			// allow beacon monitoring
 			if(beaconMonitorEnabled_){
 				if(curX_ >= beaconMonitorMinX_ && curX_ <= beaconMonitorMaxX_ && curY_ >= beaconMonitorMinY_ && curY_ <= beaconMonitorMaxY_){
-					REPORT_PANEL.addBeacon(this, ID_, curX_, curY_, curSpeed_, false);
+					SimulationEngine.getInstance().getListener().beaconSent(this, ID_, curX_, curY_, curSpeed_, false);
 				}
 			}
 					
@@ -1870,7 +1955,7 @@ public final class Vehicle extends LaneObject{
 			    	
 			   
 					if((dx * dx + dy * dy) <= maxCommDistanceSquared){	// Pythagorean theorem: a^2 + b^2 = c^2 but without the needed Math.sqrt to save a little bit performance
-						if(Renderer.getInstance().getAttackerVehicle() != null && !Renderer.getInstance().getAttackerVehicle().equals(this))Renderer.getInstance().getAttackerVehicle().getKnownVehiclesList().updateVehicle(this, ID_, curX_, curY_, curSpeed_, tempARSUList[l].getArsuID_(), false, true);
+						if(Scenario.getInstance().getAttackerVehicle() != null && !Scenario.getInstance().getAttackerVehicle().equals(this))Scenario.getInstance().getAttackerVehicle().getKnownVehiclesList().updateVehicle(this, ID_, curX_, curY_, curSpeed_, tempARSUList[l].getArsuID_(), false, true);
 					}	    	
 			      }
 
@@ -1878,7 +1963,7 @@ public final class Vehicle extends LaneObject{
 
 			if(privacyDataLogged_ && silentPeriodsOn){				
 				savedBeacon2 = savedBeacon1;
-				savedBeacon1 = Renderer.getInstance().getTimePassed() + ":Steady ID:" + this.steadyID_ + ":Pseudonym:" + Long.toHexString(this.ID_) + ":TraveledDistance:" + totalTravelDistance_ + ":TraveledTime:" + totalTravelTime_ + ":Node ID:None" + ":Direction:None" + ":Street:" + this.getCurStreet().getName() + ":StreetSpeed:" + this.getCurStreet().getSpeed() + ":VehicleSpeed:" + this.getCurSpeed() +  ":x:" + this.curX_ + ":y:" + this.curY_;
+				savedBeacon1 = SimulationClock.getTimePassed() + ":Steady ID:" + this.steadyID_ + ":Pseudonym:" + Long.toHexString(this.ID_) + ":TraveledDistance:" + totalTravelDistance_ + ":TraveledTime:" + totalTravelTime_ + ":Node ID:None" + ":Direction:None" + ":Street:" + this.getCurStreet().getName() + ":StreetSpeed:" + this.getCurStreet().getSpeed() + ":VehicleSpeed:" + this.getCurSpeed() +  ":x:" + this.curX_ + ":y:" + this.curY_;
 			
 				if(logNextBeacons == 1){
 					logNextBeacons = 0;
@@ -1918,7 +2003,7 @@ public final class Vehicle extends LaneObject{
 				// allow beacon monitoring
 				if(beaconMonitorEnabled_){
 					if(curX_ >= beaconMonitorMinX_ && curX_ <= beaconMonitorMaxX_ && curY_ >= beaconMonitorMinY_ && curY_ <= beaconMonitorMaxY_){
-						REPORT_PANEL.addBeacon(this, ID_, curX_, curY_, curSpeed_, true);
+						SimulationEngine.getInstance().getListener().beaconSent(this, ID_, curX_, curY_, curSpeed_, true);
 					}
 				}
 
@@ -1931,12 +2016,12 @@ public final class Vehicle extends LaneObject{
 			
 			//silent period did begin -> log
 			if(silentPeriod){
-				if(privacyDataLogged_) PrivacyLogWriter.log(Renderer.getInstance().getTimePassed() + ":Steady ID:" + this.steadyID_ + ":Pseudonym:" + Long.toHexString(this.ID_) + ":TraveledDistance:" + totalTravelDistance_ + ":TraveledTime:" + totalTravelTime_ + ":Node ID:none" + ":Direction:IN" +  ":x:" + this.curX_ + ":y:" + this.curY_);
+				if(privacyDataLogged_) PrivacyLogWriter.log(SimulationClock.getTimePassed() + ":Steady ID:" + this.steadyID_ + ":Pseudonym:" + Long.toHexString(this.ID_) + ":TraveledDistance:" + totalTravelDistance_ + ":TraveledTime:" + totalTravelTime_ + ":Node ID:none" + ":Direction:IN" +  ":x:" + this.curX_ + ":y:" + this.curY_);
 			}
 			//silent perdiod did end -> log and change pseudonym
 			else{
 				ID_ = ownRandom_.nextLong();
-				if(privacyDataLogged_) PrivacyLogWriter.log(Renderer.getInstance().getTimePassed() + ":Steady ID:" + this.steadyID_ + ":Pseudonym:" + Long.toHexString(this.ID_) + ":TraveledDistance:" + totalTravelDistance_ + ":TraveledTime:" + totalTravelTime_ + ":Node ID:none" + ":Direction:OUT" +  ":x:" + this.curX_ + ":y:" + this.curY_);
+				if(privacyDataLogged_) PrivacyLogWriter.log(SimulationClock.getTimePassed() + ":Steady ID:" + this.steadyID_ + ":Pseudonym:" + Long.toHexString(this.ID_) + ":TraveledDistance:" + totalTravelDistance_ + ":TraveledTime:" + totalTravelTime_ + ":Node ID:none" + ":Direction:OUT" +  ":x:" + this.curX_ + ":y:" + this.curY_);
 			}
 		}
 	}
@@ -2078,13 +2163,13 @@ public final class Vehicle extends LaneObject{
 	 * Move Attacker. 
 	 */
 	public final void moveAttacker(){
-		Vehicle tmpAttacked = Renderer.getInstance().getAttackedVehicle();
+		Vehicle tmpAttacked = Scenario.getInstance().getAttackedVehicle();
 		//Save if attacker is in mix-zone
 		if(isInMixZone_ && firstContact) attackerWasInMix = true;
 		
 		//If attacked vehicle drives in mix-zone set it null and save information that the attacked vehicle was in mix-zone
 		if(tmpAttacked != null && tmpAttacked.isInMixZone_ && firstContact) {
-			Renderer.getInstance().setAttackedVehicle(null);
+			Scenario.getInstance().setAttackedVehicle(null);
 			Vehicle.setAttackedVehicleID_(0);
 			attackedWasInMix = true;
 			newSpeed_ = curStreet_.getSpeed();
@@ -2096,7 +2181,7 @@ public final class Vehicle extends LaneObject{
 		if(attackedWasInMix && attackerWasInMix && !isInMixZone_ && firstContact){
 			if(getKnownVehiclesList().findNearestVehicle(0, 0, curX_, curY_, 10000000) != null){
 				Vehicle.setAttackedVehicleID_(getKnownVehiclesList().findNearestVehicle(0, 0, curX_, curY_, 10000000).getID());
-				Renderer.getInstance().setAttackedVehicle(getKnownVehiclesList().findNearestVehicle(0, 0, curX_, curY_, 10000000));
+				Scenario.getInstance().setAttackedVehicle(getKnownVehiclesList().findNearestVehicle(0, 0, curX_, curY_, 10000000));
 				attackedWasInMix = false;
 				attackerWasInMix = false;
 			}
@@ -2108,45 +2193,40 @@ public final class Vehicle extends LaneObject{
 			if(reRouteTime_ < 0){
 				reRouteTime_=ATTACKER_INTERVAL;
 				long dx, dy, dg;
-				KnownVehicle[] heads = knownVehiclesList_.getFirstKnownVehicle();
-				KnownVehicle next;
+				int knownSize = knownVehiclesList_.getSize();
 				
 				//traverse all vehicle which sent beacons
-				for(int l = 0; l < heads.length; ++l){
-					next = heads[l];								
-					while(next != null){
-						//Find the attacker data
-						if(next.getVehicle().getID() == attackedVehicleID_){
-							firstContact = true;
-							
-							dx = next.getVehicle().getX() - curX_;
-							dy = next.getVehicle().getY() - curY_;
-							dg = (dx * dx + dy * dy);
-	
-							//update speed if attacker is to near / to far
-							if(dg > 60000000) newSpeed_ = maxSpeed_;
-							else if(dg > 20000000 && dg < 60000000) newSpeed_ = Renderer.getInstance().getAttackedVehicle().getCurSpeed();
-							else if(dg < 20000000) newSpeed_ = 0;
-							
-							//clear destinations and add new ones (only if the attacker is far enough away
-							//from the attacked vehicle. Otherwise the attacker would reach the final destination
-							//until it gets a new one)
-							if(dg > 10000000){
-							getDestinations().clear();
-								try {
-									getDestinations().add(new WayPoint(next.getX(),next.getY(),0));
-									getDestinations().add(new WayPoint(next.getX(),next.getY(),0));
-									calculateRoute(false, true);
-									brakeForDestination_ = false;
-									brakeForDestinationCountdown_ = 1000;
-								} catch (ParseException e) {
-									// TODO Auto-generated catch block
-									e.printStackTrace();
-								}
+				for(int l = 0; l < knownSize; ++l){
+					//Find the attacker data
+					if(knownVehiclesList_.getVehicle(l).getID() == attackedVehicleID_){
+						firstContact = true;
+						
+						dx = knownVehiclesList_.getVehicle(l).getX() - curX_;
+						dy = knownVehiclesList_.getVehicle(l).getY() - curY_;
+						dg = (dx * dx + dy * dy);
+
+						//update speed if attacker is to near / to far
+						if(dg > 60000000) newSpeed_ = maxSpeed_;
+						else if(dg > 20000000 && dg < 60000000) newSpeed_ = Scenario.getInstance().getAttackedVehicle().getCurSpeed();
+						else if(dg < 20000000) newSpeed_ = 0;
+						
+						//clear destinations and add new ones (only if the attacker is far enough away
+						//from the attacked vehicle. Otherwise the attacker would reach the final destination
+						//until it gets a new one)
+						if(dg > 10000000){
+						getDestinations().clear();
+							try {
+								getDestinations().add(new WayPoint(knownVehiclesList_.getX(l),knownVehiclesList_.getY(l),0));
+								getDestinations().add(new WayPoint(knownVehiclesList_.getX(l),knownVehiclesList_.getY(l),0));
+								calculatePursuitRoute();
+								brakeForDestination_ = false;
+								brakeForDestinationCountdown_ = 1000;
+							} catch (ParseException e) {
+								// TODO Auto-generated catch block
+								e.printStackTrace();
 							}
-						next = null;
 						}
-						else next = next.getNext();
+						break;
 					}
 				}
 			}
@@ -2476,6 +2556,35 @@ public final class Vehicle extends LaneObject{
 		return beaconCountdown_;
 	}
 
+	/**
+	 * Checks if this vehicle sends beacons or messages through a bruteforce search for neighbors in the current step. Only
+	 * valid after the speed has been adjusted.
+	 * 
+	 * @return <code>true</code> if the neighbors are needed, else <code>false</code>
+	 */
+	public boolean needsNeighbors(){
+		if(beaconsEnabled_ && !isInMixZone_) return beaconCountdown_ < 1;	// see sendBeacons()
+		else return communicationCountdown_ < 1 && (!isInMixZone_ || mixZonesFallbackEnabled_);	// see sendMessages()
+	}
+
+	/**
+	 * Sets the position of this vehicle in the {@link SpatialHash}.
+	 * 
+	 * @param index	the position or <code>-1</code> if the vehicle is not in the hash
+	 */
+	public void setSpatialHashIndex(int index){
+		spatialHashIndex_ = index;
+	}
+
+	/**
+	 * Gets the position of this vehicle in the {@link SpatialHash}.
+	 * 
+	 * @return the position or <code>-1</code> if the vehicle is not in the hash
+	 */
+	public int getSpatialHashIndex(){
+		return spatialHashIndex_;
+	}
+
 	/**
 	 * Gets the starting point of the vehicle.
 	 * 
@@ -2745,6 +2854,24 @@ public final class Vehicle extends LaneObject{
 		return routingMode_;
 	}
 
+	/**
+	 * Returns the routing algorithm used.
+	 * 
+	 * @return <code>0</code> for A*, <code>1</code> for contraction hierarchies, <code>2</code> for A* with landmarks
+	 */
+	public static int getRoutingAlgorithm(){
+		return routingAlgorithm_;
+	}
+
+	/**
+	 * Returns if routes affected by new penalties are repaired locally.
+	 * 
+	 * @return <code>true</code> if repairing of routes is enabled
+	 */
+	public static boolean isRouteRepairEnabled(){
+		return routeRepairEnabled_;
+	}
+
 	/**
 	 * Returns the maximum communication distance.
 	 * 
@@ -2976,14 +3103,6 @@ public final class Vehicle extends LaneObject{
 		return beaconMonitorMaxY_;
 	}
 
-	/**
-	 * Gets the report panel for beacon monitoring
-	 * 
-	 * @return REPORT_PANEL the beacon report panel
-	 */
-	public static ReportingControlPanel getREPORT_PANEL() {
-		return REPORT_PANEL;
-	}
 	/**
 	 * Sets a new routing mode. See the A_Star_Algor for details. Common to all vehicles.
 	 * 
@@ -2993,6 +3112,62 @@ public final class Vehicle extends LaneObject{
 		routingMode_ = mode;
 	}
 
+	/**
+	 * Sets if routes affected by new penalties are repaired locally (see {@link #repairRoute(int)}) instead of being
+	 * calculated completely again. Common to all vehicles.
+	 * 
+	 * @param state	<code>true</code> to enable repairing of routes
+	 */
+	public static void setRouteRepairEnabled(boolean state){
+		routeRepairEnabled_ = state;
+	}
+
+	/**
+	 * Sets the routing algorithm. Common to all vehicles.
+	 * 
+	 * @param algorithm	<code>0</code> for A*, <code>1</code> for contraction hierarchies, <code>2</code> for A* with landmarks
+	 */
+	public static void setRoutingAlgorithm(int algorithm){
+		if(algorithm > -1 && algorithm < ROUTING_ALGOS.length) routingAlgorithm_ = algorithm;
+	}
+
+	/**
+	 * Drops the preprocessed data of the routing algorithms so that it's created again when the next route is calculated.
+	 * Common to all vehicles.
+	 */
+	public static void resetRoutingAlgorithms(){
+		CH_ALGORITHM.clear();
+	}
+
+	/**
+	 * Creates the request for the first route a new vehicle with these destinations needs. This is the route from the first
+	 * destination to the next one which is on another street.
+	 * 
+	 * @param destinations	the destinations of the vehicle (will not be modified)
+	 * @param maxSpeed		the maximum speed of the vehicle in cm/s
+	 * 
+	 * @return the request or <code>null</code> if no route is needed
+	 */
+	public static RouteRequest createRouteRequest(ArrayDeque<WayPoint> destinations, int maxSpeed){
+		if(destinations == null || destinations.size() < 2) return null;
+		Iterator<WayPoint> iterator = destinations.iterator();
+		WayPoint start = iterator.next(), target;
+		while(iterator.hasNext()){
+			target = iterator.next();
+			if(target.getStreet() != start.getStreet()) return new RouteRequest(routingMode_, 0, start.getX(), start.getY(), start.getStreet(), start.getPositionOnStreet(), target.getX(), target.getY(), target.getStreet(), target.getPositionOnStreet(), NO_PENALTY_STREETS, NO_PENALTIES, NO_PENALTIES, 0, maxSpeed);
+		}
+		return null;
+	}
+
+	/**
+	 * Calculates the routes of many requests in parallel with the current routing algorithm.
+	 * 
+	 * @param requests	the requests created with {@link #createRouteRequest(ArrayDeque, int)}. <code>null</code> entries are allowed.
+	 */
+	public static void calculateRoutes(List<RouteRequest> requests){
+		BatchRouting.getRoutings(ROUTING_ALGOS[routingAlgorithm_], requests);
+	}
+
 	/**
 	 * Gets the vehicle ID
 	 * 
@@ -3201,11 +3376,6 @@ public final class Vehicle extends LaneObject{
 		this.curMixNode_ = curMixNode_;
 	}
 
-	public static ReportingControlPanel getReportingPanel(){
-		if(Renderer.getInstance().isConsoleStart()) return null;
-		else return VanetSimStart.getMainControlPanel().getReportingPanel();
-	}
-
 
 	/**
 	 * @return the waitingForSignal_
@@ -0,0 +1,167 @@
+package vanetsim.scenario;
+
+import java.awt.Color;
+import java.text.ParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+import vanetsim.routing.RouteRequest;
+import vanetsim.routing.WayPoint;
+
+/**
+ * Creates many vehicles at once. Most of the time needed to create a vehicle is spent on calculating its first route. So
+ * the parameters of all vehicles are collected first, then the first routes of all vehicles are calculated in parallel
+ * and at last the vehicles are created one after another in the order they were added (so that the results are the same
+ * as if they were created directly).
+ */
+public final class VehicleBatch{
+
+	/** The parameters of the vehicles. */
+	private final ArrayList<Parameters> vehicles_ = new ArrayList<Parameters>(64);
+
+	/**
+	 * Instantiates a new empty batch.
+	 */
+	public VehicleBatch(){
+	}
+
+	/**
+	 * Adds the parameters of a vehicle. See {@link Vehicle#Vehicle(ArrayDeque, int, int, int, boolean, boolean, int, int, int, int, Color)}
+	 * for details.
+	 *
+	 * @param destinations		an <code>ArrayDeque</code> with at least 2 elements (start and target) indicating where to move.
+	 * @param vehicleLength		the vehicle length
+	 * @param maxSpeed			the maximum speed of this vehicle in cm/s
+	 * @param maxCommDist		the maximum distance in cm this vehicle can communicate
+	 * @param wiFiEnabled		<code>true</code> if this vehicle has a communication device (WiFi), else <code>false</code>
+	 * @param emergencyVehicle	<code>true</code> vehicle is an emergency vehicle
+	 * @param brakingRate		the braking rate in cm/s^2
+	 * @param accelerationRate	the acceleration rate in cm/s^2
+	 * @param timeDistance		the time distance
+	 * @param politeness		the politeness
+	 * @param color				the color of the vehicle
+	 *
+	 * @return the index of the vehicle in this batch
+	 */
+	public int add(ArrayDeque<WayPoint> destinations, int vehicleLength, int maxSpeed, int maxCommDist, boolean wiFiEnabled, boolean emergencyVehicle, int brakingRate, int accelerationRate, int timeDistance, int politeness, Color color){
+		vehicles_.add(new Parameters(destinations, vehicleLength, maxSpeed, maxCommDist, wiFiEnabled, emergencyVehicle, brakingRate, accelerationRate, timeDistance, politeness, color));
+		return vehicles_.size() - 1;
+	}
+
+	/**
+	 * Calculates the first routes of all vehicles in parallel. The routing settings may not be changed until the vehicles have been created.
+	 */
+	public void calculateRoutes(){
+		ArrayList<RouteRequest> requests = new ArrayList<RouteRequest>(vehicles_.size());
+		Parameters parameters;
+		for(int i = 0; i < vehicles_.size(); ++i){
+			parameters = vehicles_.get(i);
+			parameters.firstRoute_ = Vehicle.createRouteRequest(parameters.destinations_, parameters.maxSpeed_);
+			requests.add(parameters.firstRoute_);
+		}
+		Vehicle.calculateRoutes(requests);
+	}
+
+	/**
+	 * Creates a vehicle. This should be called for all vehicles in the order they were added after {@link #calculateRoutes()}.
+	 *
+	 * @param index	the index of the vehicle
+	 *
+	 * @return the vehicle
+	 *
+	 * @throws ParseException if the destinations of the vehicle are not valid
+	 */
+	public Vehicle createVehicle(int index) throws ParseException{
+		Parameters parameters = vehicles_.get(index);
+		RouteRequest firstRoute = parameters.firstRoute_;
+		parameters.firstRoute_ = null;		// not needed anymore
+		return new Vehicle(parameters.destinations_, parameters.vehicleLength_, parameters.maxSpeed_, parameters.maxCommDist_, parameters.wiFiEnabled_, parameters.emergencyVehicle_, parameters.brakingRate_, parameters.accelerationRate_, parameters.timeDistance_, parameters.politeness_, parameters.color_, firstRoute);
+	}
+
+	/**
+	 * Gets the amount of vehicles in this batch.
+	 *
+	 * @return the amount of vehicles
+	 */
+	public int size(){
+		return vehicles_.size();
+	}
+
+	/**
+	 * Removes all vehicles from this batch.
+	 */
+	public void clear(){
+		vehicles_.clear();
+	}
+
+	/**
+	 * The parameters of a vehicle.
+	 */
+	private static final class Parameters{
+
+		/** The destinations. */
+		private final ArrayDeque<WayPoint> destinations_;
+
+		/** The vehicle length. */
+		private final int vehicleLength_;
+
+		/** The maximum speed in cm/s. */
+		private final int maxSpeed_;
+
+		/** The maximum communication distance in cm. */
+		private final int maxCommDist_;
+
+		/** If the vehicle has WiFi. */
+		private final boolean wiFiEnabled_;
+
+		/** If the vehicle is an emergency vehicle. */
+		private final boolean emergencyVehicle_;
+
+		/** The braking rate in cm/s^2. */
+		private final int brakingRate_;
+
+		/** The acceleration rate in cm/s^2. */
+		private final int accelerationRate_;
+
+		/** The time distance. */
+		private final int timeDistance_;
+
+		/** The politeness. */
+		private final int politeness_;
+
+		/** The color. */
+		private final Color color_;
+
+		/** The first route or <code>null</code> if it hasn't been calculated. */
+		private RouteRequest firstRoute_ = null;
+
+		/**
+		 * Stores the parameters of a vehicle.
+		 *
+		 * @param destinations		the destinations
+		 * @param vehicleLength		the vehicle length
+		 * @param maxSpeed			the maximum speed in cm/s
+		 * @param maxCommDist		the maximum communication distance in cm
+		 * @param wiFiEnabled		if the vehicle has WiFi
+		 * @param emergencyVehicle	if the vehicle is an emergency vehicle
+		 * @param brakingRate		the braking rate in cm/s^2
+		 * @param accelerationRate	the acceleration rate in cm/s^2
+		 * @param timeDistance		the time distance
+		 * @param politeness		the politeness
+		 * @param color				the color
+		 */
+		public Parameters(ArrayDeque<WayPoint> destinations, int vehicleLength, int maxSpeed, int maxCommDist, boolean wiFiEnabled, boolean emergencyVehicle, int brakingRate, int accelerationRate, int timeDistance, int politeness, Color color){
+			destinations_ = destinations;
+			vehicleLength_ = vehicleLength;
+			maxSpeed_ = maxSpeed;
+			maxCommDist_ = maxCommDist;
+			wiFiEnabled_ = wiFiEnabled;
+			emergencyVehicle_ = emergencyVehicle;
+			brakingRate_ = brakingRate;
+			accelerationRate_ = accelerationRate;
+			timeDistance_ = timeDistance;
+			politeness_ = politeness;
+			color_ = color;
+		}
+	}
+}
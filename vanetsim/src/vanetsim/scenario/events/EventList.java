@@ -4,6 +4,8 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.PriorityQueue;
 
+import vanetsim.routing.RouteCache;
+
 
 /**
  * This class stores all events.
@@ -106,6 +108,7 @@ public final class EventList{
 	 */
 	public void addCurrentBlockings(StartBlocking event){
 		currentBlockings_.add(event);
+		RouteCache.getInstance().clear();
 	}
 	
 	/**
@@ -115,6 +118,7 @@ public final class EventList{
 	 */
 	public void delCurrentBlockings(StartBlocking event){
 		currentBlockings_.remove(event);
+		RouteCache.getInstance().clear();
 	}
 
 	/**
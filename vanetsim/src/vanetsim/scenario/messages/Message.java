@@ -1,16 +1,13 @@
 package vanetsim.scenario.messages;
 
-import vanetsim.gui.Renderer;
 import vanetsim.scenario.Vehicle;
+import vanetsim.simulation.SimulationClock;
 
 /**
  * An abstract class for messages.
  */
 public abstract class Message{
 	
-	/** A reference to the renderer. */
-	private static final Renderer renderer_ = Renderer.getInstance();
-	
 	/** The x coordinate of the destination of this message. */
 	protected int destinationX_;
 	
@@ -36,7 +33,7 @@ public abstract class Message{
 	 * @return <code>true</code> if it's valid, else <code>false</code>
 	 */
 	public boolean isValid(){
-		if(renderer_.getTimePassed() < validUntil_) return true;
+		if(SimulationClock.getTimePassed() < validUntil_) return true;
 		else return false;
 	}
 	
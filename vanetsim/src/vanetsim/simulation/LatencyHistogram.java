@@ -0,0 +1,152 @@
+package vanetsim.simulation;
+
+/**
+ * A histogram for durations in nanoseconds. The values are sorted into buckets with a logarithmic scale where each power of two
+ * is divided into 16 linear sub-buckets. This way, percentiles can be calculated with an error of at most about 6% while
+ * recording a value is just an array increment and doesn't create any objects.
+ * This class is not thread-safe. Values should be recorded by one thread only.
+ */
+public final class LatencyHistogram{
+
+	/** The amount of bits used for the sub-buckets. */
+	private static final int SUB_BUCKET_BITS = 4;
+
+	/** The amount of sub-buckets per power of two. */
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/** The amount of recorded values in each bucket. */
+	private final long[] counts_ = new long[64 * SUB_BUCKETS];
+
+	/** The amount of recorded values. */
+	private long count_ = 0;
+
+	/** The sum of all recorded values. */
+	private long sum_ = 0;
+
+	/** The smallest recorded value. */
+	private long min_ = Long.MAX_VALUE;
+
+	/** The largest recorded value. */
+	private long max_ = 0;
+
+	/**
+	 * Records a value.
+	 *
+	 * @param value	the duration in nanoseconds. Negative values are treated as 0.
+	 */
+	public void record(long value){
+		if(value < 0) value = 0;
+		++counts_[getBucket(value)];
+		++count_;
+		sum_ += value;
+		if(value < min_) min_ = value;
+		if(value > max_) max_ = value;
+	}
+
+	/**
+	 * Removes all recorded values.
+	 */
+	public void reset(){
+		for(int i = 0; i < counts_.length; ++i) counts_[i] = 0;
+		count_ = 0;
+		sum_ = 0;
+		min_ = Long.MAX_VALUE;
+		max_ = 0;
+	}
+
+	/**
+	 * Gets the amount of recorded values.
+	 *
+	 * @return the amount
+	 */
+	public long getCount(){
+		return count_;
+	}
+
+	/**
+	 * Gets the sum of all recorded values.
+	 *
+	 * @return the sum in nanoseconds
+	 */
+	public long getSum(){
+		return sum_;
+	}
+
+	/**
+	 * Gets the mean of all recorded values.
+	 *
+	 * @return the mean in nanoseconds or 0 if nothing was recorded
+	 */
+	public double getMean(){
+		if(count_ == 0) return 0;
+		return sum_ / (double)count_;
+	}
+
+	/**
+	 * Gets the smallest recorded value.
+	 *
+	 * @return the minimum in nanoseconds or 0 if nothing was recorded
+	 */
+	public long getMin(){
+		if(count_ == 0) return 0;
+		return min_;
+	}
+
+	/**
+	 * Gets the largest recorded value.
+	 *
+	 * @return the maximum in nanoseconds
+	 */
+	public long getMax(){
+		return max_;
+	}
+
+	/**
+	 * Gets a percentile of the recorded values. The result is the upper bound of the bucket in which the percentile lies
+	 * (but never more than the maximum).
+	 *
+	 * @param percentile	the percentile (between 0 and 100)
+	 *
+	 * @return the value in nanoseconds or 0 if nothing was recorded
+	 */
+	public long getPercentile(double percentile){
+		if(count_ == 0) return 0;
+		long target = (long)Math.ceil(count_ * Math.max(0, Math.min(100, percentile)) / 100);
+		if(target < 1) target = 1;
+		long sum = 0;
+		for(int i = 0; i < counts_.length; ++i){
+			sum += counts_[i];
+			if(sum >= target) return Math.min(getUpperBound(i), max_);
+		}
+		return max_;
+	}
+
+	/**
+	 * Gets the bucket of a value.
+	 *
+	 * @param value	the value (not negative)
+	 *
+	 * @return the index of the bucket
+	 */
+	private static int getBucket(long value){
+		if(value == 0) return 0;
+		int msb = 63 - Long.numberOfLeadingZeros(value);
+		if(msb < SUB_BUCKET_BITS) return (msb << SUB_BUCKET_BITS) | (int)value;
+		return (msb << SUB_BUCKET_BITS) | (int)((value >>> (msb - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+	}
+
+	/**
+	 * Gets the largest value which is sorted into a bucket.
+	 *
+	 * @param bucket	the index of the bucket
+	 *
+	 * @return the upper bound
+	 */
+	private static long getUpperBound(int bucket){
+		int msb = bucket >>> SUB_BUCKET_BITS;
+		long sub = bucket & (SUB_BUCKETS - 1);
+		if(msb < SUB_BUCKET_BITS) return sub;
+		long lower = (1L << msb) | (sub << (msb - SUB_BUCKET_BITS));
+		return lower + (1L << (msb - SUB_BUCKET_BITS)) - 1;
+	}
+}
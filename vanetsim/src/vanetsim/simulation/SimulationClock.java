@@ -0,0 +1,61 @@
+package vanetsim.simulation;
+
+/**
+ * The clock of the simulation. All simulation classes read the current simulation time from here so that
+ * the time does not depend on the {@link vanetsim.gui.Renderer} (which is only needed if a GUI is used).
+ */
+public final class SimulationClock{
+
+	/** How much time has passed since the beginning of the simulation in milliseconds. */
+	private static volatile int timePassed_ = 0;
+
+	/** How many steps have been simulated since the beginning of the simulation. */
+	private static volatile long stepCount_ = 0;
+
+	/**
+	 * Empty, private constructor in order to disable instancing.
+	 */
+	private SimulationClock(){
+	}
+
+	/**
+	 * Gets the time passed since simulation start.
+	 *
+	 * @return the time passed in milliseconds
+	 */
+	public static int getTimePassed(){
+		return timePassed_;
+	}
+
+	/**
+	 * Sets the time passed since simulation start. If the time is set to 0, the step counter is reset, too.
+	 *
+	 * @param timePassed	the new time in milliseconds
+	 */
+	public static void setTimePassed(int timePassed){
+		timePassed_ = timePassed;
+		if(timePassed == 0) stepCount_ = 0;
+	}
+
+	/**
+	 * Advances the clock by one step.
+	 *
+	 * @param timePerStep	the time of one step in milliseconds
+	 *
+	 * @return the new time in milliseconds
+	 */
+	public static int advance(int timePerStep){
+		++stepCount_;
+		timePassed_ += timePerStep;
+		return timePassed_;
+	}
+
+	/**
+	 * Gets the amount of steps simulated since simulation start.
+	 *
+	 * @return the step count
+	 */
+	public static long getStepCount(){
+		return stepCount_;
+	}
+}
@@ -0,0 +1,408 @@
+package vanetsim.simulation;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ForkJoinPool;
+
+import vanetsim.ErrorLog;
+import vanetsim.localization.Messages;
+import vanetsim.map.Map;
+import vanetsim.map.NeighborTable;
+import vanetsim.map.Node;
+import vanetsim.map.Region;
+import vanetsim.map.SpatialHash;
+import vanetsim.map.TravelTimeEstimator;
+import vanetsim.scenario.BeaconInbox;
+import vanetsim.scenario.KnownRSUsList;
+import vanetsim.scenario.KnownVehiclesList;
+import vanetsim.scenario.RSU;
+import vanetsim.scenario.Scenario;
+import vanetsim.scenario.Vehicle;
+import vanetsim.scenario.events.EventList;
+
+/**
+ * The simulation engine. It manages the worker pool and calculates the simulation steps. The engine
+ * does not need any class of the GUI so it can be used directly in console mode (headless). If a GUI is used,
+ * the {@link SimulationMaster} drives the engine and cares for rendering and realtime behaviour. The GUI is informed
+ * about changes through the registered {@link SimulationListener}.
+ */
+public final class SimulationEngine{
+
+	/** The only instance of this class (singleton). */
+	private static final SimulationEngine INSTANCE = new SimulationEngine();
+
+	/** The list with all events */
+	private static final EventList eventList_ = EventList.getInstance();
+
+	/** <code>true</code> if the simulator runs without GUI (console mode). */
+	private volatile boolean headless_ = false;
+
+	/** The listener which ignores all calls (used if no GUI is registered). */
+	private static final SimulationListener NO_LISTENER = new SimulationListener(){
+		public void mapCleared(){}
+		public void mapLoaded(int width, int height){}
+		public void requestMapSize(int width, int height, int regionWidth, int regionHeight, CyclicBarrier barrier){}
+		public void scenarioCleared(){}
+		public void render(boolean fullRender, boolean forceRenderNow){}
+		public void simulationRunning(boolean running){}
+		public void setRenderBarrier(CyclicBarrier barrier){}
+		public void updateStatistics(int timePerStep){}
+		public void beaconSent(Vehicle vehicle, long ID, long x, long y, double speed, boolean isEncrypted){}
+		public void beaconSent(RSU rsu, long ID, long x, long y, boolean isEncrypted){}
+	};
+
+	/** The listener of the GUI. */
+	private volatile SimulationListener listener_ = NO_LISTENER;
+
+	/** An empty node array. */
+	private static final Node[] EMPTY_NODES = new Node[0];
+
+	/** An empty RSU array. */
+	private static final RSU[] EMPTY_RSUS = new RSU[0];
+
+	/** An empty vehicle array. */
+	private static final Vehicle[] EMPTY_VEHICLES = new Vehicle[0];
+
+	/** A task is not split any further if it has less objects than this. */
+	private static final int MIN_TASK_SIZE = 64;
+
+	/** How many tasks are created per thread and phase. More tasks balance better but cost more overhead. */
+	private static final int TASKS_PER_THREAD = 8;
+
+	/** The profiler for the steps. */
+	private static final StepProfiler profiler_ = StepProfiler.getInstance();
+
+	/** The pool which calculates the phases of a step. Idle threads steal work from busy ones. */
+	private ForkJoinPool pool_ = null;
+
+	/** <code>true</code> if all objects of map and scenario have been collected. */
+	private boolean prepared_ = false;
+
+	/** All regions of the map. */
+	private Region[] regions_ = null;
+
+	/** The vehicle arrays of the regions which were used to create {@link #vehicles_}. */
+	private Vehicle[][] regionVehicles_ = null;
+
+	/** All vehicles of the map. */
+	private Vehicle[] vehicles_ = null;
+
+	/** All RSUs of the map. */
+	private RSU[] rsus_ = null;
+
+	/** All nodes with traffic signals. */
+	private Node[] trafficLightNodes_ = null;
+
+	/** The time when the last silent period started. */
+	private int silentPeriodStart_ = 99999999;
+
+	/**
+	 * Empty, private constructor in order to disable instancing.
+	 */
+	private SimulationEngine(){
+	}
+
+	/**
+	 * Gets the single instance of this engine.
+	 *
+	 * @return single instance of this engine
+	 */
+	public static SimulationEngine getInstance(){
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns if the simulator runs without GUI.
+	 *
+	 * @return <code>true</code> if no GUI is used, else <code>false</code>
+	 */
+	public boolean isHeadless(){
+		return headless_;
+	}
+
+	/**
+	 * Sets if the simulator runs without GUI. Needs to be set before any map or scenario is loaded.
+	 *
+	 * @param headless	<code>true</code> if no GUI is used, else <code>false</code>
+	 */
+	public void setHeadless(boolean headless){
+		headless_ = headless;
+	}
+
+	/**
+	 * Gets the listener which is informed about changes of map, scenario and simulation.
+	 *
+	 * @return the listener of the GUI or a listener which ignores all calls if no GUI is used
+	 */
+	public SimulationListener getListener(){
+		return listener_;
+	}
+
+	/**
+	 * Sets the listener which is informed about changes of map, scenario and simulation.
+	 *
+	 * @param listener	the listener or <code>null</code> to remove the current one
+	 */
+	public void setListener(SimulationListener listener){
+		if(listener == null) listener_ = NO_LISTENER;
+		else listener_ = listener;
+	}
+
+	/**
+	 * Loads a map. The call blocks until the map is completely loaded.
+	 *
+	 * @param file	the map file
+	 *
+	 * @return <code>true</code> if the map was loaded, <code>false</code> if loading failed
+	 */
+	public boolean loadMap(File file){
+		stopWorkers();
+		Map.getInstance().initNewMap(100000, 100000, 10000, 10000);
+		Map.getInstance().signalMapLoaded();
+		return Map.getInstance().load(file, false);
+	}
+
+	/**
+	 * Loads a scenario. The call blocks until the scenario is completely loaded.
+	 *
+	 * @param file	the scenario file
+	 *
+	 * @return <code>true</code> if the scenario was loaded, <code>false</code> if loading failed
+	 */
+	public boolean loadScenario(File file){
+		stopWorkers();
+		return Scenario.getInstance().load(file, false);
+	}
+
+	/**
+	 * Creates the worker pool if it doesn't exist yet and collects all objects which need to be calculated.
+	 *
+	 * @return <code>true</code> if the workers are ready, <code>false</code> if map or scenario are still loading
+	 */
+	public synchronized boolean prepareWorkers(){
+		if(prepared_) return true;
+		if(Map.getInstance().getReadyState() == false || Scenario.getInstance().getReadyState() == false) return false;
+		if(pool_ == null){
+			int threads = Math.max(1, Runtime.getRuntime().availableProcessors());	// work stealing balances the load so one thread per CPU is enough
+			long max_heap = Runtime.getRuntime().maxMemory()/1048576;		// Heap memory in MB
+			ErrorLog.log(Messages.getString("SimulationMaster.preparingSimulation") + threads + Messages.getString("SimulationMaster.threadsDetected") + max_heap + Messages.getString("SimulationMaster.heapMemory"), 3, SimulationEngine.class.getName(), "prepareWorkers", null); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+			pool_ = new ForkJoinPool(threads);
+			profiler_.setWorkers(threads);
+		}
+		collectObjects();
+		prepared_ = true;
+		return true;
+	}
+
+	/**
+	 * Collects all regions, RSUs and traffic light nodes of the map. The junctions are recalculated because the user might
+	 * have edited the map after loading.
+	 */
+	private void collectObjects(){
+		Region[][] regions = Map.getInstance().getRegions();
+		ArrayList<Region> tmpRegions = new ArrayList<Region>();
+		ArrayList<RSU> tmpRSUs = new ArrayList<RSU>();
+		ArrayList<Node> tmpNodes = new ArrayList<Node>();
+		RSU[] rsus;
+		Node[] nodes;
+		int i, j, k;
+		for(i = 0; i < regions.length; ++i){
+			for(j = 0; j < regions[i].length; ++j){
+				regions[i][j].calculateJunctions();
+				tmpRegions.add(regions[i][j]);
+				rsus = regions[i][j].getRSUs();
+				for(k = 0; k < rsus.length; ++k) tmpRSUs.add(rsus[k]);
+				nodes = regions[i][j].getNodes();
+				for(k = 0; k < nodes.length; ++k){
+					if(nodes[k].isHasTrafficSignal_()) tmpNodes.add(nodes[k]);
+				}
+			}
+		}
+		regions_ = tmpRegions.toArray(new Region[0]);
+		regionVehicles_ = new Vehicle[regions_.length][];
+		rsus_ = tmpRSUs.toArray(new RSU[0]);
+		trafficLightNodes_ = tmpNodes.toArray(new Node[0]);
+		vehicles_ = new Vehicle[0];
+		silentPeriodStart_ = 99999999;
+	}
+
+	/**
+	 * Updates the array with all vehicles if vehicles have been added to or removed from a region since the last step.
+	 * An array copy of the vehicles instead of an <code>ArrayList</code> is used because a vehicle might get into a new
+	 * region while moving. The regions cache their arrays so it's cheap to find out if something has changed.
+	 */
+	private void updateVehicles(){
+		boolean changed = false;
+		int count = 0;
+		int i;
+		Vehicle[] tmpVehicles;
+		for(i = 0; i < regions_.length; ++i){
+			tmpVehicles = regions_[i].getVehicleArray();
+			if(tmpVehicles != regionVehicles_[i]){
+				regionVehicles_[i] = tmpVehicles;
+				changed = true;
+			}
+			count += tmpVehicles.length;
+		}
+		if(changed){
+			if(vehicles_.length != count) vehicles_ = new Vehicle[count];
+			count = 0;
+			for(i = 0; i < regionVehicles_.length; ++i){
+				System.arraycopy(regionVehicles_[i], 0, vehicles_, count, regionVehicles_[i].length);
+				count += regionVehicles_[i].length;
+			}
+		}
+	}
+
+	/**
+	 * Stops the workers. All objects are collected again through {@link #prepareWorkers()} with the next step.
+	 */
+	public synchronized void stopWorkers(){
+		if(prepared_){
+			prepared_ = false;
+			regions_ = null;
+			regionVehicles_ = null;
+			vehicles_ = null;
+			rsus_ = null;
+			trafficLightNodes_ = null;
+		}
+	}
+
+	/**
+	 * Calculates one simulation step. The workers need to be prepared through {@link #prepareWorkers()} before.
+	 * Each phase is calculated in parallel and completely finished before the next phase starts.
+	 *
+	 * @return the new simulation time in milliseconds
+	 *
+	 * @throws Exception an exception if calculating the step failed
+	 */
+	public synchronized int step() throws Exception{
+		int time = SimulationClock.getTimePassed() + SimulationMaster.TIME_PER_STEP;
+		StepProfiler profiler = null;
+		long stepStart = 0, phaseStart = 0;
+		if(profiler_.isEnabled()){
+			profiler = profiler_;
+			stepStart = System.nanoTime();
+			phaseStart = stepStart;
+		}
+
+		//process events
+		eventList_.processEvents(time);
+
+		updateVehicles();
+		if(profiler != null) phaseStart = profiler.endPhase(StepProfiler.PHASE_EVENTS, phaseStart);
+		boolean recyclingEnabled = Vehicle.getRecyclingEnabled();
+		int threshold = Math.max(MIN_TASK_SIZE, (vehicles_.length + rsus_.length) / (pool_.getParallelism() * TASKS_PER_THREAD));
+
+		// adjust speed, do message cleanup and create jam messages
+		pool_.invoke(new WorkerTask(WorkerTask.PHASE_ADJUST_SPEED, vehicles_, rsus_, EMPTY_NODES, threshold, SimulationMaster.TIME_PER_STEP, recyclingEnabled, profiler));
+		if(profiler != null) phaseStart = profiler.endParallelPhase(StepProfiler.PHASE_ADJUST_SPEED, phaseStart);
+
+		// send messages
+		if(Vehicle.getCommunicationEnabled()){
+			// all positions are fixed until the vehicles are moved so the neighbors can be calculated once for the whole step
+			SpatialHash.getInstance().rebuild(vehicles_, rsus_, pool_);
+			NeighborTable.getInstance().rebuild(pool_);
+			if(profiler != null) phaseStart = profiler.endPhase(StepProfiler.PHASE_SPATIAL_HASH, phaseStart);
+
+			pool_.invoke(new WorkerTask(WorkerTask.PHASE_SEND_MESSAGES, vehicles_, rsus_, EMPTY_NODES, threshold, SimulationMaster.TIME_PER_STEP, recyclingEnabled, profiler));
+			if(profiler != null) phaseStart = profiler.endParallelPhase(StepProfiler.PHASE_SEND_MESSAGES, phaseStart);
+
+			// send beacons. Beacons are sent here so that they are not considered in the current step yet!
+			if(Vehicle.getBeaconsEnabled()){
+				updateSilentPeriod();
+				BeaconInbox inbox = BeaconInbox.getInstance();
+				inbox.setEnabled(true);
+				try{
+					pool_.invoke(new WorkerTask(WorkerTask.PHASE_SEND_BEACONS, vehicles_, rsus_, EMPTY_NODES, threshold, SimulationMaster.TIME_PER_STEP, recyclingEnabled, profiler));
+					if(profiler != null) phaseStart = profiler.endParallelPhase(StepProfiler.PHASE_SEND_BEACONS, phaseStart);
+					inbox.deliver(pool_);
+					if(profiler != null) phaseStart = profiler.endPhase(StepProfiler.PHASE_DELIVER_BEACONS, phaseStart);
+				} finally {
+					inbox.setEnabled(false);
+				}
+			}
+		}
+
+		// move attacker
+		Vehicle attacker = Scenario.getInstance().getAttackerVehicle();
+		if(attacker != null) attacker.moveAttacker();
+		if(profiler != null) phaseStart = profiler.endPhase(StepProfiler.PHASE_MOVE_ATTACKER, phaseStart);
+
+		// move all vehicles one step further
+		pool_.invoke(new WorkerTask(WorkerTask.PHASE_MOVE, vehicles_, EMPTY_RSUS, EMPTY_NODES, threshold, SimulationMaster.TIME_PER_STEP, recyclingEnabled, profiler));
+		if(profiler != null) phaseStart = profiler.endParallelPhase(StepProfiler.PHASE_MOVE, phaseStart);
+
+		// check the states of all traffic lights and change if necessary
+		if(trafficLightNodes_.length > 0){
+			pool_.invoke(new WorkerTask(WorkerTask.PHASE_TRAFFIC_LIGHTS, EMPTY_VEHICLES, EMPTY_RSUS, trafficLightNodes_, threshold, SimulationMaster.TIME_PER_STEP, recyclingEnabled, profiler));
+			if(profiler != null) profiler.endParallelPhase(StepProfiler.PHASE_TRAFFIC_LIGHTS, phaseStart);
+		}
+		// estimate the current speeds on the streets for the routing (only done in the configured interval)
+		TravelTimeEstimator.getInstance().update(time, pool_);
+		if(profiler != null) profiler.endStep(stepStart);
+
+		KnownVehiclesList.setTimePassed(time);
+		KnownRSUsList.setTimePassed(time);
+		return SimulationClock.advance(SimulationMaster.TIME_PER_STEP);
+	}
+
+	/**
+	 * Starts or ends the silent periods of the vehicles.
+	 */
+	private void updateSilentPeriod(){
+		if(Vehicle.isSilentPeriodsOn()){
+			int silentPeriodDuration = Vehicle.getTIME_OF_SILENT_PERIODS();
+			int silentPeriodFrequency = Vehicle.getTIME_BETWEEN_SILENT_PERIODS();
+			int timePassed = SimulationClock.getTimePassed();
+			if(timePassed > silentPeriodFrequency && timePassed%(silentPeriodDuration + silentPeriodFrequency) < 240){
+				silentPeriodStart_ = timePassed;
+				Vehicle.setSilent_period(true);
+			}
+			else if(Vehicle.isSilent_period() && timePassed > (silentPeriodStart_ + silentPeriodDuration)) Vehicle.setSilent_period(false);
+		}
+	}
+
+	/**
+	 * Calculates multiple simulation steps.
+	 *
+	 * @param steps	the amount of steps
+	 *
+	 * @return <code>true</code> if all steps could be calculated, <code>false</code> if map or scenario are not ready
+	 */
+	public boolean step(int steps){
+		if(!prepareWorkers()) return false;
+		try{
+			for(int i = 0; i < steps; ++i){
+				step();
+			}
+		} catch (Exception e){
+			ErrorLog.log(Messages.getString("SimulationEngine.stepFailed"), 7, SimulationEngine.class.getName(), "step", e); //$NON-NLS-1$ //$NON-NLS-2$
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Simulates until the given time is reached.
+	 *
+	 * @param time	the target time in milliseconds
+	 *
+	 * @return <code>true</code> if the time could be reached, <code>false</code> if map or scenario are not ready
+	 */
+	public boolean runUntil(int time){
+		int remaining = time - SimulationClock.getTimePassed();
+		if(remaining <= 0) return true;
+		return step((remaining + SimulationMaster.TIME_PER_STEP - 1) / SimulationMaster.TIME_PER_STEP);
+	}
+
+	/**
+	 * Collects the statistics of the current simulation state. Don't call this while a step is calculated!
+	 *
+	 * @return the results
+	 */
+	public SimulationResults collectResults(){
+		return new SimulationResults(SimulationClock.getTimePassed(), SimulationClock.getStepCount());
+	}
+}
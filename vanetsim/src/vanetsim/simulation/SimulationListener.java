@@ -0,0 +1,96 @@
+package vanetsim.simulation;
+
+import java.util.concurrent.CyclicBarrier;
+
+import vanetsim.scenario.RSU;
+import vanetsim.scenario.Vehicle;
+
+/**
+ * An interface for the parts of the GUI which need to know about changes of map, scenario and simulation. The GUI registers
+ * an implementation through {@link SimulationEngine#setListener(SimulationListener)} so that the simulation itself doesn't need
+ * any class of the GUI. If nothing is registered (console mode), all calls are ignored.
+ */
+public interface SimulationListener{
+
+	/**
+	 * Called after the old map has been removed by {@link vanetsim.map.Map#initNewMap(int, int, int, int)}.
+	 */
+	public void mapCleared();
+
+	/**
+	 * Called after a map has been loaded completely.
+	 * 
+	 * @param width		the width of the map
+	 * @param height	the height of the map
+	 */
+	public void mapLoaded(int width, int height);
+
+	/**
+	 * Asks the user for the size of a map which is being loaded. The implementation needs to call
+	 * {@link vanetsim.map.Map#initNewMap(int, int, int, int)} and to wait on the <code>barrier</code> afterwards.
+	 * 
+	 * @param width			the width of the map stored in the file
+	 * @param height		the height of the map stored in the file
+	 * @param regionWidth	the width of a region stored in the file
+	 * @param regionHeight	the height of a region stored in the file
+	 * @param barrier		the barrier on which the loading thread waits
+	 */
+	public void requestMapSize(int width, int height, int regionWidth, int regionHeight, CyclicBarrier barrier);
+
+	/**
+	 * Called after the old scenario has been removed by {@link vanetsim.scenario.Scenario#initNewScenario()}.
+	 */
+	public void scenarioCleared();
+
+	/**
+	 * Requests to display the current state of map and simulation.
+	 * 
+	 * @param fullRender		<code>true</code> if the static objects (streets) have changed, too
+	 * @param forceRenderNow	<code>true</code> to render immediately
+	 */
+	public void render(boolean fullRender, boolean forceRenderNow);
+
+	/**
+	 * Called if the simulation starts or stops.
+	 * 
+	 * @param running	<code>true</code> if the simulation is running, else <code>false</code>
+	 */
+	public void simulationRunning(boolean running);
+
+	/**
+	 * Sets the barrier on which the {@link SimulationMaster} waits until a step has been displayed.
+	 * 
+	 * @param barrier	the barrier
+	 */
+	public void setRenderBarrier(CyclicBarrier barrier);
+
+	/**
+	 * Called after each displayed step so that statistics can be updated.
+	 * 
+	 * @param timePerStep	the simulated time of a step in milliseconds
+	 */
+	public void updateStatistics(int timePerStep);
+
+	/**
+	 * Called if a vehicle in the monitored area sends a beacon.
+	 * 
+	 * @param vehicle		the sending vehicle
+	 * @param ID			the ID in the beacon
+	 * @param x				the x coordinate in the beacon
+	 * @param y				the y coordinate in the beacon
+	 * @param speed			the speed in the beacon
+	 * @param isEncrypted	<code>true</code> if the beacon is encrypted
+	 */
+	public void beaconSent(Vehicle vehicle, long ID, long x, long y, double speed, boolean isEncrypted);
+
+	/**
+	 * Called if an RSU in the monitored area sends a beacon.
+	 * 
+	 * @param rsu			the sending RSU
+	 * @param ID			the ID in the beacon
+	 * @param x				the x coordinate in the beacon
+	 * @param y				the y coordinate in the beacon
+	 * @param isEncrypted	<code>true</code> if the beacon is encrypted
+	 */
+	public void beaconSent(RSU rsu, long ID, long x, long y, boolean isEncrypted);
+}
\ No newline at end of file
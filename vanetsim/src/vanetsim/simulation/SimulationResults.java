@@ -0,0 +1,262 @@
+package vanetsim.simulation;
+
+import vanetsim.map.Map;
+import vanetsim.map.Region;
+import vanetsim.routing.RouteCache;
+import vanetsim.scenario.Vehicle;
+
+/**
+ * A snapshot of the statistics of a simulation. The values are the same which are shown in the statistics
+ * of the {@link vanetsim.gui.controlpanels.ReportingControlPanel} but can be collected without any GUI.
+ */
+public final class SimulationResults{
+
+	/** The simulation time in milliseconds when this snapshot was taken. */
+	private final int timePassed_;
+
+	/** The amount of simulated steps. */
+	private final long steps_;
+
+	/** The amount of all vehicles. */
+	private int vehicles_ = 0;
+
+	/** The amount of active vehicles. */
+	private int activeVehicles_ = 0;
+
+	/** The amount of vehicles which have already travelled. */
+	private int travelledVehicles_ = 0;
+
+	/** The amount of active vehicles with wifi. */
+	private int wifiVehicles_ = 0;
+
+	/** The sum of the speeds of all active vehicles in cm/s. */
+	private double speedSum_ = 0;
+
+	/** The sum of the travel distances in cm. */
+	private double travelDistance_ = 0;
+
+	/** The sum of the travel times in milliseconds. */
+	private double travelTime_ = 0;
+
+	/** The amount of created messages. */
+	private long messagesCreated_ = 0;
+
+	/** The amount of failed message forwards. */
+	private long messagesForwardFailed_ = 0;
+
+	/** The sum of all known vehicles of all active vehicles with wifi. */
+	private long knownVehicles_ = 0;
+
+	/** The amount of pseudonym changes. */
+	private long IDsChanged_ = 0;
+
+	/** The ratio of routes which were found in the route cache. */
+	private final double routeCacheHitRate_;
+
+	/** The estimated memory used by the route cache in bytes. */
+	private final long routeCacheMemory_;
+
+	/**
+	 * Collects the statistics from all vehicles on the map. You need to make sure that the vehicles are not modified while executing this.
+	 *
+	 * @param timePassed	the current simulation time in milliseconds
+	 * @param steps			the amount of simulated steps
+	 */
+	public SimulationResults(int timePassed, long steps){
+		timePassed_ = timePassed;
+		steps_ = steps;
+		routeCacheHitRate_ = RouteCache.getInstance().getHitRate();
+		routeCacheMemory_ = RouteCache.getInstance().getMemoryUsage();
+		Region[][] regions = Map.getInstance().getRegions();
+		Vehicle[] vehicles;
+		Vehicle vehicle;
+		int i, j, k;
+		for(i = 0; i < regions.length; ++i){
+			for(j = 0; j < regions[i].length; ++j){
+				vehicles = regions[i][j].getVehicleArray();
+				vehicles_ += vehicles.length;
+				for(k = 0; k < vehicles.length; ++k){
+					vehicle = vehicles[k];
+					if(vehicle.getTotalTravelTime() > 0){
+						++travelledVehicles_;
+						travelDistance_ += vehicle.getTotalTravelDistance();
+						travelTime_ += vehicle.getTotalTravelTime();
+					}
+					if(vehicle.isActive()){
+						++activeVehicles_;
+						speedSum_ += vehicle.getCurSpeed();
+						if(vehicle.isWiFiEnabled()){
+							++wifiVehicles_;
+							messagesForwardFailed_ += vehicle.getKnownMessages().getFailedForwardCount();
+							knownVehicles_ += vehicle.getKnownVehiclesList().getSize();
+							IDsChanged_ += vehicle.getIDsChanged();
+							messagesCreated_ += vehicle.getMessagesCreated();
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the simulation time at which the snapshot was taken.
+	 *
+	 * @return the time in milliseconds
+	 */
+	public int getTimePassed(){
+		return timePassed_;
+	}
+
+	/**
+	 * Gets the amount of simulated steps.
+	 *
+	 * @return the amount of steps
+	 */
+	public long getSteps(){
+		return steps_;
+	}
+
+	/**
+	 * Gets the amount of all vehicles.
+	 *
+	 * @return the amount of vehicles
+	 */
+	public int getVehicles(){
+		return vehicles_;
+	}
+
+	/**
+	 * Gets the amount of active vehicles.
+	 *
+	 * @return the amount of active vehicles
+	 */
+	public int getActiveVehicles(){
+		return activeVehicles_;
+	}
+
+	/**
+	 * Gets the amount of vehicles which have already travelled.
+	 *
+	 * @return the amount of travelled vehicles
+	 */
+	public int getTravelledVehicles(){
+		return travelledVehicles_;
+	}
+
+	/**
+	 * Gets the amount of active vehicles with wifi.
+	 *
+	 * @return the amount of wifi vehicles
+	 */
+	public int getWifiVehicles(){
+		return wifiVehicles_;
+	}
+
+	/**
+	 * Gets the average speed of all active vehicles.
+	 *
+	 * @return the average speed in km/h
+	 */
+	public double getAverageSpeed(){
+		if(activeVehicles_ > 0) return speedSum_/activeVehicles_/100000*3600;
+		else return 0;
+	}
+
+	/**
+	 * Gets the average travel distance of all travelled vehicles.
+	 *
+	 * @return the average travel distance in m
+	 */
+	public double getAverageTravelDistance(){
+		if(travelledVehicles_ > 0) return travelDistance_/travelledVehicles_/100;
+		else return 0;
+	}
+
+	/**
+	 * Gets the average travel time of all travelled vehicles.
+	 *
+	 * @return the average travel time in s
+	 */
+	public double getAverageTravelTime(){
+		if(travelledVehicles_ > 0) return travelTime_/travelledVehicles_/1000;
+		else return 0;
+	}
+
+	/**
+	 * Gets the amount of created messages.
+	 *
+	 * @return the amount of messages
+	 */
+	public long getMessagesCreated(){
+		return messagesCreated_;
+	}
+
+	/**
+	 * Gets the amount of failed message forwards.
+	 *
+	 * @return the amount of failed forwards
+	 */
+	public long getMessagesForwardFailed(){
+		return messagesForwardFailed_;
+	}
+
+	/**
+	 * Gets the average amount of known vehicles of all active vehicles with wifi.
+	 *
+	 * @return the average amount of known vehicles
+	 */
+	public double getAverageKnownVehicles(){
+		if(wifiVehicles_ > 0) return knownVehicles_/(double)wifiVehicles_;
+		else return 0;
+	}
+
+	/**
+	 * Gets the amount of pseudonym changes.
+	 *
+	 * @return the amount of ID changes
+	 */
+	public long getIDsChanged(){
+		return IDsChanged_;
+	}
+
+	/**
+	 * Gets the ratio of routes which were found in the route cache.
+	 *
+	 * @return the hit rate between <code>0</code> and <code>1</code>
+	 */
+	public double getRouteCacheHitRate(){
+		return routeCacheHitRate_;
+	}
+
+	/**
+	 * Gets the estimated memory used by the route cache.
+	 *
+	 * @return the memory in bytes
+	 */
+	public long getRouteCacheMemory(){
+		return routeCacheMemory_;
+	}
+
+	/**
+	 * Returns a textual summary of this snapshot.
+	 *
+	 * @return the summary
+	 */
+	public String toString(){
+		StringBuilder result = new StringBuilder(256);
+		result.append("time:").append(timePassed_); //$NON-NLS-1$
+		result.append(":steps:").append(steps_); //$NON-NLS-1$
+		result.append(":vehicles:").append(vehicles_); //$NON-NLS-1$
+		result.append(":activeVehicles:").append(activeVehicles_); //$NON-NLS-1$
+		result.append(":averageSpeed:").append(getAverageSpeed()); //$NON-NLS-1$
+		result.append(":averageTravelDistance:").append(getAverageTravelDistance()); //$NON-NLS-1$
+		result.append(":averageTravelTime:").append(getAverageTravelTime()); //$NON-NLS-1$
+		result.append(":messagesCreated:").append(messagesCreated_); //$NON-NLS-1$
+		result.append(":messagesForwardFailed:").append(messagesForwardFailed_); //$NON-NLS-1$
+		result.append(":averageKnownVehicles:").append(getAverageKnownVehicles()); //$NON-NLS-1$
+		result.append(":IDsChanged:").append(IDsChanged_); //$NON-NLS-1$
+		result.append(":routeCacheHitRate:").append(routeCacheHitRate_); //$NON-NLS-1$
+		result.append(":routeCacheMemory:").append(routeCacheMemory_); //$NON-NLS-1$
+		return result.toString();
+	}
+}
@@ -0,0 +1,295 @@
+package vanetsim.simulation;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import vanetsim.ErrorLog;
+import vanetsim.localization.Messages;
+
+/**
+ * Measures how long the phases of the simulation steps take. For each phase, the wall time of every step is
+ * recorded in a {@link LatencyHistogram}. The phases which are calculated in parallel additionally record how long
+ * each worker was busy so that the time a worker waited for the others (load imbalance) can be calculated.
+ * The profiler is disabled by default and costs nearly nothing in this state.
+ */
+public final class StepProfiler{
+
+	/** Phase: processing the events. */
+	public static final int PHASE_EVENTS = 0;
+
+	/** Phase: adjusting the speed of the vehicles and cleaning up the RSUs. */
+	public static final int PHASE_ADJUST_SPEED = 1;
+
+	/** Phase: rebuilding the spatial hash and the neighbor table for the communication. */
+	public static final int PHASE_SPATIAL_HASH = 2;
+
+	/** Phase: sending messages. */
+	public static final int PHASE_SEND_MESSAGES = 3;
+
+	/** Phase: sending beacons. */
+	public static final int PHASE_SEND_BEACONS = 4;
+
+	/** Phase: delivering the buffered beacons. */
+	public static final int PHASE_DELIVER_BEACONS = 5;
+
+	/** Phase: moving the attacker. */
+	public static final int PHASE_MOVE_ATTACKER = 6;
+
+	/** Phase: moving all vehicles. */
+	public static final int PHASE_MOVE = 7;
+
+	/** Phase: changing the traffic lights. */
+	public static final int PHASE_TRAFFIC_LIGHTS = 8;
+
+	/** The complete step. */
+	public static final int PHASE_STEP = 9;
+
+	/** The names of the phases used for exporting. */
+	private static final String[] PHASE_NAMES = {"events", "adjustSpeed", "spatialHash", "sendMessages", "sendBeacons", "deliverBeacons", "moveAttacker", "move", "trafficLights", "step"}; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$ //$NON-NLS-10$
+
+	/** The distance between two slots in {@link #busy_} so that the workers don't write into the same cache line. */
+	private static final int SLOT_PADDING = 8;
+
+	/** The only instance of this class (singleton). */
+	private static final StepProfiler INSTANCE = new StepProfiler();
+
+	/** <code>true</code> if profiling is enabled. */
+	private volatile boolean enabled_ = false;
+
+	/** The histograms of the phases. */
+	private final LatencyHistogram[] phases_ = new LatencyHistogram[PHASE_NAMES.length];
+
+	/** The histograms for the waiting time of each worker per step. */
+	private LatencyHistogram[] workerWaits_ = new LatencyHistogram[0];
+
+	/** The busy time of each worker in the current phase in nanoseconds. */
+	private AtomicLongArray busy_ = new AtomicLongArray(0);
+
+	/** The waiting time of each worker in the current step in nanoseconds. */
+	private long[] stepWaits_ = new long[0];
+
+	/**
+	 * Private constructor in order to disable instancing.
+	 */
+	private StepProfiler(){
+		for(int i = 0; i < phases_.length; ++i) phases_[i] = new LatencyHistogram();
+	}
+
+	/**
+	 * Gets the single instance of this profiler.
+	 *
+	 * @return single instance of this profiler
+	 */
+	public static StepProfiler getInstance(){
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns if profiling is enabled.
+	 *
+	 * @return <code>true</code> if enabled
+	 */
+	public boolean isEnabled(){
+		return enabled_;
+	}
+
+	/**
+	 * Enables or disables profiling.
+	 *
+	 * @param enabled	<code>true</code> to enable profiling
+	 */
+	public void setEnabled(boolean enabled){
+		enabled_ = enabled;
+	}
+
+	/**
+	 * Sets the amount of workers. All recorded worker waiting times are removed.
+	 *
+	 * @param workers	the amount of worker threads
+	 */
+	public synchronized void setWorkers(int workers){
+		workerWaits_ = new LatencyHistogram[workers];
+		for(int i = 0; i < workers; ++i) workerWaits_[i] = new LatencyHistogram();
+		busy_ = new AtomicLongArray(workers * SLOT_PADDING);
+		stepWaits_ = new long[workers];
+	}
+
+	/**
+	 * Removes all recorded values.
+	 */
+	public synchronized void reset(){
+		int i;
+		for(i = 0; i < phases_.length; ++i) phases_[i].reset();
+		for(i = 0; i < workerWaits_.length; ++i){
+			workerWaits_[i].reset();
+			stepWaits_[i] = 0;
+		}
+		for(i = 0; i < busy_.length(); ++i) busy_.set(i, 0);
+	}
+
+	/**
+	 * Adds busy time to the worker calling this function. Called by the {@link WorkerTask}s.
+	 *
+	 * @param nanos	the time in nanoseconds
+	 */
+	public void addBusyTime(long nanos){
+		int slots = busy_.length() / SLOT_PADDING;
+		if(slots == 0) return;
+		int worker = 0;
+		Thread thread = Thread.currentThread();
+		if(thread instanceof ForkJoinWorkerThread) worker = Math.min(((ForkJoinWorkerThread)thread).getPoolIndex(), slots - 1);
+		busy_.addAndGet(worker * SLOT_PADDING, nanos);
+	}
+
+	/**
+	 * Records the end of a phase which is calculated by one thread.
+	 *
+	 * @param phase	the phase (one of the <code>PHASE_</code> constants)
+	 * @param start	the value of <code>System.nanoTime()</code> when the phase started
+	 *
+	 * @return the value of <code>System.nanoTime()</code> at the end of the phase
+	 */
+	public synchronized long endPhase(int phase, long start){
+		long now = System.nanoTime();
+		phases_[phase].record(now - start);
+		return now;
+	}
+
+	/**
+	 * Records the end of a phase which was calculated by the workers. Each worker which was busy shorter than the
+	 * phase took waited for the others.
+	 *
+	 * @param phase	the phase (one of the <code>PHASE_</code> constants)
+	 * @param start	the value of <code>System.nanoTime()</code> when the phase started
+	 *
+	 * @return the value of <code>System.nanoTime()</code> at the end of the phase
+	 */
+	public synchronized long endParallelPhase(int phase, long start){
+		long now = System.nanoTime();
+		long duration = now - start;
+		phases_[phase].record(duration);
+		for(int i = 0; i < stepWaits_.length; ++i){
+			stepWaits_[i] += Math.max(0, duration - busy_.getAndSet(i * SLOT_PADDING, 0));
+		}
+		return now;
+	}
+
+	/**
+	 * Records the end of a step.
+	 *
+	 * @param start	the value of <code>System.nanoTime()</code> when the step started
+	 */
+	public synchronized void endStep(long start){
+		phases_[PHASE_STEP].record(System.nanoTime() - start);
+		for(int i = 0; i < stepWaits_.length; ++i){
+			workerWaits_[i].record(stepWaits_[i]);
+			stepWaits_[i] = 0;
+		}
+	}
+
+	/**
+	 * Gets the histogram of a phase.
+	 *
+	 * @param phase	the phase (one of the <code>PHASE_</code> constants)
+	 *
+	 * @return the histogram
+	 */
+	public LatencyHistogram getPhase(int phase){
+		return phases_[phase];
+	}
+
+	/**
+	 * Writes all histograms to a CSV file (<code>basePath</code>.csv) and a JSON file (<code>basePath</code>.json).
+	 * All times are in microseconds.
+	 *
+	 * @param basePath	the path of the files without file extension
+	 */
+	public synchronized void export(String basePath){
+		int i;
+		StringBuilder csv = new StringBuilder(2048);
+		csv.append("name,count,mean_us,p50_us,p99_us,max_us,total_ms\n"); //$NON-NLS-1$
+		for(i = 0; i < phases_.length; ++i) appendCSV(csv, PHASE_NAMES[i], phases_[i]);
+		for(i = 0; i < workerWaits_.length; ++i) appendCSV(csv, "wait.worker" + i, workerWaits_[i]); //$NON-NLS-1$
+
+		StringBuilder json = new StringBuilder(4096);
+		json.append("{\n  \"steps\": ").append(phases_[PHASE_STEP].getCount()); //$NON-NLS-1$
+		json.append(",\n  \"workers\": ").append(workerWaits_.length); //$NON-NLS-1$
+		json.append(",\n  \"phases\": {"); //$NON-NLS-1$
+		for(i = 0; i < phases_.length; ++i){
+			if(i > 0) json.append(',');
+			json.append("\n    \"").append(PHASE_NAMES[i]).append("\": "); //$NON-NLS-1$ //$NON-NLS-2$
+			appendJSON(json, phases_[i]);
+		}
+		json.append("\n  },\n  \"workerWait\": ["); //$NON-NLS-1$
+		for(i = 0; i < workerWaits_.length; ++i){
+			if(i > 0) json.append(',');
+			json.append("\n    "); //$NON-NLS-1$
+			appendJSON(json, workerWaits_[i]);
+		}
+		json.append("\n  ]\n}\n"); //$NON-NLS-1$
+
+		writeFile(basePath + ".csv", csv.toString()); //$NON-NLS-1$
+		writeFile(basePath + ".json", json.toString()); //$NON-NLS-1$
+	}
+
+	/**
+	 * Appends one line with the values of a histogram to a CSV table.
+	 *
+	 * @param csv		the table
+	 * @param name		the name of the line
+	 * @param histogram	the histogram
+	 */
+	private static void appendCSV(StringBuilder csv, String name, LatencyHistogram histogram){
+		csv.append(name).append(',').append(histogram.getCount());
+		csv.append(',').append(toMicros(histogram.getMean()));
+		csv.append(',').append(toMicros(histogram.getPercentile(50)));
+		csv.append(',').append(toMicros(histogram.getPercentile(99)));
+		csv.append(',').append(toMicros(histogram.getMax()));
+		csv.append(',').append(String.format(Locale.ENGLISH, "%.3f", histogram.getSum() / 1000000.0)).append('\n'); //$NON-NLS-1$
+	}
+
+	/**
+	 * Appends the values of a histogram as JSON object.
+	 *
+	 * @param json		the JSON text
+	 * @param histogram	the histogram
+	 */
+	private static void appendJSON(StringBuilder json, LatencyHistogram histogram){
+		json.append("{\"count\": ").append(histogram.getCount()); //$NON-NLS-1$
+		json.append(", \"mean_us\": ").append(toMicros(histogram.getMean())); //$NON-NLS-1$
+		json.append(", \"p50_us\": ").append(toMicros(histogram.getPercentile(50))); //$NON-NLS-1$
+		json.append(", \"p99_us\": ").append(toMicros(histogram.getPercentile(99))); //$NON-NLS-1$
+		json.append(", \"max_us\": ").append(toMicros(histogram.getMax())); //$NON-NLS-1$
+		json.append(", \"total_ms\": ").append(String.format(Locale.ENGLISH, "%.3f", histogram.getSum() / 1000000.0)).append('}'); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Formats nanoseconds as microseconds.
+	 *
+	 * @param nanos	the time in nanoseconds
+	 *
+	 * @return the formatted time
+	 */
+	private static String toMicros(double nanos){
+		return String.format(Locale.ENGLISH, "%.1f", nanos / 1000); //$NON-NLS-1$
+	}
+
+	/**
+	 * Writes a text to a file. An existing file is overwritten.
+	 *
+	 * @param fileName	the path of the file
+	 * @param text		the text
+	 */
+	private static void writeFile(String fileName, String text){
+		try{
+			BufferedWriter out = new BufferedWriter(new FileWriter(fileName, false));
+			out.write(text);
+			out.close();
+		} catch (Exception e){
+			ErrorLog.log(Messages.getString("StepProfiler.exportFailed") + fileName, 6, StepProfiler.class.getName(), "writeFile", e); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+}
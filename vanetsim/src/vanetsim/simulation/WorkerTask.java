@@ -0,0 +1,190 @@
+package vanetsim.simulation;
+
+import java.util.concurrent.RecursiveAction;
+
+import vanetsim.map.Node;
+import vanetsim.scenario.RSU;
+import vanetsim.scenario.Vehicle;
+
+/**
+ * One phase of a simulation step, calculated on a range of vehicles, RSUs and traffic light nodes. The task
+ * is executed in a <code>ForkJoinPool</code> and splits itself in halves until the range is small enough. Idle
+ * workers of the pool steal the remaining halves so that the work is balanced by the amount of objects and not
+ * by the amount of regions (which might hold very different amounts of vehicles).
+ * The index range covers the vehicles first, then the RSUs and then the traffic light nodes.
+ */
+public final class WorkerTask extends RecursiveAction {
+
+	/** The <code>serialVersionUID</code> needed because <code>RecursiveAction</code> is serializable. */
+	private static final long serialVersionUID = 4361294830138857402L;
+
+	/** Phase: adjust the speed of the vehicles and clean up old messages in the RSUs. */
+	public static final int PHASE_ADJUST_SPEED = 0;
+
+	/** Phase: vehicles and RSUs send messages. */
+	public static final int PHASE_SEND_MESSAGES = 1;
+
+	/** Phase: vehicles and RSUs send beacons. */
+	public static final int PHASE_SEND_BEACONS = 2;
+
+	/** Phase: move all vehicles one step further (and recycle inactive vehicles). */
+	public static final int PHASE_MOVE = 3;
+
+	/** Phase: check the states of all traffic lights and change them if necessary. */
+	public static final int PHASE_TRAFFIC_LIGHTS = 4;
+
+	/** The phase to calculate. */
+	private final int phase_;
+
+	/** All vehicles of the current step. */
+	private final Vehicle[] vehicles_;
+
+	/** All RSUs. */
+	private final RSU[] rsus_;
+
+	/** All nodes with traffic signals. */
+	private final Node[] nodes_;
+
+	/** The first index (inclusive) this task works on. */
+	private final int from_;
+
+	/** The last index (exclusive) this task works on. */
+	private final int to_;
+
+	/** Ranges with at most this amount of objects are not split any further. */
+	private final int threshold_;
+
+	/** The time in milliseconds for one step. */
+	private final int timePerStep_;
+
+	/** <code>true</code> if inactive vehicles may be recycled. */
+	private final boolean recyclingEnabled_;
+
+	/** The profiler which gets the busy times or <code>null</code> if profiling is disabled. */
+	private final StepProfiler profiler_;
+
+	/**
+	 * Creates a task covering all given objects.
+	 *
+	 * @param phase				the phase to calculate (one of the <code>PHASE_</code> constants)
+	 * @param vehicles			the vehicles
+	 * @param rsus				the RSUs
+	 * @param nodes				the nodes with traffic signals
+	 * @param threshold			ranges with at most this amount of objects are calculated without splitting
+	 * @param timePerStep		the time in milliseconds for one step
+	 * @param recyclingEnabled	<code>true</code> if inactive vehicles may be recycled
+	 * @param profiler			the profiler which gets the busy times or <code>null</code> if profiling is disabled
+	 */
+	public WorkerTask(int phase, Vehicle[] vehicles, RSU[] rsus, Node[] nodes, int threshold, int timePerStep, boolean recyclingEnabled, StepProfiler profiler){
+		this(phase, vehicles, rsus, nodes, 0, vehicles.length + rsus.length + nodes.length, Math.max(1, threshold), timePerStep, recyclingEnabled, profiler);
+	}
+
+	/**
+	 * Creates a task covering a part of the given objects.
+	 *
+	 * @param phase				the phase to calculate
+	 * @param vehicles			the vehicles
+	 * @param rsus				the RSUs
+	 * @param nodes				the nodes with traffic signals
+	 * @param from				the first index (inclusive)
+	 * @param to				the last index (exclusive)
+	 * @param threshold			ranges with at most this amount of objects are calculated without splitting
+	 * @param timePerStep		the time in milliseconds for one step
+	 * @param recyclingEnabled	<code>true</code> if inactive vehicles may be recycled
+	 * @param profiler			the profiler which gets the busy times or <code>null</code> if profiling is disabled
+	 */
+	private WorkerTask(int phase, Vehicle[] vehicles, RSU[] rsus, Node[] nodes, int from, int to, int threshold, int timePerStep, boolean recyclingEnabled, StepProfiler profiler){
+		phase_ = phase;
+		vehicles_ = vehicles;
+		rsus_ = rsus;
+		nodes_ = nodes;
+		from_ = from;
+		to_ = to;
+		threshold_ = threshold;
+		timePerStep_ = timePerStep;
+		recyclingEnabled_ = recyclingEnabled;
+		profiler_ = profiler;
+	}
+
+	/**
+	 * Calculates the range directly or splits it in two halves.
+	 */
+	protected void compute(){
+		if(to_ - from_ <= threshold_){
+			// the try/catch is done like in the former worker threads: a failure in one object shall not stop the whole simulation
+			long start = 0;
+			if(profiler_ != null) start = System.nanoTime();
+			try{
+				calculate(from_, to_);
+			} catch (Exception e){}
+			if(profiler_ != null) profiler_.addBusyTime(System.nanoTime() - start);
+		} else {
+			int middle = (from_ + to_) >>> 1;
+			invokeAll(new WorkerTask(phase_, vehicles_, rsus_, nodes_, from_, middle, threshold_, timePerStep_, recyclingEnabled_, profiler_),
+					new WorkerTask(phase_, vehicles_, rsus_, nodes_, middle, to_, threshold_, timePerStep_, recyclingEnabled_, profiler_));
+		}
+	}
+
+	/**
+	 * Calculates the phase on a range of objects.
+	 *
+	 * @param from	the first index (inclusive)
+	 * @param to	the last index (exclusive)
+	 */
+	private void calculate(int from, int to){
+		int vehicleCount = vehicles_.length;
+		int rsuEnd = vehicleCount + rsus_.length;
+		int i = from;
+		int end = Math.min(to, vehicleCount);
+		Vehicle vehicle;
+		RSU rsu;
+		for(; i < end; ++i){
+			vehicle = vehicles_[i];
+			switch(phase_){
+				case PHASE_ADJUST_SPEED:
+					vehicle.adjustSpeed(timePerStep_);
+					break;
+				case PHASE_SEND_MESSAGES:
+					if(vehicle.isActive() && vehicle.isWiFiEnabled() && vehicle.getCommunicationCountdown() < 1) vehicle.sendMessages();
+					break;
+				case PHASE_SEND_BEACONS:
+					if(vehicle.isActive() && vehicle.isWiFiEnabled() && vehicle.getBeaconCountdown() < 1){
+						if(!vehicle.isInMixZone()) vehicle.sendBeacons();
+						else if(vehicle.getCurMixNode_() != null && vehicle.getCurMixNode_().getEncryptedRSU_() != null) vehicle.sendEncryptedBeacons();
+					}
+					break;
+				case PHASE_MOVE:
+					if(vehicle.isActive()) vehicle.move(timePerStep_);
+					else if(recyclingEnabled_ && vehicle.getMayBeRecycled()) vehicle.reset();
+					break;
+			}
+		}
+		end = Math.min(to, rsuEnd);
+		for(; i < end; ++i){
+			rsu = rsus_[i - vehicleCount];
+			switch(phase_){
+				case PHASE_ADJUST_SPEED:
+					rsu.cleanup(timePerStep_);
+					break;
+				case PHASE_SEND_MESSAGES:
+					if(rsu.getCommunicationCountdown() < 1 && !rsu.isEncrypted_()) rsu.sendMessages();
+					break;
+				case PHASE_SEND_BEACONS:
+					if(rsu.getBeaconCountdown() < 1){
+						if(rsu.isEncrypted_()) rsu.sendEncryptedBeacons();
+						else rsu.sendBeacons();
+					}
+					break;
+			}
+		}
+		if(phase_ == PHASE_TRAFFIC_LIGHTS){
+			Node node;
+			for(; i < to; ++i){
+				node = nodes_[i - rsuEnd];
+				if(node.getJunction() != null && node.getJunction().getNode().getTrafficLight_() != null){
+					node.getJunction().getNode().getTrafficLight_().changePhases(timePerStep_);
+				}
+			}
+		}
+	}
+}